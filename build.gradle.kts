@@ -3,6 +3,7 @@ plugins {
     `java-library`
     jacoco
     alias(libs.plugins.maven.publish) apply false
+    alias(libs.plugins.jmh) apply false
 }
 
 val versionFile = file("version.txt")
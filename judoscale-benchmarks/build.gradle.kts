@@ -0,0 +1,38 @@
+plugins {
+    alias(libs.plugins.jmh)
+}
+
+description = "JMH benchmarks for Judoscale Java integrations (not published)"
+
+dependencies {
+    jmh(project(":judoscale-core"))
+    jmh(project(":judoscale-spring-boot-starter"))
+    jmh(libs.jmh.core)
+    jmhAnnotationProcessor(libs.jmh.generator.annprocess)
+
+    // Servlet API and mock requests for the filter benchmark
+    jmh(libs.spring.boot.starter.web)
+    jmh(libs.spring.boot.starter.test)
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    // Report allocation per operation alongside time per operation
+    profilers.add("gc")
+    resultFormat.set("JSON")
+    providers.gradleProperty("jmhIncludes").orNull?.let { includes.add(it) }
+    providers.gradleProperty("jmhThreads").orNull?.let { threads.set(it.toInt()) }
+}
+
+// Runs every benchmark at 1, 8 and 64 threads and writes a summary to compare against baseline.md
+tasks.register<JavaExec>("jmhSuite") {
+    group = "benchmark"
+    description = "Runs the JMH benchmarks at 1, 8 and 64 threads with the GC profiler"
+    dependsOn("jmhJar")
+    classpath = files(tasks.named("jmhJar"))
+    mainClass.set("com.judoscale.benchmarks.BenchmarkSuite")
+    args = listOfNotNull(
+        layout.buildDirectory.dir("results/jmh").get().asFile.path,
+        providers.gradleProperty("jmhIncludes").orNull
+    )
+}
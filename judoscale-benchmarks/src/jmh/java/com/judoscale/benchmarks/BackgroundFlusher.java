@@ -0,0 +1,32 @@
+package com.judoscale.benchmarks;
+
+import com.judoscale.core.MetricsStore;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Flushes a metrics store in the background, the way the reporter does, so stores stay bounded
+ * while request threads push into them for the length of a benchmark.
+ */
+final class BackgroundFlusher implements AutoCloseable {
+
+    private static final long INTERVAL_MILLIS = 100;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "benchmark-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    BackgroundFlusher(MetricsStore metricsStore) {
+        executor.scheduleAtFixedRate(metricsStore::flushReport, INTERVAL_MILLIS, INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(1, TimeUnit.SECONDS);
+    }
+}
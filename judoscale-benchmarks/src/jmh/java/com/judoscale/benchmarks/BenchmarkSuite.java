@@ -0,0 +1,100 @@
+package com.judoscale.benchmarks;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Runs the benchmarks at 1, 8 and 64 threads with the GC profiler. Writes the JMH JSON results for
+ * each thread count plus a summary table in the same layout as {@code baseline.md}, so the two can
+ * be compared line by line.
+ *
+ * <p>Arguments: the output directory, and optionally a regular expression selecting benchmarks.</p>
+ */
+public final class BenchmarkSuite {
+
+    static final int[] THREAD_COUNTS = {1, 8, 64};
+
+    private BenchmarkSuite() {
+    }
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        File outputDir = new File(args.length > 0 ? args[0] : "build/results/jmh");
+        String includes = args.length > 1 ? args[1] : BenchmarkSuite.class.getPackage().getName() + ".*";
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            throw new IOException("Could not create " + outputDir);
+        }
+
+        List<RunResult> results = new ArrayList<>();
+        for (int threads : THREAD_COUNTS) {
+            Options options = new OptionsBuilder()
+                .include(includes)
+                .threads(threads)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(new File(outputDir, "results-" + threads + "-threads.json").getPath())
+                .build();
+            results.addAll(new Runner(options).run());
+        }
+
+        File summary = new File(outputDir, "summary.md");
+        try (PrintWriter out = new PrintWriter(summary, StandardCharsets.UTF_8.name())) {
+            writeSummary(results, out);
+        }
+        System.out.println("Summary written to " + summary);
+    }
+
+    private static void writeSummary(List<RunResult> results, PrintWriter out) {
+        out.println("| Benchmark | Params | Threads | Time | Allocated (B/op) |");
+        out.println("|---|---|---:|---:|---:|");
+        for (RunResult result : results) {
+            BenchmarkParams params = result.getParams();
+            Result primary = result.getPrimaryResult();
+            out.printf(Locale.ROOT, "| %s | %s | %d | %.1f %s | %s |%n",
+                shortName(params.getBenchmark()), paramString(params), params.getThreads(),
+                primary.getScore(), primary.getScoreUnit(), allocated(result.getSecondaryResults()));
+        }
+    }
+
+    private static String shortName(String benchmark) {
+        // com.judoscale.benchmarks.MetricsStoreBenchmark.push -> MetricsStoreBenchmark.push
+        int method = benchmark.lastIndexOf('.');
+        return benchmark.substring(benchmark.lastIndexOf('.', method - 1) + 1);
+    }
+
+    private static String paramString(BenchmarkParams params) {
+        StringBuilder builder = new StringBuilder();
+        for (String key : params.getParamsKeys()) {
+            if (builder.length() > 0) {
+                builder.append(", ");
+            }
+            builder.append(key).append('=').append(params.getParam(key));
+        }
+        return builder.length() > 0 ? builder.toString() : "-";
+    }
+
+    private static String allocated(Map<String, Result> secondaryResults) {
+        // Older JMH versions prefix the GC profiler's results with a middle dot
+        for (Map.Entry<String, Result> entry : secondaryResults.entrySet()) {
+            if (entry.getKey().endsWith("gc.alloc.rate.norm")) {
+                return String.format(Locale.ROOT, "%.1f", entry.getValue().getScore());
+            }
+        }
+        return "-";
+    }
+}
@@ -0,0 +1,71 @@
+package com.judoscale.benchmarks;
+
+import com.judoscale.core.MetricsStore;
+import com.judoscale.core.UtilizationTracker;
+import com.judoscale.spring.JudoscaleConfig;
+import com.judoscale.spring.JudoscaleFilter;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a request with an X-Request-Start header through the Spring Boot 3 filter and an empty
+ * filter chain, so the score is the overhead the filter adds to every request.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JudoscaleFilterBenchmark {
+
+    private static final FilterChain EMPTY_CHAIN = (request, response) -> { };
+
+    private JudoscaleFilter filter;
+    private BackgroundFlusher flusher;
+
+    @State(Scope.Thread)
+    public static class Exchange {
+        MockHttpServletRequest request;
+        MockHttpServletResponse response;
+
+        @Setup
+        public void setUp() {
+            request = new MockHttpServletRequest("GET", "/");
+            request.addHeader("X-Request-Start", "t=" + System.currentTimeMillis() / 1000 + ".000");
+            response = new MockHttpServletResponse();
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        JudoscaleConfig config = new JudoscaleConfig();
+        MetricsStore metricsStore = MetricsStore.forConfig(config);
+        filter = new JudoscaleFilter(metricsStore, config, new UtilizationTracker());
+        flusher = new BackgroundFlusher(metricsStore);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        flusher.close();
+    }
+
+    @Benchmark
+    public void doFilter(Exchange exchange) throws Exception {
+        filter.doFilter(exchange.request, exchange.response, EMPTY_CHAIN);
+    }
+}
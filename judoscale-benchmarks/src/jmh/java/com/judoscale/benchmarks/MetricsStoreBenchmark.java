@@ -0,0 +1,57 @@
+package com.judoscale.benchmarks;
+
+import com.judoscale.core.ConfigBase;
+import com.judoscale.core.MetricsStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pushes a request metric into each metrics store while a background thread flushes it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsStoreBenchmark {
+
+    @Param({"queue", "striped", "ring", "histogram", "reservoir"})
+    public String store;
+
+    private MetricsStore metricsStore;
+    private BackgroundFlusher flusher;
+    private Instant now;
+
+    @Setup
+    public void setUp() {
+        ConfigBase config = new ConfigBase();
+        config.setMetricsStore(store);
+        metricsStore = MetricsStore.forConfig(config);
+        flusher = new BackgroundFlusher(metricsStore);
+        now = Instant.now();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        flusher.close();
+    }
+
+    @Benchmark
+    public void push() {
+        metricsStore.push("at", 42, now);
+    }
+}
@@ -0,0 +1,94 @@
+package com.judoscale.benchmarks;
+
+import com.judoscale.core.QueueTimeCalculator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses X-Request-Start headers in each supported format with the current single-pass scanner
+ * and with the regex-based parser it replaced.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueueTimeCalculatorBenchmark {
+
+    @Param({
+        "1705314600000",        // milliseconds (Heroku)
+        "t=1705314600.123",     // fractional seconds (NGINX)
+        "1705314600000000",     // microseconds
+        "1705314600000000000",  // nanoseconds (Render)
+    })
+    public String header;
+
+    private final Instant now = Instant.parse("2024-01-15T10:30:00.100Z");
+
+    @Benchmark
+    public long scanner() {
+        return QueueTimeCalculator.calculateQueueTime(header, now);
+    }
+
+    @Benchmark
+    public long regex() {
+        return RegexQueueTimeCalculator.calculateQueueTime(header, now);
+    }
+
+    /**
+     * The parser as it was before the single-pass scanner, kept as the baseline.
+     */
+    static final class RegexQueueTimeCalculator {
+
+        private static final long MILLISECONDS_CUTOFF = Instant.parse("2000-01-01T00:00:00Z").toEpochMilli();
+        private static final long MICROSECONDS_CUTOFF = MILLISECONDS_CUTOFF * 1000;
+        private static final long NANOSECONDS_CUTOFF = MICROSECONDS_CUTOFF * 1000;
+
+        static long calculateQueueTime(String requestStartHeader, Instant now) {
+            try {
+                String cleanValue = requestStartHeader.replaceAll("[^0-9.]", "");
+
+                long startTimeMs;
+                if (!cleanValue.contains(".")) {
+                    long value = Long.parseLong(cleanValue);
+                    if (value > NANOSECONDS_CUTOFF) {
+                        startTimeMs = value / 1_000_000;
+                    } else if (value > MICROSECONDS_CUTOFF) {
+                        startTimeMs = value / 1_000;
+                    } else if (value > MILLISECONDS_CUTOFF) {
+                        startTimeMs = value;
+                    } else {
+                        startTimeMs = value * 1000;
+                    }
+                } else {
+                    double value = Double.parseDouble(cleanValue);
+                    if (value > NANOSECONDS_CUTOFF) {
+                        startTimeMs = (long) (value / 1_000_000);
+                    } else if (value > MICROSECONDS_CUTOFF) {
+                        startTimeMs = (long) (value / 1_000);
+                    } else if (value > MILLISECONDS_CUTOFF) {
+                        startTimeMs = (long) value;
+                    } else {
+                        startTimeMs = (long) (value * 1000);
+                    }
+                }
+
+                return Math.max(0, now.toEpochMilli() - startTimeMs);
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+    }
+}
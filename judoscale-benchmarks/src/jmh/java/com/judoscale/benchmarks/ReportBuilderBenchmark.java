@@ -0,0 +1,77 @@
+package com.judoscale.benchmarks;
+
+import com.judoscale.core.Adapter;
+import com.judoscale.core.Metric;
+import com.judoscale.core.Report;
+import com.judoscale.core.ReportBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializes a report interval's worth of request metrics to JSON.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReportBuilderBenchmark {
+
+    private static final OutputStream DISCARD = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    @Param({"100", "10000"})
+    public int metricCount;
+
+    private Report report;
+    private Collection<Adapter> adapters;
+
+    @Setup
+    public void setUp() {
+        Instant start = Instant.parse("2024-01-15T10:30:00Z");
+        List<Metric> metrics = new ArrayList<>(metricCount);
+        for (int i = 0; i < metricCount; i++) {
+            // Queue time and app time for each request, spread over a 10 second report interval
+            Instant time = start.plusMillis(i * 10_000L / metricCount);
+            metrics.add(new Metric(i % 2 == 0 ? "qt" : "at", i % 250, time));
+        }
+        report = new Report(metrics);
+        adapters = Collections.singletonList(new Adapter("judoscale-spring-boot", "1.0.0", "3.2.2"));
+    }
+
+    @Benchmark
+    public String buildReportJson() {
+        return ReportBuilder.buildReportJson(report, adapters, "web.1");
+    }
+
+    @Benchmark
+    public void writeReportJson() throws IOException {
+        ReportBuilder.writeReportJson(report, adapters, "web.1", DISCARD);
+    }
+}
@@ -0,0 +1,41 @@
+package com.judoscale.benchmarks;
+
+import com.judoscale.core.UtilizationTracker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Marks a request as started and finished, as the filter does around every request.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UtilizationTrackerBenchmark {
+
+    private UtilizationTracker tracker;
+
+    @Setup
+    public void setUp() {
+        tracker = new UtilizationTracker();
+        tracker.start();
+    }
+
+    @Benchmark
+    public void incrDecr() {
+        tracker.incr();
+        tracker.decr();
+    }
+}
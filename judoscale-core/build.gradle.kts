@@ -18,9 +18,6 @@ tasks.withType<JavaCompile> {
 }
 
 dependencies {
-    // JSON processing
-    implementation(libs.jackson.databind)
-
     // Testing
     testImplementation(libs.junit.jupiter)
     testImplementation(libs.assertj.core)
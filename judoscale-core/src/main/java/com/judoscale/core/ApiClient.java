@@ -13,4 +13,54 @@ public interface ApiClient {
      * Returns true if successful, false otherwise.
      */
     boolean reportMetrics(List<Metric> metrics);
+
+    /**
+     * Reports a full report, including any aggregated histogram snapshots.
+     * The default implementation only sends the individual metrics; implementations that
+     * serialize with {@link ReportBuilder#buildReportJson(Report, java.util.Collection, String)}
+     * should override it.
+     * Returns true if successful, false otherwise.
+     */
+    default boolean reportMetrics(Report report) {
+        return reportMetrics(report.metrics());
+    }
+
+    /**
+     * Sends up to {@code maxReports} reports that were spooled after failing to send, oldest first.
+     * Returns the number sent. The default implementation has no spool and sends nothing.
+     */
+    default int replaySpooledReports(int maxReports) {
+        return 0;
+    }
+
+    /**
+     * Opens a connection to the API in the background, so the first report reuses it instead of
+     * paying the handshake. The default implementation does nothing.
+     */
+    default void prewarm() {
+    }
+
+    /**
+     * Returns compression totals for the reports sent so far, or null if they aren't tracked.
+     * The default implementation doesn't compress and returns null.
+     */
+    default CompressionStats getCompressionStats() {
+        return null;
+    }
+
+    /**
+     * Returns connection totals for the requests sent so far, or null if they aren't tracked.
+     * The default implementation returns null.
+     */
+    default ConnectionStats getConnectionStats() {
+        return null;
+    }
+
+    /**
+     * Returns the state of the circuit breaker guarding sends. The default implementation has no
+     * breaker and is always {@link CircuitBreaker.State#CLOSED}.
+     */
+    default CircuitBreaker.State getCircuitBreakerState() {
+        return CircuitBreaker.State.CLOSED;
+    }
 }
@@ -0,0 +1,17 @@
+package com.judoscale.core;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An {@link ApiClient} that can send reports without blocking the caller.
+ * The {@link Reporter} sends reports through it when available, so a slow API call doesn't delay
+ * collecting the next report.
+ */
+public interface AsyncApiClient extends ApiClient {
+
+    /**
+     * Sends a report without waiting for the response.
+     * The returned future completes with true if the report was accepted, false otherwise.
+     */
+    CompletableFuture<Boolean> reportMetricsAsync(Report report);
+}
@@ -0,0 +1,310 @@
+package com.judoscale.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds reports in a compact columnar binary format, an opt-in alternative to the JSON payload
+ * from {@link ReportBuilder} for instances reporting many samples.
+ *
+ * <p>Samples are grouped by identifier and queue name, so each name is written once per group
+ * rather than once per sample. Within a group, timestamps are written as offsets from the
+ * report's base time (the earliest timestamp), run-length encoded since samples arrive in time
+ * order, followed by the values, all as varints.</p>
+ *
+ * <p>Layout (version 2, which added the route summaries). "uvarint" is an unsigned LEB128 varint, "varint" a zigzag-encoded signed
+ * one, and "string" a uvarint byte length followed by UTF-8 bytes. An optional string is a uvarint
+ * of 0 for null, or the byte length plus 1 followed by the bytes.</p>
+ * <pre>
+ * magic         4 bytes: 'J' 'S' 'B' 0x02
+ * container     string
+ * pid           varint
+ * baseTime      varint epoch seconds
+ * groupCount    uvarint
+ *   identifier  string
+ *   queueName   optional string
+ *   count       uvarint
+ *   timeRuns    uvarint, then timeRuns x (uvarint seconds from baseTime, uvarint run length)
+ *   values      count x varint
+ * histogramCount uvarint
+ *   identifier, queueName (optional), timeOffset, precision, count, sum, min, max,
+ *   bucketCount, then bucketCount x (uvarint index gap from the previous index, uvarint count)
+ * droppedCount  uvarint, then droppedCount x (string identifier, uvarint count)
+ * samplingCount uvarint, then samplingCount x (identifier, optional queueName, uvarint total, uvarint retained)
+ * routeCount    uvarint, then routeCount x (string route, uvarint count, varint appTimeSum, varint appTimeMax,
+ *               uvarint queueTimeCount, varint queueTimeSum, varint queueTimeMax)
+ * adapterCount  uvarint, then adapterCount x (string name, string version, string runtimeVersion)
+ * </pre>
+ */
+public final class BinaryReportBuilder {
+
+    /**
+     * Content type identifying the binary format in requests.
+     */
+    public static final String CONTENT_TYPE = "application/vnd.judoscale.report.v2+binary";
+
+    static final byte[] MAGIC = {'J', 'S', 'B', 2};
+
+    private BinaryReportBuilder() {
+        // Utility class, no instantiation
+    }
+
+    /**
+     * Builds the binary payload for a report.
+     *
+     * @param report the report to serialize
+     * @param adapters the adapters to include in the report
+     * @param runtimeContainer the runtime container identifier
+     * @return the encoded bytes
+     */
+    public static byte[] buildReport(Report report, Collection<Adapter> adapters, String runtimeContainer) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            writeReport(report, adapters, runtimeContainer, out);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to serialize metrics", e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes the binary payload for a report to the given stream. The stream is flushed but not closed.
+     *
+     * @param report the report to serialize
+     * @param adapters the adapters to include in the report
+     * @param runtimeContainer the runtime container identifier
+     * @param out the stream to write to
+     * @throws IOException if writing to the stream fails
+     */
+    public static void writeReport(Report report, Collection<Adapter> adapters, String runtimeContainer,
+                                   OutputStream out) throws IOException {
+        List<Metric> metrics = report.metrics();
+        long baseTime = baseTime(report);
+        VarintWriter writer = new VarintWriter(out);
+
+        writer.writeBytes(MAGIC);
+        writer.writeString(runtimeContainer != null ? runtimeContainer : "");
+        writer.writeSigned(ReportBuilder.pid());
+        writer.writeSigned(baseTime);
+
+        List<Group> groups = group(metrics);
+        writer.writeUnsigned(groups.size());
+        for (Group group : groups) {
+            Metric first = metrics.get(group.indexes[0]);
+            writer.writeString(first.identifier());
+            writer.writeOptionalString(first.queueName());
+            writer.writeUnsigned(group.size);
+            writeTimeRuns(writer, metrics, group, baseTime);
+            for (int i = 0; i < group.size; i++) {
+                writer.writeSigned(metrics.get(group.indexes[i]).value());
+            }
+        }
+
+        writer.writeUnsigned(report.histograms().size());
+        for (HistogramSnapshot h : report.histograms()) {
+            writer.writeString(h.identifier());
+            writer.writeOptionalString(h.queueName());
+            writer.writeUnsigned(h.time().getEpochSecond() - baseTime);
+            writer.writeUnsigned(h.precision());
+            writer.writeUnsigned(h.count());
+            writer.writeSigned(h.sum());
+            writer.writeSigned(h.min());
+            writer.writeSigned(h.max());
+            writer.writeUnsigned(h.bucketSize());
+            int previousIndex = 0;
+            for (int i = 0; i < h.bucketSize(); i++) {
+                writer.writeUnsigned(h.bucketIndex(i) - previousIndex);
+                writer.writeUnsigned(h.bucketCount(i));
+                previousIndex = h.bucketIndex(i);
+            }
+        }
+
+        writer.writeUnsigned(report.dropped().size());
+        for (Map.Entry<String, Long> entry : report.dropped().entrySet()) {
+            writer.writeString(entry.getKey());
+            writer.writeUnsigned(entry.getValue());
+        }
+
+        writer.writeUnsigned(report.sampling().size());
+        for (SamplingSummary s : report.sampling()) {
+            writer.writeString(s.identifier());
+            writer.writeOptionalString(s.queueName());
+            writer.writeUnsigned(s.total());
+            writer.writeUnsigned(s.retained());
+        }
+
+        writer.writeUnsigned(report.routes().size());
+        for (RouteSummary r : report.routes()) {
+            writer.writeString(r.route());
+            writer.writeUnsigned(r.count());
+            writer.writeSigned(r.appTimeSum());
+            writer.writeSigned(r.appTimeMax());
+            writer.writeUnsigned(r.queueTimeCount());
+            writer.writeSigned(r.queueTimeSum());
+            writer.writeSigned(r.queueTimeMax());
+        }
+
+        writer.writeUnsigned(adapters.size());
+        for (Adapter adapter : adapters) {
+            writer.writeString(adapter.name());
+            writer.writeString(adapter.version());
+            writer.writeString(adapter.runtimeVersion());
+        }
+
+        writer.flush();
+    }
+
+    /**
+     * Writes the group's time offsets as runs of consecutive samples sharing the same second.
+     */
+    private static void writeTimeRuns(VarintWriter writer, List<Metric> metrics, Group group, long baseTime) throws IOException {
+        int runs = 0;
+        long previous = Long.MIN_VALUE;
+        for (int i = 0; i < group.size; i++) {
+            long offset = metrics.get(group.indexes[i]).time().getEpochSecond() - baseTime;
+            if (offset != previous) {
+                runs++;
+                previous = offset;
+            }
+        }
+
+        writer.writeUnsigned(runs);
+        int start = 0;
+        while (start < group.size) {
+            long offset = metrics.get(group.indexes[start]).time().getEpochSecond() - baseTime;
+            int end = start + 1;
+            while (end < group.size && metrics.get(group.indexes[end]).time().getEpochSecond() - baseTime == offset) {
+                end++;
+            }
+            writer.writeUnsigned(offset);
+            writer.writeUnsigned(end - start);
+            start = end;
+        }
+    }
+
+    /**
+     * Returns the earliest timestamp in the report, so every time offset is non-negative.
+     */
+    private static long baseTime(Report report) {
+        long base = Long.MAX_VALUE;
+        for (Metric m : report.metrics()) {
+            base = Math.min(base, m.time().getEpochSecond());
+        }
+        for (HistogramSnapshot h : report.histograms()) {
+            base = Math.min(base, h.time().getEpochSecond());
+        }
+        return base == Long.MAX_VALUE ? 0 : base;
+    }
+
+    /**
+     * Groups metric indexes by identifier and queue name, in order of first appearance.
+     */
+    private static List<Group> group(List<Metric> metrics) {
+        Map<String, Map<String, Group>> byIdentifier = new HashMap<>();
+        List<Group> groups = new ArrayList<>();
+
+        for (int i = 0; i < metrics.size(); i++) {
+            Metric m = metrics.get(i);
+            Map<String, Group> byQueue = byIdentifier.get(m.identifier());
+            if (byQueue == null) {
+                byQueue = new LinkedHashMap<>();
+                byIdentifier.put(m.identifier(), byQueue);
+            }
+            Group group = byQueue.get(m.queueName());
+            if (group == null) {
+                group = new Group();
+                byQueue.put(m.queueName(), group);
+                groups.add(group);
+            }
+            group.add(i);
+        }
+        return groups;
+    }
+
+    private static final class Group {
+        int[] indexes = new int[16];
+        int size;
+
+        void add(int index) {
+            if (size == indexes.length) {
+                indexes = Arrays.copyOf(indexes, size * 2);
+            }
+            indexes[size++] = index;
+        }
+    }
+
+    /**
+     * Buffers varint-encoded output in a small array before writing it to the target stream.
+     */
+    private static final class VarintWriter {
+        private final OutputStream out;
+        private final byte[] buffer = new byte[8192];
+        private int position;
+
+        VarintWriter(OutputStream out) {
+            this.out = out;
+        }
+
+        void writeUnsigned(long value) throws IOException {
+            if (position > buffer.length - 10) {
+                flushBuffer();
+            }
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        void writeSigned(long value) throws IOException {
+            writeUnsigned((value << 1) ^ (value >> 63));
+        }
+
+        void writeString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeUnsigned(bytes.length);
+            writeBytes(bytes);
+        }
+
+        void writeOptionalString(String value) throws IOException {
+            if (value == null) {
+                writeUnsigned(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeUnsigned(bytes.length + 1L);
+            writeBytes(bytes);
+        }
+
+        void writeBytes(byte[] bytes) throws IOException {
+            if (bytes.length > buffer.length - position) {
+                flushBuffer();
+                if (bytes.length > buffer.length) {
+                    out.write(bytes);
+                    return;
+                }
+            }
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        void flush() throws IOException {
+            flushBuffer();
+            out.flush();
+        }
+
+        private void flushBuffer() throws IOException {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.judoscale.core;
+
+import java.util.logging.Logger;
+
+/**
+ * Stops sending reports to an API that keeps failing, then probes it before sending again.
+ *
+ * <p>The breaker starts {@link State#CLOSED}. After {@code failureThreshold} consecutive failed
+ * reports it opens, and {@link #allowRequest()} refuses sends for {@code openMillis}. Once that has
+ * passed it lets a single probe through ({@link State#HALF_OPEN}): success closes the breaker,
+ * failure opens it again. A Retry-After from the API keeps it open at least that long.</p>
+ *
+ * <p>Instances are thread-safe.</p>
+ */
+public class CircuitBreaker {
+
+    private static final Logger logger = Logger.getLogger(CircuitBreaker.class.getName());
+
+    /**
+     * Breaker states.
+     */
+    public enum State {
+        /** Reports are sent. */
+        CLOSED,
+        /** Reports are not sent until the open period ends. */
+        OPEN,
+        /** A single probe report is sent to see whether the API has recovered. */
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openMillis;
+
+    // Guarded by this
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openUntil = 0;
+    private boolean probing = false;
+
+    /**
+     * @param failureThreshold consecutive failures that open the breaker
+     * @param openMillis how long the breaker stays open before probing
+     */
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = Math.max(0, openMillis);
+    }
+
+    /**
+     * Creates a breaker configured by {@link ConfigBase#getCircuitBreakerFailureThreshold()} and
+     * {@link ConfigBase#getCircuitBreakerOpenSeconds()}.
+     */
+    public static CircuitBreaker forConfig(ConfigBase config) {
+        return new CircuitBreaker(config.getCircuitBreakerFailureThreshold(),
+            config.getCircuitBreakerOpenSeconds() * 1000L);
+    }
+
+    /**
+     * Returns whether a report may be sent now. When the open period has ended this admits one
+     * probe; the caller must then record its outcome.
+     */
+    public synchronized boolean allowRequest() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (getCurrentTime() < openUntil) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                probing = true;
+                return true;
+            default:
+                if (probing) {
+                    return false;
+                }
+                probing = true;
+                return true;
+        }
+    }
+
+    /**
+     * Records a report the API answered, closing the breaker.
+     */
+    public synchronized void recordSuccess() {
+        if (state != State.CLOSED) {
+            logger.info("Judoscale API recovered, resuming reports");
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        probing = false;
+    }
+
+    /**
+     * Records a report that failed after its retries.
+     *
+     * @param retryAfterMillis the wait the API asked for with Retry-After, or -1 if none
+     */
+    public synchronized void recordFailure(long retryAfterMillis) {
+        consecutiveFailures++;
+        long openFor = state == State.HALF_OPEN || consecutiveFailures >= failureThreshold ? openMillis : 0;
+        openFor = Math.max(openFor, retryAfterMillis);
+        probing = false;
+        if (openFor <= 0) {
+            return;
+        }
+
+        if (state == State.CLOSED) {
+            logger.warning("Judoscale API is failing, pausing reports for " + openFor + "ms");
+        }
+        state = State.OPEN;
+        openUntil = getCurrentTime() + openFor;
+    }
+
+    /**
+     * Returns the current state. An open breaker whose open period has ended still reports
+     * {@link State#OPEN} until the next {@link #allowRequest()}.
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Returns the current time in milliseconds.
+     * Protected to allow overriding in tests.
+     */
+    protected long getCurrentTime() {
+        return System.currentTimeMillis();
+    }
+}
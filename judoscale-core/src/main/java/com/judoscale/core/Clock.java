@@ -0,0 +1,39 @@
+package com.judoscale.core;
+
+/**
+ * Source of time for measuring requests and timestamping metrics.
+ *
+ * <p>{@link #system()} reads the system clocks on every call. {@link CoarseClock} reads cached values
+ * that a background thread refreshes every tick, trading up to a tick of precision for cheaper reads
+ * on the request path. Tests can supply their own implementation to control time.</p>
+ */
+public interface Clock {
+
+    /**
+     * Returns the wall-clock time in milliseconds since the epoch.
+     */
+    long currentTimeMillis();
+
+    /**
+     * Returns monotonic time in nanoseconds, only meaningful relative to other readings of the same clock.
+     */
+    long nanoTime();
+
+    /**
+     * Returns the clock that reads {@link System#currentTimeMillis()} and {@link System#nanoTime()}.
+     */
+    static Clock system() {
+        return SystemClock.INSTANCE;
+    }
+
+    /**
+     * Creates the clock selected by {@link ConfigBase#getClock()}: a started {@link CoarseClock}
+     * ticking every {@link ConfigBase#getClockTickMillis()} for "coarse", the system clock otherwise.
+     */
+    static Clock forConfig(ConfigBase config) {
+        if ("coarse".equalsIgnoreCase(config.getClock())) {
+            return new CoarseClock(config.getClockTickMillis());
+        }
+        return system();
+    }
+}
@@ -0,0 +1,77 @@
+package com.judoscale.core;
+
+import java.io.Closeable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link Clock} whose readings are cached and refreshed by a background daemon thread every tick.
+ *
+ * <p>Reading the time is a volatile read, with no system call, so it can be called on every request
+ * for the cost of being up to a tick behind. Time measured between two readings is accurate to a
+ * tick. The default 10 ms tick keeps the ticker's wake-ups cheap while staying well below the
+ * queue times worth scaling on.</p>
+ *
+ * <p>{@link #close()} stops the ticker; the clock then keeps returning its last readings.</p>
+ */
+public class CoarseClock implements Clock, Closeable {
+
+    private final long tickNanos;
+    private final Thread ticker;
+    private volatile boolean running = true;
+
+    private volatile long currentTimeMillis;
+    private volatile long nanoTime;
+
+    /**
+     * Creates a clock and starts its ticker.
+     *
+     * @param tickMillis how often the cached readings are refreshed, in milliseconds
+     */
+    public CoarseClock(long tickMillis) {
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, tickMillis));
+        tick();
+        this.ticker = new Thread(this::run, "judoscale-clock");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return currentTimeMillis;
+    }
+
+    @Override
+    public long nanoTime() {
+        return nanoTime;
+    }
+
+    /**
+     * Refreshes the cached readings.
+     */
+    void tick() {
+        nanoTime = System.nanoTime();
+        currentTimeMillis = System.currentTimeMillis();
+    }
+
+    private void run() {
+        while (running) {
+            LockSupport.parkNanos(this, tickNanos);
+            tick();
+        }
+    }
+
+    /**
+     * Stops the ticker.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(ticker);
+    }
+
+    @Override
+    public String toString() {
+        return "CoarseClock{tickMillis=" + TimeUnit.NANOSECONDS.toMillis(tickNanos) + '}';
+    }
+}
@@ -0,0 +1,75 @@
+package com.judoscale.core;
+
+/**
+ * Running totals for the reports serialized by a {@link ReportEncoder}.
+ */
+public final class CompressionStats {
+
+    private final long reports;
+    private final long compressedReports;
+    private final long rawBytes;
+    private final long encodedBytes;
+    private final long compressionNanos;
+
+    public CompressionStats(long reports, long compressedReports, long rawBytes, long encodedBytes, long compressionNanos) {
+        this.reports = reports;
+        this.compressedReports = compressedReports;
+        this.rawBytes = rawBytes;
+        this.encodedBytes = encodedBytes;
+        this.compressionNanos = compressionNanos;
+    }
+
+    /**
+     * Returns the number of reports serialized.
+     */
+    public long reports() {
+        return reports;
+    }
+
+    /**
+     * Returns the number of reports large enough to be compressed.
+     */
+    public long compressedReports() {
+        return compressedReports;
+    }
+
+    /**
+     * Returns the total size of the report bodies before compression.
+     */
+    public long rawBytes() {
+        return rawBytes;
+    }
+
+    /**
+     * Returns the total size of the request bodies sent.
+     */
+    public long encodedBytes() {
+        return encodedBytes;
+    }
+
+    /**
+     * Returns the total time spent compressing, in nanoseconds.
+     */
+    public long compressionNanos() {
+        return compressionNanos;
+    }
+
+    /**
+     * Returns the ratio of raw to sent bytes (for example 12.5 for a 12.5x reduction), or 1 if nothing was sent.
+     */
+    public double compressionRatio() {
+        return encodedBytes == 0 ? 1.0 : (double) rawBytes / encodedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "CompressionStats{" +
+                "reports=" + reports +
+                ", compressedReports=" + compressedReports +
+                ", rawBytes=" + rawBytes +
+                ", encodedBytes=" + encodedBytes +
+                ", compressionNanos=" + compressionNanos +
+                ", compressionRatio=" + compressionRatio() +
+                '}';
+    }
+}
@@ -42,6 +42,215 @@ public class ConfigBase {
      */
     private boolean ignoreLargeRequests = true;
 
+    /**
+     * Whether to measure the time spent reading request bodies and report it as network time (nt).
+     * Default is false.
+     */
+    private boolean trackNetworkTime = false;
+
+    /**
+     * Whether to keep the queue time of requests larger than {@link #maxRequestSizeBytes}, less the time
+     * spent reading their body, instead of ignoring it. Only applies when {@link #ignoreLargeRequests}
+     * is set. Default is false.
+     */
+    private boolean subtractNetworkTime = false;
+
+    /**
+     * How collected metrics are stored between reports. Default is "queue", which keeps every sample.
+     * "histogram" aggregates queue time and application time into fixed-size histograms.
+     * "striped" keeps samples in per-CPU primitive buffers limited to {@link #metricsBufferBytes}, for servers
+     * with many cores and threads.
+     * "ring" keeps samples in a fixed-size off-heap ring limited to {@link #metricsBufferBytes}.
+     * "reservoir" keeps a uniform random sample of up to {@link #metricsReservoirSize} samples per identifier.
+     */
+    private String metricsStore = "queue";
+
+    /**
+     * Memory budget in bytes for the "ring" and "striped" metrics stores. Samples that don't fit are
+     * dropped and counted in the next report. Default is 4MB (about 150,000 samples in the ring, or
+     * 200,000 across the striped store's buffers).
+     */
+    private int metricsBufferBytes = 4 * 1024 * 1024;
+
+    /**
+     * Maximum number of samples per identifier (and queue) kept in each report by the "reservoir"
+     * metrics store. Intervals with more samples are reported as a weighted random sample. Default is 1000.
+     */
+    private int metricsReservoirSize = 1000;
+
+    /**
+     * Whether to gzip-compress report bodies of at least {@link #compressionMinBytes}. Default is false.
+     */
+    private boolean compressReports = false;
+
+    /**
+     * Smallest report body, in bytes of JSON, that is compressed. Smaller bodies are sent as-is
+     * because compressing them saves little. Default is 1024.
+     */
+    private int compressionMinBytes = 1024;
+
+    /**
+     * Deflate level used to compress report bodies, from 1 (fastest) to 9 (smallest). Default is 6.
+     */
+    private int compressionLevel = 6;
+
+    /**
+     * Format of report bodies. Default is "json". "binary" sends the compact columnar format from
+     * {@link BinaryReportBuilder}, falling back to JSON if the API rejects it.
+     */
+    private String reportFormat = "json";
+
+    /**
+     * Number of requests the server can process concurrently, typically its worker thread pool size.
+     * Used to report average concurrency as a percentage of capacity ("cu"). Default is 0, which lets
+     * the framework integration detect it from the server configuration.
+     */
+    private int workerPoolSize = 0;
+
+    /**
+     * Length of the sub-intervals within each report cycle whose utilization is sampled, in seconds.
+     * The peak ("up_max") and 90th percentile ("up_p90") sub-interval utilization are reported next to
+     * the cycle average so short saturation bursts are visible. Values below 1 are treated as 1.
+     * Default is 1.
+     */
+    private int utilizationSubIntervalSeconds = 1;
+
+    /**
+     * Whether to measure event loop lag on event-loop servers (Reactor Netty). The maximum ("el_max") and
+     * 99th percentile ("el_p99") lag are reported each interval. Default is true.
+     */
+    private boolean eventLoopLagProbeEnabled = true;
+
+    /**
+     * Whether to measure the virtual thread scheduler when requests run on virtual threads: scheduling lag
+     * ("vt_lag_max", "vt_lag_p99"), carrier saturation ("vt_sat") and parallelism ("vt_par"), and time
+     * spent pinned to a carrier ("vt_pinned"). While enabled, carrier saturation replaces web utilization
+     * ("up" and "ac"), which is not reported. Default is true.
+     */
+    private boolean virtualThreadMonitorEnabled = true;
+
+    /**
+     * How often each event loop (or, with virtual threads, the virtual thread scheduler) is probed for lag,
+     * in milliseconds. Default is 100.
+     */
+    private int eventLoopLagProbeIntervalMillis = 100;
+
+    /**
+     * Whether to instrument embedded Tomcat with a valve that reports the request executor's busy threads
+     * ("tc_busy"), maximum threads ("tc_max") and queued tasks ("tc_queue") each interval. With the
+     * "histogram" metrics store it also aggregates how long Tomcat spent parsing each request ("tc_qt").
+     * Default is false.
+     */
+    private boolean tomcatValveEnabled = false;
+
+    /**
+     * Maximum number of reports sent to the API at once. Reports are sent in the background, so a slow
+     * API call doesn't delay collecting the next report. Default is 1.
+     */
+    private int maxConcurrentReports = 1;
+
+    /**
+     * Maximum number of reports waiting for a send while {@code maxConcurrentReports} are in flight.
+     * When full, the oldest waiting report is dropped. Default is 5.
+     */
+    private int maxQueuedReports = 5;
+
+    /**
+     * Whether to spool reports that fail to send to disk and replay them once the API is reachable again.
+     * Default is false.
+     */
+    private boolean spoolEnabled = false;
+
+    /**
+     * Directory for spooled reports. Default is a {@code judoscale-spool} directory in {@code java.io.tmpdir}.
+     */
+    private String spoolDirectory;
+
+    /**
+     * Maximum disk space for spooled reports, in bytes. When full, the oldest reports are dropped.
+     * Default is 16 MiB.
+     */
+    private long spoolMaxBytes = 16 * 1024 * 1024;
+
+    /**
+     * Spooled reports older than this many seconds are discarded instead of replayed. Default is 1800.
+     */
+    private int spoolMaxAgeSeconds = 1800;
+
+    /**
+     * Attempts per report, including the first, for connection errors and 429 or 5xx responses. Default is 3.
+     */
+    private int retryMaxAttempts = 3;
+
+    /**
+     * Backoff cap before the first retry, in milliseconds; it doubles with each retry. Default is 100.
+     */
+    private long retryBaseDelayMillis = 100;
+
+    /**
+     * Largest backoff between retries, in milliseconds. A longer Retry-After isn't waited out. Default is 5000.
+     */
+    private long retryMaxDelayMillis = 5000;
+
+    /**
+     * Consecutive failed reports that stop sending until the API recovers. Default is 5.
+     */
+    private int circuitBreakerFailureThreshold = 5;
+
+    /**
+     * How long to stop sending after repeated failures before probing the API, in seconds. Default is 30.
+     */
+    private int circuitBreakerOpenSeconds = 30;
+
+    /**
+     * Maximum number of pooled connections to the API. Applies to the Apache HttpClient used on
+     * Spring Boot 2; the JDK HttpClient manages its own pool. Default is 2.
+     */
+    private int connectionPoolSize = 2;
+
+    /**
+     * How long an idle pooled connection is kept open, in seconds, unless the API asks for less. Idle
+     * connections are evicted after this. Applies to the Apache HttpClient used on Spring Boot 2. Default is 60.
+     */
+    private int connectionKeepAliveSeconds = 60;
+
+    /**
+     * Whether to prefer HTTP/2, falling back to HTTP/1.1 when the API doesn't support it. Applies to the
+     * JDK HttpClient used on Spring Boot 3. Default is true.
+     */
+    private boolean http2Enabled = true;
+
+    /**
+     * Whether to open a connection to the API when the reporter starts, so the first report doesn't pay
+     * the TCP and TLS handshake. Default is false.
+     */
+    private boolean prewarmConnection = false;
+
+    /**
+     * Clock used to timestamp metrics and measure requests: "system" reads the system clocks on every
+     * request, "coarse" reads values cached by a background thread every {@code clockTickMillis}.
+     * Default is "system".
+     */
+    private String clock = "system";
+
+    /**
+     * How often the "coarse" clock refreshes its readings, in milliseconds. Times it measures, such as
+     * queue time, are accurate to a tick. Default is 10.
+     */
+    private int clockTickMillis = 10;
+
+    /**
+     * Whether to also report queue time and application time per route (HTTP method and matched
+     * path pattern). Only the busiest {@link #routeBreakdownTopK} routes of each report interval are
+     * broken out; the rest are combined as "other". Default is false.
+     */
+    private boolean routeBreakdownEnabled = false;
+
+    /**
+     * Maximum number of routes broken out per report interval. Default is 20.
+     */
+    private int routeBreakdownTopK = 20;
+
     /**
      * Log level for Judoscale logging. Default is INFO.
      */
@@ -168,6 +377,285 @@ public class ConfigBase {
         this.ignoreLargeRequests = ignoreLargeRequests;
     }
 
+    public boolean isTrackNetworkTime() {
+        return trackNetworkTime;
+    }
+
+    public void setTrackNetworkTime(boolean trackNetworkTime) {
+        this.trackNetworkTime = trackNetworkTime;
+    }
+
+    public boolean isSubtractNetworkTime() {
+        return subtractNetworkTime;
+    }
+
+    public void setSubtractNetworkTime(boolean subtractNetworkTime) {
+        this.subtractNetworkTime = subtractNetworkTime;
+    }
+
+    public String getMetricsStore() {
+        return metricsStore;
+    }
+
+    public void setMetricsStore(String metricsStore) {
+        this.metricsStore = metricsStore;
+    }
+
+    public int getMetricsBufferBytes() {
+        return metricsBufferBytes;
+    }
+
+    public void setMetricsBufferBytes(int metricsBufferBytes) {
+        this.metricsBufferBytes = metricsBufferBytes;
+    }
+
+    public int getMetricsReservoirSize() {
+        return metricsReservoirSize;
+    }
+
+    public void setMetricsReservoirSize(int metricsReservoirSize) {
+        this.metricsReservoirSize = metricsReservoirSize;
+    }
+
+    public boolean isCompressReports() {
+        return compressReports;
+    }
+
+    public void setCompressReports(boolean compressReports) {
+        this.compressReports = compressReports;
+    }
+
+    public int getCompressionMinBytes() {
+        return compressionMinBytes;
+    }
+
+    public void setCompressionMinBytes(int compressionMinBytes) {
+        this.compressionMinBytes = compressionMinBytes;
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public void setCompressionLevel(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+    }
+
+    public String getReportFormat() {
+        return reportFormat;
+    }
+
+    public void setReportFormat(String reportFormat) {
+        this.reportFormat = reportFormat;
+    }
+
+    /**
+     * Returns true if report bodies should be sent in the binary format.
+     */
+    public boolean isBinaryReportFormat() {
+        return "binary".equalsIgnoreCase(reportFormat);
+    }
+
+    public int getWorkerPoolSize() {
+        return workerPoolSize;
+    }
+
+    public void setWorkerPoolSize(int workerPoolSize) {
+        this.workerPoolSize = workerPoolSize;
+    }
+
+    public int getUtilizationSubIntervalSeconds() {
+        return utilizationSubIntervalSeconds;
+    }
+
+    public void setUtilizationSubIntervalSeconds(int utilizationSubIntervalSeconds) {
+        this.utilizationSubIntervalSeconds = Math.max(1, utilizationSubIntervalSeconds);
+    }
+
+    public boolean isEventLoopLagProbeEnabled() {
+        return eventLoopLagProbeEnabled;
+    }
+
+    public void setEventLoopLagProbeEnabled(boolean eventLoopLagProbeEnabled) {
+        this.eventLoopLagProbeEnabled = eventLoopLagProbeEnabled;
+    }
+
+    public boolean isVirtualThreadMonitorEnabled() {
+        return virtualThreadMonitorEnabled;
+    }
+
+    public void setVirtualThreadMonitorEnabled(boolean virtualThreadMonitorEnabled) {
+        this.virtualThreadMonitorEnabled = virtualThreadMonitorEnabled;
+    }
+
+    public boolean isTomcatValveEnabled() {
+        return tomcatValveEnabled;
+    }
+
+    public void setTomcatValveEnabled(boolean tomcatValveEnabled) {
+        this.tomcatValveEnabled = tomcatValveEnabled;
+    }
+
+    public int getEventLoopLagProbeIntervalMillis() {
+        return eventLoopLagProbeIntervalMillis;
+    }
+
+    public void setEventLoopLagProbeIntervalMillis(int eventLoopLagProbeIntervalMillis) {
+        this.eventLoopLagProbeIntervalMillis = eventLoopLagProbeIntervalMillis;
+    }
+
+    public int getMaxConcurrentReports() {
+        return maxConcurrentReports;
+    }
+
+    public void setMaxConcurrentReports(int maxConcurrentReports) {
+        this.maxConcurrentReports = maxConcurrentReports;
+    }
+
+    public int getMaxQueuedReports() {
+        return maxQueuedReports;
+    }
+
+    public void setMaxQueuedReports(int maxQueuedReports) {
+        this.maxQueuedReports = maxQueuedReports;
+    }
+
+    public boolean isSpoolEnabled() {
+        return spoolEnabled;
+    }
+
+    public void setSpoolEnabled(boolean spoolEnabled) {
+        this.spoolEnabled = spoolEnabled;
+    }
+
+    public String getSpoolDirectory() {
+        return spoolDirectory;
+    }
+
+    public void setSpoolDirectory(String spoolDirectory) {
+        this.spoolDirectory = spoolDirectory;
+    }
+
+    public long getSpoolMaxBytes() {
+        return spoolMaxBytes;
+    }
+
+    public void setSpoolMaxBytes(long spoolMaxBytes) {
+        this.spoolMaxBytes = spoolMaxBytes;
+    }
+
+    public int getSpoolMaxAgeSeconds() {
+        return spoolMaxAgeSeconds;
+    }
+
+    public void setSpoolMaxAgeSeconds(int spoolMaxAgeSeconds) {
+        this.spoolMaxAgeSeconds = spoolMaxAgeSeconds;
+    }
+
+    public int getRetryMaxAttempts() {
+        return retryMaxAttempts;
+    }
+
+    public void setRetryMaxAttempts(int retryMaxAttempts) {
+        this.retryMaxAttempts = retryMaxAttempts;
+    }
+
+    public long getRetryBaseDelayMillis() {
+        return retryBaseDelayMillis;
+    }
+
+    public void setRetryBaseDelayMillis(long retryBaseDelayMillis) {
+        this.retryBaseDelayMillis = retryBaseDelayMillis;
+    }
+
+    public long getRetryMaxDelayMillis() {
+        return retryMaxDelayMillis;
+    }
+
+    public void setRetryMaxDelayMillis(long retryMaxDelayMillis) {
+        this.retryMaxDelayMillis = retryMaxDelayMillis;
+    }
+
+    public int getCircuitBreakerFailureThreshold() {
+        return circuitBreakerFailureThreshold;
+    }
+
+    public void setCircuitBreakerFailureThreshold(int circuitBreakerFailureThreshold) {
+        this.circuitBreakerFailureThreshold = circuitBreakerFailureThreshold;
+    }
+
+    public int getCircuitBreakerOpenSeconds() {
+        return circuitBreakerOpenSeconds;
+    }
+
+    public void setCircuitBreakerOpenSeconds(int circuitBreakerOpenSeconds) {
+        this.circuitBreakerOpenSeconds = circuitBreakerOpenSeconds;
+    }
+
+    public int getConnectionPoolSize() {
+        return connectionPoolSize;
+    }
+
+    public void setConnectionPoolSize(int connectionPoolSize) {
+        this.connectionPoolSize = connectionPoolSize;
+    }
+
+    public int getConnectionKeepAliveSeconds() {
+        return connectionKeepAliveSeconds;
+    }
+
+    public void setConnectionKeepAliveSeconds(int connectionKeepAliveSeconds) {
+        this.connectionKeepAliveSeconds = connectionKeepAliveSeconds;
+    }
+
+    public boolean isHttp2Enabled() {
+        return http2Enabled;
+    }
+
+    public void setHttp2Enabled(boolean http2Enabled) {
+        this.http2Enabled = http2Enabled;
+    }
+
+    public boolean isPrewarmConnection() {
+        return prewarmConnection;
+    }
+
+    public void setPrewarmConnection(boolean prewarmConnection) {
+        this.prewarmConnection = prewarmConnection;
+    }
+
+    public String getClock() {
+        return clock;
+    }
+
+    public void setClock(String clock) {
+        this.clock = clock;
+    }
+
+    public int getClockTickMillis() {
+        return clockTickMillis;
+    }
+
+    public void setClockTickMillis(int clockTickMillis) {
+        this.clockTickMillis = clockTickMillis;
+    }
+
+    public boolean isRouteBreakdownEnabled() {
+        return routeBreakdownEnabled;
+    }
+
+    public void setRouteBreakdownEnabled(boolean routeBreakdownEnabled) {
+        this.routeBreakdownEnabled = routeBreakdownEnabled;
+    }
+
+    public int getRouteBreakdownTopK() {
+        return routeBreakdownTopK;
+    }
+
+    public void setRouteBreakdownTopK(int routeBreakdownTopK) {
+        this.routeBreakdownTopK = routeBreakdownTopK;
+    }
+
     public String getLogLevel() {
         return logLevel;
     }
@@ -0,0 +1,53 @@
+package com.judoscale.core;
+
+/**
+ * Running totals for the connections an API client opened to send its requests.
+ */
+public final class ConnectionStats {
+
+    private final long requests;
+    private final long connectionsOpened;
+
+    public ConnectionStats(long requests, long connectionsOpened) {
+        this.requests = requests;
+        this.connectionsOpened = connectionsOpened;
+    }
+
+    /**
+     * Returns the number of requests sent, including retries, replays and the pre-warm request.
+     */
+    public long requests() {
+        return requests;
+    }
+
+    /**
+     * Returns the number of connections opened, each paying a TCP and (for HTTPS) TLS handshake.
+     */
+    public long connectionsOpened() {
+        return connectionsOpened;
+    }
+
+    /**
+     * Returns the number of requests sent on a connection that was already open.
+     */
+    public long reusedConnections() {
+        return Math.max(0, requests - connectionsOpened);
+    }
+
+    /**
+     * Returns the fraction of requests that reused an open connection, or 0 if nothing was sent.
+     */
+    public double reuseRatio() {
+        return requests == 0 ? 0.0 : (double) reusedConnections() / requests;
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionStats{" +
+                "requests=" + requests +
+                ", connectionsOpened=" + connectionsOpened +
+                ", reusedConnections=" + reusedConnections() +
+                ", reuseRatio=" + reuseRatio() +
+                '}';
+    }
+}
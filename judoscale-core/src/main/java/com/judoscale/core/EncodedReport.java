@@ -0,0 +1,88 @@
+package com.judoscale.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.InputStream;
+
+/**
+ * A serialized report body produced by {@link ReportEncoder}, ready to be sent.
+ *
+ * <p>The bytes live in a buffer borrowed from the encoder's pool: close the body once the request
+ * (including any retries) is done so the buffer can be reused, and don't use it afterwards.</p>
+ */
+public final class EncodedReport implements Closeable {
+
+    private final ReportEncoder encoder;
+    private final ReportEncoder.PooledBuffer buffer;
+    private final String contentType;
+    private final String contentEncoding;
+    private final long rawLength;
+    private boolean closed;
+
+    EncodedReport(ReportEncoder encoder, ReportEncoder.PooledBuffer buffer, String contentType,
+                  String contentEncoding, long rawLength) {
+        this.encoder = encoder;
+        this.buffer = buffer;
+        this.contentType = contentType;
+        this.contentEncoding = contentEncoding;
+        this.rawLength = rawLength;
+    }
+
+    /**
+     * Returns the buffer holding the body, which starts at offset 0 and is {@link #length()} bytes long.
+     * The array may be longer than the body.
+     */
+    public byte[] bytes() {
+        return buffer.bytes();
+    }
+
+    /**
+     * Returns the length of the body in bytes.
+     */
+    public int length() {
+        return buffer.size();
+    }
+
+    /**
+     * Returns the Content-Type of the body: JSON, or {@link BinaryReportBuilder#CONTENT_TYPE}.
+     */
+    public String contentType() {
+        return contentType;
+    }
+
+    /**
+     * Returns the length of the uncompressed body in bytes.
+     */
+    public long rawLength() {
+        return rawLength;
+    }
+
+    /**
+     * Returns the Content-Encoding of the body ("gzip"), or null if it isn't compressed.
+     */
+    public String contentEncoding() {
+        return contentEncoding;
+    }
+
+    public boolean isCompressed() {
+        return contentEncoding != null;
+    }
+
+    /**
+     * Opens a stream over the body.
+     */
+    public InputStream openStream() {
+        return new ByteArrayInputStream(buffer.bytes(), 0, buffer.size());
+    }
+
+    /**
+     * Returns the buffer to the encoder's pool.
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            encoder.releaseBuffer(buffer);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.judoscale.core;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Logger;
+
+/**
+ * Measures how long tasks wait behind busy event loops.
+ *
+ * <p>On event-loop servers (Netty, Reactor Netty) a request can arrive promptly and still wait
+ * while its event loop is busy with other work, which {@code X-Request-Start} queue time doesn't
+ * see. Each {@link #probe()} hands a no-op task to every event loop and records how late it runs.
+ * {@link #report()} pushes the maximum ("el_max") and 99th percentile ("el_p99") lag in
+ * milliseconds since the previous report.</p>
+ *
+ * <p>Each event loop has at most one probe waiting at a time, so a stalled loop doesn't pile up
+ * probe tasks; instead its waiting probe counts as lag at every report until it runs. Probing
+ * costs one small task per event loop per probe interval.</p>
+ */
+public class EventLoopLagProbe {
+
+    private static final Logger logger = Logger.getLogger(EventLoopLagProbe.class.getName());
+
+    // Marks an event loop with no probe waiting
+    private static final long NONE = Long.MIN_VALUE;
+
+    private final MetricsStore metricsStore;
+    private final Clock clock;
+    private final String identifier;
+    private final List<Executor> eventLoops;
+    private final AtomicLongArray pendingSince;
+    private final LogLinearHistogram lagMicros = new LogLinearHistogram();
+
+    /**
+     * @param metricsStore the store that lag metrics are pushed to
+     * @param eventLoops the event loops to probe, each running tasks on a single thread
+     */
+    public EventLoopLagProbe(MetricsStore metricsStore, List<? extends Executor> eventLoops) {
+        this(metricsStore, eventLoops, "el");
+    }
+
+    /**
+     * @param metricsStore the store that lag metrics are pushed to
+     * @param eventLoops the executors to probe
+     * @param identifier the prefix of the reported identifiers ("el" reports "el_max" and "el_p99")
+     */
+    public EventLoopLagProbe(MetricsStore metricsStore, List<? extends Executor> eventLoops, String identifier) {
+        this(metricsStore, eventLoops, identifier, Clock.system());
+    }
+
+    /**
+     * Creates a probe that measures lag and timestamps its metrics with the given clock.
+     *
+     * @param metricsStore the store that lag metrics are pushed to
+     * @param eventLoops the executors to probe
+     * @param identifier the prefix of the reported identifiers ("el" reports "el_max" and "el_p99")
+     * @param clock the clock to measure lag and timestamp metrics with
+     */
+    public EventLoopLagProbe(MetricsStore metricsStore, List<? extends Executor> eventLoops, String identifier,
+                             Clock clock) {
+        this.metricsStore = metricsStore;
+        this.clock = clock;
+        this.identifier = identifier;
+        this.eventLoops = new ArrayList<>(eventLoops);
+        this.pendingSince = new AtomicLongArray(this.eventLoops.size());
+        for (int i = 0; i < this.eventLoops.size(); i++) {
+            pendingSince.set(i, NONE);
+        }
+    }
+
+    /**
+     * Returns the number of event loops being probed.
+     */
+    public int getEventLoopCount() {
+        return eventLoops.size();
+    }
+
+    /**
+     * Hands a probe task to every event loop that isn't still running the previous one.
+     * Call on a fixed schedule (default: every 100 milliseconds).
+     */
+    public void probe() {
+        for (int i = 0; i < eventLoops.size(); i++) {
+            long scheduledAt = getCurrentTime();
+            if (!pendingSince.compareAndSet(i, NONE, scheduledAt)) {
+                continue;
+            }
+
+            int loop = i;
+            try {
+                eventLoops.get(i).execute(() -> complete(loop, scheduledAt));
+            } catch (RejectedExecutionException e) {
+                // The event loop is shutting down
+                pendingSince.compareAndSet(i, scheduledAt, NONE);
+                logger.fine("Event loop rejected lag probe: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Pushes the maximum and 99th percentile lag since the last report to the metrics store.
+     * Pushes nothing if no probe ran and none is waiting.
+     */
+    public void report() {
+        long currentTime = getCurrentTime();
+        Instant now = Instant.ofEpochMilli(clock.currentTimeMillis());
+
+        // A probe that is still waiting has lagged at least this long
+        for (int i = 0; i < eventLoops.size(); i++) {
+            long since = pendingSince.get(i);
+            if (since != NONE) {
+                recordLag(currentTime - since);
+            }
+        }
+
+        HistogramSnapshot lag = lagMicros.snapshotAndReset(identifier, null, now);
+        if (lag == null) {
+            return;
+        }
+        metricsStore.push(identifier + "_max", lag.max() / 1000, now);
+        metricsStore.push(identifier + "_p99", lag.valueAtPercentile(99) / 1000, now);
+    }
+
+    /**
+     * Returns the current monotonic time in nanoseconds from the probe's clock.
+     * Protected to allow overriding in tests.
+     */
+    protected long getCurrentTime() {
+        return clock.nanoTime();
+    }
+
+    private void complete(int loop, long scheduledAt) {
+        recordLag(getCurrentTime() - scheduledAt);
+        pendingSince.compareAndSet(loop, scheduledAt, NONE);
+    }
+
+    private void recordLag(long lagNanos) {
+        lagMicros.record(TimeUnit.NANOSECONDS.toMicros(lagNanos));
+    }
+}
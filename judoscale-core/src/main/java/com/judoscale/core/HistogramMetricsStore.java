@@ -0,0 +1,166 @@
+package com.judoscale.core;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Metrics store that aggregates high-volume identifiers (the per-request queue, application, network
+ * and Tomcat parse times by default) into a fixed-size {@link LogLinearHistogram} per identifier/queue
+ * pair instead of keeping one {@link Metric} per sample. Memory use stays constant regardless of request volume.
+ *
+ * <p>Identifiers that are not aggregated (such as the once-per-interval {@code up} metric) are kept
+ * as individual samples, exactly like {@link MetricsStore}. Aggregated samples are only returned by
+ * {@link #flushReport()}, as one {@link HistogramSnapshot} per identifier/queue pair.</p>
+ */
+public class HistogramMetricsStore extends MetricsStore {
+
+    private static final Collection<String> DEFAULT_AGGREGATED_IDENTIFIERS = Arrays.asList("qt", "at", "nt", "tc_qt");
+
+    private final int precision;
+    private final Set<String> aggregatedIdentifiers;
+
+    // Web metrics (no queue name) keyed by identifier, job metrics keyed by identifier then queue name
+    private final Map<String, LogLinearHistogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, LogLinearHistogram>> queueHistograms = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a store that aggregates the per-request times with the default precision.
+     */
+    public HistogramMetricsStore() {
+        this(Clock.system());
+    }
+
+    /**
+     * Creates a store that aggregates the per-request times with the default precision,
+     * reading the time from the given clock.
+     */
+    public HistogramMetricsStore(Clock clock) {
+        this(DEFAULT_AGGREGATED_IDENTIFIERS, LogLinearHistogram.DEFAULT_PRECISION, clock);
+    }
+
+    /**
+     * Creates a store that aggregates the given identifiers with the given histogram precision.
+     */
+    public HistogramMetricsStore(Collection<String> aggregatedIdentifiers, int precision) {
+        this(aggregatedIdentifiers, precision, Clock.system());
+    }
+
+    /**
+     * Creates a store that aggregates the given identifiers with the given histogram precision,
+     * reading the time from the given clock.
+     */
+    public HistogramMetricsStore(Collection<String> aggregatedIdentifiers, int precision, Clock clock) {
+        super(clock);
+        this.aggregatedIdentifiers = Collections.unmodifiableSet(new HashSet<>(aggregatedIdentifiers));
+        this.precision = precision;
+    }
+
+    /**
+     * Records the value into the histogram for its identifier/queue pair, or keeps it as an
+     * individual sample if the identifier isn't aggregated.
+     * Aggregated values don't keep their individual timestamps; they're reported against the
+     * start of the interval.
+     */
+    @Override
+    public void push(String identifier, long value, Instant time, String queueName) {
+        if (!aggregatedIdentifiers.contains(identifier)) {
+            super.push(identifier, value, time, queueName);
+            return;
+        }
+
+        histogramFor(identifier, queueName).record(value);
+    }
+
+    /**
+     * Like {@link #push(String, long, Instant, String)}, without allocating a timestamp for aggregated values.
+     */
+    @Override
+    public void push(String identifier, long value, long timeMillis, String queueName) {
+        if (!aggregatedIdentifiers.contains(identifier)) {
+            super.push(identifier, value, timeMillis, queueName);
+            return;
+        }
+
+        histogramFor(identifier, queueName).record(value);
+    }
+
+    /**
+     * Flushes individual samples and drains every histogram into a snapshot.
+     * Histograms with no values recorded during the interval are omitted.
+     */
+    @Override
+    public Report flushReport() {
+        Instant intervalStartedAt = getFlushedAt();
+        List<Metric> metrics = flush();
+        List<HistogramSnapshot> snapshots = new ArrayList<>();
+
+        for (Map.Entry<String, LogLinearHistogram> entry : histograms.entrySet()) {
+            addSnapshot(snapshots, entry.getValue().snapshotAndReset(entry.getKey(), null, intervalStartedAt));
+        }
+        for (Map.Entry<String, Map<String, LogLinearHistogram>> byIdentifier : queueHistograms.entrySet()) {
+            for (Map.Entry<String, LogLinearHistogram> entry : byIdentifier.getValue().entrySet()) {
+                addSnapshot(snapshots, entry.getValue().snapshotAndReset(
+                    byIdentifier.getKey(), entry.getKey(), intervalStartedAt));
+            }
+        }
+
+        return new Report(metrics, snapshots);
+    }
+
+    /**
+     * Clears all individual samples and histograms (for testing).
+     */
+    @Override
+    public void clear() {
+        super.clear();
+        for (LogLinearHistogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+        for (Map<String, LogLinearHistogram> byQueue : queueHistograms.values()) {
+            for (LogLinearHistogram histogram : byQueue.values()) {
+                histogram.reset();
+            }
+        }
+    }
+
+    /**
+     * Returns the identifiers aggregated by this store.
+     */
+    public Set<String> getAggregatedIdentifiers() {
+        return aggregatedIdentifiers;
+    }
+
+    private LogLinearHistogram histogramFor(String identifier, String queueName) {
+        Map<String, LogLinearHistogram> byKey = histograms;
+        String key = identifier;
+
+        if (queueName != null) {
+            byKey = queueHistograms.get(identifier);
+            if (byKey == null) {
+                byKey = queueHistograms.computeIfAbsent(identifier, k -> new ConcurrentHashMap<>());
+            }
+            key = queueName;
+        }
+
+        // Plain get() first: computeIfAbsent locks the bin on Java 8 even when the key is present
+        LogLinearHistogram histogram = byKey.get(key);
+        if (histogram == null) {
+            histogram = byKey.computeIfAbsent(key, k -> new LogLinearHistogram(precision));
+        }
+        return histogram;
+    }
+
+    private static void addSnapshot(List<HistogramSnapshot> snapshots, HistogramSnapshot snapshot) {
+        if (snapshot != null) {
+            snapshots.add(snapshot);
+        }
+    }
+}
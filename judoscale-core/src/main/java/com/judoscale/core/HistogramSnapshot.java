@@ -0,0 +1,185 @@
+package com.judoscale.core;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Immutable summary of the values recorded for one identifier/queue pair during a reporting interval.
+ * Buckets are stored sparsely as parallel arrays of bucket index and count, using the
+ * {@link LogLinearHistogram} bucket layout for the snapshot's precision.
+ *
+ * <p>Snapshots with the same identifier, queue name and precision can be combined with
+ * {@link #merge(HistogramSnapshot)} without losing any information.</p>
+ */
+public final class HistogramSnapshot {
+
+    private final String identifier;
+    private final String queueName;
+    private final Instant time;
+    private final int precision;
+    private final long count;
+    private final long sum;
+    private final long min;
+    private final long max;
+    private final int[] bucketIndexes;
+    private final long[] bucketCounts;
+
+    HistogramSnapshot(String identifier, String queueName, Instant time, int precision, long count,
+                      long sum, long min, long max, int[] bucketIndexes, long[] bucketCounts) {
+        this.identifier = identifier;
+        this.queueName = queueName;
+        this.time = time;
+        this.precision = precision;
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+        this.bucketIndexes = bucketIndexes;
+        this.bucketCounts = bucketCounts;
+    }
+
+    public String identifier() {
+        return identifier;
+    }
+
+    public String queueName() {
+        return queueName;
+    }
+
+    /**
+     * Returns the start of the interval this snapshot covers.
+     */
+    public Instant time() {
+        return time;
+    }
+
+    public int precision() {
+        return precision;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public long sum() {
+        return sum;
+    }
+
+    public long min() {
+        return min;
+    }
+
+    public long max() {
+        return max;
+    }
+
+    /**
+     * Returns the number of non-empty buckets.
+     */
+    public int bucketSize() {
+        return bucketIndexes.length;
+    }
+
+    /**
+     * Returns the bucket index of the i-th non-empty bucket.
+     */
+    public int bucketIndex(int i) {
+        return bucketIndexes[i];
+    }
+
+    /**
+     * Returns the count of the i-th non-empty bucket.
+     */
+    public long bucketCount(int i) {
+        return bucketCounts[i];
+    }
+
+    /**
+     * Returns an upper bound for the value at the given percentile (0-100), clamped to [min, max].
+     */
+    public long valueAtPercentile(double percentile) {
+        long target = (long) Math.ceil(count * Math.min(100.0, Math.max(0.0, percentile)) / 100.0);
+        target = Math.max(1, target);
+
+        long seen = 0;
+        for (int i = 0; i < bucketIndexes.length; i++) {
+            seen += bucketCounts[i];
+            if (seen >= target) {
+                long upper = LogLinearHistogram.bucketUpperBound(bucketIndexes[i], precision);
+                return Math.max(min, Math.min(max, upper));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Combines this snapshot with another one for the same identifier, queue name and precision.
+     * The merged snapshot keeps the earlier of the two interval start times.
+     */
+    public HistogramSnapshot merge(HistogramSnapshot other) {
+        if (!Objects.equals(identifier, other.identifier) || !Objects.equals(queueName, other.queueName)) {
+            throw new IllegalArgumentException("Cannot merge snapshots for different metrics");
+        }
+        if (precision != other.precision) {
+            throw new IllegalArgumentException("Cannot merge snapshots with different precision");
+        }
+
+        int[] indexes = new int[bucketIndexes.length + other.bucketIndexes.length];
+        long[] counts = new long[indexes.length];
+        int i = 0, j = 0, k = 0;
+        while (i < bucketIndexes.length || j < other.bucketIndexes.length) {
+            if (j >= other.bucketIndexes.length
+                    || (i < bucketIndexes.length && bucketIndexes[i] < other.bucketIndexes[j])) {
+                indexes[k] = bucketIndexes[i];
+                counts[k++] = bucketCounts[i++];
+            } else if (i >= bucketIndexes.length || other.bucketIndexes[j] < bucketIndexes[i]) {
+                indexes[k] = other.bucketIndexes[j];
+                counts[k++] = other.bucketCounts[j++];
+            } else {
+                indexes[k] = bucketIndexes[i];
+                counts[k++] = bucketCounts[i++] + other.bucketCounts[j++];
+            }
+        }
+
+        Instant earliest = time.isAfter(other.time) ? other.time : time;
+        return new HistogramSnapshot(identifier, queueName, earliest, precision, count + other.count,
+            sum + other.sum, Math.min(min, other.min), Math.max(max, other.max),
+            Arrays.copyOf(indexes, k), Arrays.copyOf(counts, k));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        HistogramSnapshot that = (HistogramSnapshot) o;
+        return precision == that.precision && count == that.count && sum == that.sum
+            && min == that.min && max == that.max
+            && Objects.equals(identifier, that.identifier)
+            && Objects.equals(queueName, that.queueName)
+            && Objects.equals(time, that.time)
+            && Arrays.equals(bucketIndexes, that.bucketIndexes)
+            && Arrays.equals(bucketCounts, that.bucketCounts);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Objects.hash(identifier, queueName, time, precision, count, sum, min, max);
+        result = 31 * result + Arrays.hashCode(bucketIndexes);
+        result = 31 * result + Arrays.hashCode(bucketCounts);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "HistogramSnapshot{" +
+                "identifier='" + identifier + '\'' +
+                ", queueName='" + queueName + '\'' +
+                ", time=" + time +
+                ", count=" + count +
+                ", sum=" + sum +
+                ", min=" + min +
+                ", max=" + max +
+                '}';
+    }
+}
@@ -0,0 +1,233 @@
+package com.judoscale.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Minimal streaming JSON writer for the report payload. Writes UTF-8 into a fixed buffer that is
+ * flushed to the target stream as it fills, and inserts commas and colons itself.
+ *
+ * <p>Strings are escaped the way Jackson's default serializer escapes them: quote and backslash,
+ * short escapes for {@code \b \t \n \f \r}, {@code \\u00XX} (upper-case hex) for other control
+ * characters, and everything else as raw UTF-8. Unpaired surrogates are written as {@code ?}.</p>
+ */
+final class JsonWriter {
+
+    private static final int BUFFER_SIZE = 8000;
+    private static final int MAX_DEPTH = 63;
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes();
+    private static final byte[] MIN_LONG = Long.toString(Long.MIN_VALUE).getBytes();
+
+    // Escape for each ASCII character: 0 for none, -1 for \\u00XX, otherwise the short escape
+    private static final int[] ESCAPES = new int[128];
+
+    static {
+        for (int c = 0; c < 0x20; c++) {
+            ESCAPES[c] = -1;
+        }
+        ESCAPES['"'] = '"';
+        ESCAPES['\\'] = '\\';
+        ESCAPES['\b'] = 'b';
+        ESCAPES['\t'] = 't';
+        ESCAPES['\f'] = 'f';
+        ESCAPES['\n'] = 'n';
+        ESCAPES['\r'] = 'r';
+    }
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+
+    // Bit n is set once the object or array at depth n has a first element, so the next needs a comma
+    private long hasElements;
+    private int depth;
+    private boolean afterName;
+
+    JsonWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    void beginObject() throws IOException {
+        beforeValue();
+        writeByte('{');
+        push();
+    }
+
+    void endObject() throws IOException {
+        pop();
+        writeByte('}');
+    }
+
+    void beginArray() throws IOException {
+        beforeValue();
+        writeByte('[');
+        push();
+    }
+
+    void endArray() throws IOException {
+        pop();
+        writeByte(']');
+    }
+
+    /**
+     * Writes an object member name; the next call writes its value.
+     */
+    void name(String name) throws IOException {
+        beforeValue();
+        writeQuoted(name);
+        writeByte(':');
+        afterName = true;
+    }
+
+    void value(String value) throws IOException {
+        beforeValue();
+        if (value == null) {
+            writeByte('n');
+            writeByte('u');
+            writeByte('l');
+            writeByte('l');
+        } else {
+            writeQuoted(value);
+        }
+    }
+
+    void value(long value) throws IOException {
+        beforeValue();
+        writeLong(value);
+    }
+
+    void field(String name, String value) throws IOException {
+        name(name);
+        value(value);
+    }
+
+    void field(String name, long value) throws IOException {
+        name(name);
+        value(value);
+    }
+
+    /**
+     * Returns the number of bytes written but not yet flushed to the target stream.
+     */
+    int buffered() {
+        return position;
+    }
+
+    /**
+     * Writes everything buffered to the target stream and flushes it.
+     */
+    void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    private void beforeValue() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        long bit = 1L << depth;
+        if ((hasElements & bit) != 0) {
+            writeByte(',');
+        } else {
+            hasElements |= bit;
+        }
+    }
+
+    private void push() {
+        if (depth == MAX_DEPTH) {
+            throw new IllegalStateException("JSON nested too deeply");
+        }
+        depth++;
+        hasElements &= ~(1L << depth);
+    }
+
+    private void pop() {
+        depth--;
+    }
+
+    private void writeQuoted(String value) throws IOException {
+        writeByte('"');
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            // Room for the longest encoding of one character: a \\u00XX escape
+            if (position > BUFFER_SIZE - 6) {
+                flushBuffer();
+            }
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                int escape = ESCAPES[c];
+                if (escape == 0) {
+                    buffer[position++] = (byte) c;
+                } else if (escape > 0) {
+                    buffer[position++] = '\\';
+                    buffer[position++] = (byte) escape;
+                } else {
+                    buffer[position++] = '\\';
+                    buffer[position++] = 'u';
+                    buffer[position++] = '0';
+                    buffer[position++] = '0';
+                    buffer[position++] = HEX[c >> 4];
+                    buffer[position++] = HEX[c & 0xF];
+                }
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xC0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (!Character.isSurrogate(c)) {
+                buffer[position++] = (byte) (0xE0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else {
+                buffer[position++] = '?';
+            }
+        }
+        writeByte('"');
+    }
+
+    private void writeLong(long value) throws IOException {
+        if (position > BUFFER_SIZE - 20) {
+            flushBuffer();
+        }
+        if (value == Long.MIN_VALUE) {
+            System.arraycopy(MIN_LONG, 0, buffer, position, MIN_LONG.length);
+            position += MIN_LONG.length;
+            return;
+        }
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+
+        // Write the digits backwards into place
+        int digits = 1;
+        for (long v = value / 10; v != 0; v /= 10) {
+            digits++;
+        }
+        int end = position + digits;
+        for (int i = end - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + (value % 10));
+            value /= 10;
+        }
+        position = end;
+    }
+
+    private void writeByte(int b) throws IOException {
+        if (position == BUFFER_SIZE) {
+            flushBuffer();
+        }
+        buffer[position++] = (byte) b;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+}
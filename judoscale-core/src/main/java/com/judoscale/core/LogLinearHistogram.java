@@ -0,0 +1,202 @@
+package com.judoscale.core;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size log-linear histogram for non-negative long values (typically milliseconds).
+ *
+ * <p>Values below {@code 2^precision} are counted exactly. Above that, every power of two
+ * is split into {@code 2^precision} linear sub-buckets, so the relative error of any
+ * recorded value is at most {@code 1 / 2^precision} (6.25% with the default precision).
+ * Values of {@code 2^41} and above are clamped into the last bucket.</p>
+ *
+ * <p>Recording is lock-free and allocation-free. {@link #snapshotAndReset} drains the
+ * histogram one field at a time, so a value recorded concurrently with a snapshot may have
+ * its bucket counted in one interval and its sum in the next; totals across intervals are
+ * always exact.</p>
+ */
+public final class LogLinearHistogram {
+
+    /**
+     * Default number of sub-bucket bits per power of two.
+     */
+    public static final int DEFAULT_PRECISION = 4;
+
+    // Largest power of two that gets its own set of sub-buckets
+    private static final int MAX_EXPONENT = 40;
+
+    private final int precision;
+    private final AtomicLongArray counts;
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong(-1);
+
+    /**
+     * Creates a histogram with the default precision.
+     */
+    public LogLinearHistogram() {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * Creates a histogram with the given number of sub-bucket bits (1-10).
+     */
+    public LogLinearHistogram(int precision) {
+        if (precision < 1 || precision > 10) {
+            throw new IllegalArgumentException("Histogram precision must be between 1 and 10");
+        }
+        this.precision = precision;
+        this.counts = new AtomicLongArray(bucketCount(precision));
+    }
+
+    /**
+     * Records a single value. Negative values are recorded as zero.
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+
+        counts.incrementAndGet(bucketIndex(value, precision));
+        sum.addAndGet(value);
+
+        long currentMax;
+        while (value > (currentMax = max.get())) {
+            if (max.compareAndSet(currentMax, value)) {
+                break;
+            }
+        }
+
+        long currentMin;
+        while (value < (currentMin = min.get())) {
+            if (min.compareAndSet(currentMin, value)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of sub-bucket bits used by this histogram.
+     */
+    public int precision() {
+        return precision;
+    }
+
+    /**
+     * Drains the histogram into an immutable snapshot and resets it for the next interval.
+     *
+     * @return the snapshot, or null if nothing was recorded since the last reset
+     */
+    public HistogramSnapshot snapshotAndReset(String identifier, String queueName, Instant time) {
+        int bucketCount = counts.length();
+        int nonEmpty = 0;
+        long[] drained = new long[bucketCount];
+        long count = 0;
+
+        for (int i = 0; i < bucketCount; i++) {
+            long bucket = counts.get(i) == 0 ? 0 : counts.getAndSet(i, 0);
+            if (bucket > 0) {
+                drained[i] = bucket;
+                count += bucket;
+                nonEmpty++;
+            }
+        }
+
+        long drainedSum = sum.getAndSet(0);
+        long drainedMin = min.getAndSet(Long.MAX_VALUE);
+        long drainedMax = max.getAndSet(-1);
+
+        if (count == 0) {
+            return null;
+        }
+
+        int[] indexes = new int[nonEmpty];
+        long[] bucketCounts = new long[nonEmpty];
+        for (int i = 0, j = 0; i < bucketCount; i++) {
+            if (drained[i] > 0) {
+                indexes[j] = i;
+                bucketCounts[j] = drained[i];
+                j++;
+            }
+        }
+
+        // A concurrent record() can land its bucket in this snapshot but its min/max in the next one
+        long lowest = bucketLowerBound(indexes[0], precision);
+        long highest = bucketUpperBound(indexes[nonEmpty - 1], precision);
+        if (drainedMin == Long.MAX_VALUE || drainedMin > highest) {
+            drainedMin = lowest;
+        }
+        if (drainedMax < lowest) {
+            drainedMax = highest;
+        }
+
+        return new HistogramSnapshot(identifier, queueName, time, precision, count, drainedSum,
+            drainedMin, drainedMax, indexes, bucketCounts);
+    }
+
+    /**
+     * Clears all recorded values.
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        sum.set(0);
+        min.set(Long.MAX_VALUE);
+        max.set(-1);
+    }
+
+    /**
+     * Returns the number of buckets a histogram with the given precision has.
+     */
+    static int bucketCount(int precision) {
+        return (MAX_EXPONENT - precision + 2) << precision;
+    }
+
+    /**
+     * Returns the bucket index for a non-negative value.
+     */
+    static int bucketIndex(long value, int precision) {
+        long subBuckets = 1L << precision;
+        if (value < subBuckets) {
+            return (int) value;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return bucketCount(precision) - 1;
+        }
+
+        int shift = exponent - precision;
+        return ((shift + 1) << precision) + (int) ((value >>> shift) - subBuckets);
+    }
+
+    /**
+     * Returns the smallest value that maps to the given bucket.
+     */
+    static long bucketLowerBound(int index, int precision) {
+        int subBuckets = 1 << precision;
+        if (index < subBuckets) {
+            return index;
+        }
+
+        int group = index >>> precision;
+        int subBucket = index & (subBuckets - 1);
+        return ((long) subBuckets + subBucket) << (group - 1);
+    }
+
+    /**
+     * Returns the largest value that maps to the given bucket.
+     */
+    static long bucketUpperBound(int index, int precision) {
+        int subBuckets = 1 << precision;
+        if (index < subBuckets) {
+            return index;
+        }
+
+        int group = index >>> precision;
+        return bucketLowerBound(index, precision) + (1L << (group - 1)) - 1;
+    }
+}
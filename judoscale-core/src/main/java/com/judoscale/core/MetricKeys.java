@@ -0,0 +1,81 @@
+package com.judoscale.core;
+
+/**
+ * Assigns small integer codes to identifier/queue name pairs so stores can keep metrics in
+ * primitive columns. Lookups scan a copy-on-write array and never allocate; new pairs are
+ * registered under a lock, which only happens the first time a pair is seen.
+ */
+final class MetricKeys {
+
+    /**
+     * Returned by {@link #codeFor} when the registry is full.
+     */
+    static final int NO_CODE = -1;
+
+    private final int maxKeys;
+    private volatile Key[] keys = new Key[0];
+
+    MetricKeys(int maxKeys) {
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * Returns the code for the pair, registering it if needed.
+     *
+     * @return the code, or {@link #NO_CODE} if the registry already holds {@code maxKeys} pairs
+     */
+    int codeFor(String identifier, String queueName) {
+        Key[] current = keys;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].matches(identifier, queueName)) {
+                return i;
+            }
+        }
+        return register(identifier, queueName);
+    }
+
+    String identifier(int code) {
+        return keys[code].identifier;
+    }
+
+    String queueName(int code) {
+        return keys[code].queueName;
+    }
+
+    int size() {
+        return keys.length;
+    }
+
+    private synchronized int register(String identifier, String queueName) {
+        Key[] current = keys;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].matches(identifier, queueName)) {
+                return i;
+            }
+        }
+        if (current.length >= maxKeys) {
+            return NO_CODE;
+        }
+
+        Key[] updated = new Key[current.length + 1];
+        System.arraycopy(current, 0, updated, 0, current.length);
+        updated[current.length] = new Key(identifier, queueName);
+        keys = updated;
+        return current.length;
+    }
+
+    private static final class Key {
+        final String identifier;
+        final String queueName;
+
+        Key(String identifier, String queueName) {
+            this.identifier = identifier;
+            this.queueName = queueName;
+        }
+
+        boolean matches(String otherIdentifier, String otherQueueName) {
+            return identifier.equals(otherIdentifier)
+                && (queueName == null ? otherQueueName == null : queueName.equals(otherQueueName));
+        }
+    }
+}
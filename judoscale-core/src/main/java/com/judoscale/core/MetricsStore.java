@@ -3,8 +3,10 @@ package com.judoscale.core;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Logger;
 
 /**
  * Thread-safe storage for metrics collected from requests.
@@ -12,10 +14,67 @@ import java.util.concurrent.ConcurrentLinkedQueue;
  */
 public class MetricsStore {
 
-    private static final Duration MAX_AGE = Duration.ofMinutes(2);
+    private static final Logger logger = Logger.getLogger(MetricsStore.class.getName());
+    private static final long MAX_AGE_MILLIS = Duration.ofMinutes(2).toMillis();
+    // Flushed time after setFlushedAt(null): the store doesn't go stale until it's next flushed
+    private static final long NOT_FLUSHED = Long.MIN_VALUE;
 
     private final ConcurrentLinkedQueue<Metric> metrics = new ConcurrentLinkedQueue<>();
-    private volatile Instant flushedAt = Instant.now();
+    private final Clock clock;
+    private volatile long flushedAtMillis;
+    private volatile RouteTracker routeTracker;
+
+    public MetricsStore() {
+        this(Clock.system());
+    }
+
+    /**
+     * Creates a store that reads the time from the given clock.
+     */
+    public MetricsStore(Clock clock) {
+        this.clock = clock;
+        this.flushedAtMillis = clock.currentTimeMillis();
+    }
+
+    /**
+     * Creates the metrics store selected by {@link ConfigBase#getMetricsStore()}.
+     * Falls back to the default queue-backed store for unknown values.
+     */
+    public static MetricsStore forConfig(ConfigBase config) {
+        return forConfig(config, Clock.system());
+    }
+
+    /**
+     * Creates the metrics store selected by {@link ConfigBase#getMetricsStore()}, reading the time from
+     * the given clock. Falls back to the default queue-backed store for unknown values.
+     */
+    public static MetricsStore forConfig(ConfigBase config, Clock clock) {
+        MetricsStore store = create(config, clock);
+        store.setRouteTracker(RouteTracker.forConfig(config));
+        return store;
+    }
+
+    private static MetricsStore create(ConfigBase config, Clock clock) {
+        String type = config.getMetricsStore();
+        if (type == null || type.trim().isEmpty() || "queue".equalsIgnoreCase(type)) {
+            return new MetricsStore(clock);
+        }
+        if ("histogram".equalsIgnoreCase(type)) {
+            return new HistogramMetricsStore(clock);
+        }
+        if ("striped".equalsIgnoreCase(type)) {
+            return new StripedMetricsStore(config.getMetricsBufferBytes(), clock);
+        }
+        if ("ring".equalsIgnoreCase(type)) {
+            return new RingBufferMetricsStore(config.getMetricsBufferBytes(), clock);
+        }
+        if ("reservoir".equalsIgnoreCase(type)) {
+            return new ReservoirMetricsStore(config.getMetricsReservoirSize(), clock);
+        }
+
+        logger.warning("Unknown judoscale.metrics-store '" + type + "', using 'queue'");
+        return new MetricsStore(clock);
+    }
 
     /**
      * Pushes a new metric to the store.
@@ -30,21 +89,84 @@ public class MetricsStore {
      * Pushes a new metric with a queue name (for job metrics).
      */
     public void push(String identifier, long value, Instant time, String queueName) {
-        // If it's been two minutes since clearing out the store, stop collecting metrics.
-        // There could be an issue with the reporter, and continuing to collect will consume linear memory.
-        if (flushedAt != null && flushedAt.isBefore(Instant.now().minus(MAX_AGE))) {
+        if (isStale()) {
             return;
         }
 
         metrics.add(new Metric(identifier, value, time, queueName));
     }
 
+    /**
+     * Pushes a new metric timestamped in milliseconds since the epoch, as read from a {@link Clock}.
+     * Stores that keep timestamps as primitives override this to avoid allocating an {@link Instant}.
+     */
+    public void push(String identifier, long value, long timeMillis) {
+        push(identifier, value, timeMillis, null);
+    }
+
+    /**
+     * Pushes a new metric with a queue name, timestamped in milliseconds since the epoch.
+     */
+    public void push(String identifier, long value, long timeMillis, String queueName) {
+        push(identifier, value, Instant.ofEpochMilli(timeMillis), queueName);
+    }
+
+    /**
+     * Records a completed request in the per-route breakdown, if the store has a {@link RouteTracker}.
+     * Like metrics, requests are ignored if it's been more than 2 minutes since the last flush.
+     *
+     * @param route the HTTP method and path pattern, or null if no route matched the request
+     * @param queueTimeMs the request's queue time, or a negative value if it's unknown
+     * @param appTimeMs the request's application time
+     */
+    public void recordRoute(String route, long queueTimeMs, long appTimeMs) {
+        RouteTracker tracker = routeTracker;
+        if (tracker == null || isStale()) {
+            return;
+        }
+
+        tracker.record(route, queueTimeMs, appTimeMs);
+    }
+
+    /**
+     * Returns whether requests should be recorded with {@link #recordRoute(String, long, long)},
+     * so callers can skip building the route when they aren't.
+     */
+    public boolean isTrackingRoutes() {
+        return routeTracker != null;
+    }
+
+    /**
+     * Returns the per-route breakdown recorded since the last call and starts a new interval,
+     * or an empty list if the store has no {@link RouteTracker}.
+     */
+    public List<RouteSummary> flushRoutes() {
+        RouteTracker tracker = routeTracker;
+        return tracker == null ? Collections.<RouteSummary>emptyList() : tracker.flush();
+    }
+
+    /**
+     * Sets the tracker that breaks requests down by route, or null to stop doing so.
+     */
+    public void setRouteTracker(RouteTracker routeTracker) {
+        this.routeTracker = routeTracker;
+    }
+
+    /**
+     * Returns whether it's been more than 2 minutes since the store was last flushed.
+     * There could be an issue with the reporter, and continuing to collect would consume linear memory.
+     */
+    protected boolean isStale() {
+        long flushedAt = flushedAtMillis;
+        return flushedAt != NOT_FLUSHED && clock.currentTimeMillis() - flushedAt > MAX_AGE_MILLIS;
+    }
+
     /**
      * Flushes all metrics from the store and returns them.
      * The store is cleared after this operation.
      */
     public List<Metric> flush() {
-        flushedAt = Instant.now();
+        flushedAtMillis = clock.currentTimeMillis();
         List<Metric> flushed = new ArrayList<>();
 
         Metric metric;
@@ -55,6 +177,14 @@ public class MetricsStore {
         return flushed;
     }
 
+    /**
+     * Flushes everything collected since the last flush into a report.
+     * Stores that aggregate samples override this to include their aggregates.
+     */
+    public Report flushReport() {
+        return new Report(flush());
+    }
+
     /**
      * Returns the current metrics without removing them (for testing).
      */
@@ -63,10 +193,19 @@ public class MetricsStore {
     }
 
     /**
-     * Returns when metrics were last flushed.
+     * Returns when metrics were last flushed, or null if the flushed time was cleared with
+     * {@link #setFlushedAt(Instant)}.
      */
     public Instant getFlushedAt() {
-        return flushedAt;
+        long flushedAt = flushedAtMillis;
+        return flushedAt != NOT_FLUSHED ? Instant.ofEpochMilli(flushedAt) : null;
+    }
+
+    /**
+     * Returns the clock the store reads the time from.
+     */
+    public Clock getClock() {
+        return clock;
     }
 
     /**
@@ -77,9 +216,10 @@ public class MetricsStore {
     }
 
     /**
-     * Sets the flushed time (for testing stale metric handling).
+     * Sets the flushed time (for testing stale metric handling). Null clears it, so metrics are
+     * accepted until the next flush.
      */
     void setFlushedAt(Instant time) {
-        this.flushedAt = time;
+        this.flushedAtMillis = time != null ? time.toEpochMilli() : NOT_FLUSHED;
     }
 }
@@ -13,6 +13,15 @@ public final class QueueTimeCalculator {
     private static final long MICROSECONDS_CUTOFF = MILLISECONDS_CUTOFF * 1000;
     private static final long NANOSECONDS_CUTOFF = MICROSECONDS_CUTOFF * 1000;
 
+    private static final long INVALID = Long.MIN_VALUE;
+
+    // Integers up to 2^53 and powers of ten up to 10^22 are exactly representable as doubles
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
     private QueueTimeCalculator() {
         // Utility class, no instantiation
     }
@@ -25,40 +34,91 @@ public final class QueueTimeCalculator {
      * @return the queue time in milliseconds, or -1 if the header could not be parsed
      */
     public static long calculateQueueTime(String requestStartHeader, Instant now) {
-        try {
-            // Strip any non-numeric characters (e.g., "t=" prefix from NGINX)
-            String cleanValue = requestStartHeader.replaceAll("[^0-9.]", "");
-
-            long startTimeMs;
-
-            // Use long parsing for integer values to avoid precision loss with large timestamps
-            // (nanosecond timestamps can exceed double's precision)
-            if (!cleanValue.contains(".")) {
-                long value = Long.parseLong(cleanValue);
-                startTimeMs = convertToMillis(value);
-            } else {
-                // Fractional values (typically seconds from NGINX)
-                double value = Double.parseDouble(cleanValue);
-                if (value > NANOSECONDS_CUTOFF) {
-                    startTimeMs = (long) (value / 1_000_000);
-                } else if (value > MICROSECONDS_CUTOFF) {
-                    startTimeMs = (long) (value / 1_000);
-                } else if (value > MILLISECONDS_CUTOFF) {
-                    startTimeMs = (long) value;
-                } else {
-                    // Seconds with fractional part
-                    startTimeMs = (long) (value * 1000);
-                }
-            }
+        return calculateQueueTime(requestStartHeader, now.toEpochMilli());
+    }
+
+    /**
+     * Calculates the queue time in milliseconds from the X-Request-Start header.
+     *
+     * @param requestStartHeader the X-Request-Start header value
+     * @param nowMillis the current time in milliseconds since the epoch
+     * @return the queue time in milliseconds, or -1 if the header could not be parsed
+     */
+    public static long calculateQueueTime(String requestStartHeader, long nowMillis) {
+        long startTimeMs = parseStartTimeMillis(requestStartHeader);
+        if (startTimeMs == INVALID) {
+            return -1;
+        }
 
-            long queueTimeMs = now.toEpochMilli() - startTimeMs;
+        long queueTimeMs = nowMillis - startTimeMs;
 
-            // Safeguard against negative queue times
-            return Math.max(0, queueTimeMs);
+        // Safeguard against negative queue times
+        return Math.max(0, queueTimeMs);
+    }
 
-        } catch (NumberFormatException e) {
-            return -1;
+    /**
+     * Parses the header into epoch milliseconds in a single pass, without allocating.
+     * Any character other than a digit or '.' is skipped (e.g., the "t=" prefix from NGINX).
+     *
+     * @return the start time in epoch milliseconds, or {@link #INVALID} if the header has no digits,
+     *         more than one '.', or an integer value that doesn't fit in a long
+     */
+    static long parseStartTimeMillis(String header) {
+        long mantissa = 0;
+        int fractionDigits = 0;
+        int pendingZeros = 0;
+        boolean hasDigits = false;
+        boolean hasDot = false;
+        boolean exact = true;
+
+        for (int i = 0, length = header.length(); i < length; i++) {
+            char c = header.charAt(i);
+            if (c == '.') {
+                if (hasDot) {
+                    return INVALID;
+                }
+                hasDot = true;
+            } else if (c >= '0' && c <= '9') {
+                int digit = c - '0';
+                hasDigits = true;
+                if (!hasDot) {
+                    // Use long arithmetic for integer values to avoid precision loss with large timestamps
+                    // (nanosecond timestamps can exceed double's precision)
+                    if (mantissa > (Long.MAX_VALUE - digit) / 10) {
+                        exact = false;
+                    } else {
+                        mantissa = mantissa * 10 + digit;
+                    }
+                } else if (digit == 0) {
+                    // Trailing fractional zeros don't change the value, so only count them once a digit follows
+                    pendingZeros++;
+                } else if (exact) {
+                    int shift = pendingZeros + 1;
+                    if (fractionDigits + shift < POWERS_OF_TEN.length
+                            && mantissa <= (MAX_EXACT_MANTISSA - digit) / (long) POWERS_OF_TEN[shift]) {
+                        mantissa = mantissa * (long) POWERS_OF_TEN[shift] + digit;
+                        fractionDigits += shift;
+                        pendingZeros = 0;
+                    } else {
+                        exact = false;
+                    }
+                }
+            }
+        }
+
+        if (!hasDigits) {
+            return INVALID;
         }
+        if (!hasDot) {
+            return exact ? convertToMillis(mantissa) : INVALID;
+        }
+
+        // Fractional values (typically seconds from NGINX). The mantissa and the power of ten are both
+        // exact doubles here, so the division is correctly rounded and matches Double.parseDouble.
+        double value = exact && mantissa <= MAX_EXACT_MANTISSA
+            ? mantissa / POWERS_OF_TEN[fractionDigits]
+            : parseDoubleSlow(header);
+        return convertToMillis(value);
     }
 
     /**
@@ -79,4 +139,35 @@ public final class QueueTimeCalculator {
             return value * 1000;
         }
     }
+
+    /**
+     * Converts a fractional timestamp to milliseconds based on its magnitude.
+     */
+    private static long convertToMillis(double value) {
+        if (value > NANOSECONDS_CUTOFF) {
+            return (long) (value / 1_000_000);
+        } else if (value > MICROSECONDS_CUTOFF) {
+            return (long) (value / 1_000);
+        } else if (value > MILLISECONDS_CUTOFF) {
+            return (long) value;
+        } else {
+            // Seconds with fractional part
+            return (long) (value * 1000);
+        }
+    }
+
+    /**
+     * Parses a fractional value with more significant digits than a double holds exactly.
+     * Rare enough that it's fine to allocate.
+     */
+    private static double parseDoubleSlow(String header) {
+        StringBuilder digits = new StringBuilder(header.length());
+        for (int i = 0; i < header.length(); i++) {
+            char c = header.charAt(i);
+            if (c == '.' || (c >= '0' && c <= '9')) {
+                digits.append(c);
+            }
+        }
+        return Double.parseDouble(digits.toString());
+    }
 }
@@ -0,0 +1,123 @@
+package com.judoscale.core;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything flushed from a {@link MetricsStore} for a single report:
+ * individual metric samples, any aggregated histogram snapshots, the number of
+ * samples per identifier that the store had to drop since the previous report,
+ * how identifiers were sampled when the store kept only some of their samples, and
+ * the per-route breakdown from the store's {@link RouteTracker}, if it has one.
+ */
+public final class Report {
+
+    private final List<Metric> metrics;
+    private final List<HistogramSnapshot> histograms;
+    private final Map<String, Long> dropped;
+    private final List<SamplingSummary> sampling;
+    private final List<RouteSummary> routes;
+
+    /**
+     * Creates a report containing only individual metric samples.
+     */
+    public Report(List<Metric> metrics) {
+        this(metrics, Collections.<HistogramSnapshot>emptyList());
+    }
+
+    /**
+     * Creates a report with individual metric samples and aggregated histogram snapshots.
+     */
+    public Report(List<Metric> metrics, List<HistogramSnapshot> histograms) {
+        this(metrics, histograms, Collections.<String, Long>emptyMap());
+    }
+
+    /**
+     * Creates a report that also carries dropped-sample counts keyed by identifier.
+     */
+    public Report(List<Metric> metrics, List<HistogramSnapshot> histograms, Map<String, Long> dropped) {
+        this(metrics, histograms, dropped, Collections.<SamplingSummary>emptyList());
+    }
+
+    /**
+     * Creates a report whose metric samples were (partly) sampled, with a summary per sampled
+     * identifier/queue pair so the totals can be recovered.
+     */
+    public Report(List<Metric> metrics, List<HistogramSnapshot> histograms, Map<String, Long> dropped,
+                  List<SamplingSummary> sampling) {
+        this(metrics, histograms, dropped, sampling, Collections.<RouteSummary>emptyList());
+    }
+
+    /**
+     * Creates a report that also carries a queue time and application time summary per route.
+     */
+    public Report(List<Metric> metrics, List<HistogramSnapshot> histograms, Map<String, Long> dropped,
+                  List<SamplingSummary> sampling, List<RouteSummary> routes) {
+        this.metrics = metrics;
+        this.histograms = histograms;
+        this.dropped = dropped;
+        this.sampling = sampling;
+        this.routes = routes;
+    }
+
+    public List<Metric> metrics() {
+        return metrics;
+    }
+
+    public List<HistogramSnapshot> histograms() {
+        return histograms;
+    }
+
+    /**
+     * Returns the number of samples dropped since the previous report, keyed by identifier.
+     */
+    public Map<String, Long> dropped() {
+        return dropped;
+    }
+
+    /**
+     * Returns a summary for each identifier/queue pair whose metrics are a sample of what was observed.
+     * Pairs that aren't listed were reported in full.
+     */
+    public List<SamplingSummary> sampling() {
+        return sampling;
+    }
+
+    /**
+     * Returns a summary per route, busiest first. Empty unless the route breakdown is enabled.
+     */
+    public List<RouteSummary> routes() {
+        return routes;
+    }
+
+    /**
+     * Returns a copy of this report carrying the given route summaries, or this report if there are none.
+     */
+    public Report withRoutes(List<RouteSummary> routes) {
+        if (routes.isEmpty()) {
+            return this;
+        }
+        return new Report(metrics, histograms, dropped, sampling, routes);
+    }
+
+    /**
+     * Returns true if the report holds nothing worth sending.
+     */
+    public boolean isEmpty() {
+        return metrics.isEmpty() && histograms.isEmpty() && dropped.isEmpty() && routes.isEmpty();
+    }
+
+    /**
+     * Returns true if the report holds nothing beyond individual metric samples.
+     */
+    public boolean hasOnlyMetrics() {
+        return histograms.isEmpty() && dropped.isEmpty() && sampling.isEmpty() && routes.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "Report{metrics=" + metrics.size() + ", histograms=" + histograms.size() + ", dropped=" + dropped +
+            ", sampling=" + sampling.size() + ", routes=" + routes.size() + '}';
+    }
+}
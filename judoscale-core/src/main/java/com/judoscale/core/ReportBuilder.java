@@ -1,12 +1,9 @@
 package com.judoscale.core;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
-
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.management.ManagementFactory;
 import java.util.Collection;
 import java.util.List;
@@ -17,7 +14,7 @@ import java.util.Properties;
  */
 public final class ReportBuilder {
 
-    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final long PID = getPid();
 
     private ReportBuilder() {
         // Utility class, no instantiation
@@ -32,43 +29,67 @@ public final class ReportBuilder {
      * @return the JSON string
      */
     public static String buildReportJson(List<Metric> metrics, Collection<Adapter> adapters, String runtimeContainer) {
-        ObjectNode root = objectMapper.createObjectNode();
-
-        // Include runtime container identifier and process ID
-        root.put("container", runtimeContainer != null ? runtimeContainer : "");
-        root.put("pid", getPid());
-
-        // Build metrics array: each metric is [timestamp, value, identifier, queueName?]
-        ArrayNode metricsArray = objectMapper.createArrayNode();
-        for (Metric m : metrics) {
-            ArrayNode metricArray = objectMapper.createArrayNode();
-            metricArray.add(m.time().getEpochSecond());
-            metricArray.add(m.value());
-            metricArray.add(m.identifier());
-            if (m.queueName() != null) {
-                metricArray.add(m.queueName());
-            }
-            metricsArray.add(metricArray);
-        }
-        root.set("metrics", metricsArray);
-
-        // Build adapters object - each adapter provides its own name and version
-        ObjectNode adaptersNode = objectMapper.createObjectNode();
-        for (Adapter adapter : adapters) {
-            ObjectNode adapterNode = objectMapper.createObjectNode();
-            adapterNode.put("adapter_version", adapter.version());
-            adapterNode.put("runtime_version", adapter.runtimeVersion());
-            adaptersNode.set(adapter.name(), adapterNode);
-        }
-        root.set("adapters", adaptersNode);
+        return buildReportJson(new Report(metrics), adapters, runtimeContainer);
+    }
 
+    /**
+     * Builds the JSON payload for a report, including any histogram snapshots, dropped counts,
+     * sampling summaries and route summaries. The "histograms", "dropped", "sampling" and "routes"
+     * keys are only present when the report has them.
+     *
+     * @param report the report to serialize
+     * @param adapters the adapters to include in the report (supports multiple adapters)
+     * @param runtimeContainer the runtime container identifier
+     * @return the JSON string
+     */
+    public static String buildReportJson(Report report, Collection<Adapter> adapters, String runtimeContainer) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
         try {
-            return objectMapper.writeValueAsString(root);
-        } catch (JsonProcessingException e) {
+            writeReportJson(report, adapters, runtimeContainer, out);
+            return out.toString("UTF-8");
+        } catch (IOException e) {
             throw new RuntimeException("Failed to serialize metrics to JSON", e);
         }
     }
 
+    /**
+     * Streams the JSON payload for a report to the given output stream, one element at a time,
+     * without building the whole payload in memory. The stream is flushed but not closed.
+     *
+     * @param report the report to serialize
+     * @param adapters the adapters to include in the report (supports multiple adapters)
+     * @param runtimeContainer the runtime container identifier
+     * @param out the stream to write the UTF-8 encoded JSON to
+     * @throws IOException if writing to the stream fails
+     */
+    public static void writeReportJson(Report report, Collection<Adapter> adapters, String runtimeContainer,
+                                       OutputStream out) throws IOException {
+        JsonWriter writer = new JsonWriter(out);
+        new ReportJsonWriter(report, adapters, runtimeContainer, PID).writeAll(writer);
+        writer.flush();
+    }
+
+    /**
+     * Opens a stream over the JSON payload for a report. The report is serialized lazily as the
+     * stream is read, so only a small chunk of the payload is in memory at any time.
+     * Each call returns a new stream that starts from the beginning of the payload.
+     *
+     * @param report the report to serialize
+     * @param adapters the adapters to include in the report (supports multiple adapters)
+     * @param runtimeContainer the runtime container identifier
+     * @return a stream of the UTF-8 encoded JSON
+     */
+    public static InputStream openReportJson(Report report, Collection<Adapter> adapters, String runtimeContainer) {
+        return new ReportInputStream(new ReportJsonWriter(report, adapters, runtimeContainer, PID));
+    }
+
+    /**
+     * Returns the current process ID, or -1 if it cannot be determined.
+     */
+    static long pid() {
+        return PID;
+    }
+
     /**
      * Gets the current process ID in a Java 8-compatible way.
      *
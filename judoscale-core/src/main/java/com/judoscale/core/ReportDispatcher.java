@@ -0,0 +1,103 @@
+package com.judoscale.core;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Sends reports through an {@link AsyncApiClient} with a bounded number in flight.
+ *
+ * <p>At most {@code maxConcurrent} reports are sent at once. Reports submitted while all are in
+ * flight wait in a queue of at most {@code maxQueued}; when it's full the oldest waiting report is
+ * dropped, since recent metrics matter most for autoscaling.</p>
+ */
+final class ReportDispatcher {
+
+    private static final Logger logger = Logger.getLogger(ReportDispatcher.class.getName());
+
+    private final AsyncApiClient apiClient;
+    private final int maxConcurrent;
+    private final int maxQueued;
+
+    // Guarded by this
+    private final Deque<Report> queued = new ArrayDeque<>();
+    private int inFlight = 0;
+
+    ReportDispatcher(AsyncApiClient apiClient, int maxConcurrent, int maxQueued) {
+        this.apiClient = apiClient;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.maxQueued = Math.max(0, maxQueued);
+    }
+
+    /**
+     * Sends the report now if fewer than the maximum are in flight, otherwise queues it.
+     * Never blocks on the network.
+     */
+    void submit(Report report) {
+        Report toSend = null;
+        Report dropped = null;
+        synchronized (this) {
+            if (inFlight < maxConcurrent) {
+                inFlight++;
+                toSend = report;
+            } else if (maxQueued == 0) {
+                dropped = report;
+            } else {
+                if (queued.size() >= maxQueued) {
+                    dropped = queued.pollFirst();
+                }
+                queued.addLast(report);
+            }
+        }
+
+        if (dropped != null) {
+            logger.warning("Judoscale API is slow to respond, dropped a report of " +
+                dropped.metrics().size() + " metrics");
+        }
+        if (toSend != null) {
+            send(toSend);
+        }
+    }
+
+    /**
+     * Returns the number of reports in flight or waiting to be sent.
+     */
+    synchronized int getOutstandingReports() {
+        return inFlight + queued.size();
+    }
+
+    private void send(Report report) {
+        CompletableFuture<Boolean> result;
+        try {
+            result = apiClient.reportMetricsAsync(report);
+        } catch (RuntimeException e) {
+            logger.log(Level.SEVERE, "Reporter error: " + e.getMessage(), e);
+            sendNext();
+            return;
+        }
+
+        result.whenComplete((accepted, error) -> {
+            if (error != null) {
+                logger.log(Level.SEVERE, "Reporter error: " + error.getMessage(), error);
+            }
+            sendNext();
+        });
+    }
+
+    /**
+     * Frees the slot of a finished report, or hands it to the next queued report.
+     */
+    private void sendNext() {
+        Report next;
+        synchronized (this) {
+            next = queued.pollFirst();
+            if (next == null) {
+                inFlight--;
+                return;
+            }
+        }
+        send(next);
+    }
+}
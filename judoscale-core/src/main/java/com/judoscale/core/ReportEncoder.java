@@ -0,0 +1,304 @@
+package com.judoscale.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Serializes reports into request bodies, as JSON or in the {@link BinaryReportBuilder binary format},
+ * gzip-compressing those of at least a minimum size.
+ *
+ * <p>The body is streamed from the report builder: it's buffered uncompressed
+ * only until it reaches the minimum size, after which everything is deflated as it's written.
+ * Output buffers and deflaters are pooled and reused across reports, so steady-state reporting
+ * doesn't allocate new ones. Totals for compression ratio and time are available from
+ * {@link #getStats()}.</p>
+ *
+ * <p>Instances are thread-safe.</p>
+ */
+public final class ReportEncoder {
+
+    /**
+     * Content-Encoding value for compressed bodies.
+     */
+    public static final String GZIP = "gzip";
+
+    private static final String JSON_CONTENT_TYPE = "application/json";
+
+    private static final int POOL_SIZE = 2;
+    private static final int MAX_POOLED_BUFFER_BYTES = 1024 * 1024;
+    private static final int MIN_DEFLATE_SPACE = 4096;
+
+    private final int minBytes;
+    private final int level;
+    private final BlockingQueue<PooledBuffer> buffers = new ArrayBlockingQueue<>(POOL_SIZE * 2);
+    private final BlockingQueue<Deflater> deflaters = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    private final AtomicLong reports = new AtomicLong();
+    private final AtomicLong compressedReports = new AtomicLong();
+    private final AtomicLong rawBytes = new AtomicLong();
+    private final AtomicLong encodedBytes = new AtomicLong();
+    private final AtomicLong compressionNanos = new AtomicLong();
+
+    /**
+     * Creates an encoder that compresses bodies of at least {@code minBytes} at the given level.
+     *
+     * @param minBytes the smallest uncompressed body to compress
+     * @param level the deflate level, from 1 (fastest) to 9 (smallest)
+     */
+    public ReportEncoder(int minBytes, int level) {
+        if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Compression level must be between 1 and 9");
+        }
+        this.minBytes = Math.max(0, minBytes);
+        this.level = level;
+    }
+
+    /**
+     * Creates an encoder configured by {@link ConfigBase#getCompressionMinBytes()} and
+     * {@link ConfigBase#getCompressionLevel()}. If {@link ConfigBase#isCompressReports()} is off,
+     * the encoder only buffers bodies and never compresses them.
+     */
+    public static ReportEncoder forConfig(ConfigBase config) {
+        int minBytes = config.isCompressReports() ? config.getCompressionMinBytes() : Integer.MAX_VALUE;
+        return new ReportEncoder(minBytes, config.getCompressionLevel());
+    }
+
+    /**
+     * Serializes the report as JSON, compressing it if it reaches the minimum size.
+     * The returned body must be closed once sent so its buffers can be reused.
+     *
+     * @param report the report to serialize
+     * @param adapters the adapters to include in the report
+     * @param runtimeContainer the runtime container identifier
+     * @return the encoded body
+     * @throws IOException if serialization or compression fails
+     */
+    public EncodedReport encode(Report report, Collection<Adapter> adapters, String runtimeContainer) throws IOException {
+        return encode(JSON_CONTENT_TYPE, out -> ReportBuilder.writeReportJson(report, adapters, runtimeContainer, out));
+    }
+
+    /**
+     * Serializes the report in the binary format, compressing it if it reaches the minimum size.
+     * The returned body must be closed once sent so its buffers can be reused.
+     *
+     * @param report the report to serialize
+     * @param adapters the adapters to include in the report
+     * @param runtimeContainer the runtime container identifier
+     * @return the encoded body
+     * @throws IOException if serialization or compression fails
+     */
+    public EncodedReport encodeBinary(Report report, Collection<Adapter> adapters, String runtimeContainer) throws IOException {
+        return encode(BinaryReportBuilder.CONTENT_TYPE,
+            out -> BinaryReportBuilder.writeReport(report, adapters, runtimeContainer, out));
+    }
+
+    private EncodedReport encode(String contentType, BodyWriter body) throws IOException {
+        PooledBuffer raw = borrowBuffer();
+        ThresholdOutputStream out = new ThresholdOutputStream(raw);
+        try {
+            body.writeTo(out);
+            out.finish();
+        } catch (IOException | RuntimeException e) {
+            out.abandon();
+            releaseBuffer(raw);
+            throw e;
+        }
+
+        reports.incrementAndGet();
+        rawBytes.addAndGet(out.rawCount);
+        if (out.compressed == null) {
+            encodedBytes.addAndGet(raw.size());
+            return new EncodedReport(this, raw, contentType, null, out.rawCount);
+        }
+
+        // Only the first minBytes were buffered uncompressed; the body is the compressed buffer
+        releaseBuffer(raw);
+        compressedReports.incrementAndGet();
+        encodedBytes.addAndGet(out.compressed.size());
+        compressionNanos.addAndGet(out.compressionNanos);
+        return new EncodedReport(this, out.compressed, contentType, GZIP, out.rawCount);
+    }
+
+    /**
+     * Returns running totals for every report encoded so far.
+     */
+    public CompressionStats getStats() {
+        return new CompressionStats(reports.get(), compressedReports.get(), rawBytes.get(),
+            encodedBytes.get(), compressionNanos.get());
+    }
+
+    public int getMinBytes() {
+        return minBytes;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    PooledBuffer borrowBuffer() {
+        PooledBuffer buffer = buffers.poll();
+        return buffer != null ? buffer : new PooledBuffer();
+    }
+
+    void releaseBuffer(PooledBuffer buffer) {
+        // Don't let one unusually large report pin a large buffer forever
+        if (buffer.capacity() <= MAX_POOLED_BUFFER_BYTES) {
+            buffer.reset();
+            buffers.offer(buffer);
+        }
+    }
+
+    private Deflater borrowDeflater() {
+        Deflater deflater = deflaters.poll();
+        if (deflater == null) {
+            return new Deflater(level, true);
+        }
+        deflater.reset();
+        return deflater;
+    }
+
+    private void releaseDeflater(Deflater deflater) {
+        if (!deflaters.offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    private interface BodyWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * A reusable byte buffer whose contents can be read without copying.
+     */
+    static final class PooledBuffer extends ByteArrayOutputStream {
+        PooledBuffer() {
+            super(8192);
+        }
+
+        byte[] bytes() {
+            return buf;
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+
+        /**
+         * Deflates straight into the end of the buffer, growing it if it's nearly full.
+         */
+        void deflateFrom(Deflater deflater) {
+            if (buf.length - count < MIN_DEFLATE_SPACE) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, count + MIN_DEFLATE_SPACE));
+            }
+            count += deflater.deflate(buf, count, buf.length - count);
+        }
+    }
+
+    /**
+     * Buffers output uncompressed until it reaches the minimum size, then switches to writing
+     * a gzip stream (header, raw deflate data, CRC32 and length trailer) into a second buffer.
+     */
+    private final class ThresholdOutputStream extends OutputStream {
+        final PooledBuffer raw;
+        PooledBuffer compressed;
+        long rawCount;
+        long compressionNanos;
+
+        private Deflater deflater;
+        private final CRC32 crc = new CRC32();
+        private final byte[] single = new byte[1];
+
+        ThresholdOutputStream(PooledBuffer raw) {
+            this.raw = raw;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            single[0] = (byte) b;
+            write(single, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            rawCount += len;
+            if (compressed == null) {
+                raw.write(b, off, len);
+                if (raw.size() >= minBytes) {
+                    startCompressing();
+                }
+                return;
+            }
+            deflate(b, off, len);
+        }
+
+        void finish() {
+            if (compressed == null) {
+                return;
+            }
+            long start = System.nanoTime();
+            deflater.finish();
+            while (!deflater.finished()) {
+                drainDeflater();
+            }
+            writeIntLE((int) crc.getValue());
+            writeIntLE((int) rawCount);
+            compressionNanos += System.nanoTime() - start;
+            releaseDeflater(deflater);
+            deflater = null;
+        }
+
+        void abandon() {
+            if (deflater != null) {
+                releaseDeflater(deflater);
+                deflater = null;
+            }
+            if (compressed != null) {
+                releaseBuffer(compressed);
+                compressed = null;
+            }
+        }
+
+        private void startCompressing() {
+            compressed = borrowBuffer();
+            deflater = borrowDeflater();
+            // Fixed gzip header: magic, deflate method, no flags, no mtime, no extra flags, unknown OS
+            compressed.write(0x1f);
+            compressed.write(0x8b);
+            compressed.write(Deflater.DEFLATED);
+            for (int i = 0; i < 6; i++) {
+                compressed.write(0);
+            }
+            compressed.write(0xff);
+            deflate(raw.bytes(), 0, raw.size());
+        }
+
+        private void deflate(byte[] b, int off, int len) {
+            long start = System.nanoTime();
+            crc.update(b, off, len);
+            deflater.setInput(b, off, len);
+            while (!deflater.needsInput()) {
+                drainDeflater();
+            }
+            compressionNanos += System.nanoTime() - start;
+        }
+
+        private void drainDeflater() {
+            compressed.deflateFrom(deflater);
+        }
+
+        private void writeIntLE(int value) {
+            compressed.write(value & 0xff);
+            compressed.write((value >> 8) & 0xff);
+            compressed.write((value >> 16) & 0xff);
+            compressed.write((value >>> 24) & 0xff);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.judoscale.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An {@link InputStream} over a report's JSON payload that serializes the report lazily, a chunk
+ * at a time, as it's read. Only one chunk of JSON is held in memory, whatever the size of the report.
+ */
+final class ReportInputStream extends InputStream {
+
+    private static final int CHUNK_SIZE = 16 * 1024;
+
+    private final ReportJsonWriter report;
+    private final Chunk chunk = new Chunk();
+    private final JsonWriter writer;
+    private int position;
+    private boolean finished;
+
+    ReportInputStream(ReportJsonWriter report) {
+        this.report = report;
+        this.writer = new JsonWriter(chunk);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return chunk.bytes()[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int count = Math.min(len, chunk.size() - position);
+        System.arraycopy(chunk.bytes(), position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return chunk.size() - position;
+    }
+
+    @Override
+    public void close() {
+        finished = true;
+    }
+
+    /**
+     * Serializes the next chunk of the report if everything written so far has been read.
+     *
+     * @return false once the whole report has been read
+     */
+    private boolean fill() throws IOException {
+        if (position < chunk.size()) {
+            return true;
+        }
+        chunk.reset();
+        position = 0;
+        while (!finished && chunk.size() + writer.buffered() < CHUNK_SIZE) {
+            finished = !report.writeNext(writer);
+        }
+        writer.flush();
+        return chunk.size() > 0;
+    }
+
+    /**
+     * Exposes the internal buffer so chunks are served without copying.
+     */
+    private static final class Chunk extends ByteArrayOutputStream {
+        Chunk() {
+            super(2 * CHUNK_SIZE);
+        }
+
+        byte[] bytes() {
+            return buf;
+        }
+    }
+}
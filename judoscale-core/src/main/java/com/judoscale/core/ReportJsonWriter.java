@@ -0,0 +1,228 @@
+package com.judoscale.core;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Writes a report's JSON payload to a {@link JsonWriter} one element at a time,
+ * so callers can serialize a report of any size without building it in memory first.
+ * See {@link ReportBuilder#buildReportJson(Report, Collection, String)} for the format.
+ */
+final class ReportJsonWriter {
+
+    private static final int HEADER = 0;
+    private static final int METRICS = 1;
+    private static final int HISTOGRAMS = 2;
+    private static final int DROPPED = 3;
+    private static final int SAMPLING = 4;
+    private static final int ROUTES = 5;
+    private static final int FOOTER = 6;
+    private static final int DONE = 7;
+
+    private final Report report;
+    private final Collection<Adapter> adapters;
+    private final String runtimeContainer;
+    private final long pid;
+
+    private int section = HEADER;
+    private int index;
+
+    ReportJsonWriter(Report report, Collection<Adapter> adapters, String runtimeContainer, long pid) {
+        this.report = report;
+        this.adapters = adapters;
+        this.runtimeContainer = runtimeContainer;
+        this.pid = pid;
+    }
+
+    /**
+     * Writes the whole report.
+     */
+    void writeAll(JsonWriter writer) throws IOException {
+        while (writeNext(writer)) {
+            // Keep writing until the closing brace
+        }
+    }
+
+    /**
+     * Writes the next element of the report: the opening fields, a single metric or histogram,
+     * the dropped counts, a single sampling or route summary, or the adapters and closing brace.
+     *
+     * @return false once the whole report has been written
+     */
+    boolean writeNext(JsonWriter writer) throws IOException {
+        switch (section) {
+            case HEADER:
+                // Include runtime container identifier and process ID
+                writer.beginObject();
+                writer.field("container", runtimeContainer != null ? runtimeContainer : "");
+                writer.field("pid", pid);
+                writer.name("metrics");
+                writer.beginArray();
+                section = METRICS;
+                return true;
+
+            case METRICS:
+                if (index < report.metrics().size()) {
+                    writeMetric(writer, report.metrics().get(index++));
+                    return true;
+                }
+                writer.endArray();
+                next(HISTOGRAMS);
+                return true;
+
+            case HISTOGRAMS:
+                if (report.histograms().isEmpty()) {
+                    next(DROPPED);
+                    return true;
+                }
+                if (index == 0) {
+                    writer.name("histograms");
+                    writer.beginArray();
+                }
+                if (index < report.histograms().size()) {
+                    writeHistogram(writer, report.histograms().get(index++));
+                    return true;
+                }
+                writer.endArray();
+                next(DROPPED);
+                return true;
+
+            case DROPPED:
+                // Number of samples the store dropped since the last report, keyed by identifier
+                if (!report.dropped().isEmpty()) {
+                    writer.name("dropped");
+                    writer.beginObject();
+                    for (Map.Entry<String, Long> entry : report.dropped().entrySet()) {
+                        writer.field(entry.getKey(), entry.getValue());
+                    }
+                    writer.endObject();
+                }
+                next(SAMPLING);
+                return true;
+
+            case SAMPLING:
+                // Identifier/queue pairs whose metrics were sampled: total observed vs. retained in "metrics"
+                if (report.sampling().isEmpty()) {
+                    next(ROUTES);
+                    return true;
+                }
+                if (index == 0) {
+                    writer.name("sampling");
+                    writer.beginArray();
+                }
+                if (index < report.sampling().size()) {
+                    writeSampling(writer, report.sampling().get(index++));
+                    return true;
+                }
+                writer.endArray();
+                next(ROUTES);
+                return true;
+
+            case ROUTES:
+                // Queue time and app time of the busiest routes, the rest combined as "other"
+                if (report.routes().isEmpty()) {
+                    next(FOOTER);
+                    return true;
+                }
+                if (index == 0) {
+                    writer.name("routes");
+                    writer.beginArray();
+                }
+                if (index < report.routes().size()) {
+                    writeRoute(writer, report.routes().get(index++));
+                    return true;
+                }
+                writer.endArray();
+                next(FOOTER);
+                return true;
+
+            case FOOTER:
+                // Each adapter provides its own name and version
+                writer.name("adapters");
+                writer.beginObject();
+                for (Adapter adapter : adapters) {
+                    writer.name(adapter.name());
+                    writer.beginObject();
+                    writer.field("adapter_version", adapter.version());
+                    writer.field("runtime_version", adapter.runtimeVersion());
+                    writer.endObject();
+                }
+                writer.endObject();
+                writer.endObject();
+                section = DONE;
+                return false;
+
+            default:
+                return false;
+        }
+    }
+
+    private void next(int nextSection) {
+        section = nextSection;
+        index = 0;
+    }
+
+    // Each metric is [timestamp, value, identifier, queueName?]
+    private static void writeMetric(JsonWriter writer, Metric m) throws IOException {
+        writer.beginArray();
+        writer.value(m.time().getEpochSecond());
+        writer.value(m.value());
+        writer.value(m.identifier());
+        if (m.queueName() != null) {
+            writer.value(m.queueName());
+        }
+        writer.endArray();
+    }
+
+    // Buckets are [bucketIndex, count] pairs in the log-linear layout
+    private static void writeHistogram(JsonWriter writer, HistogramSnapshot h) throws IOException {
+        writer.beginObject();
+        writer.field("identifier", h.identifier());
+        if (h.queueName() != null) {
+            writer.field("queue_name", h.queueName());
+        }
+        writer.field("time", h.time().getEpochSecond());
+        writer.field("precision", h.precision());
+        writer.field("count", h.count());
+        writer.field("sum", h.sum());
+        writer.field("min", h.min());
+        writer.field("max", h.max());
+        writer.name("buckets");
+        writer.beginArray();
+        for (int i = 0; i < h.bucketSize(); i++) {
+            writer.beginArray();
+            writer.value(h.bucketIndex(i));
+            writer.value(h.bucketCount(i));
+            writer.endArray();
+        }
+        writer.endArray();
+        writer.endObject();
+    }
+
+    private static void writeSampling(JsonWriter writer, SamplingSummary s) throws IOException {
+        writer.beginObject();
+        writer.field("identifier", s.identifier());
+        if (s.queueName() != null) {
+            writer.field("queue_name", s.queueName());
+        }
+        writer.field("total", s.total());
+        writer.field("retained", s.retained());
+        writer.endObject();
+    }
+
+    // Queue time fields are omitted when none of the route's requests had a queue time
+    private static void writeRoute(JsonWriter writer, RouteSummary r) throws IOException {
+        writer.beginObject();
+        writer.field("route", r.route());
+        writer.field("count", r.count());
+        writer.field("at_sum", r.appTimeSum());
+        writer.field("at_max", r.appTimeMax());
+        if (r.queueTimeCount() > 0) {
+            writer.field("qt_count", r.queueTimeCount());
+            writer.field("qt_sum", r.queueTimeSum());
+            writer.field("qt_max", r.queueTimeMax());
+        }
+        writer.endObject();
+    }
+}
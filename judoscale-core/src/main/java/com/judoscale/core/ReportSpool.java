@@ -0,0 +1,481 @@
+package com.judoscale.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Durable spool for report bodies that failed to send, replayed oldest-first once the API is
+ * reachable again.
+ *
+ * <p>Bodies are appended to memory-mapped segment files ({@code spool-<sequence>.seg}) in the spool
+ * directory. The spool holds at most {@code maxBytes} of segments, dropping the oldest segment when a
+ * new one is needed, and skips reports older than {@code maxAgeMillis} when replaying.</p>
+ *
+ * <p>Each record is a 12-byte header (marker, body length, CRC32 of the body) followed by the body
+ * (spool time, content type, content encoding and payload). A record's body is written before its
+ * header and its marker last, so a record torn by a crash is never read back: reopening a directory
+ * scans each segment up to the first record with a missing marker or a bad checksum. Sent records
+ * are marked in place and a segment is deleted once all its records are sent.</p>
+ *
+ * <p>Instances are thread-safe. A directory can be open in one spool at a time; a lock file keeps
+ * other processes on the same container from sharing it.</p>
+ */
+public class ReportSpool implements Closeable {
+
+    private static final Logger logger = Logger.getLogger(ReportSpool.class.getName());
+
+    static final int MIN_SEGMENT_BYTES = 64 * 1024;
+    static final int MAX_SEGMENT_BYTES = 1024 * 1024;
+
+    private static final String SEGMENT_PREFIX = "spool-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String LOCK_FILE = "spool.lock";
+
+    private static final int HEADER_BYTES = 12;
+    private static final int UNSENT = 0x4A53504C;
+    private static final int SENT = 0x4A535053;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final int maxSegments;
+    private final long maxAgeMillis;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private final AtomicBoolean replaying = new AtomicBoolean(false);
+
+    // Oldest first, guarded by this
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private long nextSequence = 0;
+    private boolean closed = false;
+
+    /**
+     * Opens the spool in the given directory, creating it if needed, and recovers the reports
+     * spooled by a previous process.
+     *
+     * @param directory the directory holding the segment files
+     * @param maxBytes the most disk space the segments may use
+     * @param maxAgeMillis how long a spooled report is worth replaying
+     * @throws IOException if the directory can't be created or is in use by another spool
+     */
+    public ReportSpool(Path directory, long maxBytes, long maxAgeMillis) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = (int) Math.max(MIN_SEGMENT_BYTES, Math.min(MAX_SEGMENT_BYTES, maxBytes / 4));
+        this.maxSegments = (int) Math.max(1, maxBytes / segmentBytes);
+        this.maxAgeMillis = maxAgeMillis;
+
+        Files.createDirectories(directory);
+        this.lockChannel = FileChannel.open(directory.resolve(LOCK_FILE),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock acquired;
+        try {
+            acquired = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            acquired = null;
+        }
+        if (acquired == null) {
+            lockChannel.close();
+            throw new IOException("Spool directory " + directory + " is in use");
+        }
+        this.lock = acquired;
+
+        try {
+            recover();
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens the spool configured by {@link ConfigBase#getSpoolDirectory()},
+     * {@link ConfigBase#getSpoolMaxBytes()} and {@link ConfigBase#getSpoolMaxAgeSeconds()}.
+     * Returns null if spooling is disabled or the directory can't be used.
+     */
+    public static ReportSpool forConfig(ConfigBase config) {
+        if (!config.isSpoolEnabled()) {
+            return null;
+        }
+
+        Path directory = config.getSpoolDirectory() != null && !config.getSpoolDirectory().isEmpty()
+            ? Paths.get(config.getSpoolDirectory())
+            : Paths.get(System.getProperty("java.io.tmpdir"), "judoscale-spool");
+        try {
+            ReportSpool spool = new ReportSpool(directory, config.getSpoolMaxBytes(),
+                TimeUnit.SECONDS.toMillis(config.getSpoolMaxAgeSeconds()));
+            logger.info("Spooling reports that fail to send in " + directory);
+            return spool;
+        } catch (IOException e) {
+            logger.warning("Could not open report spool, failed reports won't be replayed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Appends a report body that failed to send. Returns false if the spool is closed, the body
+     * doesn't fit in a segment, or it couldn't be written.
+     *
+     * @param contentType the Content-Type to replay the body with
+     * @param contentEncoding the Content-Encoding to replay the body with, or null
+     * @param bytes the buffer holding the body
+     * @param offset the offset of the body in the buffer
+     * @param length the length of the body
+     */
+    public synchronized boolean append(String contentType, String contentEncoding, byte[] bytes, int offset, int length) {
+        if (closed) {
+            return false;
+        }
+
+        byte[] type = contentType.getBytes(StandardCharsets.UTF_8);
+        byte[] encoding = contentEncoding != null ? contentEncoding.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        int bodyLength = 8 + 2 + type.length + 2 + encoding.length + length;
+        if (HEADER_BYTES + bodyLength > segmentBytes) {
+            logger.warning("Report of " + length + " bytes is too large to spool");
+            return false;
+        }
+
+        Segment segment = segments.peekLast();
+        try {
+            if (segment == null || segment.writePosition + HEADER_BYTES + bodyLength > segment.buffer.capacity()) {
+                segment = newSegment();
+            }
+        } catch (IOException e) {
+            logger.warning("Could not spool report: " + e.getMessage());
+            return false;
+        }
+
+        int position = segment.writePosition;
+        ByteBuffer body = segment.buffer.duplicate();
+        body.position(position + HEADER_BYTES);
+        body.putLong(getCurrentTime());
+        body.putShort((short) type.length).put(type);
+        body.putShort((short) encoding.length).put(encoding);
+        body.put(bytes, offset, length);
+
+        int end = position + HEADER_BYTES + bodyLength;
+        if (end + 4 <= segment.buffer.capacity()) {
+            // Ends the segment at this record, in case it overwrites a longer torn record
+            segment.buffer.putInt(end, 0);
+        }
+        segment.buffer.putInt(position + 4, bodyLength);
+        segment.buffer.putInt(position + 8, checksum(segment.buffer, position + HEADER_BYTES, bodyLength));
+        segment.buffer.putInt(position, UNSENT);
+        segment.buffer.force();
+
+        segment.writePosition = end;
+        segment.unsentRecords++;
+        if (segment.readPosition < 0) {
+            segment.readPosition = position;
+        }
+        return true;
+    }
+
+    /**
+     * Offers spooled reports to {@code sender}, oldest first, until it returns false or
+     * {@code maxReports} were sent. Reports the sender accepts are marked as sent; the first one it
+     * refuses stays spooled for the next replay. The sender is called without holding the spool's
+     * lock, so {@link #append} isn't delayed by a slow send. Concurrent replays are skipped.
+     *
+     * @return the number of reports sent
+     */
+    public int replay(Predicate<SpooledReport> sender, int maxReports) {
+        if (!replaying.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            int sent = 0;
+            while (sent < maxReports) {
+                SpooledReport report = oldest();
+                if (report == null) {
+                    break;
+                }
+                boolean accepted;
+                try {
+                    accepted = sender.test(report);
+                } catch (RuntimeException e) {
+                    logger.log(Level.WARNING, "Could not replay spooled report: " + e.getMessage(), e);
+                    break;
+                }
+                if (!accepted) {
+                    break;
+                }
+                markSent(report);
+                sent++;
+            }
+            return sent;
+        } finally {
+            replaying.set(false);
+        }
+    }
+
+    /**
+     * Returns the number of spooled reports not yet sent, including any too old to be replayed.
+     */
+    public synchronized int getSpooledReportCount() {
+        int count = 0;
+        for (Segment segment : segments) {
+            count += segment.unsentRecords;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the directory holding the segment files.
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Releases the directory. Unsent reports stay on disk for the next spool opened on it.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        segments.clear();
+        try {
+            if (lock != null) {
+                lock.release();
+            }
+        } finally {
+            lockChannel.close();
+        }
+    }
+
+    /**
+     * Returns the current time in milliseconds since the epoch.
+     * Protected to allow overriding in tests.
+     */
+    protected long getCurrentTime() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Returns the oldest unsent report young enough to replay, marking older ones as sent.
+     */
+    private synchronized SpooledReport oldest() {
+        if (closed) {
+            return null;
+        }
+
+        long now = getCurrentTime();
+        for (Segment segment : new ArrayList<>(segments)) {
+            while (segment.unsentRecords > 0) {
+                int position = nextUnsent(segment, segment.readPosition);
+                if (position < 0) {
+                    // Unreachable unless the file was modified by someone else
+                    segment.unsentRecords = 0;
+                    break;
+                }
+                SpooledReport report = read(segment, position);
+                if (now - report.spooledAtMillis() <= maxAgeMillis) {
+                    return report;
+                }
+                markSent(report);
+            }
+        }
+        return null;
+    }
+
+    private synchronized void markSent(SpooledReport report) {
+        Segment segment = report.segment;
+        if (closed || !segments.contains(segment) || segment.buffer.getInt(report.position) != UNSENT) {
+            return;
+        }
+
+        segment.buffer.putInt(report.position, SENT);
+        segment.buffer.force();
+        segment.unsentRecords--;
+        segment.readPosition = segment.unsentRecords > 0
+            ? nextUnsent(segment, report.position)
+            : -1;
+
+        if (segment.unsentRecords == 0 && segment != segments.peekLast()) {
+            segments.remove(segment);
+            delete(segment);
+        }
+    }
+
+    /**
+     * Returns the position of the first unsent record at or after {@code from}, or -1 if none.
+     */
+    private static int nextUnsent(Segment segment, int from) {
+        int position = Math.max(0, from);
+        while (position < segment.writePosition) {
+            if (segment.buffer.getInt(position) == UNSENT) {
+                return position;
+            }
+            position += HEADER_BYTES + segment.buffer.getInt(position + 4);
+        }
+        return -1;
+    }
+
+    private static SpooledReport read(Segment segment, int position) {
+        ByteBuffer body = segment.buffer.duplicate();
+        int bodyLength = body.getInt(position + 4);
+        body.position(position + HEADER_BYTES);
+        long spooledAt = body.getLong();
+        String contentType = readString(body);
+        String contentEncoding = readString(body);
+        int payloadLength = bodyLength - (body.position() - position - HEADER_BYTES);
+        byte[] payload = new byte[payloadLength];
+        body.get(payload);
+        return new SpooledReport(contentType, contentEncoding.isEmpty() ? null : contentEncoding,
+            payload, spooledAt, segment, position);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Maps the segments left by a previous process, oldest first, and finds where each one's
+     * intact records end. Segments without unsent records are deleted, except the newest.
+     */
+    private void recover() throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                paths.add(path);
+            }
+        }
+        Collections.sort(paths);
+
+        for (Path path : paths) {
+            long sequence;
+            try {
+                String name = path.getFileName().toString();
+                sequence = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            Segment segment = new Segment(path, map(path, Files.size(path)));
+            scan(segment);
+            segments.addLast(segment);
+            nextSequence = Math.max(nextSequence, sequence + 1);
+        }
+
+        for (Segment segment : new ArrayList<>(segments)) {
+            if (segment.unsentRecords == 0 && segment != segments.peekLast()) {
+                segments.remove(segment);
+                delete(segment);
+            }
+        }
+        if (!segments.isEmpty()) {
+            logger.info("Recovered " + getSpooledReportCount() + " spooled reports from " + directory);
+        }
+    }
+
+    private static void scan(Segment segment) {
+        MappedByteBuffer buffer = segment.buffer;
+        int position = 0;
+        while (position + HEADER_BYTES <= buffer.capacity()) {
+            int marker = buffer.getInt(position);
+            int bodyLength = buffer.getInt(position + 4);
+            if ((marker != UNSENT && marker != SENT) || bodyLength <= 0
+                    || bodyLength > buffer.capacity() - position - HEADER_BYTES) {
+                break;
+            }
+            if (marker == UNSENT) {
+                if (checksum(buffer, position + HEADER_BYTES, bodyLength) != buffer.getInt(position + 8)) {
+                    break;
+                }
+                segment.unsentRecords++;
+                if (segment.readPosition < 0) {
+                    segment.readPosition = position;
+                }
+            }
+            position += HEADER_BYTES + bodyLength;
+        }
+        segment.writePosition = position;
+    }
+
+    private Segment newSegment() throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, nextSequence++, SEGMENT_SUFFIX));
+        Segment segment = new Segment(path, map(path, segmentBytes));
+        segments.addLast(segment);
+
+        while (segments.size() > maxSegments) {
+            Segment dropped = segments.removeFirst();
+            if (dropped.unsentRecords > 0) {
+                logger.warning("Report spool is full, dropped " + dropped.unsentRecords + " of the oldest spooled reports");
+            }
+            delete(dropped);
+        }
+        return segment;
+    }
+
+    private static MappedByteBuffer map(Path path, long size) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            if (file.length() < size) {
+                file.setLength(size);
+            }
+            return file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private static void delete(Segment segment) {
+        try {
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            logger.fine("Could not delete spool segment " + segment.path + ": " + e.getMessage());
+        }
+    }
+
+    private static int checksum(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer body = buffer.duplicate();
+        body.position(offset);
+        body.limit(offset + length);
+        CRC32 crc = new CRC32();
+        byte[] chunk = new byte[Math.min(length, 8192)];
+        while (body.hasRemaining()) {
+            int count = Math.min(chunk.length, body.remaining());
+            body.get(chunk, 0, count);
+            crc.update(chunk, 0, count);
+        }
+        return (int) crc.getValue();
+    }
+
+    /**
+     * A mapped segment file and where its records stand.
+     */
+    static final class Segment {
+        final Path path;
+        final MappedByteBuffer buffer;
+        int writePosition = 0;
+        int readPosition = -1;
+        int unsentRecords = 0;
+
+        Segment(Path path, MappedByteBuffer buffer) {
+            this.path = path;
+            this.buffer = buffer;
+        }
+    }
+}
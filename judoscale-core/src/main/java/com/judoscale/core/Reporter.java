@@ -1,7 +1,9 @@
 package com.judoscale.core;
 
-import java.time.Instant;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -12,23 +14,56 @@ import java.util.logging.Logger;
  * 
  * <p>This class is framework-agnostic; the scheduling mechanism is provided
  * by the framework-specific starter (e.g., Spring Boot's @Scheduled).</p>
+ *
+ * <p>With an {@link AsyncApiClient}, reports are sent in the background with at most
+ * {@link ConfigBase#getMaxConcurrentReports()} in flight and {@link ConfigBase#getMaxQueuedReports()}
+ * waiting, so a slow API call doesn't delay the next report. Other clients are called synchronously.</p>
+ *
+ * <p>Spooled reports are replayed on a dedicated background thread, since replaying makes several
+ * blocking sends in a row.</p>
  */
 public class Reporter {
 
     private static final Logger logger = Logger.getLogger(Reporter.class.getName());
 
+    // Spooled reports replayed per call, so a large backlog drains over several intervals
+    static final int MAX_REPLAYED_REPORTS = 10;
+
     private final MetricsStore metricsStore;
     private final ApiClient apiClient;
     private final ConfigBase config;
     private final UtilizationTracker utilizationTracker;
+    private final ReportDispatcher dispatcher;
+    private final Clock clock;
     private final AtomicBoolean started = new AtomicBoolean(false);
+    private volatile boolean utilizationReported = true;
+    private final AtomicBoolean replaying = new AtomicBoolean(false);
+
+    // API client totals at the previous report, to push the change since then; guarded by this
+    private CompressionStats lastCompressionStats;
+    private ConnectionStats lastConnectionStats;
+
+    // Created on the first replay and shut down by stop(); guarded by this
+    private ExecutorService replayExecutor;
 
     public Reporter(MetricsStore metricsStore, ApiClient apiClient, ConfigBase config,
                     UtilizationTracker utilizationTracker) {
+        this(metricsStore, apiClient, config, utilizationTracker, metricsStore.getClock());
+    }
+
+    /**
+     * Creates a reporter that timestamps the utilization metrics it collects with the given clock.
+     */
+    public Reporter(MetricsStore metricsStore, ApiClient apiClient, ConfigBase config,
+                    UtilizationTracker utilizationTracker, Clock clock) {
+        this.clock = clock;
         this.metricsStore = metricsStore;
         this.apiClient = apiClient;
         this.config = config;
         this.utilizationTracker = utilizationTracker;
+        this.dispatcher = apiClient instanceof AsyncApiClient
+            ? new ReportDispatcher((AsyncApiClient) apiClient, config.getMaxConcurrentReports(), config.getMaxQueuedReports())
+            : null;
     }
 
     /**
@@ -43,9 +78,21 @@ public class Reporter {
         if (started.compareAndSet(false, true)) {
             logger.info("Judoscale reporter starting, will report every ~" +
                 config.getReportIntervalSeconds() + " seconds");
+            if (config.isPrewarmConnection()) {
+                apiClient.prewarm();
+            }
         }
     }
 
+    /**
+     * Sets whether the utilization tracker's metrics (up, ac, cu, up_max and up_p90) are reported.
+     * Turn them off when busy capacity is measured another way, such as carrier thread saturation on
+     * virtual threads, where the worker pool the tracker assumes doesn't exist.
+     */
+    public void setUtilizationReported(boolean utilizationReported) {
+        this.utilizationReported = utilizationReported;
+    }
+
     /**
      * Reports metrics to the API. Called on a schedule.
      */
@@ -55,22 +102,43 @@ public class Reporter {
         }
 
         try {
-            // Collect utilization metric if tracker has been started
-            if (utilizationTracker.isStarted()) {
-                int utilizationPct = utilizationTracker.utilizationPct();
-                metricsStore.push("up", utilizationPct, Instant.now());
-                logger.fine("Collected utilization: " + utilizationPct + "%");
+            // Collect utilization metrics if tracker has been started
+            if (utilizationReported && utilizationTracker.isStarted()) {
+                collectUtilization();
             }
+            collectClientStats();
 
-            List<Metric> metrics = metricsStore.flush();
+            Report report = metricsStore.flushReport().withRoutes(metricsStore.flushRoutes());
 
-            if (metrics.isEmpty()) {
+            if (report.isEmpty()) {
                 logger.fine("No metrics to report");
                 return;
             }
 
-            logger.info("Reporting " + metrics.size() + " metrics");
-            apiClient.reportMetrics(metrics);
+            if (report.hasOnlyMetrics()) {
+                List<Metric> metrics = report.metrics();
+                logger.info("Reporting " + metrics.size() + " metrics");
+                if (dispatcher != null) {
+                    dispatcher.submit(report);
+                } else {
+                    apiClient.reportMetrics(metrics);
+                }
+            } else {
+                logger.info("Reporting " + report.metrics().size() + " metrics and " +
+                    report.histograms().size() + " histograms" +
+                    (report.routes().isEmpty() ? "" : " with " + report.routes().size() + " route summaries"));
+                if (!report.dropped().isEmpty()) {
+                    logger.warning("Metrics store was full, dropped samples: " + report.dropped());
+                }
+                if (!report.sampling().isEmpty()) {
+                    logger.fine("Reporting sampled metrics: " + report.sampling());
+                }
+                if (dispatcher != null) {
+                    dispatcher.submit(report);
+                } else {
+                    apiClient.reportMetrics(report);
+                }
+            }
 
         } catch (Exception e) {
             // Log the exception but don't rethrow - we want the scheduled task to continue
@@ -78,6 +146,154 @@ public class Reporter {
         }
     }
 
+    /**
+     * Replays reports the API client spooled after they failed to send, oldest first. Called on a
+     * schedule; the replay runs on the reporter's own background thread and this returns at once, so
+     * its blocking sends never hold up the scheduler thread that reports fresh metrics. Does nothing
+     * while the previous replay is still running.
+     */
+    public void replaySpooledReports() {
+        if (!started.get() || !config.isConfigured()) {
+            return;
+        }
+        if (!replaying.compareAndSet(false, true)) {
+            logger.fine("Still replaying spooled reports");
+            return;
+        }
+
+        try {
+            replayExecutor().execute(this::replay);
+        } catch (RejectedExecutionException e) {
+            // The reporter is stopping
+            replaying.set(false);
+        }
+    }
+
+    private void replay() {
+        try {
+            int replayed = apiClient.replaySpooledReports(MAX_REPLAYED_REPORTS);
+            if (replayed > 0) {
+                logger.info("Replayed " + replayed + " spooled reports");
+            }
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Reporter error: " + e.getMessage(), e);
+        } finally {
+            replaying.set(false);
+        }
+    }
+
+    private synchronized ExecutorService replayExecutor() {
+        if (replayExecutor == null) {
+            replayExecutor = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, "judoscale-replay");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return replayExecutor;
+    }
+
+    /**
+     * Records the utilization of the sub-interval that just ended. Called on a schedule shorter
+     * than the report interval (default: every second).
+     */
+    public void sampleUtilization() {
+        if (!started.get()) {
+            return;
+        }
+        utilizationTracker.sampleSubInterval();
+    }
+
+    /**
+     * Pushes busy/idle utilization ("up"), average concurrency in hundredths of a request ("ac") and,
+     * when the server's capacity is known, average concurrency as a percentage of capacity ("cu").
+     * When sub-intervals were sampled, also pushes their peak ("up_max") and 90th percentile
+     * ("up_p90") utilization.
+     */
+    private void collectUtilization() {
+        UtilizationSnapshot utilization = utilizationTracker.snapshot();
+        long now = clock.currentTimeMillis();
+
+        metricsStore.push("up", utilization.utilizationPct(), now);
+        metricsStore.push("ac", Math.round(utilization.averageConcurrency() * 100), now);
+        if (utilization.capacity() > 0) {
+            metricsStore.push("cu", utilization.capacityUtilizationPct(), now);
+        }
+        if (utilization.peakUtilizationPct() >= 0) {
+            metricsStore.push("up_max", utilization.peakUtilizationPct(), now);
+            metricsStore.push("up_p90", utilization.p90UtilizationPct(), now);
+        }
+        logger.fine("Collected utilization: " + utilization);
+    }
+
+    /**
+     * Pushes how the API client sent the reports since the previous report: the compression ratio of
+     * their bodies in hundredths ("cmp_ratio", 100 when nothing was compressed), the time spent
+     * compressing them in microseconds ("cmp_us"), and the requests that opened a new connection
+     * ("conn_new") or reused an open one ("conn_reused"). Nothing is pushed for an interval without sends.
+     */
+    private synchronized void collectClientStats() {
+        long now = clock.currentTimeMillis();
+        collectCompressionStats(now);
+        collectConnectionStats(now);
+    }
+
+    private void collectCompressionStats(long now) {
+        CompressionStats compression = apiClient.getCompressionStats();
+        if (compression == null) {
+            return;
+        }
+        logger.fine("API client " + compression);
+
+        CompressionStats last = lastCompressionStats;
+        lastCompressionStats = compression;
+        long reports = compression.reports() - (last != null ? last.reports() : 0);
+        if (reports <= 0) {
+            return;
+        }
+        long rawBytes = compression.rawBytes() - (last != null ? last.rawBytes() : 0);
+        long encodedBytes = compression.encodedBytes() - (last != null ? last.encodedBytes() : 0);
+        long nanos = compression.compressionNanos() - (last != null ? last.compressionNanos() : 0);
+
+        metricsStore.push("cmp_ratio", encodedBytes > 0 ? Math.round(rawBytes * 100.0 / encodedBytes) : 100, now);
+        metricsStore.push("cmp_us", nanos / 1000, now);
+    }
+
+    private void collectConnectionStats(long now) {
+        ConnectionStats connections = apiClient.getConnectionStats();
+        if (connections == null) {
+            return;
+        }
+        logger.fine("API client " + connections);
+
+        ConnectionStats last = lastConnectionStats;
+        lastConnectionStats = connections;
+        long requests = connections.requests() - (last != null ? last.requests() : 0);
+        if (requests <= 0) {
+            return;
+        }
+        long opened = connections.connectionsOpened() - (last != null ? last.connectionsOpened() : 0);
+
+        metricsStore.push("conn_new", opened, now);
+        metricsStore.push("conn_reused", Math.max(0, requests - opened), now);
+    }
+
+    /**
+     * Returns the number of reports being sent or waiting to be sent in the background.
+     * Always 0 when the API client is synchronous.
+     */
+    public int getOutstandingReports() {
+        return dispatcher != null ? dispatcher.getOutstandingReports() : 0;
+    }
+
+    /**
+     * Returns the state of the API client's circuit breaker. While it isn't
+     * {@link CircuitBreaker.State#CLOSED}, reports are spooled or dropped instead of sent.
+     */
+    public CircuitBreaker.State getCircuitBreakerState() {
+        return apiClient.getCircuitBreakerState();
+    }
+
     /**
      * Returns whether the reporter has been started.
      */
@@ -86,9 +302,15 @@ public class Reporter {
     }
 
     /**
-     * Stops the reporter.
+     * Stops the reporter. A replay that is already running finishes in the background.
      */
     public void stop() {
         started.set(false);
+        synchronized (this) {
+            if (replayExecutor != null) {
+                replayExecutor.shutdown();
+                replayExecutor = null;
+            }
+        }
     }
 }
@@ -0,0 +1,212 @@
+package com.judoscale.core;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Metrics store that keeps at most a fixed number of samples per identifier/queue pair per report
+ * interval, chosen by reservoir sampling (Algorithm L) so the retained samples are a uniform random
+ * sample of everything observed.
+ *
+ * <p>Intervals that fit in the reservoir are reported in full, exactly like {@link MetricsStore}.
+ * When a pair overflows its reservoir, {@link #flushReport()} includes a {@link SamplingSummary}
+ * with the number of samples observed, so each retained sample can be weighted by
+ * {@code total / retained} and counts and percentiles stay unbiased.</p>
+ *
+ * <p>Because memory is bounded by the reservoir size, this store keeps collecting samples
+ * if the reporter falls behind instead of discarding everything after 2 minutes.</p>
+ */
+public class ReservoirMetricsStore extends MetricsStore {
+
+    private final int reservoirSize;
+
+    // Web metrics (no queue name) keyed by identifier, job metrics keyed by identifier then queue name
+    private final Map<String, Reservoir> reservoirs = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Reservoir>> queueReservoirs = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a store that keeps up to the given number of samples per identifier/queue pair per interval.
+     */
+    public ReservoirMetricsStore(int reservoirSize) {
+        this(reservoirSize, Clock.system());
+    }
+
+    /**
+     * Creates a store that keeps up to the given number of samples per identifier/queue pair per interval,
+     * reading the time from the given clock.
+     */
+    public ReservoirMetricsStore(int reservoirSize, Clock clock) {
+        super(clock);
+        if (reservoirSize < 1) {
+            throw new IllegalArgumentException("Reservoir size must be at least 1");
+        }
+        this.reservoirSize = reservoirSize;
+    }
+
+    /**
+     * Offers the metric to the reservoir for its identifier/queue pair.
+     */
+    @Override
+    public void push(String identifier, long value, Instant time, String queueName) {
+        reservoirFor(identifier, queueName).offer(identifier, value, time, queueName);
+    }
+
+    /**
+     * Flushes the retained samples of every reservoir and returns them.
+     */
+    @Override
+    public List<Metric> flush() {
+        return flushReport().metrics();
+    }
+
+    /**
+     * Flushes the retained samples of every reservoir into a report, with a sampling summary
+     * for each pair that observed more samples than it could keep.
+     */
+    @Override
+    public synchronized Report flushReport() {
+        super.flush();
+        List<Metric> metrics = new ArrayList<>();
+        List<SamplingSummary> sampling = new ArrayList<>();
+
+        for (Reservoir reservoir : reservoirs.values()) {
+            reservoir.drain(metrics, sampling);
+        }
+        for (Map<String, Reservoir> byQueue : queueReservoirs.values()) {
+            for (Reservoir reservoir : byQueue.values()) {
+                reservoir.drain(metrics, sampling);
+            }
+        }
+
+        return new Report(metrics, Collections.<HistogramSnapshot>emptyList(),
+            Collections.<String, Long>emptyMap(), sampling);
+    }
+
+    /**
+     * Returns the currently retained samples without removing them (for testing).
+     */
+    @Override
+    public List<Metric> getMetrics() {
+        List<Metric> metrics = new ArrayList<>();
+        for (Reservoir reservoir : reservoirs.values()) {
+            reservoir.copyTo(metrics);
+        }
+        for (Map<String, Reservoir> byQueue : queueReservoirs.values()) {
+            for (Reservoir reservoir : byQueue.values()) {
+                reservoir.copyTo(metrics);
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Clears all reservoirs (for testing).
+     */
+    @Override
+    public void clear() {
+        flushReport();
+    }
+
+    /**
+     * Returns the maximum number of samples kept per identifier/queue pair per interval.
+     */
+    public int getReservoirSize() {
+        return reservoirSize;
+    }
+
+    private Reservoir reservoirFor(String identifier, String queueName) {
+        Map<String, Reservoir> byKey = reservoirs;
+        String key = identifier;
+
+        if (queueName != null) {
+            byKey = queueReservoirs.get(identifier);
+            if (byKey == null) {
+                byKey = queueReservoirs.computeIfAbsent(identifier, k -> new ConcurrentHashMap<>());
+            }
+            key = queueName;
+        }
+
+        // Plain get() first: computeIfAbsent locks the bin on Java 8 even when the key is present
+        Reservoir reservoir = byKey.get(key);
+        if (reservoir == null) {
+            reservoir = byKey.computeIfAbsent(key, k -> new Reservoir(reservoirSize));
+        }
+        return reservoir;
+    }
+
+    /**
+     * A fixed-size uniform sample of one identifier/queue pair.
+     *
+     * <p>Uses Algorithm L (Li, 1994): once the reservoir is full, it draws how many samples to skip
+     * before the next replacement, so rejected samples cost a single comparison and no allocation.</p>
+     */
+    private static final class Reservoir {
+        private final Metric[] samples;
+        private int size;
+        private long seen;
+        private long nextReplacement;
+        private double w;
+
+        Reservoir(int capacity) {
+            this.samples = new Metric[capacity];
+        }
+
+        synchronized void offer(String identifier, long value, Instant time, String queueName) {
+            long index = seen++;
+            if (size < samples.length) {
+                samples[size++] = new Metric(identifier, value, time, queueName);
+                if (size == samples.length) {
+                    w = Math.exp(Math.log(random()) / samples.length);
+                    scheduleNextReplacement();
+                }
+                return;
+            }
+            if (index < nextReplacement) {
+                return;
+            }
+
+            samples[ThreadLocalRandom.current().nextInt(samples.length)] = new Metric(identifier, value, time, queueName);
+            w *= Math.exp(Math.log(random()) / samples.length);
+            scheduleNextReplacement();
+        }
+
+        synchronized void drain(List<Metric> metrics, List<SamplingSummary> sampling) {
+            if (seen == 0) {
+                return;
+            }
+            if (seen > size) {
+                Metric first = samples[0];
+                sampling.add(new SamplingSummary(first.identifier(), first.queueName(), seen, size));
+            }
+            metrics.addAll(Arrays.asList(samples).subList(0, size));
+            Arrays.fill(samples, 0, size, null);
+            size = 0;
+            seen = 0;
+        }
+
+        synchronized void copyTo(List<Metric> metrics) {
+            metrics.addAll(Arrays.asList(samples).subList(0, size));
+        }
+
+        private void scheduleNextReplacement() {
+            // Number of samples to skip follows a geometric distribution with success probability w
+            double skip = Math.floor(Math.log(random()) / Math.log1p(-w));
+            nextReplacement = skip >= Long.MAX_VALUE - seen ? Long.MAX_VALUE : seen + (long) skip;
+        }
+
+        private static double random() {
+            // Open interval (0, 1) so the logarithms stay finite
+            double r;
+            do {
+                r = ThreadLocalRandom.current().nextDouble();
+            } while (r == 0.0);
+            return r;
+        }
+    }
+}
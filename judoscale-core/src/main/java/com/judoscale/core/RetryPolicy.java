@@ -0,0 +1,109 @@
+package com.judoscale.core;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides whether and when a failed report is retried.
+ *
+ * <p>Connection errors and retryable statuses (429 and 5xx) are retried up to {@code maxAttempts}
+ * attempts in all, after a capped exponential backoff with full jitter: before attempt {@code n + 1}
+ * the client waits a random time between 0 and {@code min(maxDelay, baseDelay * 2^(n - 1))}, so a
+ * fleet of containers doesn't retry in lockstep. A {@code Retry-After} header sets the minimum wait;
+ * if it asks for longer than {@code maxDelay}, the report isn't retried.</p>
+ */
+public class RetryPolicy {
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+
+    /**
+     * @param maxAttempts the number of attempts, including the first
+     * @param baseDelayMillis the backoff cap before the first retry
+     * @param maxDelayMillis the largest backoff cap, and the longest Retry-After honored
+     */
+    public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelayMillis = Math.max(0, baseDelayMillis);
+        this.maxDelayMillis = Math.max(this.baseDelayMillis, maxDelayMillis);
+    }
+
+    /**
+     * Creates a policy configured by {@link ConfigBase#getRetryMaxAttempts()},
+     * {@link ConfigBase#getRetryBaseDelayMillis()} and {@link ConfigBase#getRetryMaxDelayMillis()}.
+     */
+    public static RetryPolicy forConfig(ConfigBase config) {
+        return new RetryPolicy(config.getRetryMaxAttempts(), config.getRetryBaseDelayMillis(),
+            config.getRetryMaxDelayMillis());
+    }
+
+    /**
+     * Returns whether a report answered with this status might be accepted if sent again.
+     */
+    public static boolean isRetryable(int statusCode) {
+        return statusCode == 429 || statusCode >= 500;
+    }
+
+    /**
+     * Returns how long to wait before retrying a report whose given attempt failed, or -1 if it
+     * shouldn't be retried.
+     *
+     * @param attempt the attempt that failed, starting at 1
+     * @param retryAfterMillis the wait the API asked for with Retry-After, or -1 if none
+     */
+    public long delayMillis(int attempt, long retryAfterMillis) {
+        if (attempt >= maxAttempts || retryAfterMillis > maxDelayMillis) {
+            return -1;
+        }
+        long cap = maxDelayMillis;
+        if (attempt - 1 < Long.numberOfLeadingZeros(Math.max(1, baseDelayMillis)) - 1) {
+            cap = Math.min(maxDelayMillis, baseDelayMillis << (attempt - 1));
+        }
+        return Math.max(random(cap), retryAfterMillis);
+    }
+
+    /**
+     * Parses a Retry-After header, given in seconds or as an HTTP date, into milliseconds from now.
+     * Returns -1 if the header is missing or malformed.
+     */
+    public long retryAfterMillis(String retryAfter) {
+        if (retryAfter == null || retryAfter.trim().isEmpty()) {
+            return -1;
+        }
+        String value = retryAfter.trim();
+        try {
+            return Math.max(0, Long.parseLong(value) * 1000);
+        } catch (NumberFormatException e) {
+            // Not delta-seconds, try an HTTP date
+        }
+        try {
+            long at = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            return Math.max(0, at - getCurrentTime());
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Returns a random wait between 0 and {@code bound} milliseconds, inclusive.
+     * Protected to allow overriding in tests.
+     */
+    protected long random(long bound) {
+        return bound > 0 ? ThreadLocalRandom.current().nextLong(bound + 1) : 0;
+    }
+
+    /**
+     * Returns the current time in milliseconds since the epoch.
+     * Protected to allow overriding in tests.
+     */
+    protected long getCurrentTime() {
+        return System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,216 @@
+package com.judoscale.core;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Metrics store with a hard memory budget, backed by a fixed-capacity ring of packed records
+ * in a direct (off-heap) {@link ByteBuffer}.
+ *
+ * <p>Each record is {@value #RECORD_BYTES} bytes: epoch millis, value, identifier code and queue
+ * name code. A parallel on-heap array of publish markers ({@value #MARKER_BYTES} bytes per record)
+ * lets the reporter drain records written concurrently by request threads; both count toward
+ * the budget. Nothing is allocated per sample, so the store's footprint is fixed and invisible
+ * to the garbage collector.</p>
+ *
+ * <p>When the ring is full, new samples are dropped and counted per identifier. The counts are
+ * included in the next report as {@link Report#dropped()}.</p>
+ */
+public class RingBufferMetricsStore extends MetricsStore {
+
+    static final int RECORD_BYTES = 24;
+    static final int MARKER_BYTES = 4;
+    private static final int MAX_IDENTIFIERS = 256;
+    private static final int MAX_QUEUE_NAMES = 4096;
+    private static final int NO_QUEUE = -1;
+
+    private final int capacity;
+    private final ByteBuffer records;
+    private final AtomicIntegerArray published;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    private final MetricKeys identifiers = new MetricKeys(MAX_IDENTIFIERS);
+    private final MetricKeys queueNames = new MetricKeys(MAX_QUEUE_NAMES);
+    private final AtomicLongArray droppedByIdentifier = new AtomicLongArray(MAX_IDENTIFIERS);
+    private final AtomicLong droppedUnregistered = new AtomicLong();
+
+    /**
+     * Creates a store whose ring and publish markers fit in the given number of bytes.
+     *
+     * @param budgetBytes the memory budget; must hold at least one record
+     */
+    public RingBufferMetricsStore(int budgetBytes) {
+        this(budgetBytes, Clock.system());
+    }
+
+    /**
+     * Creates a store whose ring and publish markers fit in the given number of bytes, reading the time
+     * from the given clock.
+     */
+    public RingBufferMetricsStore(int budgetBytes, Clock clock) {
+        super(clock);
+        int recordCapacity = budgetBytes / (RECORD_BYTES + MARKER_BYTES);
+        if (recordCapacity < 1) {
+            throw new IllegalArgumentException("Metrics buffer budget must hold at least one record");
+        }
+        this.capacity = recordCapacity;
+        this.records = ByteBuffer.allocateDirect(recordCapacity * RECORD_BYTES);
+        this.published = new AtomicIntegerArray(recordCapacity);
+    }
+
+    @Override
+    public void push(String identifier, long value, Instant time, String queueName) {
+        push(identifier, value, time.toEpochMilli(), queueName);
+    }
+
+    /**
+     * Appends the metric to the ring, or drops and counts it if the ring is full.
+     */
+    @Override
+    public void push(String identifier, long value, long timeMillis, String queueName) {
+        int identifierCode = identifiers.codeFor(identifier, null);
+        int queueCode = queueName == null ? NO_QUEUE : queueNames.codeFor(queueName, null);
+        if (identifierCode == MetricKeys.NO_CODE || (queueName != null && queueCode == MetricKeys.NO_CODE)) {
+            countDropped(identifierCode);
+            return;
+        }
+
+        long sequence;
+        while (true) {
+            sequence = tail.get();
+            if (sequence - head >= capacity) {
+                countDropped(identifierCode);
+                return;
+            }
+            if (tail.compareAndSet(sequence, sequence + 1)) {
+                break;
+            }
+        }
+
+        int slot = (int) (sequence % capacity);
+        int offset = slot * RECORD_BYTES;
+        records.putLong(offset, timeMillis);
+        records.putLong(offset + 8, value);
+        records.putInt(offset + 16, identifierCode);
+        records.putInt(offset + 20, queueCode);
+
+        // Release the record to the reader; the lap number tells this write apart from earlier ones
+        published.lazySet(slot, lap(sequence));
+    }
+
+    /**
+     * Drains every record written since the last flush.
+     */
+    @Override
+    public synchronized List<Metric> flush() {
+        super.flush();
+
+        long from = head;
+        long to = tail.get();
+        List<Metric> flushed = new ArrayList<>((int) (to - from));
+        read(from, to, flushed);
+
+        // Free the slots for writers
+        head = to;
+        return flushed;
+    }
+
+    /**
+     * Drains every record and the dropped-sample counts into a report.
+     */
+    @Override
+    public synchronized Report flushReport() {
+        List<Metric> metrics = flush();
+        Map<String, Long> dropped = new LinkedHashMap<>();
+
+        for (int code = 0; code < identifiers.size(); code++) {
+            long count = droppedByIdentifier.getAndSet(code, 0);
+            if (count > 0) {
+                dropped.put(identifiers.identifier(code), count);
+            }
+        }
+        long unregistered = droppedUnregistered.getAndSet(0);
+        if (unregistered > 0) {
+            dropped.put("other", unregistered);
+        }
+
+        return new Report(metrics, Collections.<HistogramSnapshot>emptyList(), dropped);
+    }
+
+    /**
+     * Returns the records currently in the ring without removing them (for testing).
+     */
+    @Override
+    public synchronized List<Metric> getMetrics() {
+        List<Metric> metrics = new ArrayList<>();
+        read(head, tail.get(), metrics);
+        return metrics;
+    }
+
+    /**
+     * Clears all records and dropped counts (for testing).
+     */
+    @Override
+    public synchronized void clear() {
+        flushReport();
+    }
+
+    /**
+     * Returns the maximum number of records the ring can hold.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the total number of samples dropped since the last report.
+     */
+    public long getDroppedCount() {
+        long total = droppedUnregistered.get();
+        for (int code = 0; code < droppedByIdentifier.length(); code++) {
+            total += droppedByIdentifier.get(code);
+        }
+        return total;
+    }
+
+    private void read(long from, long to, List<Metric> into) {
+        for (long sequence = from; sequence < to; sequence++) {
+            int slot = (int) (sequence % capacity);
+            int expectedLap = lap(sequence);
+
+            // The writer claimed this slot but may not have finished writing it yet
+            while (published.get(slot) != expectedLap) {
+                Thread.yield();
+            }
+
+            int offset = slot * RECORD_BYTES;
+            int queueCode = records.getInt(offset + 20);
+            into.add(new Metric(
+                identifiers.identifier(records.getInt(offset + 16)),
+                records.getLong(offset + 8),
+                Instant.ofEpochMilli(records.getLong(offset)),
+                queueCode == NO_QUEUE ? null : queueNames.identifier(queueCode)));
+        }
+    }
+
+    private int lap(long sequence) {
+        return (int) (sequence / capacity) + 1;
+    }
+
+    private void countDropped(int identifierCode) {
+        if (identifierCode == MetricKeys.NO_CODE) {
+            droppedUnregistered.incrementAndGet();
+        } else {
+            droppedByIdentifier.incrementAndGet(identifierCode);
+        }
+    }
+}
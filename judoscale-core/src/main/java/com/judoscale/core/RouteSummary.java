@@ -0,0 +1,107 @@
+package com.judoscale.core;
+
+import java.util.Objects;
+
+/**
+ * Queue time and application time of the requests to one route during a report interval,
+ * as tracked by a {@link RouteTracker}. Requests to routes that weren't among the busiest are
+ * summarized together under {@link #OTHER}.
+ *
+ * <p>Application time is measured for every request, queue time only for requests with a
+ * usable {@code X-Request-Start} header, so the two have separate counts.</p>
+ */
+public final class RouteSummary {
+
+    /**
+     * Route of the summary combining every request not broken out by route.
+     */
+    public static final String OTHER = "other";
+
+    private final String route;
+    private final long count;
+    private final long appTimeSum;
+    private final long appTimeMax;
+    private final long queueTimeCount;
+    private final long queueTimeSum;
+    private final long queueTimeMax;
+
+    public RouteSummary(String route, long count, long appTimeSum, long appTimeMax,
+                        long queueTimeCount, long queueTimeSum, long queueTimeMax) {
+        this.route = route;
+        this.count = count;
+        this.appTimeSum = appTimeSum;
+        this.appTimeMax = appTimeMax;
+        this.queueTimeCount = queueTimeCount;
+        this.queueTimeSum = queueTimeSum;
+        this.queueTimeMax = queueTimeMax;
+    }
+
+    /**
+     * Returns the HTTP method and path pattern, such as {@code "GET /users/{id}"}, or {@link #OTHER}.
+     */
+    public String route() {
+        return route;
+    }
+
+    /**
+     * Returns the number of requests, each with an application time.
+     */
+    public long count() {
+        return count;
+    }
+
+    public long appTimeSum() {
+        return appTimeSum;
+    }
+
+    public long appTimeMax() {
+        return appTimeMax;
+    }
+
+    /**
+     * Returns the number of requests with a queue time.
+     */
+    public long queueTimeCount() {
+        return queueTimeCount;
+    }
+
+    public long queueTimeSum() {
+        return queueTimeSum;
+    }
+
+    public long queueTimeMax() {
+        return queueTimeMax;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        RouteSummary that = (RouteSummary) o;
+        return count == that.count &&
+                appTimeSum == that.appTimeSum &&
+                appTimeMax == that.appTimeMax &&
+                queueTimeCount == that.queueTimeCount &&
+                queueTimeSum == that.queueTimeSum &&
+                queueTimeMax == that.queueTimeMax &&
+                Objects.equals(route, that.route);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(route, count, appTimeSum, appTimeMax, queueTimeCount, queueTimeSum, queueTimeMax);
+    }
+
+    @Override
+    public String toString() {
+        return "RouteSummary{" +
+                "route='" + route + '\'' +
+                ", count=" + count +
+                ", appTimeSum=" + appTimeSum +
+                ", appTimeMax=" + appTimeMax +
+                ", queueTimeCount=" + queueTimeCount +
+                ", queueTimeSum=" + queueTimeSum +
+                ", queueTimeMax=" + queueTimeMax +
+                '}';
+    }
+}
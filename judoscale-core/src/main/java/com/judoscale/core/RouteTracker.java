@@ -0,0 +1,165 @@
+package com.judoscale.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Breaks queue time and application time down by route for the busiest routes of each report
+ * interval, in memory bounded by the number of routes tracked.
+ *
+ * <p>Routes are ranked with the Space-Saving heavy-hitters algorithm: while fewer than
+ * {@code capacity} routes are tracked a new route gets its own slot, and after that it takes over
+ * the slot of the least frequent route, inheriting that route's count. Any route requested more
+ * than {@code total / capacity} times is guaranteed to hold a slot at the end of the interval. The
+ * measurements of a route that loses its slot, and of requests without a route, are combined into
+ * {@link RouteSummary#OTHER}, so the summaries always add up to every request recorded.</p>
+ *
+ * <p>Recording takes a lock, and replacing a slot scans every slot, so keep the capacity small.</p>
+ */
+public class RouteTracker {
+
+    private static final Comparator<Slot> BY_ESTIMATE_DESCENDING = new Comparator<Slot>() {
+        @Override
+        public int compare(Slot a, Slot b) {
+            return Long.compare(b.estimate, a.estimate);
+        }
+    };
+
+    private final int capacity;
+    private final Map<String, Slot> slots = new HashMap<>();
+    private Slot other = new Slot(RouteSummary.OTHER);
+
+    /**
+     * Creates a tracker that breaks out at most {@code capacity} routes per interval.
+     */
+    public RouteTracker(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    /**
+     * Creates the tracker configured by {@link ConfigBase#getRouteBreakdownTopK()},
+     * or returns null if the route breakdown is disabled.
+     */
+    public static RouteTracker forConfig(ConfigBase config) {
+        if (!config.isRouteBreakdownEnabled()) {
+            return null;
+        }
+        return new RouteTracker(config.getRouteBreakdownTopK());
+    }
+
+    /**
+     * Records a completed request.
+     *
+     * @param route the HTTP method and path pattern, or null if no route matched the request
+     * @param queueTimeMs the request's queue time, or a negative value if it's unknown
+     * @param appTimeMs the request's application time
+     */
+    public synchronized void record(String route, long queueTimeMs, long appTimeMs) {
+        Slot slot = route == null ? other : slots.get(route);
+        if (slot == null) {
+            slot = admit(route);
+        }
+        slot.estimate++;
+        slot.record(queueTimeMs, appTimeMs);
+    }
+
+    /**
+     * Returns a summary per tracked route, busiest first, followed by {@link RouteSummary#OTHER}
+     * if it has any requests, and starts a new interval.
+     */
+    public synchronized List<RouteSummary> flush() {
+        if (slots.isEmpty() && other.count == 0) {
+            return Collections.emptyList();
+        }
+
+        List<Slot> ranked = new ArrayList<>(slots.values());
+        Collections.sort(ranked, BY_ESTIMATE_DESCENDING);
+
+        List<RouteSummary> summaries = new ArrayList<>(ranked.size() + 1);
+        for (Slot slot : ranked) {
+            summaries.add(slot.toSummary());
+        }
+        if (other.count > 0) {
+            summaries.add(other.toSummary());
+        }
+
+        slots.clear();
+        other = new Slot(RouteSummary.OTHER);
+        return summaries;
+    }
+
+    /**
+     * Returns the maximum number of routes broken out per interval.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Gives the route a slot, replacing the least frequent route once every slot is taken.
+     */
+    private Slot admit(String route) {
+        Slot slot = new Slot(route);
+        if (slots.size() >= capacity) {
+            Slot evicted = null;
+            for (Slot candidate : slots.values()) {
+                if (evicted == null || candidate.estimate < evicted.estimate) {
+                    evicted = candidate;
+                }
+            }
+            slots.remove(evicted.route);
+            other.add(evicted);
+            // The new route may have been requested up to that many times while it had no slot
+            slot.estimate = evicted.estimate;
+        }
+        slots.put(route, slot);
+        return slot;
+    }
+
+    /**
+     * A tracked route: its Space-Saving count, used only for ranking, and the measurements of the
+     * requests recorded while it held the slot.
+     */
+    private static final class Slot {
+        final String route;
+        long estimate;
+        long count;
+        long appTimeSum;
+        long appTimeMax;
+        long queueTimeCount;
+        long queueTimeSum;
+        long queueTimeMax;
+
+        Slot(String route) {
+            this.route = route;
+        }
+
+        void record(long queueTimeMs, long appTimeMs) {
+            count++;
+            appTimeSum += appTimeMs;
+            appTimeMax = Math.max(appTimeMax, appTimeMs);
+            if (queueTimeMs >= 0) {
+                queueTimeCount++;
+                queueTimeSum += queueTimeMs;
+                queueTimeMax = Math.max(queueTimeMax, queueTimeMs);
+            }
+        }
+
+        void add(Slot slot) {
+            count += slot.count;
+            appTimeSum += slot.appTimeSum;
+            appTimeMax = Math.max(appTimeMax, slot.appTimeMax);
+            queueTimeCount += slot.queueTimeCount;
+            queueTimeSum += slot.queueTimeSum;
+            queueTimeMax = Math.max(queueTimeMax, slot.queueTimeMax);
+        }
+
+        RouteSummary toSummary() {
+            return new RouteSummary(route, count, appTimeSum, appTimeMax, queueTimeCount, queueTimeSum, queueTimeMax);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.judoscale.core;
+
+import java.util.Objects;
+
+/**
+ * Describes how an identifier/queue pair was sampled during a report interval:
+ * how many samples were observed and how many of them were kept in the report.
+ * Every retained sample stands in for {@link #weight()} observed samples.
+ */
+public final class SamplingSummary {
+
+    private final String identifier;
+    private final String queueName;
+    private final long total;
+    private final long retained;
+
+    public SamplingSummary(String identifier, String queueName, long total, long retained) {
+        this.identifier = identifier;
+        this.queueName = queueName;
+        this.total = total;
+        this.retained = retained;
+    }
+
+    public String identifier() {
+        return identifier;
+    }
+
+    public String queueName() {
+        return queueName;
+    }
+
+    /**
+     * Returns the number of samples observed during the interval.
+     */
+    public long total() {
+        return total;
+    }
+
+    /**
+     * Returns the number of samples included in the report.
+     */
+    public long retained() {
+        return retained;
+    }
+
+    /**
+     * Returns the number of observed samples each retained sample represents.
+     */
+    public double weight() {
+        return retained == 0 ? 0 : (double) total / retained;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SamplingSummary that = (SamplingSummary) o;
+        return total == that.total &&
+                retained == that.retained &&
+                Objects.equals(identifier, that.identifier) &&
+                Objects.equals(queueName, that.queueName);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(identifier, queueName, total, retained);
+    }
+
+    @Override
+    public String toString() {
+        return "SamplingSummary{" +
+                "identifier='" + identifier + '\'' +
+                ", queueName='" + queueName + '\'' +
+                ", total=" + total +
+                ", retained=" + retained +
+                '}';
+    }
+}
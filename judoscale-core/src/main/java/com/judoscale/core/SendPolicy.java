@@ -0,0 +1,156 @@
+package com.judoscale.core;
+
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Decides what follows each attempt to send a report, so every API client retries, falls back to
+ * JSON and trips the circuit breaker the same way.
+ *
+ * <p>A 2xx response means the report was sent. A 415 to a binary report means the API doesn't accept
+ * the binary format, so the report is resent as JSON. Other non-retryable statuses fail at once, since
+ * sending the same report again wouldn't help. Connection errors and retryable statuses (429 and 5xx)
+ * are retried as the {@link RetryPolicy} allows; once it gives up, the failure counts against the
+ * {@link CircuitBreaker} and the report should be spooled.</p>
+ *
+ * <p>Instances are thread-safe.</p>
+ */
+public class SendPolicy {
+
+    private static final Logger logger = Logger.getLogger(SendPolicy.class.getName());
+
+    private final RetryPolicy retryPolicy;
+    private final CircuitBreaker circuitBreaker;
+
+    /**
+     * @param retryPolicy decides whether and when failed attempts are retried
+     * @param circuitBreaker records the outcome of every report
+     */
+    public SendPolicy(RetryPolicy retryPolicy, CircuitBreaker circuitBreaker) {
+        this.retryPolicy = retryPolicy;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Decides what follows an attempt the API answered, and records its outcome with the circuit breaker.
+     *
+     * @param attempt the attempt that was answered, starting at 1
+     * @param statusCode the response status
+     * @param body the response body, for logging failures
+     * @param retryAfter supplies the response's Retry-After header, or null if none; only read when
+     *                   the status is retryable
+     * @param binary whether the report was sent in the binary format
+     */
+    public Step afterResponse(int attempt, int statusCode, String body, Supplier<String> retryAfter, boolean binary) {
+        if (statusCode >= 200 && statusCode < 300) {
+            logger.fine("Reported successfully");
+            circuitBreaker.recordSuccess();
+            return Step.SENT;
+        } else if (statusCode == 415 && binary) {
+            logger.warning("Judoscale API does not accept binary reports, falling back to JSON");
+            circuitBreaker.recordSuccess();
+            return Step.RESEND_AS_JSON;
+        } else if (!RetryPolicy.isRetryable(statusCode)) {
+            logger.severe("Reporter failed: " + statusCode + " - " + body);
+            circuitBreaker.recordSuccess();
+            return Step.FAILED;
+        }
+        return retryOrGiveUp(attempt, statusCode + " - " + body, retryPolicy.retryAfterMillis(retryAfter.get()));
+    }
+
+    /**
+     * Decides what follows an attempt that couldn't reach the API.
+     *
+     * @param attempt the attempt that failed, starting at 1
+     * @param url the URL the report was sent to
+     * @param message the connection error's message
+     */
+    public Step afterConnectionError(int attempt, String url, String message) {
+        return retryOrGiveUp(attempt, "could not connect to " + url + ": " + message, -1);
+    }
+
+    /**
+     * Gives up on an attempt that failed unexpectedly. The failure counts against the circuit breaker,
+     * but the report isn't spooled since sending it again would likely fail the same way.
+     */
+    public Step afterError(Throwable error) {
+        logger.log(Level.SEVERE, "Reporter failed: " + error, error);
+        circuitBreaker.recordFailure(-1);
+        return Step.FAILED;
+    }
+
+    /**
+     * Gives up on a send whose thread was interrupted. The failure counts against the circuit breaker
+     * and the report should be spooled.
+     */
+    public Step afterInterrupt() {
+        circuitBreaker.recordFailure(-1);
+        return Step.GAVE_UP;
+    }
+
+    private Step retryOrGiveUp(int attempt, String failure, long retryAfterMillis) {
+        long delay = retryPolicy.delayMillis(attempt, retryAfterMillis);
+        if (delay < 0) {
+            logger.severe("Reporter failed after " + attempt + " attempts: " + failure);
+            circuitBreaker.recordFailure(retryAfterMillis);
+            return Step.GAVE_UP;
+        }
+        logger.fine("Retry " + attempt + " in " + delay + "ms after error: " + failure);
+        return Step.retryAfter(delay);
+    }
+
+    /**
+     * What follows an attempt to send a report: finishing with a result, resending it as JSON,
+     * or retrying after a delay.
+     */
+    public static final class Step {
+        /** The report was accepted. */
+        public static final Step SENT = new Step(true, false, false, -1);
+        /** The report was refused, or failed in a way retrying wouldn't fix. */
+        public static final Step FAILED = new Step(false, false, false, -1);
+        /** The report failed and won't be retried; it should be spooled. */
+        public static final Step GAVE_UP = new Step(false, true, false, -1);
+        /** The API doesn't accept binary reports; the report should be sent again as JSON. */
+        public static final Step RESEND_AS_JSON = new Step(false, false, true, -1);
+
+        private final boolean sent;
+        private final boolean spool;
+        private final boolean resendAsJson;
+        private final long retryDelayMillis;
+
+        private Step(boolean sent, boolean spool, boolean resendAsJson, long retryDelayMillis) {
+            this.sent = sent;
+            this.spool = spool;
+            this.resendAsJson = resendAsJson;
+            this.retryDelayMillis = retryDelayMillis;
+        }
+
+        static Step retryAfter(long delayMillis) {
+            return new Step(false, false, false, delayMillis);
+        }
+
+        public boolean isSent() {
+            return sent;
+        }
+
+        public boolean shouldSpool() {
+            return spool;
+        }
+
+        public boolean shouldResendAsJson() {
+            return resendAsJson;
+        }
+
+        public boolean isRetry() {
+            return retryDelayMillis >= 0;
+        }
+
+        /**
+         * Returns how long to wait before the next attempt, or -1 if there is none.
+         */
+        public long getRetryDelayMillis() {
+            return retryDelayMillis;
+        }
+    }
+}
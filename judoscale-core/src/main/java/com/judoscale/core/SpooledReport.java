@@ -0,0 +1,70 @@
+package com.judoscale.core;
+
+import java.time.Instant;
+
+/**
+ * A report body read back from a {@link ReportSpool}, ready to be sent as is.
+ */
+public final class SpooledReport {
+
+    private final String contentType;
+    private final String contentEncoding;
+    private final byte[] bytes;
+    private final long spooledAtMillis;
+
+    // Where the record lives, so it can be marked as sent
+    final ReportSpool.Segment segment;
+    final int position;
+
+    SpooledReport(String contentType, String contentEncoding, byte[] bytes, long spooledAtMillis,
+                  ReportSpool.Segment segment, int position) {
+        this.contentType = contentType;
+        this.contentEncoding = contentEncoding;
+        this.bytes = bytes;
+        this.spooledAtMillis = spooledAtMillis;
+        this.segment = segment;
+        this.position = position;
+    }
+
+    /**
+     * Returns the Content-Type of the body.
+     */
+    public String contentType() {
+        return contentType;
+    }
+
+    /**
+     * Returns the Content-Encoding of the body, or null if it isn't compressed.
+     */
+    public String contentEncoding() {
+        return contentEncoding;
+    }
+
+    /**
+     * Returns the body.
+     */
+    public byte[] bytes() {
+        return bytes;
+    }
+
+    /**
+     * Returns when the report was spooled.
+     */
+    public Instant spooledAt() {
+        return Instant.ofEpochMilli(spooledAtMillis);
+    }
+
+    long spooledAtMillis() {
+        return spooledAtMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "SpooledReport{" +
+            "contentType='" + contentType + '\'' +
+            ", contentEncoding='" + contentEncoding + '\'' +
+            ", bytes=" + bytes.length +
+            ", spooledAt=" + spooledAt() +
+            '}';
+    }
+}
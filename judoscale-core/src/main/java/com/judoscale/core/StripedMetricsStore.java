@@ -0,0 +1,377 @@
+package com.judoscale.core;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Metrics store for many-core servers that spreads writes across striped buffers of primitive columns.
+ *
+ * <p>Each request thread is mapped to a stripe by its thread id. A stripe holds two buffers: request
+ * threads append to the active one while {@link #flush()} swaps in the spare and drains the other.
+ * In steady state {@link #push(String, long, long, String)} does not allocate and only touches its
+ * own stripe's state word, so threads on different stripes never contend on a shared counter.</p>
+ *
+ * <p>There are at most 64 stripes, one per processor by default, so with more request threads than
+ * stripes (a Tomcat pool of 200 threads, say) several threads share each stripe and contend on its
+ * state word when they push at the same time. Since only as many threads run at once as there are
+ * processors, that contention is between a few threads per stripe rather than all of them.</p>
+ *
+ * <p>Buffers that overflow during an interval are grown when they are next drained, and shrunk back
+ * toward their initial capacity after quiet intervals. All buffers together stay within a memory
+ * budget; samples that don't fit are dropped and counted in the next report. Timestamps are kept
+ * with millisecond precision.</p>
+ */
+public class StripedMetricsStore extends MetricsStore {
+
+    // A sample's time, value and key code
+    static final int SAMPLE_BYTES = 8 + 8 + 4;
+    private static final int DEFAULT_BUDGET_BYTES = 4 * 1024 * 1024;
+    private static final int DEFAULT_INITIAL_CAPACITY = 256;
+    private static final int DEFAULT_STRIPE_COUNT = Math.min(64, Runtime.getRuntime().availableProcessors());
+    private static final int MAX_KEYS = 4096;
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private final int initialCapacity;
+    private final int maxCapacity;
+    private final MetricKeys keys = new MetricKeys(MAX_KEYS);
+    private final AtomicLongArray droppedByKey = new AtomicLongArray(MAX_KEYS);
+    private final AtomicLong droppedUnregistered = new AtomicLong();
+
+    /**
+     * Creates a store with one stripe per available processor (rounded up to a power of two, max 64)
+     * and a 4MB memory budget.
+     */
+    public StripedMetricsStore() {
+        this(Clock.system());
+    }
+
+    /**
+     * Creates a store with one stripe per available processor and a 4MB memory budget, reading the
+     * time from the given clock.
+     */
+    public StripedMetricsStore(Clock clock) {
+        this(DEFAULT_BUDGET_BYTES, clock);
+    }
+
+    /**
+     * Creates a store with one stripe per available processor whose buffers, at their largest, fit in
+     * the given number of bytes, reading the time from the given clock.
+     *
+     * @param budgetBytes the memory budget; must hold at least one sample per buffer
+     */
+    public StripedMetricsStore(int budgetBytes, Clock clock) {
+        this(DEFAULT_STRIPE_COUNT, Math.min(DEFAULT_INITIAL_CAPACITY, capacityFor(budgetBytes, DEFAULT_STRIPE_COUNT)),
+            capacityFor(budgetBytes, DEFAULT_STRIPE_COUNT), clock);
+    }
+
+    /**
+     * Creates a store with the given number of stripes and per-buffer capacities.
+     *
+     * @param stripeCount the number of stripes, rounded up to a power of two
+     * @param initialCapacity the number of samples each buffer starts with
+     * @param maxCapacity the number of samples a buffer may grow to
+     */
+    public StripedMetricsStore(int stripeCount, int initialCapacity, int maxCapacity) {
+        this(stripeCount, initialCapacity, maxCapacity, Clock.system());
+    }
+
+    /**
+     * Creates a store with the given number of stripes and per-buffer capacities, reading the time
+     * from the given clock.
+     */
+    public StripedMetricsStore(int stripeCount, int initialCapacity, int maxCapacity, Clock clock) {
+        super(clock);
+        if (stripeCount < 1 || initialCapacity < 1 || maxCapacity < initialCapacity) {
+            throw new IllegalArgumentException("Invalid striped metrics store sizing");
+        }
+        int size = roundedStripeCount(stripeCount);
+        this.stripes = new Stripe[size];
+        this.stripeMask = size - 1;
+        this.initialCapacity = initialCapacity;
+        this.maxCapacity = maxCapacity;
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new Stripe(initialCapacity);
+        }
+    }
+
+    @Override
+    public void push(String identifier, long value, Instant time, String queueName) {
+        push(identifier, value, time.toEpochMilli(), queueName);
+    }
+
+    /**
+     * Appends the metric to the current thread's stripe without allocating.
+     * Metrics are ignored if it's been more than 2 minutes since the last flush.
+     */
+    @Override
+    public void push(String identifier, long value, long timeMillis, String queueName) {
+        if (isStale()) {
+            return;
+        }
+
+        int code = keys.codeFor(identifier, queueName);
+        if (code == MetricKeys.NO_CODE) {
+            droppedUnregistered.incrementAndGet();
+            return;
+        }
+
+        Stripe stripe = stripes[stripeIndex(Thread.currentThread().getId())];
+        Buffer buffer;
+        int slot;
+        do {
+            // A negative slot means this buffer isn't active any more; the active buffer is already published
+            buffer = stripe.active;
+            slot = buffer.tryClaim();
+        } while (slot < 0);
+
+        try {
+            if (slot < buffer.values.length) {
+                buffer.times[slot] = timeMillis;
+                buffer.values[slot] = value;
+                buffer.keys[slot] = code;
+            } else {
+                droppedByKey.incrementAndGet(code);
+            }
+        } finally {
+            buffer.release();
+        }
+    }
+
+    /**
+     * Swaps every stripe to its spare buffer and drains the previously active ones.
+     */
+    @Override
+    public synchronized List<Metric> flush() {
+        super.flush();
+
+        List<Metric> flushed = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            Buffer drained = stripe.swap();
+            int count = drained.seal();
+            drain(drained, Math.min(count, drained.values.length), flushed);
+            drained.reset(resizedCapacity(drained.values.length, count));
+        }
+        return flushed;
+    }
+
+    /**
+     * Drains every buffer and the dropped-sample counts, per identifier, into a report.
+     */
+    @Override
+    public synchronized Report flushReport() {
+        List<Metric> metrics = flush();
+        Map<String, Long> dropped = new LinkedHashMap<>();
+
+        for (int code = 0; code < keys.size(); code++) {
+            long count = droppedByKey.getAndSet(code, 0);
+            if (count > 0) {
+                String identifier = keys.identifier(code);
+                Long previous = dropped.get(identifier);
+                dropped.put(identifier, previous != null ? previous + count : count);
+            }
+        }
+        long unregistered = droppedUnregistered.getAndSet(0);
+        if (unregistered > 0) {
+            dropped.put("other", unregistered);
+        }
+
+        return new Report(metrics, Collections.<HistogramSnapshot>emptyList(), dropped);
+    }
+
+    /**
+     * Returns the metrics currently in the active buffers without removing them (for testing).
+     * Not synchronized with concurrent pushes.
+     */
+    @Override
+    public List<Metric> getMetrics() {
+        List<Metric> metrics = new ArrayList<>(super.getMetrics());
+        for (Stripe stripe : stripes) {
+            Buffer buffer = stripe.active;
+            drain(buffer, (int) Math.min(buffer.state.get() & Buffer.CLAIMED_MASK, buffer.values.length), metrics);
+        }
+        return metrics;
+    }
+
+    /**
+     * Clears all metrics and dropped counts (for testing).
+     */
+    @Override
+    public void clear() {
+        super.clear();
+        flushReport();
+    }
+
+    /**
+     * Returns the total number of samples dropped since the last report.
+     */
+    public long getDroppedCount() {
+        long total = droppedUnregistered.get();
+        for (int code = 0; code < droppedByKey.length(); code++) {
+            total += droppedByKey.get(code);
+        }
+        return total;
+    }
+
+    /**
+     * Returns the combined capacity of every buffer, in samples (for testing).
+     */
+    synchronized int getCapacity() {
+        int capacity = 0;
+        for (Stripe stripe : stripes) {
+            capacity += stripe.active.values.length + stripe.spare.values.length;
+        }
+        return capacity;
+    }
+
+    /**
+     * Returns the number of samples each buffer may hold for all of them to fit in the budget.
+     */
+    static int capacityFor(int budgetBytes, int stripeCount) {
+        // Every stripe has two buffers
+        int capacity = budgetBytes / (roundedStripeCount(stripeCount) * 2 * SAMPLE_BYTES);
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Metrics buffer budget must hold at least one sample per buffer");
+        }
+        return capacity;
+    }
+
+    private static int roundedStripeCount(int stripeCount) {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount));
+        return size < stripeCount ? size << 1 : size;
+    }
+
+    private int stripeIndex(long threadId) {
+        // Fibonacci hashing spreads sequential thread ids across stripes
+        return (int) ((threadId * 0x9E3779B97F4A7C15L) >>> 32) & stripeMask;
+    }
+
+    /**
+     * Grows a buffer that overflowed to fit the samples claimed in its interval, and halves one that
+     * used less than a quarter of its capacity, down to the initial capacity.
+     */
+    private int resizedCapacity(int capacity, int claimed) {
+        if (claimed > capacity) {
+            int grown = Integer.highestOneBit(claimed);
+            if (grown < claimed) {
+                grown <<= 1;
+            }
+            return Math.min(maxCapacity, grown);
+        }
+        if (claimed < capacity / 4 && capacity > initialCapacity) {
+            return Math.max(initialCapacity, capacity / 2);
+        }
+        return capacity;
+    }
+
+    private void drain(Buffer buffer, int count, List<Metric> into) {
+        for (int i = 0; i < count; i++) {
+            int code = buffer.keys[i];
+            into.add(new Metric(keys.identifier(code), buffer.values[i],
+                Instant.ofEpochMilli(buffer.times[i]), keys.queueName(code)));
+        }
+    }
+
+    private static final class Stripe {
+        // Only written when flushing, so pushes on neighbouring stripes just read it
+        volatile Buffer active;
+        Buffer spare;
+
+        Stripe(int capacity) {
+            this.active = new Buffer(capacity);
+            this.active.open();
+            this.spare = new Buffer(capacity);
+        }
+
+        Buffer swap() {
+            Buffer previous = active;
+            // The spare stays sealed until now, so a push that read it as active before the last
+            // flush retries on the active buffer instead of writing where that flush won't look
+            spare.open();
+            active = spare;
+            spare = previous;
+            return previous;
+        }
+    }
+
+    /**
+     * A set of primitive columns plus a state word packing the sealed flag,
+     * the number of in-flight writers and the number of claimed slots.
+     * Buffers start sealed and are opened when they become a stripe's active buffer.
+     */
+    private static final class Buffer {
+        static final long SEALED = 1L << 62;
+        static final long WRITER = 1L << 32;
+        static final long CLAIMED_MASK = WRITER - 1;
+        static final long WRITERS_MASK = SEALED - WRITER;
+
+        final AtomicLong state = new AtomicLong(SEALED);
+        long[] times;
+        long[] values;
+        int[] keys;
+
+        Buffer(int capacity) {
+            allocate(capacity);
+        }
+
+        /**
+         * Registers the calling thread as a writer and claims the next slot.
+         *
+         * @return the claimed slot (which may be past the end of the columns), or -1 if the buffer is sealed
+         */
+        int tryClaim() {
+            while (true) {
+                long current = state.get();
+                if ((current & SEALED) != 0) {
+                    return -1;
+                }
+                if (state.compareAndSet(current, current + WRITER + 1)) {
+                    return (int) Math.min(Integer.MAX_VALUE, current & CLAIMED_MASK);
+                }
+            }
+        }
+
+        void release() {
+            state.addAndGet(-WRITER);
+        }
+
+        /**
+         * Seals the buffer against new writers and waits for in-flight writers to finish.
+         *
+         * @return the number of slots claimed before the buffer was sealed
+         */
+        int seal() {
+            long sealed = state.getAndAdd(SEALED);
+            while ((state.get() & WRITERS_MASK) != 0) {
+                Thread.yield();
+            }
+            return (int) Math.min(Integer.MAX_VALUE, sealed & CLAIMED_MASK);
+        }
+
+        /**
+         * Clears the buffer for reuse, leaving it sealed until it is opened.
+         */
+        void reset(int capacity) {
+            if (capacity != values.length) {
+                allocate(capacity);
+            }
+            state.set(SEALED);
+        }
+
+        void open() {
+            state.set(0);
+        }
+
+        private void allocate(int capacity) {
+            times = new long[capacity];
+            values = new long[capacity];
+            keys = new int[capacity];
+        }
+    }
+}
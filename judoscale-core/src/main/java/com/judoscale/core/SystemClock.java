@@ -0,0 +1,27 @@
+package com.judoscale.core;
+
+/**
+ * The high-resolution {@link Clock}, reading the system clocks on every call.
+ */
+final class SystemClock implements Clock {
+
+    static final SystemClock INSTANCE = new SystemClock();
+
+    private SystemClock() {
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+
+    @Override
+    public String toString() {
+        return "SystemClock";
+    }
+}
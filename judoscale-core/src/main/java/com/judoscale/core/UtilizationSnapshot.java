@@ -0,0 +1,83 @@
+package com.judoscale.core;
+
+/**
+ * Utilization measured by a {@link UtilizationTracker} over one report cycle.
+ *
+ * <p>Busy/idle utilization only says whether any request was in flight, so one long request
+ * counts the same as a full worker pool. The average concurrency (the time-weighted mean number
+ * of in-flight requests, which by Little's law is arrival rate times response time) and the
+ * capacity utilization derived from it show how close the instance is to saturation. The peak and
+ * 90th percentile sub-interval utilization show short bursts that the cycle average smooths over.</p>
+ */
+public final class UtilizationSnapshot {
+
+    private final int utilizationPct;
+    private final double averageConcurrency;
+    private final int capacity;
+    private final int peakUtilizationPct;
+    private final int p90UtilizationPct;
+
+    UtilizationSnapshot(int utilizationPct, double averageConcurrency, int capacity,
+                        int peakUtilizationPct, int p90UtilizationPct) {
+        this.utilizationPct = utilizationPct;
+        this.averageConcurrency = averageConcurrency;
+        this.capacity = capacity;
+        this.peakUtilizationPct = peakUtilizationPct;
+        this.p90UtilizationPct = p90UtilizationPct;
+    }
+
+    /**
+     * Returns the percentage of the cycle with at least one request in flight (0-100).
+     */
+    public int utilizationPct() {
+        return utilizationPct;
+    }
+
+    /**
+     * Returns the time-weighted average number of requests in flight during the cycle.
+     */
+    public double averageConcurrency() {
+        return averageConcurrency;
+    }
+
+    /**
+     * Returns the number of requests the server can process concurrently, or 0 if unknown.
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the average concurrency as a percentage of the capacity (0-100),
+     * or -1 if the capacity is unknown.
+     */
+    public int capacityUtilizationPct() {
+        if (capacity <= 0) {
+            return -1;
+        }
+        return (int) Math.min(100, Math.round(averageConcurrency * 100.0 / capacity));
+    }
+
+    /**
+     * Returns the highest sub-interval utilization percentage (0-100),
+     * or -1 if no sub-intervals were sampled during the cycle.
+     */
+    public int peakUtilizationPct() {
+        return peakUtilizationPct;
+    }
+
+    /**
+     * Returns the 90th percentile sub-interval utilization percentage (0-100),
+     * or -1 if no sub-intervals were sampled during the cycle.
+     */
+    public int p90UtilizationPct() {
+        return p90UtilizationPct;
+    }
+
+    @Override
+    public String toString() {
+        return "UtilizationSnapshot{utilizationPct=" + utilizationPct + ", averageConcurrency=" + averageConcurrency +
+            ", capacity=" + capacity + ", peakUtilizationPct=" + peakUtilizationPct +
+            ", p90UtilizationPct=" + p90UtilizationPct + '}';
+    }
+}
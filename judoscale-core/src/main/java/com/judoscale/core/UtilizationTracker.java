@@ -1,35 +1,138 @@
 package com.judoscale.core;
 
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
- * Tracks application utilization as the percentage of time spent processing requests vs idle.
- * 
+ * Tracks application utilization as the percentage of time spent processing requests vs idle,
+ * and the time-weighted average number of requests in flight.
+ *
  * Utilization is calculated as: (1 - idle_ratio) * 100
  * where idle_ratio is the fraction of time with no active requests.
- * 
- * This class is thread-safe and uses monotonic time (System.nanoTime) to avoid
- * issues with clock drift or adjustments.
+ * Average concurrency is the integral of the active request count over the cycle, divided by
+ * the cycle length.
+ *
+ * This class is thread-safe and uses monotonic time ({@link Clock#nanoTime()}) to avoid
+ * issues with clock drift or adjustments. Request threads never block: {@link #incr()} and
+ * {@link #decr()} update a single atomic state word holding the active request count and the
+ * time it last changed, and add the time spent at the previous count to the idle or
+ * concurrency totals.
+ *
+ * Averages over a whole report cycle hide short bursts: 3 saturated seconds in a 10 second
+ * cycle look like 30% utilization. {@link #sampleSubInterval()}, called on a shorter schedule,
+ * records the utilization of each sub-interval in a small ring so the snapshot can also report
+ * the peak and 90th percentile sub-interval utilization.
  */
 public class UtilizationTracker {
 
-    private final Object lock = new Object();
-    private int activeRequestCounter = 0;
-    private boolean started = false;
-    
-    // Idle time tracking (in nanoseconds, using monotonic clock)
-    private boolean isIdle = false;
-    private long idleStartedAt = 0;
-    private long totalIdleTime = 0;
+    // The state word packs the active request count above the low bits of the time it last changed.
+    // Elapsed times are taken modulo 2^TIME_BITS, which is correct for intervals up to ~2.4 hours;
+    // the reporter reads the tracker far more often than that.
+    private static final int TIME_BITS = 44;
+    private static final long TIME_MASK = (1L << TIME_BITS) - 1;
+    private static final long MAX_ACTIVE_REQUESTS = (1L << (64 - TIME_BITS)) - 1;
+
+    static final int DEFAULT_MAX_SUB_INTERVALS = 64;
+
+    private final AtomicLong state = new AtomicLong();
+    // Striped so request threads adding to the totals don't contend on another shared word
+    private final LongAdder totalIdleTime = new LongAdder();
+    private final LongAdder totalConcurrencyTime = new LongAdder();
+    private final int capacity;
+    private final Clock clock;
+    private volatile boolean started = false;
+
+    // Guards the report cycle, which is only touched when starting and when reading utilization
+    private final Object cycleLock = new Object();
     private long reportCycleStartedAt = 0;
 
+    // Sub-interval utilization percentages recorded this cycle, also guarded by cycleLock.
+    // Once the ring is full the oldest sub-intervals are overwritten.
+    private final int[] subIntervalPcts;
+    private int subIntervalCount = 0;
+    private int nextSubInterval = 0;
+    private long subIntervalStartedAt = 0;
+    // The idle total when the current sub-interval started, relative to the cycle's idle total
+    private long subIntervalIdleTimeBase = 0;
+
+    /**
+     * Creates a tracker for a server whose capacity is unknown.
+     */
+    public UtilizationTracker() {
+        this(0);
+    }
+
+    /**
+     * Creates a tracker for a server that can process the given number of requests concurrently
+     * (typically its worker thread pool size).
+     *
+     * @param capacity the number of concurrent requests, or 0 if unknown
+     */
+    public UtilizationTracker(int capacity) {
+        this(capacity, DEFAULT_MAX_SUB_INTERVALS);
+    }
+
+    /**
+     * Creates a tracker that keeps up to the given number of sub-intervals per report cycle.
+     *
+     * @param capacity the number of concurrent requests, or 0 if unknown
+     * @param maxSubIntervals the size of the sub-interval ring
+     */
+    public UtilizationTracker(int capacity, int maxSubIntervals) {
+        this(capacity, maxSubIntervals, Clock.system());
+    }
+
+    /**
+     * Creates a tracker that keeps up to the given number of sub-intervals per report cycle and
+     * reads monotonic time from the given clock.
+     *
+     * @param capacity the number of concurrent requests, or 0 if unknown
+     * @param maxSubIntervals the size of the sub-interval ring
+     * @param clock the clock to measure time with
+     */
+    public UtilizationTracker(int capacity, int maxSubIntervals, Clock clock) {
+        this.capacity = Math.max(0, capacity);
+        this.subIntervalPcts = new int[Math.max(1, maxSubIntervals)];
+        this.clock = clock;
+    }
+
+    /**
+     * Creates a tracker whose sub-interval ring holds every sub-interval of a report cycle,
+     * with some slack for scheduling jitter.
+     *
+     * @param config the configuration providing the report and sub-interval lengths
+     * @param capacity the number of concurrent requests, or 0 if unknown
+     */
+    public static UtilizationTracker forConfig(ConfigBase config, int capacity) {
+        return forConfig(config, capacity, Clock.system());
+    }
+
+    /**
+     * Creates a tracker like {@link #forConfig(ConfigBase, int)} that reads monotonic time from the given clock.
+     *
+     * @param config the configuration providing the report and sub-interval lengths
+     * @param capacity the number of concurrent requests, or 0 if unknown
+     * @param clock the clock to measure time with
+     */
+    public static UtilizationTracker forConfig(ConfigBase config, int capacity, Clock clock) {
+        int subIntervalSeconds = Math.max(1, config.getUtilizationSubIntervalSeconds());
+        int subIntervals = Math.max(1, config.getReportIntervalSeconds()) / subIntervalSeconds + 2;
+        return new UtilizationTracker(capacity, subIntervals, clock);
+    }
+
     /**
      * Starts the utilization tracker. Must be called before tracking begins.
      * Typically called on the first request.
      */
     public void start() {
-        synchronized (lock) {
+        if (started) {
+            return;
+        }
+        synchronized (cycleLock) {
             if (!started) {
-                started = true;
                 initIdleReportCycle();
+                started = true;
             }
         }
     }
@@ -38,23 +141,22 @@ public class UtilizationTracker {
      * Returns whether the tracker has been started.
      */
     public boolean isStarted() {
-        synchronized (lock) {
-            return started;
-        }
+        return started;
     }
 
     /**
      * Increments the active request counter. Call when a request starts.
      */
     public void incr() {
-        synchronized (lock) {
-            if (activeRequestCounter == 0 && isIdle) {
-                // We were idle and now we're not - add to total idle time
-                totalIdleTime += getCurrentTime() - idleStartedAt;
-                isIdle = false;
+        while (true) {
+            long current = state.get();
+            long count = current >>> TIME_BITS;
+            if (count == MAX_ACTIVE_REQUESTS) {
+                return;
+            }
+            if (transition(current, count, count + 1)) {
+                return;
             }
-
-            activeRequestCounter++;
         }
     }
 
@@ -63,19 +165,45 @@ public class UtilizationTracker {
      * Guards against going negative (which would indicate a bug in calling code).
      */
     public void decr() {
-        synchronized (lock) {
-            if (activeRequestCounter <= 0) {
+        while (true) {
+            long current = state.get();
+            long count = current >>> TIME_BITS;
+            if (count == 0) {
                 // Guard against going negative - this would indicate mismatched incr/decr calls
                 return;
             }
+            if (transition(current, count, count - 1)) {
+                return;
+            }
+        }
+    }
 
-            activeRequestCounter--;
-
-            if (activeRequestCounter == 0) {
-                // We're now idle - start tracking idle time
-                idleStartedAt = getCurrentTime();
-                isIdle = true;
+    /**
+     * Ends the current sub-interval and records its utilization. Call on a fixed schedule that is
+     * shorter than the report interval (default: every second). Does nothing until started.
+     */
+    public void sampleSubInterval() {
+        synchronized (cycleLock) {
+            if (!started) {
+                return;
+            }
+            long currentTime = getCurrentTime();
+            long subIntervalTime = currentTime - subIntervalStartedAt;
+            if (subIntervalTime <= 0) {
+                return;
             }
+            captureUntil(currentTime);
+
+            long idleTime = totalIdleTime.sum();
+            double idleRatio = (double) (idleTime - subIntervalIdleTimeBase) / subIntervalTime;
+            // An add racing with the read lands in the next sub-interval, so clamp to 0-100
+            int pct = (int) Math.max(0, Math.min(100, (1.0 - idleRatio) * 100.0));
+
+            subIntervalPcts[nextSubInterval] = pct;
+            nextSubInterval = (nextSubInterval + 1) % subIntervalPcts.length;
+            subIntervalCount = Math.min(subIntervalCount + 1, subIntervalPcts.length);
+            subIntervalStartedAt = currentTime;
+            subIntervalIdleTimeBase = idleTime;
         }
     }
 
@@ -89,19 +217,63 @@ public class UtilizationTracker {
 
     /**
      * Calculates and returns the utilization percentage (0-100).
-     * 
+     *
      * @param reset if true, resets the tracking cycle after calculation
      */
     public int utilizationPct(boolean reset) {
-        synchronized (lock) {
+        return snapshot(reset).utilizationPct();
+    }
+
+    /**
+     * Measures utilization and average concurrency since the start of the cycle.
+     * Resets the tracking cycle after calculation.
+     */
+    public UtilizationSnapshot snapshot() {
+        return snapshot(true);
+    }
+
+    /**
+     * Measures utilization and average concurrency since the start of the cycle.
+     *
+     * @param reset if true, resets the tracking cycle after calculation
+     */
+    public UtilizationSnapshot snapshot(boolean reset) {
+        synchronized (cycleLock) {
             long currentTime = getCurrentTime();
-            double idleRatio = getIdleRatio(currentTime);
+            long totalReportCycleTime = currentTime - reportCycleStartedAt;
+            int[] subIntervals = Arrays.copyOf(subIntervalPcts, subIntervalCount);
+            Arrays.sort(subIntervals);
+            int peakPct = subIntervals.length > 0 ? subIntervals[subIntervals.length - 1] : -1;
+            int p90Pct = subIntervals.length > 0 ? subIntervals[(int) Math.ceil(subIntervals.length * 0.9) - 1] : -1;
+            UtilizationSnapshot snapshot;
 
-            if (reset) {
-                resetIdleReportCycle(currentTime);
+            if (totalReportCycleTime <= 0) {
+                if (reset) {
+                    subIntervalIdleTimeBase -= drain(totalIdleTime);
+                    drain(totalConcurrencyTime);
+                }
+                snapshot = new UtilizationSnapshot(100, 0.0, capacity, peakPct, p90Pct);
+            } else {
+                // Capture the time spent at the current count, so we don't double count on next read
+                captureUntil(currentTime);
+
+                long idleTime = reset ? drain(totalIdleTime) : totalIdleTime.sum();
+                long concurrencyTime = reset ? drain(totalConcurrencyTime) : totalConcurrencyTime.sum();
+                double idleRatio = (double) idleTime / totalReportCycleTime;
+                snapshot = new UtilizationSnapshot((int) ((1.0 - idleRatio) * 100.0),
+                    (double) concurrencyTime / totalReportCycleTime, capacity, peakPct, p90Pct);
+                if (reset) {
+                    // The current sub-interval carries on into the next cycle
+                    subIntervalIdleTimeBase -= idleTime;
+                }
             }
 
-            return (int) ((1.0 - idleRatio) * 100.0);
+            if (reset) {
+                reportCycleStartedAt = currentTime;
+                subIntervalCount = 0;
+                nextSubInterval = 0;
+            }
+            return snapshot;
         }
     }
 
@@ -109,45 +281,89 @@ public class UtilizationTracker {
      * Returns the current active request count (for testing/debugging).
      */
     public int getActiveRequestCount() {
-        synchronized (lock) {
-            return activeRequestCounter;
-        }
+        return (int) (state.get() >>> TIME_BITS);
     }
 
     /**
-     * Returns the current monotonic time in nanoseconds.
+     * Returns the number of requests the server can process concurrently, or 0 if unknown.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the current monotonic time in nanoseconds from the tracker's clock.
      * Protected to allow overriding in tests.
      */
     protected long getCurrentTime() {
-        return System.nanoTime();
+        return clock.nanoTime();
     }
 
     private void initIdleReportCycle() {
         long currentTime = getCurrentTime();
-        idleStartedAt = currentTime;
-        isIdle = true;
-        resetIdleReportCycle(currentTime);
-    }
-
-    private void resetIdleReportCycle(long currentTime) {
-        totalIdleTime = 0;
+        while (true) {
+            long current = state.get();
+            if (state.compareAndSet(current, pack(current >>> TIME_BITS, currentTime))) {
+                break;
+            }
+        }
+        drain(totalIdleTime);
+        drain(totalConcurrencyTime);
         reportCycleStartedAt = currentTime;
+        subIntervalStartedAt = currentTime;
+        subIntervalIdleTimeBase = 0;
+        subIntervalCount = 0;
+        nextSubInterval = 0;
     }
 
-    private double getIdleRatio(long currentTime) {
-        long totalReportCycleTime = currentTime - reportCycleStartedAt;
+    /**
+     * Returns the adder's total and subtracts it. Unlike {@link LongAdder#sumThenReset()}, which zeroes
+     * each cell after reading it, time added concurrently stays in the adder for the next read.
+     */
+    private static long drain(LongAdder adder) {
+        long sum = adder.sum();
+        adder.add(-sum);
+        return sum;
+    }
 
-        if (totalReportCycleTime <= 0) {
-            return 0.0;
+    private void captureUntil(long currentTime) {
+        while (true) {
+            long current = state.get();
+            long count = current >>> TIME_BITS;
+            if (transition(current, count, count, currentTime)) {
+                return;
+            }
         }
+    }
+
+    private boolean transition(long current, long count, long nextCount) {
+        return transition(current, count, nextCount, getCurrentTime());
+    }
 
-        // Capture remaining idle time if currently idle
-        if (isIdle) {
-            totalIdleTime += currentTime - idleStartedAt;
-            // Update idleStartedAt so we don't double count on next read
-            idleStartedAt = currentTime;
+    /**
+     * Moves from the current state to the next count at the given time, then adds the time spent
+     * at the previous count to the totals.
+     *
+     * @return false if another thread changed the state first
+     */
+    private boolean transition(long current, long count, long nextCount, long currentTime) {
+        long changedAt = current & TIME_MASK;
+        // Sign-extend the masked difference; a clock read that lost a race counts as no time passing
+        long elapsed = Math.max(0, ((currentTime - changedAt) << (64 - TIME_BITS)) >> (64 - TIME_BITS));
+        if (!state.compareAndSet(current, pack(nextCount, changedAt + elapsed))) {
+            return false;
         }
+        if (elapsed > 0) {
+            if (count == 0) {
+                totalIdleTime.add(elapsed);
+            } else {
+                totalConcurrencyTime.add(count * elapsed);
+            }
+        }
+        return true;
+    }
 
-        return (double) totalIdleTime / totalReportCycleTime;
+    private static long pack(long count, long time) {
+        return (count << TIME_BITS) | (time & TIME_MASK);
     }
 }
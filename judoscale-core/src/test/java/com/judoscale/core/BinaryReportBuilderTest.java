@@ -0,0 +1,135 @@
+package com.judoscale.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BinaryReportBuilderTest {
+
+    private static final List<Adapter> ADAPTERS = Arrays.asList(
+        new Adapter("judoscale-test", "1.0.0", "3.2.1"),
+        new Adapter("judoscale-other", "2.0.0", "17")
+    );
+
+    @Test
+    void roundTripsToTheSameJsonWithSamplesGroupedByIdentifierAndQueue() throws IOException {
+        Instant time = Instant.parse("2024-01-15T10:30:00Z");
+        List<Metric> metrics = Arrays.asList(
+            new Metric("qt", 100, time),
+            new Metric("at", 50, time.plusSeconds(1)),
+            new Metric("qt", 120, time.plusSeconds(2)),
+            new Metric("qd", 3, time.plusSeconds(3), "default"),
+            new Metric("qd", 7, time.plusSeconds(4), "mailers"),
+            new Metric("qd", 4, time.plusSeconds(5), "default")
+        );
+        Report report = new Report(metrics);
+
+        BinaryReportDecoder.Decoded decoded = BinaryReportDecoder.decode(
+            BinaryReportBuilder.buildReport(report, ADAPTERS, "web.1"));
+
+        List<Metric> grouped = Arrays.asList(
+            metrics.get(0), metrics.get(2), metrics.get(1), metrics.get(3), metrics.get(5), metrics.get(4));
+        assertThat(decoded.report.metrics()).containsExactlyElementsOf(grouped);
+        assertThat(decoded.container).isEqualTo("web.1");
+        assertThat(decoded.adapters).isEqualTo(ADAPTERS);
+        assertThat(ReportBuilder.buildReportJson(decoded.report, decoded.adapters, decoded.container))
+            .isEqualTo(ReportBuilder.buildReportJson(new Report(grouped), ADAPTERS, "web.1"));
+    }
+
+    @Test
+    void roundTripsHistogramsDroppedCountsAndSampling() throws IOException {
+        Instant time = Instant.parse("2024-01-15T10:30:00Z");
+        LogLinearHistogram histogram = new LogLinearHistogram();
+        histogram.record(3);
+        histogram.record(250);
+        histogram.record(1_000_000);
+        Map<String, Long> dropped = new LinkedHashMap<>();
+        dropped.put("qt", 12L);
+        dropped.put("other", 1L);
+        Report report = new Report(
+            Collections.singletonList(new Metric("up", 75, time.plusSeconds(10))),
+            Collections.singletonList(histogram.snapshotAndReset("qt", "default", time)),
+            dropped,
+            Collections.singletonList(new SamplingSummary("at", null, 5000, 1000))
+        );
+
+        BinaryReportDecoder.Decoded decoded = BinaryReportDecoder.decode(
+            BinaryReportBuilder.buildReport(report, ADAPTERS, "web.1"));
+
+        assertThat(decoded.report.histograms()).isEqualTo(report.histograms());
+        assertThat(decoded.report.dropped()).isEqualTo(dropped);
+        assertThat(decoded.report.sampling()).isEqualTo(report.sampling());
+        assertThat(ReportBuilder.buildReportJson(decoded.report, decoded.adapters, decoded.container))
+            .isEqualTo(ReportBuilder.buildReportJson(report, ADAPTERS, "web.1"));
+    }
+
+    @Test
+    void roundTripsRouteSummaries() throws IOException {
+        Report report = new Report(Collections.<Metric>emptyList()).withRoutes(Arrays.asList(
+            new RouteSummary("GET /users/{id}", 3, 120, 80, 2, 30, 20),
+            new RouteSummary(RouteSummary.OTHER, 1, 5, 5, 0, 0, 0)));
+
+        BinaryReportDecoder.Decoded decoded = BinaryReportDecoder.decode(
+            BinaryReportBuilder.buildReport(report, ADAPTERS, "web.1"));
+
+        assertThat(decoded.report.routes()).isEqualTo(report.routes());
+        assertThat(ReportBuilder.buildReportJson(decoded.report, decoded.adapters, decoded.container))
+            .isEqualTo(ReportBuilder.buildReportJson(report, ADAPTERS, "web.1"));
+    }
+
+    @Test
+    void roundTripsEdgeCaseValuesAndStrings() throws IOException {
+        Instant time = Instant.parse("2024-01-15T10:30:00Z");
+        List<Metric> metrics = Arrays.asList(
+            new Metric("qt", 0, time),
+            new Metric("qt", -5, time),
+            new Metric("qt", Long.MAX_VALUE, time),
+            new Metric("qt", Long.MIN_VALUE, time),
+            new Metric("qd", 1, time, "queue \"with\" ünïcödé"),
+            new Metric("qd", 2, time, "")
+        );
+
+        BinaryReportDecoder.Decoded decoded = BinaryReportDecoder.decode(
+            BinaryReportBuilder.buildReport(new Report(metrics), ADAPTERS, null));
+
+        assertThat(decoded.report.metrics()).containsExactlyElementsOf(metrics);
+        assertThat(decoded.container).isEmpty();
+    }
+
+    @Test
+    void roundTripsAnEmptyReport() throws IOException {
+        BinaryReportDecoder.Decoded decoded = BinaryReportDecoder.decode(
+            BinaryReportBuilder.buildReport(new Report(Collections.emptyList()), Collections.emptyList(), "web.1"));
+
+        assertThat(decoded.report.isEmpty()).isTrue();
+        assertThat(decoded.adapters).isEmpty();
+        assertThat(ReportBuilder.buildReportJson(decoded.report, decoded.adapters, decoded.container))
+            .isEqualTo(ReportBuilder.buildReportJson(Collections.emptyList(), Collections.emptyList(), "web.1"));
+    }
+
+    @Test
+    void isAnOrderOfMagnitudeSmallerThanJsonForBusyIntervals() {
+        Instant start = Instant.parse("2024-01-15T10:30:00Z");
+        List<Metric> metrics = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            Instant time = start.plusSeconds(i / 1000);
+            metrics.add(new Metric("qt", i % 120, time));
+            metrics.add(new Metric("at", i % 80, time));
+        }
+        Report report = new Report(metrics);
+
+        byte[] binary = BinaryReportBuilder.buildReport(report, ADAPTERS, "web.1");
+        String json = ReportBuilder.buildReportJson(report, ADAPTERS, "web.1");
+
+        assertThat(binary.length * 10).isLessThan(json.length());
+    }
+}
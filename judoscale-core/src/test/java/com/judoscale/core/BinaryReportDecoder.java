@@ -0,0 +1,177 @@
+package com.judoscale.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reference decoder for the binary report format written by {@link BinaryReportBuilder}.
+ * Kept in test sources as the executable specification of the format.
+ */
+final class BinaryReportDecoder {
+
+    /**
+     * Everything encoded in a binary report.
+     */
+    static final class Decoded {
+        final String container;
+        final long pid;
+        final Report report;
+        final List<Adapter> adapters;
+
+        Decoded(String container, long pid, Report report, List<Adapter> adapters) {
+            this.container = container;
+            this.pid = pid;
+            this.report = report;
+            this.adapters = adapters;
+        }
+    }
+
+    private final InputStream in;
+
+    private BinaryReportDecoder(InputStream in) {
+        this.in = in;
+    }
+
+    static Decoded decode(byte[] bytes) throws IOException {
+        return new BinaryReportDecoder(new ByteArrayInputStream(bytes)).decode();
+    }
+
+    private Decoded decode() throws IOException {
+        byte[] magic = readBytes(4);
+        if (!Arrays.equals(magic, BinaryReportBuilder.MAGIC)) {
+            throw new IOException("Not a binary report: " + Arrays.toString(magic));
+        }
+
+        String container = readString();
+        long pid = readSigned();
+        long baseTime = readSigned();
+
+        List<Metric> metrics = new ArrayList<>();
+        long groupCount = readUnsigned();
+        for (long g = 0; g < groupCount; g++) {
+            String identifier = readString();
+            String queueName = readOptionalString();
+            int count = (int) readUnsigned();
+            long[] times = new long[count];
+            long runs = readUnsigned();
+            int position = 0;
+            for (long r = 0; r < runs; r++) {
+                long time = baseTime + readUnsigned();
+                long length = readUnsigned();
+                for (long i = 0; i < length; i++) {
+                    times[position++] = time;
+                }
+            }
+            if (position != count) {
+                throw new IOException("Time runs cover " + position + " samples, expected " + count);
+            }
+            for (int i = 0; i < count; i++) {
+                metrics.add(new Metric(identifier, readSigned(), Instant.ofEpochSecond(times[i]), queueName));
+            }
+        }
+
+        List<HistogramSnapshot> histograms = new ArrayList<>();
+        long histogramCount = readUnsigned();
+        for (long h = 0; h < histogramCount; h++) {
+            String identifier = readString();
+            String queueName = readOptionalString();
+            Instant time = Instant.ofEpochSecond(baseTime + readUnsigned());
+            int precision = (int) readUnsigned();
+            long count = readUnsigned();
+            long sum = readSigned();
+            long min = readSigned();
+            long max = readSigned();
+            int bucketCount = (int) readUnsigned();
+            int[] indexes = new int[bucketCount];
+            long[] counts = new long[bucketCount];
+            int index = 0;
+            for (int i = 0; i < bucketCount; i++) {
+                index += (int) readUnsigned();
+                indexes[i] = index;
+                counts[i] = readUnsigned();
+            }
+            histograms.add(new HistogramSnapshot(identifier, queueName, time, precision, count, sum, min, max, indexes, counts));
+        }
+
+        Map<String, Long> dropped = new LinkedHashMap<>();
+        long droppedCount = readUnsigned();
+        for (long d = 0; d < droppedCount; d++) {
+            dropped.put(readString(), readUnsigned());
+        }
+
+        List<SamplingSummary> sampling = new ArrayList<>();
+        long samplingCount = readUnsigned();
+        for (long s = 0; s < samplingCount; s++) {
+            sampling.add(new SamplingSummary(readString(), readOptionalString(), readUnsigned(), readUnsigned()));
+        }
+
+        List<RouteSummary> routes = new ArrayList<>();
+        long routeCount = readUnsigned();
+        for (long r = 0; r < routeCount; r++) {
+            routes.add(new RouteSummary(readString(), readUnsigned(), readSigned(), readSigned(),
+                readUnsigned(), readSigned(), readSigned()));
+        }
+
+        List<Adapter> adapters = new ArrayList<>();
+        long adapterCount = readUnsigned();
+        for (long a = 0; a < adapterCount; a++) {
+            adapters.add(new Adapter(readString(), readString(), readString()));
+        }
+
+        if (in.read() != -1) {
+            throw new IOException("Trailing bytes after binary report");
+        }
+        return new Decoded(container, pid, new Report(metrics, histograms, dropped, sampling, routes), adapters);
+    }
+
+    private long readUnsigned() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b == -1) {
+                throw new EOFException();
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private long readSigned() throws IOException {
+        long encoded = readUnsigned();
+        return (encoded >>> 1) ^ -(encoded & 1);
+    }
+
+    private String readString() throws IOException {
+        return new String(readBytes((int) readUnsigned()), StandardCharsets.UTF_8);
+    }
+
+    private String readOptionalString() throws IOException {
+        long length = readUnsigned();
+        return length == 0 ? null : new String(readBytes((int) length - 1), StandardCharsets.UTF_8);
+    }
+
+    private byte[] readBytes(int length) throws IOException {
+        byte[] bytes = new byte[length];
+        int read = 0;
+        while (read < length) {
+            int count = in.read(bytes, read, length - read);
+            if (count == -1) {
+                throw new EOFException();
+            }
+            read += count;
+        }
+        return bytes;
+    }
+}
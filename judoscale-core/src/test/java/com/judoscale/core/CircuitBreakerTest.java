@@ -0,0 +1,138 @@
+package com.judoscale.core;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+    private TestableCircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        breaker = new TestableCircuitBreaker(3, 30_000);
+    }
+
+    @Test
+    void staysClosedBelowTheFailureThreshold() {
+        breaker.recordFailure(-1);
+        breaker.recordFailure(-1);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.allowRequest()).isTrue();
+    }
+
+    @Test
+    void opensAfterConsecutiveFailures() {
+        failTimes(3);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.allowRequest()).isFalse();
+    }
+
+    @Test
+    void successResetsTheFailureCount() {
+        failTimes(2);
+        breaker.recordSuccess();
+        failTimes(2);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void allowsASingleProbeOnceTheOpenPeriodEnds() {
+        failTimes(3);
+        breaker.setCurrentTime(30_000);
+
+        assertThat(breaker.allowRequest()).isTrue();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.allowRequest()).isFalse();
+    }
+
+    @Test
+    void closesWhenTheProbeSucceeds() {
+        failTimes(3);
+        breaker.setCurrentTime(30_000);
+        breaker.allowRequest();
+
+        breaker.recordSuccess();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.allowRequest()).isTrue();
+    }
+
+    @Test
+    void reopensWhenTheProbeFails() {
+        failTimes(3);
+        breaker.setCurrentTime(30_000);
+        breaker.allowRequest();
+
+        breaker.recordFailure(-1);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        breaker.setCurrentTime(59_999);
+        assertThat(breaker.allowRequest()).isFalse();
+        breaker.setCurrentTime(60_000);
+        assertThat(breaker.allowRequest()).isTrue();
+    }
+
+    @Test
+    void opensForRetryAfterEvenBelowTheThreshold() {
+        breaker.recordFailure(5_000);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        breaker.setCurrentTime(4_999);
+        assertThat(breaker.allowRequest()).isFalse();
+        breaker.setCurrentTime(5_000);
+        assertThat(breaker.allowRequest()).isTrue();
+    }
+
+    @Test
+    void staysOpenForARetryAfterLongerThanTheOpenPeriod() {
+        failTimes(2);
+        breaker.recordFailure(120_000);
+
+        breaker.setCurrentTime(30_000);
+        assertThat(breaker.allowRequest()).isFalse();
+        breaker.setCurrentTime(120_000);
+        assertThat(breaker.allowRequest()).isTrue();
+    }
+
+    @Test
+    void forConfigUsesConfiguredThresholdAndOpenPeriod() {
+        ConfigBase config = new ConfigBase();
+        config.setCircuitBreakerFailureThreshold(1);
+        CircuitBreaker configured = CircuitBreaker.forConfig(config);
+
+        configured.recordFailure(-1);
+
+        assertThat(configured.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    private void failTimes(int times) {
+        for (int i = 0; i < times; i++) {
+            breaker.recordFailure(-1);
+        }
+    }
+
+    /**
+     * A testable version of CircuitBreaker that allows controlling time.
+     */
+    private static class TestableCircuitBreaker extends CircuitBreaker {
+        private long currentTime = 0;
+
+        TestableCircuitBreaker(int failureThreshold, long openMillis) {
+            super(failureThreshold, openMillis);
+        }
+
+        void setCurrentTime(long time) {
+            this.currentTime = time;
+        }
+
+        @Override
+        protected long getCurrentTime() {
+            return currentTime;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.judoscale.core;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CoarseClockTest {
+
+    private CoarseClock clock;
+
+    @AfterEach
+    void tearDown() {
+        if (clock != null) {
+            clock.close();
+        }
+    }
+
+    @Test
+    void startsWithCurrentReadings() {
+        long before = System.currentTimeMillis();
+        clock = new CoarseClock(1000);
+
+        assertThat(clock.currentTimeMillis()).isBetween(before, System.currentTimeMillis());
+    }
+
+    @Test
+    void holdsItsReadingsBetweenTicks() throws InterruptedException {
+        clock = new CoarseClock(60_000);
+        long millis = clock.currentTimeMillis();
+        long nanos = clock.nanoTime();
+
+        Thread.sleep(5);
+
+        assertThat(clock.currentTimeMillis()).isEqualTo(millis);
+        assertThat(clock.nanoTime()).isEqualTo(nanos);
+
+        clock.tick();
+
+        assertThat(clock.currentTimeMillis()).isGreaterThan(millis);
+        assertThat(clock.nanoTime()).isGreaterThan(nanos);
+    }
+
+    @Test
+    void tickerAdvancesTheReadings() throws InterruptedException {
+        clock = new CoarseClock(1);
+        long nanos = clock.nanoTime();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (clock.nanoTime() == nanos && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+
+        assertThat(clock.nanoTime()).isGreaterThan(nanos);
+    }
+
+    @Test
+    void forConfigSelectsTheClock() {
+        ConfigBase config = new ConfigBase();
+        assertThat(Clock.forConfig(config)).isSameAs(Clock.system());
+
+        config.setClock("coarse");
+        Clock configured = Clock.forConfig(config);
+        try {
+            assertThat(configured).isInstanceOf(CoarseClock.class);
+        } finally {
+            ((CoarseClock) configured).close();
+        }
+    }
+}
@@ -19,10 +19,54 @@ class ConfigBaseTest {
         assertThat(config.getReportIntervalSeconds()).isEqualTo(10);
         assertThat(config.getMaxRequestSizeBytes()).isEqualTo(100_000);
         assertThat(config.isIgnoreLargeRequests()).isTrue();
+        assertThat(config.isTrackNetworkTime()).isFalse();
+        assertThat(config.isSubtractNetworkTime()).isFalse();
+        assertThat(config.getMetricsStore()).isEqualTo("queue");
+        assertThat(config.getMetricsBufferBytes()).isEqualTo(4 * 1024 * 1024);
+        assertThat(config.getMetricsReservoirSize()).isEqualTo(1000);
+        assertThat(config.isCompressReports()).isFalse();
+        assertThat(config.getCompressionMinBytes()).isEqualTo(1024);
+        assertThat(config.getCompressionLevel()).isEqualTo(6);
+        assertThat(config.getReportFormat()).isEqualTo("json");
+        assertThat(config.isBinaryReportFormat()).isFalse();
+        assertThat(config.getWorkerPoolSize()).isEqualTo(0);
+        assertThat(config.getUtilizationSubIntervalSeconds()).isEqualTo(1);
+        assertThat(config.isEventLoopLagProbeEnabled()).isTrue();
+        assertThat(config.isVirtualThreadMonitorEnabled()).isTrue();
+        assertThat(config.getEventLoopLagProbeIntervalMillis()).isEqualTo(100);
+        assertThat(config.isTomcatValveEnabled()).isFalse();
+        assertThat(config.getMaxConcurrentReports()).isEqualTo(1);
+        assertThat(config.getMaxQueuedReports()).isEqualTo(5);
+        assertThat(config.isSpoolEnabled()).isFalse();
+        assertThat(config.getSpoolDirectory()).isNull();
+        assertThat(config.getSpoolMaxBytes()).isEqualTo(16 * 1024 * 1024);
+        assertThat(config.getSpoolMaxAgeSeconds()).isEqualTo(1800);
+        assertThat(config.getRetryMaxAttempts()).isEqualTo(3);
+        assertThat(config.getRetryBaseDelayMillis()).isEqualTo(100);
+        assertThat(config.getRetryMaxDelayMillis()).isEqualTo(5000);
+        assertThat(config.getCircuitBreakerFailureThreshold()).isEqualTo(5);
+        assertThat(config.getCircuitBreakerOpenSeconds()).isEqualTo(30);
+        assertThat(config.getConnectionPoolSize()).isEqualTo(2);
+        assertThat(config.getConnectionKeepAliveSeconds()).isEqualTo(60);
+        assertThat(config.isHttp2Enabled()).isTrue();
+        assertThat(config.isPrewarmConnection()).isFalse();
+        assertThat(config.getClock()).isEqualTo("system");
+        assertThat(config.getClockTickMillis()).isEqualTo(10);
+        assertThat(config.isRouteBreakdownEnabled()).isFalse();
+        assertThat(config.getRouteBreakdownTopK()).isEqualTo(20);
         assertThat(config.getLogLevel()).isEqualTo("INFO");
         assertThat(config.isEnabled()).isTrue();
     }
 
+    @Test
+    void utilizationSubIntervalIsAtLeastOneSecond() {
+        config.setUtilizationSubIntervalSeconds(0);
+        assertThat(config.getUtilizationSubIntervalSeconds()).isEqualTo(1);
+
+        config.setUtilizationSubIntervalSeconds(-5);
+        assertThat(config.getUtilizationSubIntervalSeconds()).isEqualTo(1);
+    }
+
     @Test
     void isConfiguredReturnsFalseWhenUrlIsNull() {
         assertThat(config.isConfigured()).isFalse();
@@ -74,12 +118,81 @@ class ConfigBaseTest {
         config.setReportIntervalSeconds(30);
         config.setMaxRequestSizeBytes(50_000);
         config.setIgnoreLargeRequests(false);
+        config.setTrackNetworkTime(true);
+        config.setSubtractNetworkTime(true);
+        config.setMetricsStore("histogram");
+        config.setMetricsBufferBytes(1024);
+        config.setMetricsReservoirSize(250);
+        config.setCompressReports(true);
+        config.setCompressionMinBytes(4096);
+        config.setCompressionLevel(9);
+        config.setReportFormat("binary");
+        config.setWorkerPoolSize(16);
+        config.setUtilizationSubIntervalSeconds(2);
+        config.setEventLoopLagProbeEnabled(false);
+        config.setVirtualThreadMonitorEnabled(false);
+        config.setEventLoopLagProbeIntervalMillis(250);
+        config.setTomcatValveEnabled(true);
+        config.setMaxConcurrentReports(2);
+        config.setMaxQueuedReports(10);
+        config.setSpoolEnabled(true);
+        config.setSpoolDirectory("/var/spool/judoscale");
+        config.setSpoolMaxBytes(1024 * 1024);
+        config.setSpoolMaxAgeSeconds(600);
+        config.setRetryMaxAttempts(5);
+        config.setRetryBaseDelayMillis(250);
+        config.setRetryMaxDelayMillis(10_000);
+        config.setCircuitBreakerFailureThreshold(3);
+        config.setCircuitBreakerOpenSeconds(60);
+        config.setConnectionPoolSize(4);
+        config.setConnectionKeepAliveSeconds(120);
+        config.setHttp2Enabled(false);
+        config.setPrewarmConnection(true);
+        config.setClock("coarse");
+        config.setClockTickMillis(5);
+        config.setRouteBreakdownEnabled(true);
+        config.setRouteBreakdownTopK(10);
         config.setLogLevel("DEBUG");
         config.setEnabled(false);
 
         assertThat(config.getReportIntervalSeconds()).isEqualTo(30);
         assertThat(config.getMaxRequestSizeBytes()).isEqualTo(50_000);
         assertThat(config.isIgnoreLargeRequests()).isFalse();
+        assertThat(config.isTrackNetworkTime()).isTrue();
+        assertThat(config.isSubtractNetworkTime()).isTrue();
+        assertThat(config.getMetricsStore()).isEqualTo("histogram");
+        assertThat(config.getMetricsBufferBytes()).isEqualTo(1024);
+        assertThat(config.getMetricsReservoirSize()).isEqualTo(250);
+        assertThat(config.isCompressReports()).isTrue();
+        assertThat(config.getCompressionMinBytes()).isEqualTo(4096);
+        assertThat(config.getCompressionLevel()).isEqualTo(9);
+        assertThat(config.getReportFormat()).isEqualTo("binary");
+        assertThat(config.isBinaryReportFormat()).isTrue();
+        assertThat(config.getWorkerPoolSize()).isEqualTo(16);
+        assertThat(config.getUtilizationSubIntervalSeconds()).isEqualTo(2);
+        assertThat(config.isEventLoopLagProbeEnabled()).isFalse();
+        assertThat(config.isVirtualThreadMonitorEnabled()).isFalse();
+        assertThat(config.getEventLoopLagProbeIntervalMillis()).isEqualTo(250);
+        assertThat(config.isTomcatValveEnabled()).isTrue();
+        assertThat(config.getMaxConcurrentReports()).isEqualTo(2);
+        assertThat(config.getMaxQueuedReports()).isEqualTo(10);
+        assertThat(config.isSpoolEnabled()).isTrue();
+        assertThat(config.getSpoolDirectory()).isEqualTo("/var/spool/judoscale");
+        assertThat(config.getSpoolMaxBytes()).isEqualTo(1024 * 1024);
+        assertThat(config.getSpoolMaxAgeSeconds()).isEqualTo(600);
+        assertThat(config.getRetryMaxAttempts()).isEqualTo(5);
+        assertThat(config.getRetryBaseDelayMillis()).isEqualTo(250);
+        assertThat(config.getRetryMaxDelayMillis()).isEqualTo(10_000);
+        assertThat(config.getCircuitBreakerFailureThreshold()).isEqualTo(3);
+        assertThat(config.getCircuitBreakerOpenSeconds()).isEqualTo(60);
+        assertThat(config.getConnectionPoolSize()).isEqualTo(4);
+        assertThat(config.getConnectionKeepAliveSeconds()).isEqualTo(120);
+        assertThat(config.isHttp2Enabled()).isFalse();
+        assertThat(config.isPrewarmConnection()).isTrue();
+        assertThat(config.getClock()).isEqualTo("coarse");
+        assertThat(config.getClockTickMillis()).isEqualTo(5);
+        assertThat(config.isRouteBreakdownEnabled()).isTrue();
+        assertThat(config.getRouteBreakdownTopK()).isEqualTo(10);
         assertThat(config.getLogLevel()).isEqualTo("DEBUG");
         assertThat(config.isEnabled()).isFalse();
     }
@@ -0,0 +1,201 @@
+package com.judoscale.core;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventLoopLagProbeTest {
+
+    private static final long MILLIS = 1_000_000;
+
+    private MetricsStore metricsStore;
+    private ManualEventLoop loop1;
+    private ManualEventLoop loop2;
+    private TestableEventLoopLagProbe probe;
+
+    @BeforeEach
+    void setUp() {
+        metricsStore = new MetricsStore();
+        loop1 = new ManualEventLoop();
+        loop2 = new ManualEventLoop();
+        probe = new TestableEventLoopLagProbe(metricsStore, Arrays.asList(loop1, loop2));
+    }
+
+    @Test
+    void reportsMaxAndP99LagInMilliseconds() {
+        probe.setCurrentTime(0);
+        probe.probe();
+        probe.setCurrentTime(2 * MILLIS);
+        loop1.runPending();
+        probe.setCurrentTime(30 * MILLIS);
+        loop2.runPending();
+
+        probe.report();
+
+        List<Metric> metrics = metricsStore.flush();
+        assertThat(metrics).extracting(Metric::identifier).containsExactly("el_max", "el_p99");
+        assertThat(metrics.get(0).value()).isEqualTo(30);
+        assertThat(metrics.get(1).value()).isEqualTo(30);
+    }
+
+    @Test
+    void reportsNothingWithoutProbes() {
+        probe.report();
+
+        assertThat(metricsStore.flush()).isEmpty();
+    }
+
+    @Test
+    void resetsLagAfterEachReport() {
+        probe.setCurrentTime(0);
+        probe.probe();
+        probe.setCurrentTime(50 * MILLIS);
+        loop1.runPending();
+        loop2.runPending();
+        probe.report();
+        metricsStore.flush();
+
+        probe.probe();
+        probe.setCurrentTime(51 * MILLIS);
+        loop1.runPending();
+        loop2.runPending();
+        probe.report();
+
+        List<Metric> metrics = metricsStore.flush();
+        assertThat(metrics.get(0).value()).isEqualTo(1);
+    }
+
+    @Test
+    void keepsOneProbeWaitingPerEventLoop() {
+        probe.setCurrentTime(0);
+        probe.probe();
+        probe.setCurrentTime(100 * MILLIS);
+        probe.probe();
+        probe.probe();
+
+        assertThat(loop1.pending()).isEqualTo(1);
+        assertThat(loop2.pending()).isEqualTo(1);
+
+        loop1.runPending();
+        probe.probe();
+
+        assertThat(loop1.pending()).isEqualTo(1);
+        assertThat(loop2.pending()).isEqualTo(1);
+    }
+
+    @Test
+    void countsAWaitingProbeAsLagAtEveryReport() {
+        probe = new TestableEventLoopLagProbe(metricsStore, Collections.singletonList(loop1));
+        probe.setCurrentTime(0);
+        probe.probe();
+
+        probe.setCurrentTime(1000 * MILLIS);
+        probe.report();
+        assertThat(metricsStore.flush().get(0).value()).isEqualTo(1000);
+
+        probe.setCurrentTime(2000 * MILLIS);
+        probe.report();
+        assertThat(metricsStore.flush().get(0).value()).isEqualTo(2000);
+    }
+
+    @Test
+    void skipsEventLoopsThatRejectTheProbe() {
+        Executor rejecting = task -> {
+            throw new RejectedExecutionException("shutting down");
+        };
+        probe = new TestableEventLoopLagProbe(metricsStore, Collections.singletonList(rejecting));
+        probe.setCurrentTime(0);
+        probe.probe();
+
+        probe.setCurrentTime(1000 * MILLIS);
+        probe.report();
+
+        assertThat(metricsStore.flush()).isEmpty();
+    }
+
+    @Test
+    void reportsUnderTheGivenIdentifier() {
+        probe = new TestableEventLoopLagProbe(metricsStore, Collections.singletonList(loop1), "vt_lag");
+        probe.setCurrentTime(0);
+        probe.probe();
+        probe.setCurrentTime(5 * MILLIS);
+        loop1.runPending();
+
+        probe.report();
+
+        assertThat(metricsStore.flush()).extracting(Metric::identifier).containsExactly("vt_lag_max", "vt_lag_p99");
+    }
+
+    @Test
+    void measuresAndTimestampsWithTheGivenClock() {
+        ManualClock clock = new ManualClock(1_700_000_000_000L);
+        metricsStore = new MetricsStore(clock);
+        EventLoopLagProbe clockedProbe = new EventLoopLagProbe(metricsStore, Collections.singletonList(loop1), "el", clock);
+        clockedProbe.probe();
+        clock.advanceMillis(7);
+        loop1.runPending();
+
+        clockedProbe.report();
+
+        List<Metric> metrics = metricsStore.flush();
+        assertThat(metrics).extracting(Metric::value).containsExactly(7L, 7L);
+        assertThat(metrics).extracting(metric -> metric.time().toEpochMilli())
+            .containsOnly(1_700_000_000_007L);
+    }
+
+    /**
+     * An event loop that runs its tasks when told to.
+     */
+    private static class ManualEventLoop implements Executor {
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        int pending() {
+            return tasks.size();
+        }
+
+        void runPending() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+
+    /**
+     * A testable version of EventLoopLagProbe that allows controlling time.
+     */
+    private static class TestableEventLoopLagProbe extends EventLoopLagProbe {
+        private long currentTime = 0;
+
+        TestableEventLoopLagProbe(MetricsStore metricsStore, List<? extends Executor> eventLoops) {
+            super(metricsStore, eventLoops);
+        }
+
+        TestableEventLoopLagProbe(MetricsStore metricsStore, List<? extends Executor> eventLoops, String identifier) {
+            super(metricsStore, eventLoops, identifier);
+        }
+
+        void setCurrentTime(long time) {
+            this.currentTime = time;
+        }
+
+        @Override
+        protected long getCurrentTime() {
+            return currentTime;
+        }
+    }
+}
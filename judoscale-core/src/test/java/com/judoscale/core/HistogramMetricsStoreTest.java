@@ -0,0 +1,138 @@
+package com.judoscale.core;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HistogramMetricsStoreTest {
+
+    private HistogramMetricsStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new HistogramMetricsStore();
+    }
+
+    @Test
+    void aggregatesQueueTimeAndAppTimeInsteadOfKeepingSamples() {
+        store.push("qt", 100, Instant.now());
+        store.push("qt", 200, Instant.now());
+        store.push("at", 50, Instant.now());
+
+        assertThat(store.getMetrics()).isEmpty();
+
+        Report report = store.flushReport();
+
+        assertThat(report.metrics()).isEmpty();
+        assertThat(report.histograms()).hasSize(2);
+
+        HistogramSnapshot qt = snapshotFor(report, "qt", null);
+        assertThat(qt.count()).isEqualTo(2);
+        assertThat(qt.sum()).isEqualTo(300);
+        assertThat(qt.min()).isEqualTo(100);
+        assertThat(qt.max()).isEqualTo(200);
+    }
+
+    @Test
+    void keepsOtherIdentifiersAsIndividualSamples() {
+        store.push("up", 75, Instant.now());
+
+        Report report = store.flushReport();
+
+        assertThat(report.metrics()).hasSize(1);
+        assertThat(report.metrics().get(0).identifier()).isEqualTo("up");
+        assertThat(report.histograms()).isEmpty();
+    }
+
+    @Test
+    void keepsSeparateHistogramsPerQueueName() {
+        store.push("at", 5, Instant.now(), "default");
+        store.push("at", 7, Instant.now(), "mailers");
+        store.push("at", 9, Instant.now());
+
+        Report report = store.flushReport();
+
+        assertThat(report.histograms()).hasSize(3);
+        assertThat(snapshotFor(report, "at", "default").max()).isEqualTo(5);
+        assertThat(snapshotFor(report, "at", "mailers").max()).isEqualTo(7);
+        assertThat(snapshotFor(report, "at", null).max()).isEqualTo(9);
+    }
+
+    @Test
+    void snapshotsAreStampedWithTheIntervalStart() {
+        Instant intervalStart = store.getFlushedAt();
+        store.push("qt", 100, Instant.now());
+
+        Report report = store.flushReport();
+
+        assertThat(report.histograms().get(0).time()).isEqualTo(intervalStart);
+    }
+
+    @Test
+    void flushReportResetsHistogramsAndOmitsEmptyOnes() {
+        store.push("qt", 100, Instant.now());
+        store.flushReport();
+
+        Report report = store.flushReport();
+
+        assertThat(report.isEmpty()).isTrue();
+    }
+
+    @Test
+    void memoryDoesNotGrowWithSampleCount() {
+        for (int i = 0; i < 100_000; i++) {
+            store.push("at", i % 5000, Instant.now());
+        }
+
+        Report report = store.flushReport();
+
+        HistogramSnapshot at = snapshotFor(report, "at", null);
+        assertThat(at.count()).isEqualTo(100_000);
+        assertThat(at.bucketSize()).isLessThanOrEqualTo(LogLinearHistogram.bucketCount(LogLinearHistogram.DEFAULT_PRECISION));
+    }
+
+    @Test
+    void clearDiscardsAggregatedValues() {
+        store.push("qt", 100, Instant.now());
+        store.push("up", 50, Instant.now());
+
+        store.clear();
+
+        assertThat(store.flushReport().isEmpty()).isTrue();
+    }
+
+    @Test
+    void isThreadSafe() throws InterruptedException {
+        int threadCount = 10;
+        int metricsPerThread = 1000;
+        Thread[] threads = new Thread[threadCount];
+
+        for (int i = 0; i < threadCount; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < metricsPerThread; j++) {
+                    store.push("qt", j, Instant.now());
+                }
+            });
+        }
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(snapshotFor(store.flushReport(), "qt", null).count()).isEqualTo(threadCount * metricsPerThread);
+    }
+
+    private static HistogramSnapshot snapshotFor(Report report, String identifier, String queueName) {
+        return report.histograms().stream()
+            .filter(h -> h.identifier().equals(identifier))
+            .filter(h -> queueName == null ? h.queueName() == null : queueName.equals(h.queueName()))
+            .findFirst()
+            .orElseThrow(() -> new AssertionError("No histogram for " + identifier + "/" + queueName));
+    }
+}
@@ -0,0 +1,88 @@
+package com.judoscale.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HistogramSnapshotTest {
+
+    private static final Instant TIME = Instant.parse("2024-01-15T10:30:00Z");
+
+    @Test
+    void valueAtPercentileReturnsBucketUpperBoundClampedToMax() {
+        HistogramSnapshot snapshot = snapshotOf("at", TIME, 1, 1000);
+
+        assertThat(snapshot.valueAtPercentile(0)).isEqualTo(1);
+        assertThat(snapshot.valueAtPercentile(50)).isBetween(500L, 500L + 500 / 16);
+        assertThat(snapshot.valueAtPercentile(99)).isBetween(990L, 1000L);
+        assertThat(snapshot.valueAtPercentile(100)).isEqualTo(1000);
+    }
+
+    @Test
+    void mergeCombinesBucketsAndTotals() {
+        HistogramSnapshot first = snapshotOf("qt", TIME.plusSeconds(10), 1, 100);
+        HistogramSnapshot second = snapshotOf("qt", TIME, 50, 500);
+
+        HistogramSnapshot merged = first.merge(second);
+
+        assertThat(merged.count()).isEqualTo(first.count() + second.count());
+        assertThat(merged.sum()).isEqualTo(first.sum() + second.sum());
+        assertThat(merged.min()).isEqualTo(1);
+        assertThat(merged.max()).isEqualTo(500);
+        assertThat(merged.time()).isEqualTo(TIME);
+
+        long bucketTotal = 0;
+        for (int i = 0; i < merged.bucketSize(); i++) {
+            bucketTotal += merged.bucketCount(i);
+            if (i > 0) {
+                assertThat(merged.bucketIndex(i)).isGreaterThan(merged.bucketIndex(i - 1));
+            }
+        }
+        assertThat(bucketTotal).isEqualTo(merged.count());
+    }
+
+    @Test
+    void mergeIsEquivalentToRecordingIntoOneHistogram() {
+        LogLinearHistogram combined = new LogLinearHistogram();
+        for (long value = 1; value <= 500; value++) {
+            combined.record(value);
+        }
+        for (long value = 50; value <= 500; value++) {
+            combined.record(value);
+        }
+
+        HistogramSnapshot merged = snapshotOf("qt", TIME, 1, 500).merge(snapshotOf("qt", TIME, 50, 500));
+
+        assertThat(merged).isEqualTo(combined.snapshotAndReset("qt", null, TIME));
+    }
+
+    @Test
+    void mergeRejectsDifferentMetrics() {
+        HistogramSnapshot qt = snapshotOf("qt", TIME, 1, 10);
+        HistogramSnapshot at = snapshotOf("at", TIME, 1, 10);
+
+        assertThatThrownBy(() -> qt.merge(at)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void mergeRejectsDifferentPrecision() {
+        LogLinearHistogram precise = new LogLinearHistogram(6);
+        precise.record(10);
+
+        HistogramSnapshot snapshot = snapshotOf("qt", TIME, 1, 10);
+
+        assertThatThrownBy(() -> snapshot.merge(precise.snapshotAndReset("qt", null, TIME)))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static HistogramSnapshot snapshotOf(String identifier, Instant time, long from, long to) {
+        LogLinearHistogram histogram = new LogLinearHistogram();
+        for (long value = from; value <= to; value++) {
+            histogram.record(value);
+        }
+        return histogram.snapshotAndReset(identifier, null, time);
+    }
+}
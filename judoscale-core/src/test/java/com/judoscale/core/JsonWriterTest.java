@@ -0,0 +1,114 @@
+package com.judoscale.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JsonWriterTest {
+
+    @Test
+    void writesNestedObjectsAndArraysWithCommas() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonWriter writer = new JsonWriter(out);
+
+        writer.beginObject();
+        writer.field("a", 1);
+        writer.name("b");
+        writer.beginArray();
+        writer.beginArray();
+        writer.value(2);
+        writer.value("x");
+        writer.endArray();
+        writer.beginArray();
+        writer.endArray();
+        writer.endArray();
+        writer.name("c");
+        writer.beginObject();
+        writer.endObject();
+        writer.field("d", null);
+        writer.endObject();
+        writer.flush();
+
+        assertThat(out.toString("UTF-8")).isEqualTo("{\"a\":1,\"b\":[[2,\"x\"],[]],\"c\":{},\"d\":null}");
+    }
+
+    @Test
+    void writesLongExtremes() throws IOException {
+        assertThat(write(Long.MIN_VALUE)).isEqualTo("-9223372036854775808");
+        assertThat(write(Long.MAX_VALUE)).isEqualTo("9223372036854775807");
+        assertThat(write(0)).isEqualTo("0");
+        assertThat(write(-42)).isEqualTo("-42");
+    }
+
+    @Test
+    void escapesQuotesBackslashesAndControlCharacters() throws IOException {
+        assertThat(write("a\"b\\c")).isEqualTo("\"a\\\"b\\\\c\"");
+        assertThat(write("\b\t\f\n\r")).isEqualTo("\"\\b\\t\\f\\n\\r\"");
+        assertThat(write("\u0000\u001f")).isEqualTo("\"\\u0000\\u001F\"");
+        assertThat(write("/\u007f")).isEqualTo("\"/\u007f\"");
+    }
+
+    @Test
+    void writesNonAsciiAsUtf8() throws IOException {
+        assertThat(write("é€😀")).isEqualTo("\"é€😀\"");
+    }
+
+    @Test
+    void replacesUnpairedSurrogates() throws IOException {
+        assertThat(write("a\uD800b")).isEqualTo("\"a?b\"");
+        assertThat(write("\uDC00")).isEqualTo("\"?\"");
+        assertThat(write("z\uD83D")).isEqualTo("\"z?\"");
+    }
+
+    @Test
+    void writesStringsLargerThanTheBuffer() throws IOException {
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 10_000; i++) {
+            value.append("€😀\n");
+        }
+
+        StringBuilder expected = new StringBuilder("\"");
+        for (int i = 0; i < 10_000; i++) {
+            expected.append("€😀\\n");
+        }
+        expected.append('"');
+
+        assertThat(write(value.toString())).isEqualTo(expected.toString());
+    }
+
+    @Test
+    void buffersUntilFlushed() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonWriter writer = new JsonWriter(out);
+
+        writer.value("abc");
+
+        assertThat(out.size()).isZero();
+        assertThat(writer.buffered()).isEqualTo(5);
+
+        writer.flush();
+
+        assertThat(out.toByteArray()).isEqualTo("\"abc\"".getBytes(StandardCharsets.UTF_8));
+        assertThat(writer.buffered()).isZero();
+    }
+
+    private static String write(String value) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonWriter writer = new JsonWriter(out);
+        writer.value(value);
+        writer.flush();
+        return out.toString("UTF-8");
+    }
+
+    private static String write(long value) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonWriter writer = new JsonWriter(out);
+        writer.value(value);
+        writer.flush();
+        return out.toString("UTF-8");
+    }
+}
@@ -0,0 +1,128 @@
+package com.judoscale.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LogLinearHistogramTest {
+
+    private static final Instant TIME = Instant.parse("2024-01-15T10:30:00Z");
+
+    @Test
+    void bucketsAreContiguousAndCoverEveryValue() {
+        int precision = LogLinearHistogram.DEFAULT_PRECISION;
+        long previousUpper = -1;
+
+        for (int i = 0; i < LogLinearHistogram.bucketCount(precision); i++) {
+            long lower = LogLinearHistogram.bucketLowerBound(i, precision);
+            long upper = LogLinearHistogram.bucketUpperBound(i, precision);
+
+            assertThat(lower).isEqualTo(previousUpper + 1);
+            assertThat(LogLinearHistogram.bucketIndex(lower, precision)).isEqualTo(i);
+            assertThat(LogLinearHistogram.bucketIndex(upper, precision)).isEqualTo(i);
+            previousUpper = upper;
+        }
+    }
+
+    @Test
+    void smallValuesAreCountedExactly() {
+        for (long value = 0; value < 32; value++) {
+            int index = LogLinearHistogram.bucketIndex(value, 4);
+            assertThat(LogLinearHistogram.bucketLowerBound(index, 4)).isEqualTo(value);
+            assertThat(LogLinearHistogram.bucketUpperBound(index, 4)).isEqualTo(value);
+        }
+    }
+
+    @Test
+    void relativeErrorIsBoundedByPrecision() {
+        for (long value = 32; value < 1_000_000; value = value * 3 / 2) {
+            int index = LogLinearHistogram.bucketIndex(value, 4);
+            long width = LogLinearHistogram.bucketUpperBound(index, 4) - LogLinearHistogram.bucketLowerBound(index, 4) + 1;
+
+            assertThat((double) width / value).isLessThanOrEqualTo(1.0 / 16);
+        }
+    }
+
+    @Test
+    void hugeValuesAreClampedIntoTheLastBucket() {
+        int lastBucket = LogLinearHistogram.bucketCount(4) - 1;
+
+        assertThat(LogLinearHistogram.bucketIndex(Long.MAX_VALUE, 4)).isEqualTo(lastBucket);
+    }
+
+    @Test
+    void snapshotTracksCountSumMinAndMax() {
+        LogLinearHistogram histogram = new LogLinearHistogram();
+        histogram.record(5);
+        histogram.record(100);
+        histogram.record(2500);
+
+        HistogramSnapshot snapshot = histogram.snapshotAndReset("qt", null, TIME);
+
+        assertThat(snapshot.identifier()).isEqualTo("qt");
+        assertThat(snapshot.queueName()).isNull();
+        assertThat(snapshot.time()).isEqualTo(TIME);
+        assertThat(snapshot.count()).isEqualTo(3);
+        assertThat(snapshot.sum()).isEqualTo(2605);
+        assertThat(snapshot.min()).isEqualTo(5);
+        assertThat(snapshot.max()).isEqualTo(2500);
+        assertThat(snapshot.bucketSize()).isEqualTo(3);
+    }
+
+    @Test
+    void recordsNegativeValuesAsZero() {
+        LogLinearHistogram histogram = new LogLinearHistogram();
+        histogram.record(-10);
+
+        HistogramSnapshot snapshot = histogram.snapshotAndReset("qt", null, TIME);
+
+        assertThat(snapshot.min()).isEqualTo(0);
+        assertThat(snapshot.bucketIndex(0)).isEqualTo(0);
+    }
+
+    @Test
+    void snapshotResetsTheHistogram() {
+        LogLinearHistogram histogram = new LogLinearHistogram();
+        histogram.record(42);
+
+        assertThat(histogram.snapshotAndReset("qt", null, TIME)).isNotNull();
+        assertThat(histogram.snapshotAndReset("qt", null, TIME)).isNull();
+    }
+
+    @Test
+    void rejectsInvalidPrecision() {
+        assertThatThrownBy(() -> new LogLinearHistogram(0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new LogLinearHistogram(11)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void isThreadSafe() throws InterruptedException {
+        LogLinearHistogram histogram = new LogLinearHistogram();
+        int threadCount = 10;
+        int valuesPerThread = 1000;
+        Thread[] threads = new Thread[threadCount];
+
+        for (int i = 0; i < threadCount; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < valuesPerThread; j++) {
+                    histogram.record(j);
+                }
+            });
+        }
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        HistogramSnapshot snapshot = histogram.snapshotAndReset("at", null, TIME);
+        assertThat(snapshot.count()).isEqualTo(threadCount * valuesPerThread);
+        assertThat(snapshot.sum()).isEqualTo(threadCount * (long) valuesPerThread * (valuesPerThread - 1) / 2);
+        assertThat(snapshot.max()).isEqualTo(valuesPerThread - 1);
+    }
+}
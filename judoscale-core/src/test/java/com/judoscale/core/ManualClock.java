@@ -0,0 +1,31 @@
+package com.judoscale.core;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link Clock} that only moves when a test advances it.
+ */
+class ManualClock implements Clock {
+
+    private long currentTimeMillis;
+    private long nanoTime;
+
+    ManualClock(long currentTimeMillis) {
+        this.currentTimeMillis = currentTimeMillis;
+    }
+
+    void advanceMillis(long millis) {
+        currentTimeMillis += millis;
+        nanoTime += TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return currentTimeMillis;
+    }
+
+    @Override
+    public long nanoTime() {
+        return nanoTime;
+    }
+}
@@ -50,6 +50,38 @@ class MetricsStoreTest {
         assertThat(store.getMetrics()).hasSize(1);
     }
 
+    @Test
+    void acceptsMetricsWhileTheFlushedTimeIsCleared() {
+        store.setFlushedAt(null);
+
+        store.push("qt", 100, Instant.now());
+
+        assertThat(store.getFlushedAt()).isNull();
+        assertThat(store.getMetrics()).hasSize(1);
+
+        store.flush();
+        assertThat(store.getFlushedAt()).isNotNull();
+    }
+
+    @Test
+    void pushReadsStalenessFromTheClock() {
+        ManualClock clock = new ManualClock(1_000_000);
+        MetricsStore timed = new MetricsStore(clock);
+
+        clock.advanceMillis(120_000);
+        timed.push("qt", 100, clock.currentTimeMillis());
+        clock.advanceMillis(1);
+        timed.push("qt", 200, clock.currentTimeMillis());
+
+        assertThat(timed.getMetrics()).extracting(Metric::value).containsExactly(100L);
+
+        timed.flush();
+        timed.push("qt", 300, clock.currentTimeMillis());
+
+        assertThat(timed.getFlushedAt()).isEqualTo(Instant.ofEpochMilli(1_120_001));
+        assertThat(timed.getMetrics()).extracting(Metric::time).containsExactly(Instant.ofEpochMilli(1_120_001));
+    }
+
     @Test
     void flushReturnsAllMetricsAndClearsTheStore() {
         store.push("qt", 1, Instant.now());
@@ -106,4 +138,92 @@ class MetricsStoreTest {
 
         assertThat(store.getMetrics()).hasSize(threadCount * metricsPerThread);
     }
+
+    @Test
+    void flushReportWrapsFlushedMetrics() {
+        store.push("qt", 1, Instant.now());
+
+        Report report = store.flushReport();
+
+        assertThat(report.metrics()).hasSize(1);
+        assertThat(report.histograms()).isEmpty();
+        assertThat(store.getMetrics()).isEmpty();
+    }
+
+    @Test
+    void recordRouteIsIgnoredWithoutARouteTracker() {
+        store.recordRoute("GET /foo", 10, 20);
+
+        assertThat(store.isTrackingRoutes()).isFalse();
+        assertThat(store.flushRoutes()).isEmpty();
+    }
+
+    @Test
+    void recordRouteFeedsTheRouteTracker() {
+        store.setRouteTracker(new RouteTracker(10));
+
+        store.recordRoute("GET /foo", 10, 20);
+        store.recordRoute("GET /foo", -1, 40);
+
+        assertThat(store.flushRoutes()).containsExactly(new RouteSummary("GET /foo", 2, 60, 40, 1, 10, 10));
+        assertThat(store.flushRoutes()).isEmpty();
+    }
+
+    @Test
+    void recordRouteStopsTrackingAfterTwoMinutes() {
+        store.setRouteTracker(new RouteTracker(10));
+        store.setFlushedAt(Instant.now().minusSeconds(121));
+
+        store.recordRoute("GET /foo", 10, 20);
+
+        assertThat(store.flushRoutes()).isEmpty();
+    }
+
+    @Test
+    void forConfigAddsARouteTrackerWhenEnabled() {
+        ConfigBase config = new ConfigBase();
+        assertThat(MetricsStore.forConfig(config).isTrackingRoutes()).isFalse();
+
+        config.setRouteBreakdownEnabled(true);
+        assertThat(MetricsStore.forConfig(config).isTrackingRoutes()).isTrue();
+
+        config.setMetricsStore("histogram");
+        assertThat(MetricsStore.forConfig(config).isTrackingRoutes()).isTrue();
+    }
+
+    @Test
+    void forConfigCreatesTheConfiguredStore() {
+        ConfigBase config = new ConfigBase();
+
+        assertThat(MetricsStore.forConfig(config)).isExactlyInstanceOf(MetricsStore.class);
+
+        config.setMetricsStore("histogram");
+        assertThat(MetricsStore.forConfig(config)).isExactlyInstanceOf(HistogramMetricsStore.class);
+
+        config.setMetricsStore("striped");
+        assertThat(MetricsStore.forConfig(config)).isExactlyInstanceOf(StripedMetricsStore.class);
+
+        config.setMetricsStore("ring");
+        config.setMetricsBufferBytes(28 * 1000);
+        assertThat(MetricsStore.forConfig(config)).isExactlyInstanceOf(RingBufferMetricsStore.class);
+
+        config.setMetricsStore("reservoir");
+        assertThat(MetricsStore.forConfig(config)).isExactlyInstanceOf(ReservoirMetricsStore.class);
+
+        config.setMetricsStore("bogus");
+        assertThat(MetricsStore.forConfig(config)).isExactlyInstanceOf(MetricsStore.class);
+    }
+
+    @Test
+    void forConfigPassesTheClockToEveryStore() {
+        ConfigBase config = new ConfigBase();
+        config.setMetricsBufferBytes(28 * 1000);
+
+        try (CoarseClock clock = new CoarseClock(60_000)) {
+            for (String type : new String[] {"queue", "histogram", "striped", "ring", "reservoir"}) {
+                config.setMetricsStore(type);
+                assertThat(MetricsStore.forConfig(config, clock).getClock()).isSameAs(clock);
+            }
+        }
+    }
 }
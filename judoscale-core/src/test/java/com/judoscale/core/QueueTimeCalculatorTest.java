@@ -19,6 +19,15 @@ class QueueTimeCalculatorTest {
         assertThat(queueTime).isEqualTo(100);
     }
 
+    @Test
+    void calculateQueueTimeFromEpochMillis() {
+        String header = "t=1705314600000";
+
+        long queueTime = QueueTimeCalculator.calculateQueueTime(header, 1705314600250L);
+
+        assertThat(queueTime).isEqualTo(250);
+    }
+
     @Test
     void calculateQueueTimeFromMicroseconds() {
         Instant now = Instant.parse("2024-01-15T10:30:00.100Z");
@@ -90,4 +99,76 @@ class QueueTimeCalculatorTest {
 
         assertThat(queueTime).isEqualTo(-1);
     }
+
+    @Test
+    void calculateQueueTimeFromSecondsWithMillisecondFraction() {
+        Instant now = Instant.parse("2024-01-15T10:30:00.100Z");
+        String header = "t=1705314600.025";
+
+        long queueTime = QueueTimeCalculator.calculateQueueTime(header, now);
+
+        assertThat(queueTime).isEqualTo(75);
+    }
+
+    @Test
+    void calculateQueueTimeFromSecondsWithLongFraction() {
+        // More fractional digits than a double holds exactly
+        Instant now = Instant.parse("2024-01-15T10:30:00.100Z");
+        String header = "1705314600.0250000000000000000001";
+
+        long queueTime = QueueTimeCalculator.calculateQueueTime(header, now);
+
+        assertThat(queueTime).isEqualTo(75);
+    }
+
+    @Test
+    void calculateQueueTimeMatchesDoubleParsingForFractionalValues() {
+        Instant now = Instant.ofEpochMilli(Long.MAX_VALUE);
+        String[] headers = {"1705314600.1234567", "1705314600123.456", "1705314600123456.789",
+            "1705314600000000000.5", ".5", "1705314600."};
+
+        for (String header : headers) {
+            long expected = now.toEpochMilli() - parseWithDouble(header);
+
+            assertThat(QueueTimeCalculator.calculateQueueTime(header, now)).as(header).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void calculateQueueTimeIgnoresNonNumericCharactersAnywhere() {
+        Instant now = Instant.parse("2024-01-15T10:30:00.100Z");
+
+        assertThat(QueueTimeCalculator.calculateQueueTime(" 1705314600000 ", now)).isEqualTo(100);
+        assertThat(QueueTimeCalculator.calculateQueueTime("t=1705314600.000s", now)).isEqualTo(100);
+    }
+
+    @Test
+    void calculateQueueTimeReturnsNegativeOneForMultipleDots() {
+        Instant now = Instant.now();
+
+        assertThat(QueueTimeCalculator.calculateQueueTime("1705314600.000.1", now)).isEqualTo(-1);
+        assertThat(QueueTimeCalculator.calculateQueueTime("t=.", now)).isEqualTo(-1);
+    }
+
+    @Test
+    void calculateQueueTimeReturnsNegativeOneForIntegerOverflow() {
+        Instant now = Instant.now();
+
+        long queueTime = QueueTimeCalculator.calculateQueueTime("9223372036854775808", now);
+
+        assertThat(queueTime).isEqualTo(-1);
+    }
+
+    private static long parseWithDouble(String header) {
+        double value = Double.parseDouble(header);
+        if (value > 946684800000000000.0) {
+            return (long) (value / 1_000_000);
+        } else if (value > 946684800000000.0) {
+            return (long) (value / 1_000);
+        } else if (value > 946684800000.0) {
+            return (long) value;
+        } else {
+            return (long) (value * 1000);
+        }
+    }
 }
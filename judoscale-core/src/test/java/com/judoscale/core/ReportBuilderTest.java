@@ -2,10 +2,16 @@ package com.judoscale.core;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -103,10 +109,144 @@ class ReportBuilderTest {
         assertThat(json).contains("\"adapters\":{}");
     }
 
+    @Test
+    void buildReportJsonOmitsHistogramsWhenThereAreNone() {
+        String json = ReportBuilder.buildReportJson(new Report(Collections.emptyList()), Collections.singletonList(TEST_ADAPTER), "web.1");
+
+        assertThat(json).doesNotContain("histograms");
+        assertThat(json).doesNotContain("dropped");
+        assertThat(json).doesNotContain("sampling");
+        assertThat(json).doesNotContain("routes");
+    }
+
+    @Test
+    void buildReportJsonIncludesHistogramSnapshots() {
+        Instant time = Instant.parse("2024-01-15T10:30:00Z");
+        LogLinearHistogram qt = new LogLinearHistogram();
+        qt.record(10);
+        qt.record(20);
+        LogLinearHistogram at = new LogLinearHistogram();
+        at.record(3);
+
+        Report report = new Report(
+            Collections.singletonList(new Metric("up", 50, time)),
+            Arrays.asList(qt.snapshotAndReset("qt", null, time), at.snapshotAndReset("at", "default", time))
+        );
+
+        String json = ReportBuilder.buildReportJson(report, Collections.singletonList(TEST_ADAPTER), "web.1");
+
+        assertThat(json).contains("\"metrics\":[[1705314600,50,\"up\"]]");
+        assertThat(json).contains("{\"identifier\":\"qt\",\"time\":1705314600,\"precision\":4,"
+            + "\"count\":2,\"sum\":30,\"min\":10,\"max\":20,\"buckets\":[[10,1],[20,1]]}");
+        assertThat(json).contains("{\"identifier\":\"at\",\"queue_name\":\"default\",\"time\":1705314600,"
+            + "\"precision\":4,\"count\":1,\"sum\":3,\"min\":3,\"max\":3,\"buckets\":[[3,1]]}");
+    }
+
+    @Test
+    void buildReportJsonIncludesDroppedCounts() {
+        Map<String, Long> dropped = new LinkedHashMap<>();
+        dropped.put("qt", 12L);
+        dropped.put("at", 10L);
+        Report report = new Report(Collections.emptyList(), Collections.emptyList(), dropped);
+
+        String json = ReportBuilder.buildReportJson(report, Collections.singletonList(TEST_ADAPTER), "web.1");
+
+        assertThat(json).contains("\"dropped\":{\"qt\":12,\"at\":10}");
+    }
+
+    @Test
+    void buildReportJsonIncludesSamplingTotals() {
+        Report report = new Report(Collections.emptyList(), Collections.emptyList(), Collections.emptyMap(),
+            Arrays.asList(new SamplingSummary("qt", null, 5000, 1000), new SamplingSummary("qt", "default", 30, 10)));
+
+        String json = ReportBuilder.buildReportJson(report, Collections.singletonList(TEST_ADAPTER), "web.1");
+
+        assertThat(json).contains("\"sampling\":[{\"identifier\":\"qt\",\"total\":5000,\"retained\":1000},"
+            + "{\"identifier\":\"qt\",\"queue_name\":\"default\",\"total\":30,\"retained\":10}]");
+    }
+
+    @Test
+    void buildReportJsonIncludesRouteSummaries() {
+        Report report = new Report(Collections.emptyList()).withRoutes(Arrays.asList(
+            new RouteSummary("GET /users/{id}", 3, 120, 80, 2, 30, 20),
+            new RouteSummary(RouteSummary.OTHER, 1, 5, 5, 0, 0, 0)));
+
+        String json = ReportBuilder.buildReportJson(report, Collections.singletonList(TEST_ADAPTER), "web.1");
+
+        assertThat(json).contains("\"routes\":[{\"route\":\"GET /users/{id}\",\"count\":3,\"at_sum\":120,"
+            + "\"at_max\":80,\"qt_count\":2,\"qt_sum\":30,\"qt_max\":20},"
+            + "{\"route\":\"other\",\"count\":1,\"at_sum\":5,\"at_max\":5}]");
+    }
+
+    @Test
+    void writeReportJsonStreamsTheSamePayload() throws IOException {
+        Report report = largeReport();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        ReportBuilder.writeReportJson(report, Collections.singletonList(TEST_ADAPTER), "web.1", out);
+
+        assertThat(out.toString("UTF-8"))
+            .isEqualTo(ReportBuilder.buildReportJson(report, Collections.singletonList(TEST_ADAPTER), "web.1"));
+    }
+
+    @Test
+    void openReportJsonServesThePayloadInChunks() throws IOException {
+        Report report = largeReport();
+        String expected = ReportBuilder.buildReportJson(report, Collections.singletonList(TEST_ADAPTER), "web.1");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int reads = 0;
+        try (InputStream in = ReportBuilder.openReportJson(report, Collections.singletonList(TEST_ADAPTER), "web.1")) {
+            byte[] buffer = new byte[1000];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+                reads++;
+            }
+        }
+
+        assertThat(out.toString("UTF-8")).isEqualTo(expected);
+        assertThat(reads).isGreaterThan(1);
+    }
+
+    @Test
+    void openReportJsonReturnsAFreshStreamEachTime() throws IOException {
+        Report report = new Report(Collections.singletonList(new Metric("qt", 100, Instant.parse("2024-01-15T10:30:00Z"))));
+
+        String first = readFully(ReportBuilder.openReportJson(report, Collections.singletonList(TEST_ADAPTER), "web.1"));
+        String second = readFully(ReportBuilder.openReportJson(report, Collections.singletonList(TEST_ADAPTER), "web.1"));
+
+        assertThat(first).isEqualTo(second);
+        assertThat(first).isEqualTo(ReportBuilder.buildReportJson(report, Collections.singletonList(TEST_ADAPTER), "web.1"));
+    }
+
     @Test
     void loadAdapterVersionReturnsUnknownWhenFileNotFound() {
         String version = ReportBuilder.loadAdapterVersion(ReportBuilderTest.class);
 
         assertThat(version).isEqualTo("unknown");
     }
+
+    private static Report largeReport() {
+        Instant time = Instant.parse("2024-01-15T10:30:00Z");
+        List<Metric> metrics = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            metrics.add(new Metric(i % 2 == 0 ? "qt" : "at", i, time, i % 3 == 0 ? "queue-\"" + i : null));
+        }
+        LogLinearHistogram histogram = new LogLinearHistogram();
+        histogram.record(42);
+        return new Report(metrics, Collections.singletonList(histogram.snapshotAndReset("qt", null, time)),
+            Collections.singletonMap("qt", 7L),
+            Collections.singletonList(new SamplingSummary("at", null, 20_000, 5_000)));
+    }
+
+    private static String readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1) {
+            out.write(b);
+        }
+        in.close();
+        return out.toString("UTF-8");
+    }
 }
@@ -0,0 +1,164 @@
+package com.judoscale.core;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReportDispatcherTest {
+
+    private ManualApiClient apiClient;
+
+    @BeforeEach
+    void setUp() {
+        apiClient = new ManualApiClient();
+    }
+
+    @Test
+    void sendsUpToMaxConcurrentReportsAtOnce() {
+        ReportDispatcher dispatcher = new ReportDispatcher(apiClient, 2, 5);
+
+        dispatcher.submit(report(1));
+        dispatcher.submit(report(2));
+        dispatcher.submit(report(3));
+
+        assertThat(apiClient.sent).containsExactly(1L, 2L);
+        assertThat(dispatcher.getOutstandingReports()).isEqualTo(3);
+    }
+
+    @Test
+    void sendsQueuedReportsInOrderAsSendsComplete() {
+        ReportDispatcher dispatcher = new ReportDispatcher(apiClient, 1, 5);
+        dispatcher.submit(report(1));
+        dispatcher.submit(report(2));
+        dispatcher.submit(report(3));
+
+        apiClient.complete(0, true);
+        apiClient.complete(1, false);
+
+        assertThat(apiClient.sent).containsExactly(1L, 2L, 3L);
+        assertThat(dispatcher.getOutstandingReports()).isEqualTo(1);
+
+        apiClient.complete(2, true);
+
+        assertThat(dispatcher.getOutstandingReports()).isEqualTo(0);
+    }
+
+    @Test
+    void dropsTheOldestQueuedReportWhenTheQueueIsFull() {
+        ReportDispatcher dispatcher = new ReportDispatcher(apiClient, 1, 2);
+        dispatcher.submit(report(1));
+        dispatcher.submit(report(2));
+        dispatcher.submit(report(3));
+        dispatcher.submit(report(4));
+
+        assertThat(dispatcher.getOutstandingReports()).isEqualTo(3);
+
+        apiClient.complete(0, true);
+        apiClient.complete(1, true);
+
+        assertThat(apiClient.sent).containsExactly(1L, 3L, 4L);
+    }
+
+    @Test
+    void dropsNewReportsWhenQueueingIsDisabled() {
+        ReportDispatcher dispatcher = new ReportDispatcher(apiClient, 1, 0);
+        dispatcher.submit(report(1));
+        dispatcher.submit(report(2));
+
+        apiClient.complete(0, true);
+        dispatcher.submit(report(3));
+
+        assertThat(apiClient.sent).containsExactly(1L, 3L);
+    }
+
+    @Test
+    void freesTheSlotWhenASendFails() {
+        ReportDispatcher dispatcher = new ReportDispatcher(apiClient, 1, 5);
+        dispatcher.submit(report(1));
+        dispatcher.submit(report(2));
+
+        apiClient.results.get(0).completeExceptionally(new IllegalStateException("boom"));
+
+        assertThat(apiClient.sent).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void freesTheSlotWhenTheClientThrows() {
+        AsyncApiClient throwing = new AsyncApiClient() {
+            @Override
+            public boolean reportMetrics(List<Metric> metrics) {
+                return false;
+            }
+
+            @Override
+            public CompletableFuture<Boolean> reportMetricsAsync(Report report) {
+                throw new IllegalStateException("boom");
+            }
+        };
+        ReportDispatcher dispatcher = new ReportDispatcher(throwing, 1, 5);
+
+        dispatcher.submit(report(1));
+        dispatcher.submit(report(2));
+
+        assertThat(dispatcher.getOutstandingReports()).isEqualTo(0);
+    }
+
+    @Test
+    void sendsQueuedReportsWhenTheClientCompletesImmediately() {
+        AsyncApiClient immediate = new AsyncApiClient() {
+            @Override
+            public boolean reportMetrics(List<Metric> metrics) {
+                return true;
+            }
+
+            @Override
+            public CompletableFuture<Boolean> reportMetricsAsync(Report report) {
+                return CompletableFuture.completedFuture(true);
+            }
+        };
+        ReportDispatcher dispatcher = new ReportDispatcher(immediate, 1, 5);
+
+        dispatcher.submit(report(1));
+        dispatcher.submit(report(2));
+
+        assertThat(dispatcher.getOutstandingReports()).isEqualTo(0);
+    }
+
+    /**
+     * Returns a report with a single metric whose value identifies it.
+     */
+    private static Report report(long id) {
+        return new Report(Collections.singletonList(new Metric("qt", id)));
+    }
+
+    /**
+     * An API client whose sends complete when told to.
+     */
+    private static class ManualApiClient implements AsyncApiClient {
+        final List<Long> sent = new ArrayList<>();
+        final List<CompletableFuture<Boolean>> results = new ArrayList<>();
+
+        @Override
+        public boolean reportMetrics(List<Metric> metrics) {
+            throw new AssertionError("Dispatcher should send asynchronously");
+        }
+
+        @Override
+        public CompletableFuture<Boolean> reportMetricsAsync(Report report) {
+            sent.add(report.metrics().get(0).value());
+            CompletableFuture<Boolean> result = new CompletableFuture<>();
+            results.add(result);
+            return result;
+        }
+
+        void complete(int index, boolean accepted) {
+            results.get(index).complete(accepted);
+        }
+    }
+}
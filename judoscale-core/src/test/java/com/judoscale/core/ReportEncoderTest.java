@@ -0,0 +1,148 @@
+package com.judoscale.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReportEncoderTest {
+
+    private static final Collection<Adapter> ADAPTERS = Collections.singletonList(new Adapter("judoscale-test", "1.0.0", "3.2.1"));
+
+    @Test
+    void sendsSmallReportsUncompressed() throws IOException {
+        ReportEncoder encoder = new ReportEncoder(1024, 6);
+        Report report = reportWith(3);
+
+        try (EncodedReport encoded = encoder.encode(report, ADAPTERS, "web.1")) {
+            assertThat(encoded.isCompressed()).isFalse();
+            assertThat(encoded.contentEncoding()).isNull();
+            assertThat(encoded.contentType()).isEqualTo("application/json");
+            assertThat(new String(encoded.bytes(), 0, encoded.length(), "UTF-8"))
+                .isEqualTo(ReportBuilder.buildReportJson(report, ADAPTERS, "web.1"));
+            assertThat(encoded.rawLength()).isEqualTo(encoded.length());
+        }
+    }
+
+    @Test
+    void gzipsReportsOfAtLeastTheMinimumSize() throws IOException {
+        ReportEncoder encoder = new ReportEncoder(1024, 6);
+        Report report = reportWith(1000);
+        String json = ReportBuilder.buildReportJson(report, ADAPTERS, "web.1");
+
+        try (EncodedReport encoded = encoder.encode(report, ADAPTERS, "web.1")) {
+            assertThat(encoded.isCompressed()).isTrue();
+            assertThat(encoded.contentEncoding()).isEqualTo("gzip");
+            assertThat(encoded.rawLength()).isEqualTo(json.length());
+            assertThat(encoded.length()).isLessThan(json.length() / 5);
+            assertThat(gunzip(encoded.openStream())).isEqualTo(json);
+        }
+    }
+
+    @Test
+    void reusesBuffersAcrossReports() throws IOException {
+        ReportEncoder encoder = new ReportEncoder(1024, 6);
+
+        byte[] first;
+        try (EncodedReport encoded = encoder.encode(reportWith(1000), ADAPTERS, "web.1")) {
+            first = encoded.bytes();
+        }
+        try (EncodedReport encoded = encoder.encode(reportWith(1000), ADAPTERS, "web.1")) {
+            assertThat(encoded.bytes()).isSameAs(first);
+            assertThat(gunzip(encoded.openStream())).isEqualTo(ReportBuilder.buildReportJson(reportWith(1000), ADAPTERS, "web.1"));
+        }
+    }
+
+    @Test
+    void tracksCompressionRatioAndTime() throws IOException {
+        ReportEncoder encoder = new ReportEncoder(1024, 6);
+
+        long sent = 0;
+        try (EncodedReport small = encoder.encode(reportWith(1), ADAPTERS, "web.1");
+             EncodedReport large = encoder.encode(reportWith(5000), ADAPTERS, "web.1")) {
+            sent = small.length() + large.length();
+        }
+
+        CompressionStats stats = encoder.getStats();
+        assertThat(stats.reports()).isEqualTo(2);
+        assertThat(stats.compressedReports()).isEqualTo(1);
+        assertThat(stats.encodedBytes()).isEqualTo(sent);
+        assertThat(stats.rawBytes()).isGreaterThan(stats.encodedBytes());
+        assertThat(stats.compressionRatio()).isGreaterThan(5.0);
+        assertThat(stats.compressionNanos()).isPositive();
+    }
+
+    @Test
+    void encodesTheBinaryFormatWithItsContentType() throws IOException {
+        ReportEncoder encoder = ReportEncoder.forConfig(new ConfigBase());
+        Report report = reportWith(1000);
+
+        try (EncodedReport encoded = encoder.encodeBinary(report, ADAPTERS, "web.1")) {
+            assertThat(encoded.contentType()).isEqualTo(BinaryReportBuilder.CONTENT_TYPE);
+            assertThat(encoded.isCompressed()).isFalse();
+            byte[] body = new byte[encoded.length()];
+            System.arraycopy(encoded.bytes(), 0, body, 0, encoded.length());
+            assertThat(BinaryReportDecoder.decode(body).report.metrics()).isEqualTo(report.metrics());
+        }
+    }
+
+    @Test
+    void neverCompressesWhenCompressionIsDisabled() throws IOException {
+        ReportEncoder encoder = ReportEncoder.forConfig(new ConfigBase());
+
+        try (EncodedReport encoded = encoder.encode(reportWith(5000), ADAPTERS, "web.1")) {
+            assertThat(encoded.isCompressed()).isFalse();
+            assertThat(encoded.contentType()).isEqualTo("application/json");
+        }
+    }
+
+    @Test
+    void rejectsInvalidLevel() {
+        assertThatThrownBy(() -> new ReportEncoder(1024, 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new ReportEncoder(1024, 10)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void forConfigUsesConfiguredThresholdAndLevel() {
+        ConfigBase config = new ConfigBase();
+        config.setCompressReports(true);
+        config.setCompressionMinBytes(2048);
+        config.setCompressionLevel(1);
+
+        ReportEncoder encoder = ReportEncoder.forConfig(config);
+
+        assertThat(encoder.getMinBytes()).isEqualTo(2048);
+        assertThat(encoder.getLevel()).isEqualTo(1);
+    }
+
+    private static Report reportWith(int metricCount) {
+        Instant time = Instant.parse("2024-01-15T10:30:00Z");
+        List<Metric> metrics = new ArrayList<>();
+        for (int i = 0; i < metricCount; i++) {
+            metrics.add(new Metric("at", i % 50, time));
+        }
+        return new Report(metrics);
+    }
+
+    private static String gunzip(InputStream compressed) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(compressed)) {
+            byte[] buffer = new byte[4096];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+        }
+        return out.toString("UTF-8");
+    }
+}
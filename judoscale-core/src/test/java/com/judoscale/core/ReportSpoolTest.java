@@ -0,0 +1,224 @@
+package com.judoscale.core;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReportSpoolTest {
+
+    private static final long MAX_BYTES = 1024 * 1024;
+    private static final long MAX_AGE_MILLIS = 60_000;
+
+    @TempDir
+    Path directory;
+
+    private TestableReportSpool spool;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        spool = new TestableReportSpool(directory, MAX_BYTES, MAX_AGE_MILLIS);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        spool.close();
+    }
+
+    @Test
+    void replaysSpooledReportsOldestFirst() {
+        append("first");
+        spool.append("application/octet-stream", "gzip", bytes("second"), 0, 6);
+
+        List<SpooledReport> replayed = new ArrayList<>();
+        int sent = spool.replay(report -> replayed.add(report), 10);
+
+        assertThat(sent).isEqualTo(2);
+        assertThat(replayed).extracting(report -> text(report)).containsExactly("first", "second");
+        assertThat(replayed.get(0).contentType()).isEqualTo("application/json");
+        assertThat(replayed.get(0).contentEncoding()).isNull();
+        assertThat(replayed.get(1).contentEncoding()).isEqualTo("gzip");
+        assertThat(spool.getSpooledReportCount()).isZero();
+    }
+
+    @Test
+    void stopsReplayingAtTheFirstRefusedReport() {
+        append("first");
+        append("second");
+
+        int sent = spool.replay(report -> false, 10);
+
+        assertThat(sent).isZero();
+        assertThat(spool.getSpooledReportCount()).isEqualTo(2);
+        assertThat(replayAll()).containsExactly("first", "second");
+    }
+
+    @Test
+    void replaysAtMostMaxReports() {
+        append("first");
+        append("second");
+        append("third");
+
+        assertThat(spool.replay(report -> true, 2)).isEqualTo(2);
+        assertThat(replayAll()).containsExactly("third");
+    }
+
+    @Test
+    void recoversUnsentReportsAfterReopening() throws IOException {
+        append("first");
+        append("second");
+        spool.replay(report -> true, 1);
+        spool.close();
+
+        spool = new TestableReportSpool(directory, MAX_BYTES, MAX_AGE_MILLIS);
+
+        assertThat(spool.getSpooledReportCount()).isEqualTo(1);
+        assertThat(replayAll()).containsExactly("second");
+    }
+
+    @Test
+    void ignoresATornRecordAfterReopening() throws IOException {
+        append("intact");
+        append("torn");
+        spool.close();
+        corrupt("torn");
+
+        spool = new TestableReportSpool(directory, MAX_BYTES, MAX_AGE_MILLIS);
+        append("after");
+
+        assertThat(replayAll()).containsExactly("intact", "after");
+    }
+
+    @Test
+    void discardsReportsOlderThanMaxAge() {
+        append("old");
+        spool.setCurrentTime(MAX_AGE_MILLIS + 1);
+        append("new");
+
+        assertThat(replayAll()).containsExactly("new");
+        assertThat(spool.getSpooledReportCount()).isZero();
+    }
+
+    @Test
+    void dropsTheOldestReportsWhenFull() throws IOException {
+        spool.close();
+        spool = new TestableReportSpool(directory, 4 * ReportSpool.MIN_SEGMENT_BYTES, MAX_AGE_MILLIS);
+        byte[] body = new byte[10_000];
+        for (int i = 0; i < 40; i++) {
+            body[0] = (byte) i;
+            assertThat(spool.append("application/json", null, body, 0, body.length)).isTrue();
+        }
+
+        assertThat(segmentFiles()).hasSizeLessThanOrEqualTo(4);
+        List<Integer> replayed = new ArrayList<>();
+        spool.replay(report -> replayed.add((int) report.bytes()[0]), 100);
+        assertThat(replayed).hasSizeLessThan(40).endsWith(39);
+        assertThat(replayed.get(0)).isGreaterThan(0);
+    }
+
+    @Test
+    void deletesSegmentsOnceSent() throws IOException {
+        spool.close();
+        spool = new TestableReportSpool(directory, 4 * ReportSpool.MIN_SEGMENT_BYTES, MAX_AGE_MILLIS);
+        byte[] body = new byte[10_000];
+        for (int i = 0; i < 12; i++) {
+            spool.append("application/json", null, body, 0, body.length);
+        }
+        assertThat(segmentFiles()).hasSize(2);
+
+        spool.replay(report -> true, 100);
+
+        assertThat(segmentFiles()).hasSize(1);
+    }
+
+    @Test
+    void rejectsReportsLargerThanASegment() {
+        byte[] body = new byte[ReportSpool.MAX_SEGMENT_BYTES];
+
+        assertThat(spool.append("application/json", null, body, 0, body.length)).isFalse();
+        assertThat(spool.getSpooledReportCount()).isZero();
+    }
+
+    @Test
+    void refusesADirectoryThatIsInUse() {
+        assertThatThrownBy(() -> new ReportSpool(directory, MAX_BYTES, MAX_AGE_MILLIS))
+            .isInstanceOf(IOException.class)
+            .hasMessageContaining("in use");
+    }
+
+    @Test
+    void forConfigReturnsNullWhenDisabled() {
+        assertThat(ReportSpool.forConfig(new ConfigBase())).isNull();
+    }
+
+    private void append(String text) {
+        byte[] body = bytes(text);
+        assertThat(spool.append("application/json", null, body, 0, body.length)).isTrue();
+    }
+
+    private List<String> replayAll() {
+        List<String> replayed = new ArrayList<>();
+        spool.replay(report -> replayed.add(text(report)), 100);
+        return replayed;
+    }
+
+    /**
+     * Overwrites the first byte of the given text in the segment file, as a crash mid-write might.
+     */
+    private void corrupt(String text) throws IOException {
+        Path segment = segmentFiles().get(0);
+        byte[] content = Files.readAllBytes(segment);
+        int index = new String(content, StandardCharsets.ISO_8859_1).lastIndexOf(text);
+        content[index] ^= 0x7F;
+        Files.write(segment, content);
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "spool-*.seg")) {
+            for (Path path : stream) {
+                files.add(path);
+            }
+        }
+        return files;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(SpooledReport report) {
+        return new String(report.bytes(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A testable version of ReportSpool that allows controlling time.
+     */
+    private static class TestableReportSpool extends ReportSpool {
+        private long currentTime = 0;
+
+        TestableReportSpool(Path directory, long maxBytes, long maxAgeMillis) throws IOException {
+            super(directory, maxBytes, maxAgeMillis);
+        }
+
+        void setCurrentTime(long time) {
+            this.currentTime = time;
+        }
+
+        @Override
+        protected long getCurrentTime() {
+            return currentTime;
+        }
+    }
+}
@@ -4,6 +4,10 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.time.Instant;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -51,6 +55,23 @@ class ReporterTest {
         assertThat(reporter.isStarted()).isTrue();
     }
 
+    @Test
+    void startPrewarmsTheConnectionOnceWhenEnabled() {
+        config.setPrewarmConnection(true);
+
+        reporter.start();
+        reporter.start();
+
+        assertThat(apiClient.prewarmCount).isEqualTo(1);
+    }
+
+    @Test
+    void startDoesNotPrewarmByDefault() {
+        reporter.start();
+
+        assertThat(apiClient.prewarmCount).isZero();
+    }
+
     @Test
     void reportMetricsDoesNothingWhenNotStarted() {
         metricsStore.push("qt", 100, Instant.now());
@@ -102,6 +123,25 @@ class ReporterTest {
         assertThat(metricsStore.getMetrics()).isEmpty();
     }
 
+    @Test
+    void replaysSpooledReportsOnItsOwnThreadWithoutBlockingTheCaller() throws InterruptedException {
+        BlockingReplayApiClient replayClient = new BlockingReplayApiClient();
+        reporter = new Reporter(metricsStore, replayClient, config, utilizationTracker);
+        reporter.start();
+
+        reporter.replaySpooledReports();
+        assertThat(replayClient.replayThreads.poll(5, TimeUnit.SECONDS)).isEqualTo("judoscale-replay");
+
+        // Skipped while the first replay is still sending
+        reporter.replaySpooledReports();
+        replayClient.release.countDown();
+        assertThat(replayClient.replayThreads.poll(200, TimeUnit.MILLISECONDS)).isNull();
+
+        reporter.replaySpooledReports();
+        assertThat(replayClient.replayThreads.poll(5, TimeUnit.SECONDS)).isEqualTo("judoscale-replay");
+        reporter.stop();
+    }
+
     @Test
     void stopMarksReporterAsStopped() {
         reporter.start();
@@ -130,7 +170,59 @@ class ReporterTest {
 
         reporter.reportMetrics();
 
-        assertThat(apiClient.reportedMetricsCount).isEqualTo(1);
+        // Utilization and average concurrency
+        assertThat(apiClient.reportedMetricsCount).isEqualTo(2);
+    }
+
+    @Test
+    void reportMetricsSkipsUtilizationWhenItIsNotReported() {
+        reporter.setUtilizationReported(false);
+        reporter.start();
+        utilizationTracker.start();
+        metricsStore.push("vt_sat", 40, Instant.now());
+
+        reporter.reportMetrics();
+
+        assertThat(apiClient.reportedIdentifiers).containsExactly("vt_sat");
+    }
+
+    @Test
+    void reportMetricsCollectsCapacityUtilizationWhenCapacityIsKnown() {
+        utilizationTracker = new UtilizationTracker(8);
+        reporter = new Reporter(metricsStore, apiClient, config, utilizationTracker);
+        reporter.start();
+        utilizationTracker.start();
+
+        reporter.reportMetrics();
+
+        assertThat(apiClient.reportedMetricsCount).isEqualTo(3);
+        assertThat(apiClient.reportedIdentifiers).containsExactlyInAnyOrder("up", "ac", "cu");
+    }
+
+    @Test
+    void reportMetricsCollectsSubIntervalUtilizationWhenSampled() {
+        reporter.start();
+        utilizationTracker.start();
+
+        reporter.sampleUtilization();
+        reporter.reportMetrics();
+
+        assertThat(apiClient.reportedIdentifiers).containsExactlyInAnyOrder("up", "ac", "up_max", "up_p90");
+    }
+
+    @Test
+    void reportMetricsTimestampsUtilizationWithTheStoreClock() {
+        ManualClock clock = new ManualClock(1_700_000_000_000L);
+        metricsStore = new MetricsStore(clock);
+        utilizationTracker = new UtilizationTracker(0, 4, clock);
+        reporter = new Reporter(metricsStore, apiClient, config, utilizationTracker);
+        reporter.start();
+        utilizationTracker.start();
+        clock.advanceMillis(10_000);
+
+        reporter.reportMetrics();
+
+        assertThat(apiClient.reportedTimes).containsOnly(Instant.ofEpochMilli(1_700_000_010_000L));
     }
 
     @Test
@@ -143,15 +235,226 @@ class ReporterTest {
         assertThat(apiClient.reportedMetricsCount).isEqualTo(0);
     }
 
+    @Test
+    void reportMetricsSendsHistogramsFromAggregatingStore() {
+        metricsStore = new HistogramMetricsStore();
+        reporter = new Reporter(metricsStore, apiClient, config, utilizationTracker);
+        reporter.start();
+        metricsStore.push("qt", 100, Instant.now());
+        metricsStore.push("qt", 200, Instant.now());
+
+        reporter.reportMetrics();
+
+        assertThat(apiClient.reportedMetricsCount).isEqualTo(0);
+        assertThat(apiClient.reportedHistogramsCount).isEqualTo(1);
+    }
+
+    @Test
+    void reportMetricsSendsRouteSummaries() {
+        metricsStore.setRouteTracker(new RouteTracker(10));
+        reporter.start();
+        metricsStore.recordRoute("GET /foo", 10, 20);
+
+        reporter.reportMetrics();
+
+        assertThat(apiClient.reportedRoutes).extracting(RouteSummary::route).containsExactly("GET /foo");
+
+        reporter.reportMetrics();
+
+        assertThat(apiClient.reportedRoutes).hasSize(1);
+    }
+
+    @Test
+    void reportMetricsDoesNotWaitForAnAsyncClient() {
+        AsyncTestApiClient asyncClient = new AsyncTestApiClient();
+        reporter = new Reporter(metricsStore, asyncClient, config, utilizationTracker);
+        reporter.start();
+
+        metricsStore.push("qt", 100, Instant.now());
+        reporter.reportMetrics();
+        metricsStore.push("qt", 200, Instant.now());
+        reporter.reportMetrics();
+
+        assertThat(asyncClient.pending).hasSize(1);
+        assertThat(reporter.getOutstandingReports()).isEqualTo(2);
+
+        asyncClient.pending.remove(0).complete(true);
+
+        assertThat(asyncClient.pending).hasSize(1);
+        assertThat(reporter.getOutstandingReports()).isEqualTo(1);
+    }
+
+    @Test
+    void reportMetricsPushesCompressionOfTheReportsSentSinceTheLastReport() {
+        reporter.start();
+        apiClient.compressionStats = new CompressionStats(2, 2, 40_000, 4_000, 3_000_000);
+        metricsStore.push("qt", 100, Instant.now());
+
+        reporter.reportMetrics();
+
+        assertThat(apiClient.reportedIdentifiers).containsExactlyInAnyOrder("qt", "cmp_ratio", "cmp_us");
+        assertThat(metricValue("cmp_ratio")).isEqualTo(1000);
+        assertThat(metricValue("cmp_us")).isEqualTo(3000);
+
+        apiClient.compressionStats = new CompressionStats(3, 3, 50_000, 9_000, 4_000_000);
+        apiClient.reportedIdentifiers.clear();
+        apiClient.reported.clear();
+
+        reporter.reportMetrics();
+
+        assertThat(metricValue("cmp_ratio")).isEqualTo(200);
+        assertThat(metricValue("cmp_us")).isEqualTo(1000);
+    }
+
+    @Test
+    void reportMetricsPushesNoCompressionWithoutNewSends() {
+        reporter.start();
+        apiClient.compressionStats = new CompressionStats(2, 2, 40_000, 4_000, 3_000_000);
+        reporter.reportMetrics();
+        apiClient.reportedIdentifiers.clear();
+
+        reporter.reportMetrics();
+
+        assertThat(apiClient.reportedIdentifiers).isEmpty();
+    }
+
+    @Test
+    void reportMetricsPushesConnectionsOpenedAndReusedSinceTheLastReport() {
+        reporter.start();
+        apiClient.connectionStats = new ConnectionStats(3, 1);
+        metricsStore.push("qt", 100, Instant.now());
+
+        reporter.reportMetrics();
+
+        assertThat(apiClient.reportedIdentifiers).containsExactlyInAnyOrder("qt", "conn_new", "conn_reused");
+        assertThat(metricValue("conn_new")).isEqualTo(1);
+        assertThat(metricValue("conn_reused")).isEqualTo(2);
+
+        apiClient.connectionStats = new ConnectionStats(7, 3);
+        apiClient.reportedIdentifiers.clear();
+        apiClient.reported.clear();
+
+        reporter.reportMetrics();
+
+        assertThat(metricValue("conn_new")).isEqualTo(2);
+        assertThat(metricValue("conn_reused")).isEqualTo(2);
+    }
+
+    @Test
+    void reportMetricsPushesNoConnectionsWithoutNewRequests() {
+        reporter.start();
+        apiClient.connectionStats = new ConnectionStats(3, 1);
+        reporter.reportMetrics();
+        apiClient.reportedIdentifiers.clear();
+
+        reporter.reportMetrics();
+
+        assertThat(apiClient.reportedIdentifiers).isEmpty();
+    }
+
+    @Test
+    void exposesTheApiClientCircuitBreakerState() {
+        assertThat(reporter.getCircuitBreakerState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        apiClient.circuitBreakerState = CircuitBreaker.State.OPEN;
+
+        assertThat(reporter.getCircuitBreakerState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    private long metricValue(String identifier) {
+        for (Metric metric : apiClient.reported) {
+            if (metric.identifier().equals(identifier)) {
+                return metric.value();
+            }
+        }
+        throw new AssertionError("No " + identifier + " metric reported");
+    }
+
     // Test implementations
 
+    /**
+     * An API client whose first replay blocks until released, as a replay of slow sends would.
+     */
+    private static class BlockingReplayApiClient extends TestApiClient {
+        final BlockingQueue<String> replayThreads = new LinkedBlockingQueue<>();
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public int replaySpooledReports(int maxReports) {
+            replayThreads.add(Thread.currentThread().getName());
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 0;
+        }
+    }
+
     private static class TestApiClient implements ApiClient {
         int reportedMetricsCount = 0;
+        int reportedHistogramsCount = 0;
+        java.util.List<String> reportedIdentifiers = new java.util.ArrayList<>();
+        java.util.List<Instant> reportedTimes = new java.util.ArrayList<>();
+        CircuitBreaker.State circuitBreakerState = CircuitBreaker.State.CLOSED;
+        int prewarmCount = 0;
+        java.util.List<RouteSummary> reportedRoutes = new java.util.ArrayList<>();
+        java.util.List<Metric> reported = new java.util.ArrayList<>();
+        CompressionStats compressionStats;
+        ConnectionStats connectionStats;
 
         @Override
         public boolean reportMetrics(java.util.List<Metric> metrics) {
             reportedMetricsCount = metrics.size();
+            for (Metric metric : metrics) {
+                reportedIdentifiers.add(metric.identifier());
+                reported.add(metric);
+                reportedTimes.add(metric.time());
+            }
             return true;
         }
+
+        @Override
+        public boolean reportMetrics(Report report) {
+            reportedHistogramsCount = report.histograms().size();
+            reportedRoutes.addAll(report.routes());
+            return reportMetrics(report.metrics());
+        }
+
+        @Override
+        public void prewarm() {
+            prewarmCount++;
+        }
+
+        @Override
+        public CircuitBreaker.State getCircuitBreakerState() {
+            return circuitBreakerState;
+        }
+
+        @Override
+        public CompressionStats getCompressionStats() {
+            return compressionStats;
+        }
+
+        @Override
+        public ConnectionStats getConnectionStats() {
+            return connectionStats;
+        }
+    }
+
+    private static class AsyncTestApiClient implements AsyncApiClient {
+        java.util.List<java.util.concurrent.CompletableFuture<Boolean>> pending = new java.util.ArrayList<>();
+
+        @Override
+        public boolean reportMetrics(java.util.List<Metric> metrics) {
+            throw new AssertionError("Reporter should send asynchronously");
+        }
+
+        @Override
+        public java.util.concurrent.CompletableFuture<Boolean> reportMetricsAsync(Report report) {
+            java.util.concurrent.CompletableFuture<Boolean> result = new java.util.concurrent.CompletableFuture<>();
+            pending.add(result);
+            return result;
+        }
     }
 }
@@ -0,0 +1,174 @@
+package com.judoscale.core;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReservoirMetricsStoreTest {
+
+    private ReservoirMetricsStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new ReservoirMetricsStore(100);
+    }
+
+    @Test
+    void rejectsEmptyReservoir() {
+        assertThatThrownBy(() -> new ReservoirMetricsStore(0))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void readsTheTimeFromACoarseClock() {
+        try (CoarseClock clock = new CoarseClock(60_000)) {
+            ReservoirMetricsStore timed = new ReservoirMetricsStore(10, clock);
+
+            timed.push("qt", 100, Instant.ofEpochMilli(clock.currentTimeMillis()));
+            timed.flush();
+
+            assertThat(timed.getClock()).isSameAs(clock);
+            assertThat(timed.getFlushedAt()).isEqualTo(Instant.ofEpochMilli(clock.currentTimeMillis()));
+        }
+    }
+
+    @Test
+    void reportsEverySampleWhenTheReservoirIsNotFull() {
+        Instant time = Instant.parse("2024-01-15T10:30:00Z");
+        for (int i = 0; i < 100; i++) {
+            store.push("qt", i, time);
+        }
+        store.push("qd", 5, time, "default");
+
+        Report report = store.flushReport();
+
+        assertThat(report.metrics()).hasSize(101);
+        assertThat(report.metrics()).contains(new Metric("qt", 99, time), new Metric("qd", 5, time, "default"));
+        assertThat(report.sampling()).isEmpty();
+        assertThat(report.hasOnlyMetrics()).isTrue();
+    }
+
+    @Test
+    void capsSamplesPerIdentifierAndReportsTotals() {
+        Instant time = Instant.now();
+        for (int i = 0; i < 10_000; i++) {
+            store.push("qt", i, time);
+            store.push("at", i, time);
+        }
+        store.push("up", 1, time);
+
+        Report report = store.flushReport();
+
+        assertThat(report.metrics()).filteredOn(m -> m.identifier().equals("qt")).hasSize(100);
+        assertThat(report.metrics()).filteredOn(m -> m.identifier().equals("at")).hasSize(100);
+        assertThat(report.metrics()).filteredOn(m -> m.identifier().equals("up")).hasSize(1);
+        assertThat(report.sampling()).containsExactlyInAnyOrder(
+            new SamplingSummary("qt", null, 10_000, 100),
+            new SamplingSummary("at", null, 10_000, 100)
+        );
+    }
+
+    @Test
+    void keepsSeparateReservoirsPerQueue() {
+        for (int i = 0; i < 500; i++) {
+            store.push("qt", i, Instant.now(), "default");
+        }
+        for (int i = 0; i < 50; i++) {
+            store.push("qt", i, Instant.now(), "mailers");
+        }
+
+        Report report = store.flushReport();
+
+        assertThat(report.metrics()).filteredOn(m -> "default".equals(m.queueName())).hasSize(100);
+        assertThat(report.metrics()).filteredOn(m -> "mailers".equals(m.queueName())).hasSize(50);
+        assertThat(report.sampling()).containsExactly(new SamplingSummary("qt", "default", 500, 100));
+        assertThat(report.sampling().get(0).weight()).isEqualTo(5.0);
+    }
+
+    @Test
+    void retainsDistinctSamplesFromAcrossTheInterval() {
+        for (int i = 0; i < 100_000; i++) {
+            store.push("qt", i, Instant.now());
+        }
+
+        List<Metric> metrics = store.flush();
+
+        Set<Long> values = new HashSet<>();
+        long late = 0;
+        for (Metric metric : metrics) {
+            values.add(metric.value());
+            if (metric.value() >= 50_000) {
+                late++;
+            }
+        }
+        assertThat(values).hasSize(100);
+        // A uniform sample keeps about half its samples from the second half of the interval
+        assertThat(late).isBetween(25L, 75L);
+    }
+
+    @Test
+    void flushResetsReservoirs() {
+        for (int i = 0; i < 1000; i++) {
+            store.push("qt", i, Instant.now());
+        }
+        store.flush();
+
+        store.push("qt", 1, Instant.now());
+        Report report = store.flushReport();
+
+        assertThat(report.metrics()).hasSize(1);
+        assertThat(report.sampling()).isEmpty();
+    }
+
+    @Test
+    void keepsCollectingWhenNotFlushedForMoreThanTwoMinutes() {
+        store.setFlushedAt(Instant.now().minusSeconds(180));
+
+        store.push("qt", 100, Instant.now());
+
+        assertThat(store.getMetrics()).hasSize(1);
+    }
+
+    @Test
+    void clearRemovesAllSamples() {
+        store.push("qt", 100, Instant.now());
+
+        store.clear();
+
+        assertThat(store.getMetrics()).isEmpty();
+        assertThat(store.flushReport().isEmpty()).isTrue();
+    }
+
+    @Test
+    void isThreadSafe() throws InterruptedException {
+        int threadCount = 8;
+        int metricsPerThread = 1000;
+        Thread[] threads = new Thread[threadCount];
+
+        for (int i = 0; i < threadCount; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < metricsPerThread; j++) {
+                    store.push("at", j, Instant.now());
+                }
+            });
+        }
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Report report = store.flushReport();
+        assertThat(report.metrics()).hasSize(100);
+        assertThat(report.sampling()).containsExactly(new SamplingSummary("at", null, threadCount * metricsPerThread, 100));
+    }
+}
@@ -0,0 +1,115 @@
+package com.judoscale.core;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RetryPolicyTest {
+
+    @Test
+    void retriesConnectionErrorsAndServerErrors() {
+        assertThat(RetryPolicy.isRetryable(429)).isTrue();
+        assertThat(RetryPolicy.isRetryable(500)).isTrue();
+        assertThat(RetryPolicy.isRetryable(503)).isTrue();
+        assertThat(RetryPolicy.isRetryable(400)).isFalse();
+        assertThat(RetryPolicy.isRetryable(401)).isFalse();
+        assertThat(RetryPolicy.isRetryable(415)).isFalse();
+    }
+
+    @Test
+    void backoffCapDoublesUpToTheMaximum() {
+        TestableRetryPolicy policy = new TestableRetryPolicy(6, 100, 500);
+
+        assertThat(policy.delayMillis(1, -1)).isEqualTo(100);
+        assertThat(policy.delayMillis(2, -1)).isEqualTo(200);
+        assertThat(policy.delayMillis(3, -1)).isEqualTo(400);
+        assertThat(policy.delayMillis(4, -1)).isEqualTo(500);
+        assertThat(policy.delayMillis(5, -1)).isEqualTo(500);
+    }
+
+    @Test
+    void backoffIsJitteredBelowTheCap() {
+        RetryPolicy policy = new RetryPolicy(3, 100, 5000);
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(policy.delayMillis(2, -1)).isBetween(0L, 200L);
+        }
+    }
+
+    @Test
+    void stopsAfterMaxAttempts() {
+        RetryPolicy policy = new RetryPolicy(3, 100, 5000);
+
+        assertThat(policy.delayMillis(2, -1)).isNotNegative();
+        assertThat(policy.delayMillis(3, -1)).isEqualTo(-1);
+    }
+
+    @Test
+    void waitsAtLeastRetryAfter() {
+        TestableRetryPolicy policy = new TestableRetryPolicy(3, 100, 5000);
+
+        assertThat(policy.delayMillis(1, 2000)).isEqualTo(2000);
+    }
+
+    @Test
+    void doesNotRetryWhenRetryAfterExceedsTheMaximumDelay() {
+        RetryPolicy policy = new RetryPolicy(3, 100, 5000);
+
+        assertThat(policy.delayMillis(1, 5001)).isEqualTo(-1);
+    }
+
+    @Test
+    void parsesRetryAfterSeconds() {
+        RetryPolicy policy = new RetryPolicy(3, 100, 5000);
+
+        assertThat(policy.retryAfterMillis("2")).isEqualTo(2000);
+        assertThat(policy.retryAfterMillis(" 0 ")).isEqualTo(0);
+    }
+
+    @Test
+    void parsesRetryAfterHttpDate() {
+        TestableRetryPolicy policy = new TestableRetryPolicy(3, 100, 5000);
+        policy.currentTime = 1445412480000L; // Wed, 21 Oct 2015 07:28:00 GMT
+
+        assertThat(policy.retryAfterMillis("Wed, 21 Oct 2015 07:28:03 GMT")).isEqualTo(3000);
+        assertThat(policy.retryAfterMillis("Wed, 21 Oct 2015 07:27:00 GMT")).isEqualTo(0);
+    }
+
+    @Test
+    void ignoresMissingOrMalformedRetryAfter() {
+        RetryPolicy policy = new RetryPolicy(3, 100, 5000);
+
+        assertThat(policy.retryAfterMillis(null)).isEqualTo(-1);
+        assertThat(policy.retryAfterMillis("")).isEqualTo(-1);
+        assertThat(policy.retryAfterMillis("soon")).isEqualTo(-1);
+    }
+
+    @Test
+    void forConfigUsesConfiguredAttempts() {
+        ConfigBase config = new ConfigBase();
+        config.setRetryMaxAttempts(5);
+
+        assertThat(RetryPolicy.forConfig(config).getMaxAttempts()).isEqualTo(5);
+    }
+
+    /**
+     * A testable version of RetryPolicy that always waits the full backoff cap and allows controlling time.
+     */
+    private static class TestableRetryPolicy extends RetryPolicy {
+        long currentTime = 0;
+
+        TestableRetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
+            super(maxAttempts, baseDelayMillis, maxDelayMillis);
+        }
+
+        @Override
+        protected long random(long bound) {
+            return bound;
+        }
+
+        @Override
+        protected long getCurrentTime() {
+            return currentTime;
+        }
+    }
+}
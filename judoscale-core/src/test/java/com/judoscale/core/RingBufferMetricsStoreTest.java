@@ -0,0 +1,170 @@
+package com.judoscale.core;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RingBufferMetricsStoreTest {
+
+    private static final int RECORD_COST = RingBufferMetricsStore.RECORD_BYTES + RingBufferMetricsStore.MARKER_BYTES;
+
+    private RingBufferMetricsStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new RingBufferMetricsStore(RECORD_COST * 100);
+    }
+
+    @Test
+    void capacityIsDerivedFromTheByteBudget() {
+        assertThat(store.getCapacity()).isEqualTo(100);
+        assertThat(new RingBufferMetricsStore(RECORD_COST * 10 + RECORD_COST - 1).getCapacity()).isEqualTo(10);
+    }
+
+    @Test
+    void rejectsBudgetSmallerThanOneRecord() {
+        assertThatThrownBy(() -> new RingBufferMetricsStore(RECORD_COST - 1))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void readsTheTimeFromACoarseClock() {
+        try (CoarseClock clock = new CoarseClock(60_000)) {
+            RingBufferMetricsStore timed = new RingBufferMetricsStore(RECORD_COST * 10, clock);
+
+            timed.push("qt", 100, clock.currentTimeMillis());
+            timed.flush();
+
+            assertThat(timed.getClock()).isSameAs(clock);
+            assertThat(timed.getFlushedAt()).isEqualTo(Instant.ofEpochMilli(clock.currentTimeMillis()));
+        }
+    }
+
+    @Test
+    void pushStoresPackedRecords() {
+        Instant time = Instant.parse("2024-01-15T10:30:00.250Z");
+
+        store.push("qt", 100, time);
+        store.push("qd", 5, time, "default");
+
+        List<Metric> metrics = store.getMetrics();
+        assertThat(metrics).containsExactly(
+            new Metric("qt", 100, time),
+            new Metric("qd", 5, time, "default")
+        );
+    }
+
+    @Test
+    void flushReturnsAllMetricsInOrderAndClearsTheStore() {
+        for (int i = 0; i < 10; i++) {
+            store.push("at", i, Instant.now());
+        }
+
+        List<Metric> flushed = store.flush();
+
+        assertThat(flushed).extracting(Metric::value).containsExactly(0L, 1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L);
+        assertThat(store.getMetrics()).isEmpty();
+    }
+
+    @Test
+    void wrapsAroundTheRingAcrossFlushes() {
+        RingBufferMetricsStore small = new RingBufferMetricsStore(RECORD_COST * 3);
+
+        for (int round = 0; round < 5; round++) {
+            small.push("qt", round, Instant.now());
+            small.push("at", round, Instant.now());
+
+            assertThat(small.flush()).extracting(Metric::value).containsExactly((long) round, (long) round);
+        }
+    }
+
+    @Test
+    void dropsSamplesWhenFullAndReportsCountsOnce() {
+        RingBufferMetricsStore small = new RingBufferMetricsStore(RECORD_COST * 2);
+
+        small.push("qt", 1, Instant.now());
+        small.push("at", 2, Instant.now());
+        small.push("qt", 3, Instant.now());
+        small.push("at", 4, Instant.now());
+        small.push("at", 5, Instant.now());
+
+        assertThat(small.getDroppedCount()).isEqualTo(3);
+
+        Report report = small.flushReport();
+        assertThat(report.metrics()).hasSize(2);
+        assertThat(report.dropped()).containsEntry("qt", 1L).containsEntry("at", 2L);
+
+        Report next = small.flushReport();
+        assertThat(next.dropped()).isEmpty();
+        assertThat(next.isEmpty()).isTrue();
+    }
+
+    @Test
+    void acceptsSamplesAgainAfterFlushFreesTheRing() {
+        RingBufferMetricsStore small = new RingBufferMetricsStore(RECORD_COST);
+
+        small.push("qt", 1, Instant.now());
+        small.push("qt", 2, Instant.now());
+        small.flush();
+        small.push("qt", 3, Instant.now());
+
+        assertThat(small.getMetrics()).extracting(Metric::value).containsExactly(3L);
+    }
+
+    @Test
+    void clearDiscardsRecordsAndDroppedCounts() {
+        RingBufferMetricsStore small = new RingBufferMetricsStore(RECORD_COST);
+        small.push("qt", 1, Instant.now());
+        small.push("qt", 2, Instant.now());
+
+        small.clear();
+
+        assertThat(small.getMetrics()).isEmpty();
+        assertThat(small.getDroppedCount()).isZero();
+    }
+
+    @Test
+    void accountsForEverySampleUnderConcurrentPushAndFlush() throws InterruptedException {
+        RingBufferMetricsStore sized = new RingBufferMetricsStore(RECORD_COST * 1000);
+        int threadCount = 8;
+        int metricsPerThread = 10_000;
+        Thread[] threads = new Thread[threadCount];
+        long kept = 0;
+        long dropped = 0;
+
+        for (int i = 0; i < threadCount; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < metricsPerThread; j++) {
+                    sized.push("at", j, Instant.now());
+                }
+            });
+        }
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        boolean running = true;
+        while (running) {
+            Report report = sized.flushReport();
+            kept += report.metrics().size();
+            dropped += report.dropped().getOrDefault("at", 0L);
+            running = false;
+            for (Thread thread : threads) {
+                running |= thread.isAlive();
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Report last = sized.flushReport();
+        kept += last.metrics().size();
+        dropped += last.dropped().getOrDefault("at", 0L);
+
+        assertThat(kept + dropped).isEqualTo((long) threadCount * metricsPerThread);
+    }
+}
@@ -0,0 +1,95 @@
+package com.judoscale.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RouteTrackerTest {
+
+    @Test
+    void summarizesEachRouteBusiestFirst() {
+        RouteTracker tracker = new RouteTracker(10);
+
+        tracker.record("GET /a", 10, 100);
+        tracker.record("GET /b", 5, 20);
+        tracker.record("GET /b", -1, 40);
+
+        assertThat(tracker.flush()).containsExactly(
+            new RouteSummary("GET /b", 2, 60, 40, 1, 5, 5),
+            new RouteSummary("GET /a", 1, 100, 100, 1, 10, 10));
+    }
+
+    @Test
+    void combinesRequestsWithoutARouteAsOther() {
+        RouteTracker tracker = new RouteTracker(10);
+
+        tracker.record(null, 3, 7);
+        tracker.record("GET /a", 1, 2);
+
+        assertThat(tracker.flush()).containsExactly(
+            new RouteSummary("GET /a", 1, 2, 2, 1, 1, 1),
+            new RouteSummary(RouteSummary.OTHER, 1, 7, 7, 1, 3, 3));
+    }
+
+    @Test
+    void replacesTheLeastFrequentRouteOnceFullAndCombinesItAsOther() {
+        RouteTracker tracker = new RouteTracker(2);
+
+        tracker.record("GET /a", -1, 10);
+        tracker.record("GET /a", -1, 10);
+        tracker.record("GET /a", -1, 10);
+        tracker.record("GET /b", -1, 20);
+        tracker.record("GET /c", -1, 30);
+
+        List<RouteSummary> summaries = tracker.flush();
+
+        assertThat(summaries).extracting(RouteSummary::route).containsExactly("GET /a", "GET /c", RouteSummary.OTHER);
+        assertThat(summaries.get(1)).isEqualTo(new RouteSummary("GET /c", 1, 30, 30, 0, 0, 0));
+        assertThat(summaries.get(2)).isEqualTo(new RouteSummary(RouteSummary.OTHER, 1, 20, 20, 0, 0, 0));
+    }
+
+    @Test
+    void keepsTheBusiestRouteAmongManyRareOnes() {
+        RouteTracker tracker = new RouteTracker(3);
+
+        for (int i = 0; i < 1000; i++) {
+            tracker.record("GET /hot", -1, 1);
+            tracker.record("GET /rare/" + i, -1, 1);
+        }
+
+        List<RouteSummary> summaries = tracker.flush();
+
+        assertThat(summaries).hasSize(4);
+        assertThat(summaries.get(0).route()).isEqualTo("GET /hot");
+        assertThat(summaries.get(0).count()).isEqualTo(1000);
+        assertThat(summaries.get(3).route()).isEqualTo(RouteSummary.OTHER);
+        long total = 0;
+        for (RouteSummary summary : summaries) {
+            total += summary.count();
+        }
+        assertThat(total).isEqualTo(2000);
+    }
+
+    @Test
+    void flushStartsANewInterval() {
+        RouteTracker tracker = new RouteTracker(10);
+        tracker.record("GET /a", 1, 2);
+        tracker.record(null, 1, 2);
+
+        tracker.flush();
+
+        assertThat(tracker.flush()).isEmpty();
+    }
+
+    @Test
+    void forConfigCreatesATrackerOnlyWhenEnabled() {
+        ConfigBase config = new ConfigBase();
+        assertThat(RouteTracker.forConfig(config)).isNull();
+
+        config.setRouteBreakdownEnabled(true);
+        config.setRouteBreakdownTopK(5);
+        assertThat(RouteTracker.forConfig(config).getCapacity()).isEqualTo(5);
+    }
+}
@@ -0,0 +1,95 @@
+package com.judoscale.core;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SendPolicyTest {
+
+    private CircuitBreaker breaker;
+    private SendPolicy policy;
+
+    @BeforeEach
+    void setUp() {
+        breaker = new CircuitBreaker(1, 30_000);
+        // Three attempts with no backoff, honoring a Retry-After of up to a minute
+        policy = new SendPolicy(new RetryPolicy(3, 0, 60_000) {
+            @Override
+            protected long random(long bound) {
+                return 0;
+            }
+        }, breaker);
+    }
+
+    @Test
+    void successfulResponsesAreSent() {
+        SendPolicy.Step step = policy.afterResponse(1, 204, "", () -> null, false);
+
+        assertThat(step.isSent()).isTrue();
+        assertThat(step.isRetry()).isFalse();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void binaryReportsRejectedWith415AreResentAsJson() {
+        assertThat(policy.afterResponse(1, 415, "", () -> null, true).shouldResendAsJson()).isTrue();
+        assertThat(policy.afterResponse(1, 415, "", () -> null, false)).isSameAs(SendPolicy.Step.FAILED);
+    }
+
+    @Test
+    void clientErrorsFailWithoutRetryingOrTrippingTheBreaker() {
+        SendPolicy.Step step = policy.afterResponse(1, 400, "bad request", () -> null, false);
+
+        assertThat(step).isSameAs(SendPolicy.Step.FAILED);
+        assertThat(step.shouldSpool()).isFalse();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void retryableStatusesAreRetriedUntilTheLastAttempt() {
+        SendPolicy.Step first = policy.afterResponse(1, 503, "", () -> null, false);
+        SendPolicy.Step last = policy.afterResponse(3, 503, "", () -> null, false);
+
+        assertThat(first.isRetry()).isTrue();
+        assertThat(first.getRetryDelayMillis()).isZero();
+        assertThat(last.isRetry()).isFalse();
+        assertThat(last.shouldSpool()).isTrue();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void retriesWaitForRetryAfter() {
+        SendPolicy.Step step = policy.afterResponse(1, 429, "", () -> "5", false);
+
+        assertThat(step.getRetryDelayMillis()).isEqualTo(5_000);
+    }
+
+    @Test
+    void givesUpWhenRetryAfterIsTooLong() {
+        SendPolicy.Step step = policy.afterResponse(1, 429, "", () -> "120", false);
+
+        assertThat(step).isSameAs(SendPolicy.Step.GAVE_UP);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void connectionErrorsAreRetriedThenSpooled() {
+        assertThat(policy.afterConnectionError(1, "http://example.com", "refused").isRetry()).isTrue();
+        assertThat(policy.afterConnectionError(3, "http://example.com", "refused").shouldSpool()).isTrue();
+    }
+
+    @Test
+    void unexpectedErrorsFailWithoutSpooling() {
+        SendPolicy.Step step = policy.afterError(new IllegalStateException("closed"));
+
+        assertThat(step).isSameAs(SendPolicy.Step.FAILED);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void interruptedSendsAreSpooled() {
+        assertThat(policy.afterInterrupt().shouldSpool()).isTrue();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+}
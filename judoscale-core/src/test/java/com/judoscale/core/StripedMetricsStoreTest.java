@@ -0,0 +1,222 @@
+package com.judoscale.core;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StripedMetricsStoreTest {
+
+    private StripedMetricsStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new StripedMetricsStore(4, 16, 1024);
+    }
+
+    @Test
+    void pushKeepsTrackOfMetricsInMemory() {
+        Instant time = Instant.parse("2024-01-15T10:30:00.123Z");
+
+        store.push("qt", 100, time);
+
+        List<Metric> metrics = store.getMetrics();
+        assertThat(metrics).hasSize(1);
+        assertThat(metrics.get(0)).isEqualTo(new Metric("qt", 100, time));
+    }
+
+    @Test
+    void pushAcceptsMetricsWithQueueName() {
+        store.push("qd", 5, Instant.now(), "default");
+        store.push("qd", 6, Instant.now(), "mailers");
+
+        List<Metric> metrics = store.flush();
+        assertThat(metrics).extracting(Metric::queueName).containsExactlyInAnyOrder("default", "mailers");
+    }
+
+    @Test
+    void pushStopsTrackingMetricsAfterTwoMinutesToAvoidUnboundedMemoryGrowth() {
+        Instant now = Instant.now();
+
+        store.push("qt", 100, now);
+        store.setFlushedAt(now.minusSeconds(121));
+        store.push("qt", 200, Instant.now());
+
+        assertThat(store.getMetrics()).hasSize(1);
+    }
+
+    @Test
+    void pushReadsStalenessFromTheClock() {
+        ManualClock clock = new ManualClock(1_705_314_600_000L);
+        StripedMetricsStore timed = new StripedMetricsStore(4, 16, 1024, clock);
+
+        timed.push("qt", 100, clock.currentTimeMillis());
+        clock.advanceMillis(120_001);
+        timed.push("qt", 200, clock.currentTimeMillis());
+
+        assertThat(timed.flush()).containsExactly(new Metric("qt", 100, Instant.ofEpochMilli(1_705_314_600_000L)));
+    }
+
+    @Test
+    void flushReturnsAllMetricsAndClearsTheStore() {
+        store.push("qt", 1, Instant.now());
+        store.push("at", 2, Instant.now());
+        store.push("qt", 3, Instant.now());
+
+        List<Metric> flushed = store.flush();
+
+        assertThat(flushed).extracting(Metric::value).containsExactlyInAnyOrder(1L, 2L, 3L);
+        assertThat(store.getMetrics()).isEmpty();
+        assertThat(store.flush()).isEmpty();
+    }
+
+    @Test
+    void dropsAndCountsMetricsThatDoNotFitThenGrowsTheBuffer() {
+        StripedMetricsStore singleStripe = new StripedMetricsStore(1, 4, 16);
+
+        for (int i = 0; i < 6; i++) {
+            singleStripe.push("at", i, Instant.now());
+        }
+
+        assertThat(singleStripe.getDroppedCount()).isEqualTo(2);
+        Report report = singleStripe.flushReport();
+        assertThat(report.metrics()).hasSize(4);
+        assertThat(report.dropped()).containsEntry("at", 2L);
+        assertThat(singleStripe.getDroppedCount()).isZero();
+
+        // The drained buffer is grown, and becomes active again after the next swap
+        singleStripe.flush();
+        for (int i = 0; i < 6; i++) {
+            singleStripe.push("at", i, Instant.now());
+        }
+
+        assertThat(singleStripe.getDroppedCount()).isZero();
+        assertThat(singleStripe.flush()).hasSize(6);
+    }
+
+    @Test
+    void reportsDroppedCountsPerIdentifierAcrossQueues() {
+        StripedMetricsStore singleStripe = new StripedMetricsStore(1, 1, 1);
+
+        singleStripe.push("qt", 1, Instant.now());
+        singleStripe.push("qt", 2, Instant.now());
+        singleStripe.push("qd", 1, Instant.now(), "default");
+        singleStripe.push("qd", 2, Instant.now(), "mailers");
+
+        Report report = singleStripe.flushReport();
+
+        assertThat(report.metrics()).hasSize(1);
+        assertThat(report.dropped()).containsEntry("qt", 1L).containsEntry("qd", 2L);
+        assertThat(singleStripe.flushReport().dropped()).isEmpty();
+    }
+
+    @Test
+    void shrinksBuffersBackTowardTheirInitialCapacityAfterQuietIntervals() {
+        StripedMetricsStore singleStripe = new StripedMetricsStore(1, 4, 64);
+        for (int i = 0; i < 64; i++) {
+            singleStripe.push("at", i, Instant.now());
+        }
+        singleStripe.flush();
+        singleStripe.flush();
+        for (int i = 0; i < 64; i++) {
+            singleStripe.push("at", i, Instant.now());
+        }
+        singleStripe.flush();
+        assertThat(singleStripe.getCapacity()).isEqualTo(64 + 4);
+
+        for (int i = 0; i < 10; i++) {
+            singleStripe.flush();
+        }
+
+        assertThat(singleStripe.getCapacity()).isEqualTo(8);
+    }
+
+    @Test
+    void sizesBuffersToFitTheMemoryBudget() {
+        assertThat(StripedMetricsStore.capacityFor(64 * 1024, 4)).isEqualTo(64 * 1024 / (4 * 2 * StripedMetricsStore.SAMPLE_BYTES));
+        assertThat(StripedMetricsStore.capacityFor(64 * 1024, 3)).isEqualTo(StripedMetricsStore.capacityFor(64 * 1024, 4));
+        assertThatThrownBy(() -> StripedMetricsStore.capacityFor(10, 1)).isInstanceOf(IllegalArgumentException.class);
+
+        StripedMetricsStore budgeted = new StripedMetricsStore(1024 * 1024, Clock.system());
+        assertThat((long) budgeted.getCapacity() * StripedMetricsStore.SAMPLE_BYTES).isLessThanOrEqualTo(1024 * 1024L);
+    }
+
+    @Test
+    void clearDiscardsAllMetrics() {
+        store.push("qt", 1, Instant.now());
+
+        store.clear();
+
+        assertThat(store.getMetrics()).isEmpty();
+    }
+
+    @Test
+    void rejectsInvalidSizing() {
+        assertThatThrownBy(() -> new StripedMetricsStore(0, 16, 16)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new StripedMetricsStore(4, 32, 16)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void isThreadSafe() throws InterruptedException {
+        StripedMetricsStore sized = new StripedMetricsStore(4, 4096, 4096);
+        int threadCount = 10;
+        int metricsPerThread = 1000;
+        Thread[] threads = new Thread[threadCount];
+
+        for (int i = 0; i < threadCount; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < metricsPerThread; j++) {
+                    sized.push("qt", j, Instant.now());
+                }
+            });
+        }
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(sized.flush()).hasSize(threadCount * metricsPerThread);
+    }
+
+    @Test
+    void doesNotLoseMetricsPushedConcurrentlyWithFlush() throws InterruptedException {
+        StripedMetricsStore sized = new StripedMetricsStore(4, 65_536, 65_536);
+        int threadCount = 8;
+        int metricsPerThread = 20_000;
+        Thread[] threads = new Thread[threadCount];
+        long[] flushed = new long[1];
+
+        for (int i = 0; i < threadCount; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < metricsPerThread; j++) {
+                    sized.push("at", j, Instant.now());
+                }
+            });
+        }
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        boolean running = true;
+        while (running) {
+            flushed[0] += sized.flush().size();
+            running = false;
+            for (Thread thread : threads) {
+                running |= thread.isAlive();
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        flushed[0] += sized.flush().size();
+
+        assertThat(flushed[0]).isEqualTo((long) threadCount * metricsPerThread);
+    }
+}
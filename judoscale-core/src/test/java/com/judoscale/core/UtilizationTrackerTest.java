@@ -32,6 +32,19 @@ class UtilizationTrackerTest {
         assertThat(tracker.isStarted()).isTrue();
     }
 
+    @Test
+    void readsTimeFromTheGivenClock() {
+        ManualClock clock = new ManualClock(0);
+        UtilizationTracker timed = new UtilizationTracker(0, 4, clock);
+        timed.start();
+
+        clock.advanceMillis(1000);
+        timed.incr();
+        clock.advanceMillis(3000);
+
+        assertThat(timed.utilizationPct()).isEqualTo(75);
+    }
+
     @Test
     void incrIncrementsActiveRequestCount() {
         tracker.start();
@@ -228,12 +241,203 @@ class UtilizationTrackerTest {
         assertThat(tracker.getActiveRequestCount()).isEqualTo(0);
     }
 
+    @Test
+    void tracksIdleTimeWhenTheMonotonicClockIsNegativeOrWraps() {
+        // System.nanoTime() may be negative and may overflow between calls
+        tracker.setCurrentTime(Long.MAX_VALUE - 5);
+        tracker.start();
+
+        tracker.setCurrentTime(Long.MAX_VALUE - 2);
+        tracker.incr();
+
+        tracker.setCurrentTime(Long.MIN_VALUE + 3);
+        tracker.decr();
+
+        tracker.setCurrentTime(Long.MIN_VALUE + 4);
+        assertThat(tracker.utilizationPct()).isEqualTo(60); // 4 idle out of 10 total
+
+        tracker.setCurrentTime(Long.MIN_VALUE + 10);
+        tracker.utilizationPct(); // Starts a new cycle
+        tracker.incr();
+        tracker.setCurrentTime(Long.MIN_VALUE + 15);
+        tracker.decr();
+        tracker.setCurrentTime(Long.MIN_VALUE + 20);
+        assertThat(tracker.utilizationPct()).isEqualTo(50); // 5 idle out of 10 total
+    }
+
+    @Test
+    void tracksTimeWeightedAverageConcurrency() {
+        // T=0:   Request 1 starts -> 1 active
+        // T=2:   Request 2 starts -> 2 active
+        // T=4:   Request 1 ends   -> 1 active
+        // T=6:   Request 2 ends   -> idle
+        // T=10:  Report cycle     -> 1*2 + 2*2 + 1*2 = 8 request-seconds over 10 seconds
+        tracker = new TestableUtilizationTracker(4);
+        tracker.setCurrentTime(0);
+        tracker.start();
+        tracker.incr();
+
+        tracker.setCurrentTime(2);
+        tracker.incr();
+
+        tracker.setCurrentTime(4);
+        tracker.decr();
+        assertThat(tracker.snapshot(false).averageConcurrency()).isEqualTo(1.5); // 6 request-seconds over 4 seconds
+
+        tracker.setCurrentTime(6);
+        tracker.decr();
+
+        tracker.setCurrentTime(10);
+        UtilizationSnapshot snapshot = tracker.snapshot();
+
+        assertThat(snapshot.utilizationPct()).isEqualTo(60);
+        assertThat(snapshot.averageConcurrency()).isEqualTo(0.8);
+        assertThat(snapshot.capacity()).isEqualTo(4);
+        assertThat(snapshot.capacityUtilizationPct()).isEqualTo(20);
+    }
+
+    @Test
+    void snapshotResetsAverageConcurrency() {
+        tracker.setCurrentTime(0);
+        tracker.start();
+        tracker.incr();
+        tracker.incr();
+
+        tracker.setCurrentTime(10);
+        assertThat(tracker.snapshot().averageConcurrency()).isEqualTo(2.0);
+
+        tracker.decr();
+        tracker.setCurrentTime(20);
+        assertThat(tracker.snapshot().averageConcurrency()).isEqualTo(1.0);
+    }
+
+    @Test
+    void capacityUtilizationIsUnknownWithoutCapacity() {
+        tracker.setCurrentTime(0);
+        tracker.start();
+        tracker.incr();
+
+        tracker.setCurrentTime(10);
+        UtilizationSnapshot snapshot = tracker.snapshot();
+
+        assertThat(snapshot.capacity()).isEqualTo(0);
+        assertThat(snapshot.capacityUtilizationPct()).isEqualTo(-1);
+    }
+
+    @Test
+    void capacityUtilizationIsCappedAt100Percent() {
+        tracker = new TestableUtilizationTracker(2);
+        tracker.setCurrentTime(0);
+        tracker.start();
+        tracker.incr();
+        tracker.incr();
+        tracker.incr();
+
+        tracker.setCurrentTime(10);
+
+        assertThat(tracker.snapshot().capacityUtilizationPct()).isEqualTo(100);
+    }
+
+    @Test
+    void reportsPeakAndP90SubIntervalUtilization() {
+        tracker.setCurrentTime(0);
+        tracker.start();
+
+        // Ten sub-intervals of 100ns, busy for 10ns, 20ns, ... 100ns
+        for (int i = 0; i < 10; i++) {
+            long subIntervalStart = i * 100L;
+            tracker.setCurrentTime(subIntervalStart);
+            tracker.incr();
+            tracker.setCurrentTime(subIntervalStart + (i + 1) * 10L);
+            tracker.decr();
+            tracker.setCurrentTime(subIntervalStart + 100);
+            tracker.sampleSubInterval();
+        }
+
+        UtilizationSnapshot snapshot = tracker.snapshot();
+        assertThat(snapshot.utilizationPct()).isEqualTo(55);
+        assertThat(snapshot.peakUtilizationPct()).isEqualTo(100);
+        assertThat(snapshot.p90UtilizationPct()).isEqualTo(90);
+    }
+
+    @Test
+    void subIntervalUtilizationIsUnknownWithoutSamples() {
+        tracker.setCurrentTime(0);
+        tracker.start();
+        tracker.setCurrentTime(100);
+
+        UtilizationSnapshot snapshot = tracker.snapshot();
+        assertThat(snapshot.peakUtilizationPct()).isEqualTo(-1);
+        assertThat(snapshot.p90UtilizationPct()).isEqualTo(-1);
+    }
+
+    @Test
+    void subIntervalSpanningAResetIsMeasuredInTheNextCycle() {
+        tracker.setCurrentTime(0);
+        tracker.start();
+        tracker.setCurrentTime(20);
+        tracker.incr();
+        tracker.setCurrentTime(100);
+        tracker.sampleSubInterval(); // 80% busy
+        tracker.setCurrentTime(150);
+        tracker.decr();
+        tracker.setCurrentTime(170);
+
+        assertThat(tracker.snapshot().peakUtilizationPct()).isEqualTo(80);
+
+        // The sub-interval from 100 to 200 was busy until 150
+        tracker.setCurrentTime(200);
+        tracker.sampleSubInterval();
+
+        UtilizationSnapshot snapshot = tracker.snapshot();
+        assertThat(snapshot.peakUtilizationPct()).isEqualTo(50);
+        assertThat(snapshot.p90UtilizationPct()).isEqualTo(50);
+    }
+
+    @Test
+    void subIntervalRingKeepsTheMostRecentSubIntervals() {
+        tracker = new TestableUtilizationTracker(0, 2);
+        tracker.setCurrentTime(0);
+        tracker.start();
+        tracker.incr();
+        tracker.setCurrentTime(100);
+        tracker.sampleSubInterval(); // 100% busy, overwritten below
+        tracker.decr();
+        tracker.setCurrentTime(200);
+        tracker.sampleSubInterval();
+        tracker.setCurrentTime(300);
+        tracker.sampleSubInterval();
+
+        assertThat(tracker.snapshot().peakUtilizationPct()).isEqualTo(0);
+    }
+
+    @Test
+    void sampleSubIntervalDoesNothingBeforeStart() {
+        tracker.setCurrentTime(100);
+        tracker.sampleSubInterval();
+        tracker.start();
+        tracker.setCurrentTime(200);
+
+        assertThat(tracker.snapshot().peakUtilizationPct()).isEqualTo(-1);
+    }
+
     /**
      * A testable version of UtilizationTracker that allows controlling time.
      */
     private static class TestableUtilizationTracker extends UtilizationTracker {
         private long currentTime = 0;
 
+        TestableUtilizationTracker() {
+        }
+
+        TestableUtilizationTracker(int capacity) {
+            super(capacity);
+        }
+
+        TestableUtilizationTracker(int capacity, int maxSubIntervals) {
+            super(capacity, maxSubIntervals);
+        }
+
         void setCurrentTime(long time) {
             this.currentTime = time;
         }
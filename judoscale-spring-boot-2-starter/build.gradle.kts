@@ -50,9 +50,6 @@ dependencies {
     // For @ConfigurationProperties
     annotationProcessor(libs.spring.boot2.configuration.processor)
 
-    // JSON processing (for API client)
-    implementation(libs.jackson.databind)
-
     // HTTP client for Java 8 (Apache HttpClient)
     implementation(libs.httpclient)
 
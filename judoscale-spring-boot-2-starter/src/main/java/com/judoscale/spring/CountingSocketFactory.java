@@ -0,0 +1,47 @@
+package com.judoscale.spring;
+
+import org.apache.http.HttpHost;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.LayeredConnectionSocketFactory;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Socket factory that counts the connections the pool opens, each paying a TCP and (for HTTPS) TLS
+ * handshake, so they can be told apart from requests on a reused connection.
+ */
+class CountingSocketFactory implements LayeredConnectionSocketFactory {
+
+    private final ConnectionSocketFactory delegate;
+    private final AtomicLong connections;
+
+    CountingSocketFactory(ConnectionSocketFactory delegate, AtomicLong connections) {
+        this.delegate = delegate;
+        this.connections = connections;
+    }
+
+    @Override
+    public Socket createSocket(HttpContext context) throws IOException {
+        return delegate.createSocket(context);
+    }
+
+    @Override
+    public Socket connectSocket(int connectTimeout, Socket socket, HttpHost host, InetSocketAddress remoteAddress,
+                                InetSocketAddress localAddress, HttpContext context) throws IOException {
+        Socket connected = delegate.connectSocket(connectTimeout, socket, host, remoteAddress, localAddress, context);
+        connections.incrementAndGet();
+        return connected;
+    }
+
+    /**
+     * Upgrades a tunneled proxy connection to TLS. Only called for HTTPS, whose delegate is layered.
+     */
+    @Override
+    public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context) throws IOException {
+        return ((LayeredConnectionSocketFactory) delegate).createLayeredSocket(socket, target, port, context);
+    }
+}
@@ -1,34 +1,67 @@
 package com.judoscale.spring;
 
 import com.judoscale.core.Adapter;
-import com.judoscale.core.ApiClient;
+import com.judoscale.core.AsyncApiClient;
+import com.judoscale.core.BinaryReportBuilder;
+import com.judoscale.core.CircuitBreaker;
+import com.judoscale.core.CompressionStats;
+import com.judoscale.core.ConnectionStats;
+import com.judoscale.core.EncodedReport;
 import com.judoscale.core.Metric;
+import com.judoscale.core.Report;
 import com.judoscale.core.ReportBuilder;
+import com.judoscale.core.ReportEncoder;
+import com.judoscale.core.ReportSpool;
+import com.judoscale.core.RetryPolicy;
+import com.judoscale.core.SendPolicy;
+import com.judoscale.core.SpooledReport;
+import org.apache.http.Header;
 import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.springframework.boot.SpringBootVersion;
 import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.ContentType;
-import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * HTTP client for sending metrics to the Judoscale API.
  * Uses Apache HttpClient for Java 8 compatibility.
+ * {@link #reportMetricsAsync(Report)} runs the blocking send on the client's own daemon threads,
+ * one per concurrent report ({@code judoscale.max-concurrent-reports}). Connections to the API are
+ * pooled and kept alive between reports.
+ * Connection errors and 429 or 5xx responses are retried as the {@link RetryPolicy} allows, and a
+ * {@link CircuitBreaker} stops sending while the API keeps failing.
  */
-public class JudoscaleApiClient implements ApiClient, Closeable {
+public class JudoscaleApiClient implements AsyncApiClient, Closeable {
 
     private static final Logger logger = LoggerFactory.getLogger(JudoscaleApiClient.class);
-    private static final int MAX_RETRIES = 3;
     private static final Adapter ADAPTER = new Adapter(
         "judoscale-spring-boot-2",
         ReportBuilder.loadAdapterVersion(JudoscaleApiClient.class),
@@ -37,9 +70,23 @@ public class JudoscaleApiClient implements ApiClient, Closeable {
 
     private final JudoscaleConfig config;
     private final CloseableHttpClient httpClient;
+    private final ReportEncoder encoder;
+    private final ExecutorService sender;
+    private final CircuitBreaker circuitBreaker;
+    private final SendPolicy sendPolicy;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong connectionsOpened = new AtomicLong();
+
+    // Set once the API answers a binary report with 415 Unsupported Media Type
+    private volatile boolean binaryRejected;
+
+    // Reports that fail to send are spooled here, if set, and replayed once reports are sent again
+    private volatile ReportSpool spool;
+    private volatile boolean lastReportSent;
 
     public JudoscaleApiClient(JudoscaleConfig config) {
         this.config = config;
+        this.encoder = config.isCompressReports() || config.isBinaryReportFormat() ? ReportEncoder.forConfig(config) : null;
 
         RequestConfig requestConfig = RequestConfig.custom()
             .setConnectTimeout(5000)
@@ -49,73 +96,321 @@ public class JudoscaleApiClient implements ApiClient, Closeable {
 
         this.httpClient = HttpClients.custom()
             .setDefaultRequestConfig(requestConfig)
+            .setConnectionManager(newConnectionManager(config, connectionsOpened))
+            .setKeepAliveStrategy(keepAliveStrategy(config))
+            .evictExpiredConnections()
+            .evictIdleConnections(Math.max(1, config.getConnectionKeepAliveSeconds()), TimeUnit.SECONDS)
             .build();
+        this.sender = newSender(config);
+        this.circuitBreaker = CircuitBreaker.forConfig(config);
+        this.sendPolicy = new SendPolicy(RetryPolicy.forConfig(config), circuitBreaker);
     }
 
     // Constructor for testing with mock HttpClient
     JudoscaleApiClient(JudoscaleConfig config, CloseableHttpClient httpClient) {
         this.config = config;
         this.httpClient = httpClient;
+        this.encoder = config.isCompressReports() || config.isBinaryReportFormat() ? ReportEncoder.forConfig(config) : null;
+        this.sender = newSender(config);
+        this.circuitBreaker = CircuitBreaker.forConfig(config);
+        this.sendPolicy = new SendPolicy(RetryPolicy.forConfig(config), circuitBreaker);
     }
 
     @Override
     public boolean reportMetrics(List<Metric> metrics) {
+        return reportMetrics(new Report(metrics));
+    }
+
+    @Override
+    public boolean reportMetrics(Report report) {
         if (!config.isConfigured()) {
             logger.debug("Judoscale API URL not configured, skipping report");
             return false;
         }
 
-        String json = ReportBuilder.buildReportJson(metrics, Collections.singletonList(ADAPTER), config.getRuntimeContainer());
         String url = config.getApiBaseUrl() + "/v3/reports";
+        EncodedReport encoded = encode(report);
 
-        for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
-            try {
-                HttpPost request = new HttpPost(url);
-                request.setHeader("Content-Type", "application/json");
-                request.setEntity(new StringEntity(json, ContentType.APPLICATION_JSON));
-
-                logger.debug("Posting {} bytes to {}", json.length(), url);
+        try {
+            if (!circuitBreaker.allowRequest()) {
+                logger.debug("Judoscale API circuit breaker is open, skipping report");
+                spool(report, encoded);
+                return false;
+            }
 
-                try (CloseableHttpResponse response = httpClient.execute(request)) {
-                    int statusCode = response.getStatusLine().getStatusCode();
-                    String responseBody = response.getEntity() != null
-                        ? EntityUtils.toString(response.getEntity())
-                        : "";
+            for (int attempt = 1; ; attempt++) {
+                SendPolicy.Step next;
+                try {
+                    HttpPost request = new HttpPost(url);
 
-                    if (statusCode >= 200 && statusCode < 300) {
-                        logger.debug("Reported successfully");
-                        return true;
+                    if (encoded == null) {
+                        request.setHeader("Content-Type", "application/json");
+                        request.setEntity(new ReportEntity(report, Collections.singletonList(ADAPTER), config.getRuntimeContainer()));
+                        logger.debug("Posting {} metrics to {}", report.metrics().size(), url);
                     } else {
-                        logger.error("Reporter failed: {} - {}", statusCode, responseBody);
-                        return false;
+                        request.setHeader("Content-Type", encoded.contentType());
+                        ByteArrayEntity entity = new ByteArrayEntity(encoded.bytes(), 0, encoded.length(),
+                            ContentType.create(encoded.contentType()));
+                        if (encoded.isCompressed()) {
+                            entity.setContentEncoding(encoded.contentEncoding());
+                        }
+                        request.setEntity(entity);
+                        logger.debug("Posting {} bytes ({} uncompressed) of {} to {}",
+                            encoded.length(), encoded.rawLength(), encoded.contentType(), url);
+                    }
+
+                    requests.incrementAndGet();
+                    try (CloseableHttpResponse response = httpClient.execute(request)) {
+                        String responseBody = response.getEntity() != null
+                            ? EntityUtils.toString(response.getEntity())
+                            : "";
+                        next = sendPolicy.afterResponse(attempt, response.getStatusLine().getStatusCode(), responseBody,
+                            () -> retryAfter(response), isBinary(encoded));
                     }
+
+                } catch (IOException e) {
+                    next = sendPolicy.afterConnectionError(attempt, url, e.getMessage());
                 }
 
-            } catch (IOException e) {
-                if (attempt < MAX_RETRIES) {
-                    logger.debug("Retry {} after error: {}", attempt, e.getMessage());
-                    try {
-                        Thread.sleep(10);
-                    } catch (InterruptedException ignored) {
-                        Thread.currentThread().interrupt();
-                        return false;
+                if (next.isSent()) {
+                    lastReportSent = true;
+                    return true;
+                } else if (next.shouldResendAsJson()) {
+                    binaryRejected = true;
+                    return reportMetrics(report);
+                } else if (!next.isRetry()) {
+                    if (next.shouldSpool()) {
+                        spool(report, encoded);
                     }
-                } else {
-                    logger.error("Could not connect to {}: {}", url, e.getMessage());
                     return false;
                 }
+                try {
+                    Thread.sleep(next.getRetryDelayMillis());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    sendPolicy.afterInterrupt();
+                    spool(report, encoded);
+                    return false;
+                }
+            }
+        } finally {
+            if (encoded != null) {
+                encoded.close();
+            }
+        }
+    }
+
+    /**
+     * Sends the report on a sender thread, so the caller doesn't wait for the API.
+     */
+    @Override
+    public CompletableFuture<Boolean> reportMetricsAsync(Report report) {
+        try {
+            return CompletableFuture.supplyAsync(() -> reportMetrics(report), sender);
+        } catch (RejectedExecutionException e) {
+            logger.debug("Judoscale API client is closed, skipping report");
+            return CompletableFuture.completedFuture(false);
+        }
+    }
+
+    /**
+     * Spools reports that fail with a connection error or a retryable status (429 or 5xx), to be
+     * replayed by {@link #replaySpooledReports(int)} once a report is sent successfully again.
+     */
+    public void setSpool(ReportSpool spool) {
+        this.spool = spool;
+    }
+
+    @Override
+    public int replaySpooledReports(int maxReports) {
+        ReportSpool spool = this.spool;
+        if (spool == null || !lastReportSent || !config.isConfigured()
+            || circuitBreaker.getState() != CircuitBreaker.State.CLOSED) {
+            return 0;
+        }
+        return spool.replay(this::sendSpooled, maxReports);
+    }
+
+    @Override
+    public CircuitBreaker.State getCircuitBreakerState() {
+        return circuitBreaker.getState();
+    }
+
+    /**
+     * Sends a spooled report once. Returns false to keep it spooled if it might be accepted later.
+     */
+    private boolean sendSpooled(SpooledReport spooled) {
+        HttpPost request = new HttpPost(config.getApiBaseUrl() + "/v3/reports");
+        request.setHeader("Content-Type", spooled.contentType());
+        ByteArrayEntity entity = new ByteArrayEntity(spooled.bytes(), ContentType.create(spooled.contentType()));
+        if (spooled.contentEncoding() != null) {
+            entity.setContentEncoding(spooled.contentEncoding());
+        }
+        request.setEntity(entity);
+
+        requests.incrementAndGet();
+        try (CloseableHttpResponse response = httpClient.execute(request)) {
+            int statusCode = response.getStatusLine().getStatusCode();
+            String responseBody = response.getEntity() != null
+                ? EntityUtils.toString(response.getEntity())
+                : "";
+            if (statusCode >= 200 && statusCode < 300) {
+                return true;
+            }
+            if (RetryPolicy.isRetryable(statusCode)) {
+                logger.debug("Spooled report not accepted yet: {}", statusCode);
+                return false;
+            }
+            logger.warn("Dropping spooled report from {}: {} - {}", spooled.spooledAt(), statusCode, responseBody);
+            return true;
+        } catch (IOException e) {
+            logger.debug("Could not replay spooled report: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Appends a report that failed to send to the spool, if there is one.
+     */
+    private void spool(Report report, EncodedReport encoded) {
+        lastReportSent = false;
+        ReportSpool spool = this.spool;
+        if (spool == null) {
+            return;
+        }
+        if (encoded != null) {
+            spool.append(encoded.contentType(), encoded.isCompressed() ? encoded.contentEncoding() : null,
+                encoded.bytes(), 0, encoded.length());
+        } else {
+            byte[] json = ReportBuilder.buildReportJson(report, Collections.singletonList(ADAPTER), config.getRuntimeContainer())
+                .getBytes(StandardCharsets.UTF_8);
+            spool.append("application/json", null, json, 0, json.length);
+        }
+    }
+
+    /**
+     * Sends a HEAD request to the reports endpoint on a sender thread. Whatever the API answers, the
+     * connection goes back to the pool for the first report.
+     */
+    @Override
+    public void prewarm() {
+        if (!config.isConfigured()) {
+            return;
+        }
+        try {
+            sender.execute(() -> {
+                requests.incrementAndGet();
+                try (CloseableHttpResponse response = httpClient.execute(new HttpHead(config.getApiBaseUrl() + "/v3/reports"))) {
+                    EntityUtils.consume(response.getEntity());
+                    logger.debug("Prewarmed connection");
+                } catch (IOException e) {
+                    logger.debug("Could not prewarm connection: {}", e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.debug("Judoscale API client is closed, not prewarming");
+        }
+    }
+
+    /**
+     * Returns connection totals for the requests sent so far. Requests made through a supplied
+     * HTTP client aren't counted as opening connections.
+     */
+    @Override
+    public ConnectionStats getConnectionStats() {
+        return new ConnectionStats(requests.get(), connectionsOpened.get());
+    }
+
+    /**
+     * Returns compression totals for the reports sent so far, or null if reports are streamed
+     * as uncompressed JSON.
+     */
+    @Override
+    public CompressionStats getCompressionStats() {
+        return encoder != null ? encoder.getStats() : null;
+    }
+
+    private static String retryAfter(CloseableHttpResponse response) {
+        Header header = response.getFirstHeader("Retry-After");
+        return header != null ? header.getValue() : null;
+    }
+
+    private static boolean isBinary(EncodedReport encoded) {
+        return encoded != null && BinaryReportBuilder.CONTENT_TYPE.equals(encoded.contentType());
+    }
+
+    /**
+     * Serializes the report into a pooled buffer when compression or the binary format is enabled.
+     * Returns null to stream the report as uncompressed JSON instead.
+     */
+    private EncodedReport encode(Report report) {
+        if (encoder == null) {
+            return null;
+        }
+        try {
+            if (config.isBinaryReportFormat() && !binaryRejected) {
+                return encoder.encodeBinary(report, Collections.singletonList(ADAPTER), config.getRuntimeContainer());
+            }
+            if (config.isCompressReports()) {
+                return encoder.encode(report, Collections.singletonList(ADAPTER), config.getRuntimeContainer());
             }
+        } catch (IOException e) {
+            logger.warn("Could not encode report, sending it as JSON: {}", e.getMessage());
         }
+        return null;
+    }
 
-        return false;
+    /**
+     * Pools up to {@code judoscale.connection-pool-size} connections to the API, counting the ones it opens.
+     * Connections idle for a couple of seconds are checked before reuse, so a connection the API closed
+     * doesn't fail a report.
+     */
+    private static PoolingHttpClientConnectionManager newConnectionManager(JudoscaleConfig config, AtomicLong connectionsOpened) {
+        Registry<ConnectionSocketFactory> socketFactories = RegistryBuilder.<ConnectionSocketFactory>create()
+            .register("http", new CountingSocketFactory(PlainConnectionSocketFactory.getSocketFactory(), connectionsOpened))
+            .register("https", new CountingSocketFactory(SSLConnectionSocketFactory.getSocketFactory(), connectionsOpened))
+            .build();
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(socketFactories);
+        int poolSize = Math.max(1, config.getConnectionPoolSize());
+        connectionManager.setMaxTotal(poolSize);
+        connectionManager.setDefaultMaxPerRoute(poolSize);
+        connectionManager.setValidateAfterInactivity(2000);
+        return connectionManager;
+    }
+
+    /**
+     * Keeps connections open for as long as the API's Keep-Alive header allows, up to
+     * {@code judoscale.connection-keep-alive-seconds}.
+     */
+    private static ConnectionKeepAliveStrategy keepAliveStrategy(JudoscaleConfig config) {
+        long maxKeepAliveMillis = TimeUnit.SECONDS.toMillis(Math.max(1, config.getConnectionKeepAliveSeconds()));
+        return (response, context) -> {
+            long keepAliveMillis = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return keepAliveMillis > 0 ? Math.min(keepAliveMillis, maxKeepAliveMillis) : maxKeepAliveMillis;
+        };
+    }
+
+    private static ExecutorService newSender(JudoscaleConfig config) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, config.getMaxConcurrentReports()), task -> {
+            Thread thread = new Thread(task, "judoscale-sender-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     /**
      * Closes the underlying HTTP client and releases any system resources associated with it.
-     * This includes connection pools and background threads maintained by Apache HttpClient.
+     * This includes connection pools and background threads maintained by Apache HttpClient,
+     * the threads sending asynchronous reports, and the spool. Unsent spooled reports stay on disk.
      */
     @Override
     public void close() throws IOException {
+        sender.shutdownNow();
+        ReportSpool spool = this.spool;
+        if (spool != null) {
+            spool.close();
+        }
         if (httpClient != null) {
             httpClient.close();
             logger.debug("HTTP client closed");
@@ -1,6 +1,8 @@
 package com.judoscale.spring;
 
+import com.judoscale.core.Clock;
 import com.judoscale.core.MetricsStore;
+import com.judoscale.core.ReportSpool;
 import com.judoscale.core.UtilizationTracker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,6 +15,7 @@ import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
 import org.springframework.scheduling.TaskScheduler;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
@@ -32,22 +35,36 @@ public class JudoscaleAutoConfiguration {
 
     private static final Logger logger = LoggerFactory.getLogger(JudoscaleAutoConfiguration.class);
 
+    /**
+     * The clock requests are timed with. A coarse clock's ticker thread is stopped by its inferred
+     * {@code close()} destroy method.
+     */
+    @Bean
+    @ConditionalOnMissingBean(Clock.class)
+    public Clock judoscaleClock(JudoscaleConfig config) {
+        return Clock.forConfig(config);
+    }
+
     @Bean
     @ConditionalOnMissingBean(MetricsStore.class)
-    public MetricsStore judoscaleMetricsStore() {
-        return new MetricsStore();
+    public MetricsStore judoscaleMetricsStore(JudoscaleConfig config, Clock clock) {
+        return MetricsStore.forConfig(config, clock);
     }
 
     @Bean
     @ConditionalOnMissingBean(UtilizationTracker.class)
-    public UtilizationTracker judoscaleUtilizationTracker() {
-        return new UtilizationTracker();
+    public UtilizationTracker judoscaleUtilizationTracker(JudoscaleConfig config, Environment environment, Clock clock) {
+        int workerPoolSize = WorkerPoolSize.detect(config, environment);
+        logger.debug("Judoscale worker pool size: {}", workerPoolSize > 0 ? workerPoolSize : "unknown");
+        return UtilizationTracker.forConfig(config, workerPoolSize, clock);
     }
 
     @Bean(destroyMethod = "close")
     @ConditionalOnMissingBean(JudoscaleApiClient.class)
     public JudoscaleApiClient judoscaleApiClient(JudoscaleConfig config) {
-        return new JudoscaleApiClient(config);
+        JudoscaleApiClient apiClient = new JudoscaleApiClient(config);
+        apiClient.setSpool(ReportSpool.forConfig(config));
+        return apiClient;
     }
 
     @Bean
@@ -56,8 +73,9 @@ public class JudoscaleAutoConfiguration {
             MetricsStore metricsStore,
             JudoscaleApiClient apiClient,
             JudoscaleConfig config,
-            UtilizationTracker utilizationTracker) {
-        return new JudoscaleReporter(metricsStore, apiClient, config, utilizationTracker);
+            UtilizationTracker utilizationTracker,
+            Clock clock) {
+        return new JudoscaleReporter(metricsStore, apiClient, config, utilizationTracker, clock);
     }
 
     @Bean
@@ -65,13 +83,17 @@ public class JudoscaleAutoConfiguration {
     public FilterRegistrationBean<JudoscaleFilter> judoscaleFilter(
             MetricsStore metricsStore,
             JudoscaleConfig config,
-            UtilizationTracker utilizationTracker) {
+            UtilizationTracker utilizationTracker,
+            Clock clock) {
 
         FilterRegistrationBean<JudoscaleFilter> registration = new FilterRegistrationBean<JudoscaleFilter>();
-        registration.setFilter(new JudoscaleFilter(metricsStore, config, utilizationTracker));
+        registration.setFilter(new JudoscaleFilter(metricsStore, config, utilizationTracker, clock));
         registration.addUrlPatterns("/*");
         registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
         registration.setName("judoscaleFilter");
+        // Async requests are measured until they complete, which needs async support on the filter.
+        // The listener sees completion, so the filter needn't be registered for ASYNC dispatches.
+        registration.setAsyncSupported(true);
 
         return registration;
     }
@@ -83,7 +105,8 @@ public class JudoscaleAutoConfiguration {
     @ConditionalOnMissingBean(name = "judoscaleTaskScheduler")
     public ThreadPoolTaskScheduler judoscaleTaskScheduler() {
         ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
-        scheduler.setPoolSize(1);
+        // A second thread keeps utilization sampling on time while a report is being sent
+        scheduler.setPoolSize(2);
         scheduler.setThreadNamePrefix("judoscale-");
         scheduler.setDaemon(true);
         scheduler.initialize();
@@ -112,6 +135,8 @@ public class JudoscaleAutoConfiguration {
         private final JudoscaleConfig config;
         private final TaskScheduler taskScheduler;
         private ScheduledFuture<?> scheduledTask;
+        private ScheduledFuture<?> samplingTask;
+        private ScheduledFuture<?> replayTask;
 
         public JudoscaleScheduler(JudoscaleReporter reporter, JudoscaleConfig config, TaskScheduler taskScheduler) {
             this.reporter = reporter;
@@ -129,6 +154,21 @@ public class JudoscaleAutoConfiguration {
                     reporter.reportMetrics();
                 }
             }, intervalMs);
+            long subIntervalMs = config.getUtilizationSubIntervalSeconds() * 1000L;
+            samplingTask = taskScheduler.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    reporter.sampleUtilization();
+                }
+            }, subIntervalMs);
+            if (config.isSpoolEnabled()) {
+                replayTask = taskScheduler.scheduleAtFixedRate(new Runnable() {
+                    @Override
+                    public void run() {
+                        reporter.replaySpooledReports();
+                    }
+                }, intervalMs);
+            }
         }
 
         @PreDestroy
@@ -136,6 +176,12 @@ public class JudoscaleAutoConfiguration {
             if (scheduledTask != null) {
                 scheduledTask.cancel(false);
             }
+            if (samplingTask != null) {
+                samplingTask.cancel(false);
+            }
+            if (replayTask != null) {
+                replayTask.cancel(false);
+            }
         }
     }
 }
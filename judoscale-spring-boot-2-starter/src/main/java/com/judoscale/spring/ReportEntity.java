@@ -0,0 +1,57 @@
+package com.judoscale.spring;
+
+import com.judoscale.core.Adapter;
+import com.judoscale.core.Report;
+import com.judoscale.core.ReportBuilder;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+
+/**
+ * Request entity that serializes a report straight into the connection's output stream
+ * (using chunked transfer encoding), so the JSON payload is never held in memory as a whole.
+ * The entity is repeatable: each write serializes the report again.
+ */
+class ReportEntity extends AbstractHttpEntity {
+
+    private final Report report;
+    private final Collection<Adapter> adapters;
+    private final String runtimeContainer;
+
+    ReportEntity(Report report, Collection<Adapter> adapters, String runtimeContainer) {
+        this.report = report;
+        this.adapters = adapters;
+        this.runtimeContainer = runtimeContainer;
+        setContentType(ContentType.APPLICATION_JSON.toString());
+        setChunked(true);
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    @Override
+    public InputStream getContent() {
+        return ReportBuilder.openReportJson(report, adapters, runtimeContainer);
+    }
+
+    @Override
+    public void writeTo(OutputStream outStream) throws IOException {
+        ReportBuilder.writeReportJson(report, adapters, runtimeContainer, outStream);
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+}
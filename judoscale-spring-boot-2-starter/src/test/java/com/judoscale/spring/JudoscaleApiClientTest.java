@@ -0,0 +1,354 @@
+package com.judoscale.spring;
+
+import com.judoscale.core.BinaryReportBuilder;
+import com.judoscale.core.CircuitBreaker;
+import com.judoscale.core.Metric;
+import com.judoscale.core.Report;
+import com.judoscale.core.ReportSpool;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sends reports to a local HTTP server, so requests go through the client's real connection pool.
+ */
+class JudoscaleApiClientTest {
+
+    private ApiServer server;
+    private JudoscaleConfig config;
+    private JudoscaleApiClient apiClient;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new ApiServer();
+        config = new JudoscaleConfig();
+        config.setApiBaseUrl(server.url("/api/test-token"));
+        config.setRetryBaseDelayMillis(1);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (apiClient != null) {
+            apiClient.close();
+        }
+        server.stop();
+    }
+
+    @Test
+    void reportMetricsReturnsFalseWhenNotConfigured() {
+        config.setApiBaseUrl(null);
+        apiClient = new JudoscaleApiClient(config);
+
+        assertThat(apiClient.reportMetrics(metrics(10))).isFalse();
+
+        assertThat(server.requestCount()).isZero();
+    }
+
+    @Test
+    void reportMetricsPostsUncompressedJsonByDefault() throws Exception {
+        apiClient = new JudoscaleApiClient(config);
+
+        assertThat(apiClient.reportMetrics(metrics(1000))).isTrue();
+
+        RecordedRequest request = server.takeRequest();
+        assertThat(request.method).isEqualTo("POST");
+        assertThat(request.path).isEqualTo("/api/test-token/v3/reports");
+        assertThat(request.contentType).isEqualTo("application/json");
+        assertThat(request.contentEncoding).isNull();
+        assertThat(new String(request.body, StandardCharsets.UTF_8)).contains("\"metrics\"");
+        assertThat(apiClient.getCompressionStats()).isNull();
+    }
+
+    @Test
+    void reportMetricsGzipsLargeBodiesWhenCompressionIsEnabled() throws Exception {
+        config.setCompressReports(true);
+        apiClient = new JudoscaleApiClient(config);
+
+        assertThat(apiClient.reportMetrics(metrics(1000))).isTrue();
+
+        RecordedRequest request = server.takeRequest();
+        assertThat(request.contentEncoding).isEqualTo("gzip");
+        assertThat(new String(gunzip(request.body), StandardCharsets.UTF_8)).contains("\"metrics\"");
+        assertThat(apiClient.getCompressionStats().compressedReports()).isEqualTo(1);
+        assertThat(apiClient.getCompressionStats().compressionRatio()).isGreaterThan(1.0);
+    }
+
+    @Test
+    void reportMetricsFallsBackToJsonWhenBinaryIsRejected() throws Exception {
+        config.setReportFormat("binary");
+        server.enqueue(415, null);
+        apiClient = new JudoscaleApiClient(config);
+
+        assertThat(apiClient.reportMetrics(metrics(10))).isTrue();
+        assertThat(apiClient.reportMetrics(metrics(10))).isTrue();
+
+        assertThat(server.takeRequest().contentType).isEqualTo(BinaryReportBuilder.CONTENT_TYPE);
+        assertThat(server.takeRequest().contentType).isEqualTo("application/json");
+        assertThat(server.takeRequest().contentType).isEqualTo("application/json");
+    }
+
+    @Test
+    void reportMetricsRetriesRetryableStatuses() {
+        server.enqueue(503, null);
+        apiClient = new JudoscaleApiClient(config);
+
+        assertThat(apiClient.reportMetrics(metrics(10))).isTrue();
+
+        assertThat(server.requestCount()).isEqualTo(2);
+    }
+
+    @Test
+    void reportMetricsDoesNotRetryClientErrors() {
+        server.enqueue(400, null);
+        apiClient = new JudoscaleApiClient(config);
+
+        assertThat(apiClient.reportMetrics(metrics(10))).isFalse();
+
+        assertThat(server.requestCount()).isEqualTo(1);
+        assertThat(apiClient.getCircuitBreakerState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void reportMetricsWaitsForRetryAfter() {
+        server.enqueue(429, "1");
+        apiClient = new JudoscaleApiClient(config);
+
+        long start = System.nanoTime();
+        assertThat(apiClient.reportMetrics(metrics(10))).isTrue();
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(1000);
+        assertThat(server.requestCount()).isEqualTo(2);
+    }
+
+    @Test
+    void reportMetricsPausesForALongRetryAfterInsteadOfRetrying() {
+        server.enqueue(429, "120");
+        apiClient = new JudoscaleApiClient(config);
+
+        assertThat(apiClient.reportMetrics(metrics(10))).isFalse();
+        assertThat(apiClient.getCircuitBreakerState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(apiClient.reportMetrics(metrics(10))).isFalse();
+
+        assertThat(server.requestCount()).isEqualTo(1);
+    }
+
+    @Test
+    void circuitBreakerStopsSendingAfterRepeatedFailures(@TempDir Path spoolDirectory) throws Exception {
+        server.enqueue(503, null);
+        server.enqueue(503, null);
+        config.setRetryMaxAttempts(1);
+        config.setCircuitBreakerFailureThreshold(2);
+        apiClient = new JudoscaleApiClient(config);
+        ReportSpool spool = new ReportSpool(spoolDirectory, 1024 * 1024, 60_000);
+        apiClient.setSpool(spool);
+
+        apiClient.reportMetrics(metrics(10));
+        assertThat(apiClient.getCircuitBreakerState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        apiClient.reportMetrics(metrics(10));
+        assertThat(apiClient.getCircuitBreakerState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        assertThat(apiClient.reportMetrics(metrics(10))).isFalse();
+        assertThat(spool.getSpooledReportCount()).isEqualTo(3);
+        assertThat(server.requestCount()).isEqualTo(2);
+    }
+
+    @Test
+    void spoolsReportsThatFailWithARetryableStatusAndReplaysThemOnceReportsAreSent(@TempDir Path spoolDirectory) throws Exception {
+        server.enqueue(503, null);
+        server.enqueue(503, null);
+        server.enqueue(503, null);
+        apiClient = new JudoscaleApiClient(config);
+        ReportSpool spool = new ReportSpool(spoolDirectory, 1024 * 1024, 60_000);
+        apiClient.setSpool(spool);
+
+        assertThat(apiClient.reportMetrics(metrics(10))).isFalse();
+        assertThat(spool.getSpooledReportCount()).isEqualTo(1);
+        assertThat(apiClient.replaySpooledReports(10)).isZero();
+
+        assertThat(apiClient.reportMetrics(metrics(10))).isTrue();
+        assertThat(apiClient.replaySpooledReports(10)).isEqualTo(1);
+        assertThat(spool.getSpooledReportCount()).isZero();
+        assertThat(server.requestCount()).isEqualTo(5);
+    }
+
+    @Test
+    void doesNotSpoolReportsTheApiRejects(@TempDir Path spoolDirectory) throws Exception {
+        server.enqueue(400, null);
+        apiClient = new JudoscaleApiClient(config);
+        ReportSpool spool = new ReportSpool(spoolDirectory, 1024 * 1024, 60_000);
+        apiClient.setSpool(spool);
+
+        assertThat(apiClient.reportMetrics(metrics(10))).isFalse();
+
+        assertThat(spool.getSpooledReportCount()).isZero();
+    }
+
+    @Test
+    void reportMetricsAsyncSendsOnASenderThread() throws Exception {
+        apiClient = new JudoscaleApiClient(config);
+
+        assertThat(apiClient.reportMetricsAsync(new Report(metrics(10))).get(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(server.takeRequest().method).isEqualTo("POST");
+    }
+
+    @Test
+    void reportMetricsAsyncReturnsFalseOnceClosed() throws Exception {
+        apiClient = new JudoscaleApiClient(config);
+        apiClient.close();
+
+        assertThat(apiClient.reportMetricsAsync(new Report(metrics(10))).get(5, TimeUnit.SECONDS)).isFalse();
+
+        assertThat(server.requestCount()).isZero();
+    }
+
+    @Test
+    void reportsReuseAPooledConnection() {
+        apiClient = new JudoscaleApiClient(config);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(apiClient.reportMetrics(metrics(10))).isTrue();
+        }
+
+        assertThat(apiClient.getConnectionStats().requests()).isEqualTo(3);
+        assertThat(apiClient.getConnectionStats().connectionsOpened()).isEqualTo(1);
+    }
+
+    @Test
+    void prewarmSendsAHeadRequestInTheBackground() throws Exception {
+        apiClient = new JudoscaleApiClient(config);
+
+        apiClient.prewarm();
+
+        RecordedRequest request = server.takeRequest();
+        assertThat(request.method).isEqualTo("HEAD");
+        assertThat(request.path).isEqualTo("/api/test-token/v3/reports");
+    }
+
+    private static List<Metric> metrics(int count) {
+        List<Metric> metrics = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            metrics.add(new Metric("at", i % 50));
+        }
+        return metrics;
+    }
+
+    private static byte[] gunzip(byte[] bytes) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return readAll(in);
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        for (int n; (n = in.read(buffer)) != -1; ) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    private static final class RecordedRequest {
+        final String method;
+        final String path;
+        final String contentType;
+        final String contentEncoding;
+        final byte[] body;
+
+        RecordedRequest(HttpExchange exchange, byte[] body) {
+            this.method = exchange.getRequestMethod();
+            this.path = exchange.getRequestURI().getPath();
+            this.contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+            this.contentEncoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+            this.body = body;
+        }
+    }
+
+    /**
+     * Answers each request with the next enqueued status, or 204 once there are none left,
+     * and records the requests it receives.
+     */
+    private static final class ApiServer {
+        private final HttpServer httpServer;
+        private final BlockingQueue<String[]> responses = new LinkedBlockingQueue<>();
+        private final BlockingQueue<RecordedRequest> requests = new LinkedBlockingQueue<>();
+        private final List<RecordedRequest> received = new ArrayList<>();
+
+        ApiServer() throws IOException {
+            httpServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            httpServer.createContext("/", this::handle);
+            httpServer.start();
+        }
+
+        String url(String path) {
+            return "http://localhost:" + httpServer.getAddress().getPort() + path;
+        }
+
+        /**
+         * Queues a response status, with a Retry-After header if {@code retryAfter} isn't null.
+         */
+        void enqueue(int status, String retryAfter) {
+            responses.add(new String[] {String.valueOf(status), retryAfter});
+        }
+
+        RecordedRequest takeRequest() throws InterruptedException {
+            RecordedRequest request = requests.poll(5, TimeUnit.SECONDS);
+            assertThat(request).isNotNull();
+            return request;
+        }
+
+        int requestCount() {
+            synchronized (received) {
+                return received.size();
+            }
+        }
+
+        void stop() {
+            httpServer.stop(0);
+        }
+
+        private void handle(HttpExchange exchange) throws IOException {
+            byte[] body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = readAll(in);
+            }
+            RecordedRequest request = new RecordedRequest(exchange, body);
+            synchronized (received) {
+                received.add(request);
+            }
+            requests.add(request);
+
+            String[] response = responses.poll();
+            if (response == null) {
+                exchange.sendResponseHeaders(204, -1);
+            } else {
+                if (response[1] != null) {
+                    exchange.getResponseHeaders().add("Retry-After", response[1]);
+                }
+                byte[] responseBody = ("status " + response[0]).getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(Integer.parseInt(response[0]), responseBody.length);
+                exchange.getResponseBody().write(responseBody);
+            }
+            exchange.close();
+        }
+    }
+}
@@ -29,9 +29,11 @@ dependencies {
     // Judoscale Core
     api(project(":judoscale-core"))
 
-    // Spring Boot Web (provided - the app will have this)
+    // Spring Boot Web or WebFlux (provided - the app will have one of these)
     compileOnly(libs.spring.boot.starter.web)
+    compileOnly(libs.spring.boot.starter.webflux)
     testImplementation(libs.spring.boot.starter.web)
+    testImplementation(libs.spring.boot.starter.webflux)
 
     // Spring Boot Auto-configuration
     implementation(libs.spring.boot.autoconfigure)
@@ -39,9 +41,6 @@ dependencies {
     // For @ConfigurationProperties
     annotationProcessor(libs.spring.boot.configuration.processor)
 
-    // JSON processing (for API client)
-    implementation(libs.jackson.databind)
-
     // Logging
     implementation(libs.slf4j.api)
 
@@ -0,0 +1,111 @@
+package com.judoscale.spring;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.PlatformManagedObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntSupplier;
+
+/**
+ * Reads the size and load of the carrier threads that the JDK schedules virtual threads on.
+ *
+ * <p>JDK 24 and later expose the scheduler through {@code jdk.management.VirtualThreadSchedulerMXBean}.
+ * On earlier JDKs the scheduler's {@link ForkJoinPool} is only reachable when the application is
+ * started with {@code --add-opens java.base/java.lang=ALL-UNNAMED}; without it the number of busy
+ * carriers is unknown and only the parallelism is reported.</p>
+ */
+final class CarrierPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(CarrierPool.class);
+
+    private final IntSupplier parallelism;
+    private final IntSupplier busyCarriers;
+
+    /**
+     * @param parallelism supplies the number of carrier threads
+     * @param busyCarriers supplies the number of carriers running a virtual thread, or null if unknown
+     */
+    CarrierPool(IntSupplier parallelism, IntSupplier busyCarriers) {
+        this.parallelism = parallelism;
+        this.busyCarriers = busyCarriers;
+    }
+
+    /**
+     * Returns the number of carrier threads virtual threads are scheduled on.
+     */
+    int parallelism() {
+        return parallelism.getAsInt();
+    }
+
+    /**
+     * Returns the percentage of carriers running a virtual thread (0-100), or -1 if unknown.
+     */
+    int saturationPct() {
+        int carriers = parallelism();
+        if (busyCarriers == null || carriers <= 0) {
+            return -1;
+        }
+        return Math.min(100, busyCarriers.getAsInt() * 100 / carriers);
+    }
+
+    static CarrierPool detect() {
+        CarrierPool pool = fromMXBean();
+        if (pool == null) {
+            pool = fromForkJoinPool();
+        }
+        if (pool == null) {
+            logger.debug("Virtual thread carrier load is not observable on this JDK, reporting parallelism only");
+            pool = new CarrierPool(CarrierPool::defaultParallelism, null);
+        }
+        return pool;
+    }
+
+    private static CarrierPool fromMXBean() {
+        try {
+            Class<? extends PlatformManagedObject> type = Class.forName("jdk.management.VirtualThreadSchedulerMXBean")
+                .asSubclass(PlatformManagedObject.class);
+            Object scheduler = ManagementFactory.getPlatformMXBean(type);
+            Method parallelism = type.getMethod("getParallelism");
+            Method mounted = type.getMethod("getMountedVirtualThreadCount");
+            return new CarrierPool(() -> invokeInt(scheduler, parallelism), () -> invokeInt(scheduler, mounted));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static CarrierPool fromForkJoinPool() {
+        try {
+            Field field = Class.forName("java.lang.VirtualThread").getDeclaredField("DEFAULT_SCHEDULER");
+            field.setAccessible(true);
+            ForkJoinPool scheduler = (ForkJoinPool) field.get(null);
+            return new CarrierPool(scheduler::getParallelism, scheduler::getActiveThreadCount);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static int invokeInt(Object target, Method method) {
+        try {
+            return ((Number) method.invoke(target)).intValue();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not read " + method.getName(), e);
+        }
+    }
+
+    private static int defaultParallelism() {
+        // The JDK's default, unless overridden with -Djdk.virtualThreadScheduler.parallelism
+        String configured = System.getProperty("jdk.virtualThreadScheduler.parallelism");
+        if (configured != null) {
+            try {
+                return Integer.parseInt(configured.trim());
+            } catch (NumberFormatException e) {
+                // Fall back to the default
+            }
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
+}
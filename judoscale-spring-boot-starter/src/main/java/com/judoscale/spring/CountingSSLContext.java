@@ -0,0 +1,112 @@
+package com.judoscale.spring;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLContextSpi;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLServerSocketFactory;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import java.security.KeyManagementException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Wraps the default {@link SSLContext} to count TLS connections. The JDK HttpClient creates one
+ * {@link SSLEngine} per connection it opens, and offers no other hook to tell a new connection from a
+ * reused one.
+ */
+final class CountingSSLContext extends SSLContext {
+
+    private static final Logger logger = LoggerFactory.getLogger(CountingSSLContext.class);
+
+    private final AtomicLong engines;
+
+    private CountingSSLContext(SSLContext delegate, AtomicLong engines) {
+        super(new CountingSpi(delegate, engines), delegate.getProvider(), delegate.getProtocol());
+        this.engines = engines;
+    }
+
+    /**
+     * Returns a counting wrapper around the default context, or null if it isn't available.
+     */
+    static CountingSSLContext create() {
+        try {
+            return new CountingSSLContext(SSLContext.getDefault(), new AtomicLong());
+        } catch (NoSuchAlgorithmException e) {
+            logger.debug("Default SSLContext not available, not counting connections: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Returns the number of TLS connections opened with this context.
+     */
+    long getConnectionsOpened() {
+        return engines.get();
+    }
+
+    private static final class CountingSpi extends SSLContextSpi {
+        private final SSLContext delegate;
+        private final AtomicLong engines;
+
+        CountingSpi(SSLContext delegate, AtomicLong engines) {
+            this.delegate = delegate;
+            this.engines = engines;
+        }
+
+        @Override
+        protected void engineInit(KeyManager[] km, TrustManager[] tm, SecureRandom random) throws KeyManagementException {
+            delegate.init(km, tm, random);
+        }
+
+        @Override
+        protected SSLSocketFactory engineGetSocketFactory() {
+            return delegate.getSocketFactory();
+        }
+
+        @Override
+        protected SSLServerSocketFactory engineGetServerSocketFactory() {
+            return delegate.getServerSocketFactory();
+        }
+
+        @Override
+        protected SSLEngine engineCreateSSLEngine() {
+            engines.incrementAndGet();
+            return delegate.createSSLEngine();
+        }
+
+        @Override
+        protected SSLEngine engineCreateSSLEngine(String host, int port) {
+            engines.incrementAndGet();
+            return delegate.createSSLEngine(host, port);
+        }
+
+        @Override
+        protected SSLSessionContext engineGetServerSessionContext() {
+            return delegate.getServerSessionContext();
+        }
+
+        @Override
+        protected SSLSessionContext engineGetClientSessionContext() {
+            return delegate.getClientSessionContext();
+        }
+
+        // The defaults create a throwaway engine to read the parameters, which would be counted
+        @Override
+        protected SSLParameters engineGetDefaultSSLParameters() {
+            return delegate.getDefaultSSLParameters();
+        }
+
+        @Override
+        protected SSLParameters engineGetSupportedSSLParameters() {
+            return delegate.getSupportedSSLParameters();
+        }
+    }
+}
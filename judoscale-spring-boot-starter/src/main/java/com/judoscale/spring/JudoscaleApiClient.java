@@ -1,28 +1,48 @@
 package com.judoscale.spring;
 
 import com.judoscale.core.Adapter;
-import com.judoscale.core.ApiClient;
+import com.judoscale.core.AsyncApiClient;
+import com.judoscale.core.BinaryReportBuilder;
+import com.judoscale.core.CircuitBreaker;
+import com.judoscale.core.CompressionStats;
+import com.judoscale.core.ConnectionStats;
+import com.judoscale.core.EncodedReport;
 import com.judoscale.core.Metric;
+import com.judoscale.core.Report;
 import com.judoscale.core.ReportBuilder;
+import com.judoscale.core.ReportEncoder;
+import com.judoscale.core.ReportSpool;
+import com.judoscale.core.RetryPolicy;
+import com.judoscale.core.SendPolicy;
+import com.judoscale.core.SpooledReport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.SpringBootVersion;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * HTTP client for sending metrics to the Judoscale API.
+ * Reports can be sent blocking or asynchronously with {@link #reportMetricsAsync(Report)}.
+ * Connection errors and 429 or 5xx responses are retried as the {@link RetryPolicy} allows, and a
+ * {@link CircuitBreaker} stops sending while the API keeps failing.
  */
-public class JudoscaleApiClient implements ApiClient {
+public class JudoscaleApiClient implements AsyncApiClient, Closeable {
 
     private static final Logger logger = LoggerFactory.getLogger(JudoscaleApiClient.class);
-    private static final int MAX_RETRIES = 3;
     private static final Adapter ADAPTER = new Adapter(
         "judoscale-spring-boot",
         ReportBuilder.loadAdapterVersion(JudoscaleApiClient.class),
@@ -31,72 +51,390 @@ public class JudoscaleApiClient implements ApiClient {
 
     private final JudoscaleConfig config;
     private final HttpClient httpClient;
+    private final ReportEncoder encoder;
+    private final CircuitBreaker circuitBreaker;
+    private final SendPolicy sendPolicy;
+
+    // Counts TLS connections; null when the HTTP client was supplied
+    private final CountingSSLContext sslContext;
+    private final AtomicLong requests = new AtomicLong();
+
+    // Set once the API answers a binary report with 415 Unsupported Media Type
+    private volatile boolean binaryRejected;
+
+    // Reports that fail to send are spooled here, if set, and replayed once reports are sent again
+    private volatile ReportSpool spool;
+    private volatile boolean lastReportSent;
 
     public JudoscaleApiClient(JudoscaleConfig config) {
-        this.config = config;
-        this.httpClient = HttpClient.newBuilder()
-            .connectTimeout(Duration.ofSeconds(5))
-            .build();
+        this(config, CountingSSLContext.create(), null);
+    }
+
+    /**
+     * Creates a client whose HTTP exchanges run on the given executor, such as a virtual thread
+     * per task executor, instead of the HTTP client's default thread pool.
+     */
+    public JudoscaleApiClient(JudoscaleConfig config, Executor executor) {
+        this(config, CountingSSLContext.create(), executor);
+    }
+
+    private JudoscaleApiClient(JudoscaleConfig config, CountingSSLContext sslContext, Executor executor) {
+        this(config, newHttpClient(config, sslContext, executor), sslContext);
     }
 
     // Constructor for testing with mock HttpClient
     JudoscaleApiClient(JudoscaleConfig config, HttpClient httpClient) {
+        this(config, httpClient, null);
+    }
+
+    private JudoscaleApiClient(JudoscaleConfig config, HttpClient httpClient, CountingSSLContext sslContext) {
         this.config = config;
         this.httpClient = httpClient;
+        this.sslContext = sslContext;
+        this.encoder = config.isCompressReports() || config.isBinaryReportFormat() ? ReportEncoder.forConfig(config) : null;
+        this.circuitBreaker = CircuitBreaker.forConfig(config);
+        this.sendPolicy = new SendPolicy(RetryPolicy.forConfig(config), circuitBreaker);
+    }
+
+    /**
+     * Builds the HTTP client. It keeps connections to the API open between reports, and prefers
+     * HTTP/2 unless {@code judoscale.http2-enabled} is false.
+     */
+    private static HttpClient newHttpClient(JudoscaleConfig config, CountingSSLContext sslContext, Executor executor) {
+        HttpClient.Builder builder = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .version(config.isHttp2Enabled() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1);
+        if (sslContext != null) {
+            builder.sslContext(sslContext);
+        }
+        if (executor != null) {
+            builder.executor(executor);
+        }
+        return builder.build();
     }
 
     @Override
     public boolean reportMetrics(List<Metric> metrics) {
+        return reportMetrics(new Report(metrics));
+    }
+
+    @Override
+    public boolean reportMetrics(Report report) {
         if (!config.isConfigured()) {
             logger.debug("Judoscale API URL not configured, skipping report");
             return false;
         }
 
-        String json = ReportBuilder.buildReportJson(metrics, List.of(ADAPTER), config.getRuntimeContainer());
         String url = config.getApiBaseUrl() + "/v3/reports";
+        EncodedReport encoded = encode(report);
 
-        for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
-            try {
-                HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(url))
-                    .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(json))
-                    .timeout(Duration.ofSeconds(10))
-                    .build();
+        try {
+            if (!circuitBreaker.allowRequest()) {
+                logger.debug("Judoscale API circuit breaker is open, skipping report");
+                spool(report, encoded);
+                return false;
+            }
 
-                logger.debug("Posting {} bytes to {}", json.length(), url);
+            for (int attempt = 1; ; attempt++) {
+                HttpResponse<String> response = null;
+                IOException error = null;
+                try {
+                    requests.incrementAndGet();
+                    response = httpClient.send(buildRequest(report, encoded, url), HttpResponse.BodyHandlers.ofString());
+                } catch (IOException e) {
+                    error = e;
+                } catch (InterruptedException e) {
+                    return interrupted(report, encoded);
+                }
 
-                HttpResponse<String> response = httpClient.send(request,
-                    HttpResponse.BodyHandlers.ofString());
+                SendPolicy.Step next = nextStep(report, encoded, url, attempt, response, error);
+                if (next.shouldResendAsJson()) {
+                    return reportMetrics(report);
+                }
+                if (!next.isRetry()) {
+                    return next.isSent();
+                }
+                try {
+                    Thread.sleep(next.getRetryDelayMillis());
+                } catch (InterruptedException e) {
+                    return interrupted(report, encoded);
+                }
+            }
+        } finally {
+            if (encoded != null) {
+                encoded.close();
+            }
+        }
+    }
 
-                if (response.statusCode() >= 200 && response.statusCode() < 300) {
-                    logger.debug("Reported successfully");
-                    return true;
-                } else {
-                    logger.error("Reporter failed: {} - {}", response.statusCode(), response.body());
-                    return false;
+    /**
+     * Sends the report with {@link HttpClient#sendAsync}, retrying failures like
+     * {@link #reportMetrics(Report)} without blocking the calling thread.
+     */
+    @Override
+    public CompletableFuture<Boolean> reportMetricsAsync(Report report) {
+        if (!config.isConfigured()) {
+            logger.debug("Judoscale API URL not configured, skipping report");
+            return CompletableFuture.completedFuture(false);
+        }
+
+        String url = config.getApiBaseUrl() + "/v3/reports";
+        EncodedReport encoded = encode(report);
+
+        if (!circuitBreaker.allowRequest()) {
+            logger.debug("Judoscale API circuit breaker is open, skipping report");
+            try {
+                spool(report, encoded);
+            } finally {
+                if (encoded != null) {
+                    encoded.close();
                 }
+            }
+            return CompletableFuture.completedFuture(false);
+        }
+
+        return sendAsync(report, encoded, url, 1).whenComplete((accepted, error) -> {
+            if (encoded != null) {
+                encoded.close();
+            }
+        });
+    }
 
-            } catch (IOException | InterruptedException e) {
-                // Restore interrupt status if this was an interrupt
-                if (e instanceof InterruptedException) {
-                    Thread.currentThread().interrupt();
+    private CompletableFuture<Boolean> sendAsync(Report report, EncodedReport encoded, String url, int attempt) {
+        requests.incrementAndGet();
+        return httpClient.sendAsync(buildRequest(report, encoded, url), HttpResponse.BodyHandlers.ofString())
+            .handle((response, error) -> {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                SendPolicy.Step next = nextStep(report, encoded, url, attempt, response, cause);
+                if (next.shouldResendAsJson()) {
+                    return reportMetricsAsync(report);
                 }
-                if (attempt < MAX_RETRIES) {
-                    logger.debug("Retry {} after error: {}", attempt, e.getMessage());
-                    try {
-                        Thread.sleep(10);
-                    } catch (InterruptedException ignored) {
-                        Thread.currentThread().interrupt();
-                        return false;
-                    }
-                } else {
-                    logger.error("Could not connect to {}: {}", url, e.getMessage());
-                    return false;
+                if (!next.isRetry()) {
+                    return CompletableFuture.completedFuture(next.isSent());
                 }
-            }
+                Executor delayed = CompletableFuture.delayedExecutor(next.getRetryDelayMillis(), TimeUnit.MILLISECONDS);
+                return CompletableFuture.supplyAsync(() -> attempt + 1, delayed)
+                    .thenCompose(nextAttempt -> sendAsync(report, encoded, url, nextAttempt));
+            })
+            .thenCompose(result -> result);
+    }
+
+    /**
+     * Decides what follows an attempt to send a report with the {@link SendPolicy}, for both the
+     * blocking and the asynchronous path, and spools the report when giving up.
+     *
+     * @param response the API's response, or null if the attempt failed with {@code error}
+     */
+    private SendPolicy.Step nextStep(Report report, EncodedReport encoded, String url, int attempt,
+                                     HttpResponse<String> response, Throwable error) {
+        SendPolicy.Step next;
+        if (response != null) {
+            next = sendPolicy.afterResponse(attempt, response.statusCode(), response.body(),
+                () -> response.headers().firstValue("Retry-After").orElse(null), isBinary(encoded));
+        } else if (error instanceof IOException) {
+            next = sendPolicy.afterConnectionError(attempt, url, error.getMessage());
+        } else {
+            next = sendPolicy.afterError(error);
+        }
+
+        if (next.isSent()) {
+            lastReportSent = true;
+        } else if (next.shouldResendAsJson()) {
+            binaryRejected = true;
+        } else if (next.shouldSpool()) {
+            spool(report, encoded);
         }
+        return next;
+    }
 
+    /**
+     * Gives up on a blocking send whose thread was interrupted, keeping the interrupt flag set.
+     */
+    private boolean interrupted(Report report, EncodedReport encoded) {
+        Thread.currentThread().interrupt();
+        sendPolicy.afterInterrupt();
+        spool(report, encoded);
         return false;
     }
+
+    /**
+     * Spools reports that fail with a connection error or a retryable status (429 or 5xx), to be
+     * replayed by {@link #replaySpooledReports(int)} once a report is sent successfully again.
+     */
+    public void setSpool(ReportSpool spool) {
+        this.spool = spool;
+    }
+
+    @Override
+    public int replaySpooledReports(int maxReports) {
+        ReportSpool spool = this.spool;
+        if (spool == null || !lastReportSent || !config.isConfigured()
+            || circuitBreaker.getState() != CircuitBreaker.State.CLOSED) {
+            return 0;
+        }
+        return spool.replay(this::sendSpooled, maxReports);
+    }
+
+    @Override
+    public CircuitBreaker.State getCircuitBreakerState() {
+        return circuitBreaker.getState();
+    }
+
+    /**
+     * Closes the spool, if any. Unsent reports stay on disk for the next start.
+     */
+    @Override
+    public void close() throws IOException {
+        ReportSpool spool = this.spool;
+        if (spool != null) {
+            spool.close();
+        }
+    }
+
+    /**
+     * Sends a spooled report once. Returns false to keep it spooled if it might be accepted later.
+     */
+    private boolean sendSpooled(SpooledReport spooled) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+            .uri(URI.create(config.getApiBaseUrl() + "/v3/reports"))
+            .timeout(Duration.ofSeconds(10))
+            .header("Content-Type", spooled.contentType());
+        if (spooled.contentEncoding() != null) {
+            builder.header("Content-Encoding", spooled.contentEncoding());
+        }
+        builder.POST(HttpRequest.BodyPublishers.ofByteArray(spooled.bytes()));
+
+        try {
+            requests.incrementAndGet();
+            HttpResponse<String> response = httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() >= 200 && response.statusCode() < 300) {
+                return true;
+            }
+            if (RetryPolicy.isRetryable(response.statusCode())) {
+                logger.debug("Spooled report not accepted yet: {}", response.statusCode());
+                return false;
+            }
+            logger.warn("Dropping spooled report from {}: {} - {}", spooled.spooledAt(), response.statusCode(), response.body());
+            return true;
+        } catch (IOException e) {
+            logger.debug("Could not replay spooled report: {}", e.getMessage());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Appends a report that failed to send to the spool, if there is one.
+     */
+    private void spool(Report report, EncodedReport encoded) {
+        lastReportSent = false;
+        ReportSpool spool = this.spool;
+        if (spool == null) {
+            return;
+        }
+        if (encoded != null) {
+            spool.append(encoded.contentType(), encoded.isCompressed() ? encoded.contentEncoding() : null,
+                encoded.bytes(), 0, encoded.length());
+        } else {
+            byte[] json = ReportBuilder.buildReportJson(report, List.of(ADAPTER), config.getRuntimeContainer())
+                .getBytes(StandardCharsets.UTF_8);
+            spool.append("application/json", null, json, 0, json.length);
+        }
+    }
+
+    private HttpRequest buildRequest(Report report, EncodedReport encoded, String url) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+            .uri(URI.create(url))
+            .timeout(Duration.ofSeconds(10));
+
+        if (encoded == null) {
+            // Serialize while sending: the payload is never held in memory as a whole
+            builder.header("Content-Type", "application/json");
+            builder.POST(HttpRequest.BodyPublishers.ofInputStream(() ->
+                ReportBuilder.openReportJson(report, List.of(ADAPTER), config.getRuntimeContainer())));
+            logger.debug("Posting {} metrics to {}", report.metrics().size(), url);
+        } else {
+            builder.header("Content-Type", encoded.contentType());
+            if (encoded.isCompressed()) {
+                builder.header("Content-Encoding", encoded.contentEncoding());
+            }
+            builder.POST(HttpRequest.BodyPublishers.ofByteArray(encoded.bytes(), 0, encoded.length()));
+            logger.debug("Posting {} bytes ({} uncompressed) of {} to {}",
+                encoded.length(), encoded.rawLength(), encoded.contentType(), url);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Sends a HEAD request to the reports endpoint in the background. Whatever the API answers, the
+     * connection stays open for the first report.
+     */
+    @Override
+    public void prewarm() {
+        if (!config.isConfigured()) {
+            return;
+        }
+        HttpRequest request = HttpRequest.newBuilder()
+            .uri(URI.create(config.getApiBaseUrl() + "/v3/reports"))
+            .timeout(Duration.ofSeconds(10))
+            .method("HEAD", HttpRequest.BodyPublishers.noBody())
+            .build();
+        requests.incrementAndGet();
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+            .whenComplete((response, error) -> {
+                if (error != null) {
+                    logger.debug("Could not prewarm connection: {}", error.getMessage());
+                } else {
+                    logger.debug("Prewarmed {} connection", response.version());
+                }
+            });
+    }
+
+    /**
+     * Returns connection totals for the requests sent so far, or null if they aren't known. Only TLS
+     * connections are counted, so this is null for an {@code http://} API URL.
+     */
+    @Override
+    public ConnectionStats getConnectionStats() {
+        if (sslContext == null || !config.isConfigured() || !config.getApiBaseUrl().startsWith("https:")) {
+            return null;
+        }
+        return new ConnectionStats(requests.get(), sslContext.getConnectionsOpened());
+    }
+
+    /**
+     * Returns compression totals for the reports sent so far, or null if reports are streamed
+     * as uncompressed JSON.
+     */
+    @Override
+    public CompressionStats getCompressionStats() {
+        return encoder != null ? encoder.getStats() : null;
+    }
+
+    private static boolean isBinary(EncodedReport encoded) {
+        return encoded != null && BinaryReportBuilder.CONTENT_TYPE.equals(encoded.contentType());
+    }
+
+    /**
+     * Serializes the report into a pooled buffer when compression or the binary format is enabled.
+     * Returns null to stream the report as uncompressed JSON instead.
+     */
+    private EncodedReport encode(Report report) {
+        if (encoder == null) {
+            return null;
+        }
+        try {
+            if (config.isBinaryReportFormat() && !binaryRejected) {
+                return encoder.encodeBinary(report, List.of(ADAPTER), config.getRuntimeContainer());
+            }
+            if (config.isCompressReports()) {
+                return encoder.encode(report, List.of(ADAPTER), config.getRuntimeContainer());
+            }
+        } catch (IOException e) {
+            logger.warn("Could not encode report, sending it as JSON: {}", e.getMessage());
+        }
+        return null;
+    }
 }
@@ -1,29 +1,43 @@
 package com.judoscale.spring;
 
+import com.judoscale.core.Clock;
+import com.judoscale.core.EventLoopLagProbe;
 import com.judoscale.core.MetricsStore;
+import com.judoscale.core.ReportSpool;
 import com.judoscale.core.UtilizationTracker;
 import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
 import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
 import org.springframework.scheduling.TaskScheduler;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.SimpleAsyncTaskScheduler;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
+import java.util.concurrent.Executors;
+
 /**
  * Auto-configuration for Judoscale Spring Boot integration.
  * Automatically registers the filter and reporter when the starter is on the classpath.
+ * Servlet applications get {@link JudoscaleFilter}; WebFlux applications get {@link JudoscaleWebFilter}.
  */
 @AutoConfiguration
-@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnWebApplication
 @ConditionalOnProperty(name = "judoscale.enabled", havingValue = "true", matchIfMissing = true)
 @EnableConfigurationProperties(JudoscaleConfig.class)
 @EnableScheduling
@@ -31,22 +45,39 @@ public class JudoscaleAutoConfiguration {
 
     private static final Logger logger = LoggerFactory.getLogger(JudoscaleAutoConfiguration.class);
 
+    /**
+     * The clock requests are timed with. A coarse clock's ticker thread is stopped by its inferred
+     * {@code close()} destroy method.
+     */
+    @Bean
+    @ConditionalOnMissingBean(Clock.class)
+    public Clock judoscaleClock(JudoscaleConfig config) {
+        return Clock.forConfig(config);
+    }
+
     @Bean
     @ConditionalOnMissingBean(MetricsStore.class)
-    public MetricsStore judoscaleMetricsStore() {
-        return new MetricsStore();
+    public MetricsStore judoscaleMetricsStore(JudoscaleConfig config, Clock clock) {
+        return MetricsStore.forConfig(config, clock);
     }
 
     @Bean
     @ConditionalOnMissingBean(UtilizationTracker.class)
-    public UtilizationTracker judoscaleUtilizationTracker() {
-        return new UtilizationTracker();
+    public UtilizationTracker judoscaleUtilizationTracker(JudoscaleConfig config, Environment environment, Clock clock) {
+        int workerPoolSize = WorkerPoolSize.detect(config, environment);
+        logger.debug("Judoscale worker pool size: {}", workerPoolSize > 0 ? workerPoolSize : "unknown");
+        return UtilizationTracker.forConfig(config, workerPoolSize, clock);
     }
 
     @Bean
     @ConditionalOnMissingBean(JudoscaleApiClient.class)
-    public JudoscaleApiClient judoscaleApiClient(JudoscaleConfig config) {
-        return new JudoscaleApiClient(config);
+    public JudoscaleApiClient judoscaleApiClient(JudoscaleConfig config, Environment environment) {
+        // Send reports on virtual threads rather than the HTTP client's own platform thread pool
+        JudoscaleApiClient apiClient = Threading.VIRTUAL.isActive(environment)
+            ? new JudoscaleApiClient(config, Executors.newVirtualThreadPerTaskExecutor())
+            : new JudoscaleApiClient(config);
+        apiClient.setSpool(ReportSpool.forConfig(config));
+        return apiClient;
     }
 
     @Bean
@@ -55,34 +86,138 @@ public class JudoscaleAutoConfiguration {
             MetricsStore metricsStore,
             JudoscaleApiClient apiClient,
             JudoscaleConfig config,
-            UtilizationTracker utilizationTracker) {
-        return new JudoscaleReporter(metricsStore, apiClient, config, utilizationTracker);
+            UtilizationTracker utilizationTracker,
+            Environment environment,
+            Clock clock) {
+        JudoscaleReporter reporter = new JudoscaleReporter(metricsStore, apiClient, config, utilizationTracker, clock);
+        // Every request holds a virtual thread, so up would stay near 100%; vt_sat reports capacity instead
+        if (Threading.VIRTUAL.isActive(environment) && config.isVirtualThreadMonitorEnabled()) {
+            reporter.setUtilizationReported(false);
+        }
+        return reporter;
     }
 
-    @Bean
-    @ConditionalOnMissingBean(name = "judoscaleFilter")
-    public FilterRegistrationBean<JudoscaleFilter> judoscaleFilter(
-            MetricsStore metricsStore,
-            JudoscaleConfig config,
-            UtilizationTracker utilizationTracker) {
+    /**
+     * Servlet (Spring MVC) request measurement.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    static class ServletConfiguration {
 
-        FilterRegistrationBean<JudoscaleFilter> registration = new FilterRegistrationBean<>();
-        registration.setFilter(new JudoscaleFilter(metricsStore, config, utilizationTracker));
-        registration.addUrlPatterns("/*");
-        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
-        registration.setName("judoscaleFilter");
+        @Bean
+        @ConditionalOnMissingBean(name = "judoscaleFilter")
+        public FilterRegistrationBean<JudoscaleFilter> judoscaleFilter(
+                MetricsStore metricsStore,
+                JudoscaleConfig config,
+                UtilizationTracker utilizationTracker,
+                Clock clock) {
 
-        return registration;
+            FilterRegistrationBean<JudoscaleFilter> registration = new FilterRegistrationBean<>();
+            registration.setFilter(new JudoscaleFilter(metricsStore, config, utilizationTracker, clock));
+            registration.addUrlPatterns("/*");
+            registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+            registration.setName("judoscaleFilter");
+            // Async requests are measured until they complete, which needs async support on the filter.
+            // The listener sees completion, so the filter needn't be registered for ASYNC dispatches.
+            registration.setAsyncSupported(true);
+
+            return registration;
+        }
+    }
+
+    /**
+     * Container queue time and executor saturation for servlet applications on embedded Tomcat.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    @ConditionalOnClass(name = "org.apache.catalina.startup.Tomcat")
+    @ConditionalOnProperty(name = "judoscale.tomcat-valve-enabled", havingValue = "true")
+    static class TomcatConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean(JudoscaleTomcatValve.class)
+        public JudoscaleTomcatValve judoscaleTomcatValve(MetricsStore metricsStore, Clock clock) {
+            return new JudoscaleTomcatValve(metricsStore, clock);
+        }
+
+        @Bean
+        public WebServerFactoryCustomizer<TomcatServletWebServerFactory> judoscaleTomcatCustomizer(
+                JudoscaleTomcatValve valve) {
+            return factory -> {
+                factory.addEngineValves(valve);
+                factory.addConnectorCustomizers(valve::setConnector);
+            };
+        }
+    }
+
+    /**
+     * Reactive (Spring WebFlux) request measurement.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    static class ReactiveConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean(JudoscaleWebFilter.class)
+        public JudoscaleWebFilter judoscaleWebFilter(
+                MetricsStore metricsStore,
+                JudoscaleConfig config,
+                UtilizationTracker utilizationTracker,
+                Clock clock) {
+            return new JudoscaleWebFilter(metricsStore, config, utilizationTracker, clock);
+        }
+    }
+
+    /**
+     * Event loop lag measurement for WebFlux applications running on Reactor Netty.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    @ConditionalOnClass(name = "reactor.netty.http.HttpResources")
+    @ConditionalOnProperty(name = "judoscale.event-loop-lag-probe-enabled", havingValue = "true", matchIfMissing = true)
+    static class EventLoopLagConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean(EventLoopLagProbe.class)
+        public JudoscaleEventLoopLagProbe judoscaleEventLoopLagProbe(MetricsStore metricsStore, Clock clock) {
+            JudoscaleEventLoopLagProbe probe = new JudoscaleEventLoopLagProbe(metricsStore, clock);
+            logger.debug("Judoscale probing {} event loops for lag", probe.getEventLoopCount());
+            return probe;
+        }
+    }
+
+    /**
+     * Virtual thread scheduler measurement for applications running requests on virtual threads.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    @ConditionalOnProperty(name = "judoscale.virtual-thread-monitor-enabled", havingValue = "true", matchIfMissing = true)
+    static class VirtualThreadConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean(JudoscaleVirtualThreadMonitor.class)
+        public JudoscaleVirtualThreadMonitor judoscaleVirtualThreadMonitor(MetricsStore metricsStore, Clock clock) {
+            return new JudoscaleVirtualThreadMonitor(metricsStore, clock);
+        }
     }
 
     /**
      * Dedicated task scheduler for Judoscale to avoid conflicts with application scheduling.
+     * With virtual threads enabled, each report and sample runs on its own virtual thread.
      */
     @Bean
     @ConditionalOnMissingBean(name = "judoscaleTaskScheduler")
-    public TaskScheduler judoscaleTaskScheduler() {
+    public TaskScheduler judoscaleTaskScheduler(Environment environment) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskScheduler scheduler = new SimpleAsyncTaskScheduler();
+            scheduler.setVirtualThreads(true);
+            scheduler.setThreadNamePrefix("judoscale-");
+            return scheduler;
+        }
+
         ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
-        scheduler.setPoolSize(1);
+        // A second thread keeps utilization sampling on time while a report is being sent
+        scheduler.setPoolSize(2);
         scheduler.setThreadNamePrefix("judoscale-");
         scheduler.setDaemon(true);
         return scheduler;
@@ -117,5 +252,17 @@ public class JudoscaleAutoConfiguration {
         public void reportMetrics() {
             reporter.reportMetrics();
         }
+
+        // Clamped like JudoscaleConfig#setUtilizationSubIntervalSeconds, since a 0ms rate fails at startup
+        @Scheduled(fixedRateString = "#{T(java.lang.Math).max(1, ${judoscale.utilization-sub-interval-seconds:1}) * 1000}",
+            scheduler = "judoscaleTaskScheduler")
+        public void sampleUtilization() {
+            reporter.sampleUtilization();
+        }
+
+        @Scheduled(fixedRateString = "${judoscale.report-interval-seconds:10}000", scheduler = "judoscaleTaskScheduler")
+        public void replaySpooledReports() {
+            reporter.replaySpooledReports();
+        }
     }
 }
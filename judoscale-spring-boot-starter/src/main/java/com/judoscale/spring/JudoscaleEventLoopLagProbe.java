@@ -0,0 +1,50 @@
+package com.judoscale.spring;
+
+import com.judoscale.core.Clock;
+import com.judoscale.core.EventLoopLagProbe;
+import com.judoscale.core.MetricsStore;
+import io.netty.util.concurrent.EventExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import reactor.netty.http.HttpResources;
+import reactor.netty.resources.LoopResources;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Probes the Reactor Netty server event loops for lag on the Judoscale scheduler.
+ */
+public class JudoscaleEventLoopLagProbe extends EventLoopLagProbe {
+
+    public JudoscaleEventLoopLagProbe(MetricsStore metricsStore) {
+        this(metricsStore, Clock.system());
+    }
+
+    public JudoscaleEventLoopLagProbe(MetricsStore metricsStore, Clock clock) {
+        super(metricsStore, serverEventLoops(), "el", clock);
+    }
+
+    @Override
+    @Scheduled(fixedRateString = "${judoscale.event-loop-lag-probe-interval-millis:100}", scheduler = "judoscaleTaskScheduler")
+    public void probe() {
+        super.probe();
+    }
+
+    @Override
+    @Scheduled(fixedRateString = "${judoscale.report-interval-seconds:10}000", scheduler = "judoscaleTaskScheduler")
+    public void report() {
+        super.report();
+    }
+
+    /**
+     * Returns the event loops of the global Reactor Netty resources, which Spring Boot's Netty server
+     * runs on unless the application configures its own.
+     */
+    static List<EventExecutor> serverEventLoops() {
+        List<EventExecutor> eventLoops = new ArrayList<>();
+        for (EventExecutor eventLoop : HttpResources.get().onServer(LoopResources.DEFAULT_NATIVE)) {
+            eventLoops.add(eventLoop);
+        }
+        return eventLoops;
+    }
+}
@@ -1,8 +1,12 @@
 package com.judoscale.spring;
 
+import com.judoscale.core.Clock;
 import com.judoscale.core.MetricsStore;
 import com.judoscale.core.QueueTimeCalculator;
 import com.judoscale.core.UtilizationTracker;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.Filter;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -11,14 +15,26 @@ import jakarta.servlet.ServletResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.web.servlet.HandlerMapping;
 
 import java.io.IOException;
-import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Servlet filter that measures request queue time and application time.
  * Queue time is calculated from the X-Request-Start header set by the load balancer.
  * Also tracks request utilization via UtilizationTracker.
+ *
+ * <p>For async requests (DeferredResult, Callable, CompletableFuture, StreamingResponseBody, ...)
+ * the measurement ends when the async request completes, times out or fails, rather than when the
+ * initial dispatch hands off to another thread.</p>
+ *
+ * <p>With {@code trackNetworkTime}, the time the application spends reading the request body is reported
+ * as network time (nt). With {@code subtractNetworkTime}, requests too large for their queue time to be
+ * trusted still report it, less the network time, once they complete.</p>
+ *
+ * <p>When the metrics store tracks routes, each request is also recorded under its HTTP method and
+ * the Spring MVC path pattern that handled it.</p>
  */
 public class JudoscaleFilter implements Filter {
 
@@ -27,30 +43,43 @@ public class JudoscaleFilter implements Filter {
     private final MetricsStore metricsStore;
     private final JudoscaleConfig config;
     private final UtilizationTracker utilizationTracker;
+    private final Clock clock;
 
     public JudoscaleFilter(MetricsStore metricsStore, JudoscaleConfig config, UtilizationTracker utilizationTracker) {
+        this(metricsStore, config, utilizationTracker, metricsStore.getClock());
+    }
+
+    /**
+     * Creates a filter that reads the time from the given clock.
+     */
+    public JudoscaleFilter(MetricsStore metricsStore, JudoscaleConfig config, UtilizationTracker utilizationTracker,
+                           Clock clock) {
         this.metricsStore = metricsStore;
         this.config = config;
         this.utilizationTracker = utilizationTracker;
+        this.clock = clock;
     }
 
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
             throws IOException, ServletException {
 
-        if (!(request instanceof HttpServletRequest httpRequest)) {
+        // Async dispatches continue a request that is already being measured
+        if (!(request instanceof HttpServletRequest httpRequest) || request.getDispatcherType() == DispatcherType.ASYNC) {
             chain.doFilter(request, response);
             return;
         }
 
-        Instant now = Instant.now();
+        long now = clock.currentTimeMillis();
         String requestStartHeader = httpRequest.getHeader("X-Request-Start");
         String requestId = httpRequest.getHeader("X-Request-Id");
         int contentLength = httpRequest.getContentLength();
 
         // Track queue time if header is present and request isn't too large
-        if (requestStartHeader != null && shouldTrackQueueTime(contentLength)) {
-            long queueTimeMs = QueueTimeCalculator.calculateQueueTime(requestStartHeader, now);
+        long queueTimeMs = -1;
+        boolean largeRequest = !shouldTrackQueueTime(contentLength);
+        if (requestStartHeader != null && !largeRequest) {
+            queueTimeMs = QueueTimeCalculator.calculateQueueTime(requestStartHeader, now);
 
             if (queueTimeMs >= 0) {
                 metricsStore.push("qt", queueTimeMs, now);
@@ -63,6 +92,15 @@ public class JudoscaleFilter implements Filter {
             } else {
                 logger.warn("Could not parse X-Request-Start header: {}", requestStartHeader);
             }
+        } else if (requestStartHeader != null && config.isSubtractNetworkTime()) {
+            // Recorded once the request completes, less the time spent reading the body
+            queueTimeMs = QueueTimeCalculator.calculateQueueTime(requestStartHeader, now);
+        }
+
+        // Time reads of the body when network time is reported or subtracted from queue time
+        HttpServletRequest measuredRequest = httpRequest;
+        if (contentLength != 0 && (config.isTrackNetworkTime() || largeRequest && queueTimeMs >= 0)) {
+            measuredRequest = new NetworkTimedRequest(httpRequest, clock);
         }
 
         // Start utilization tracking on first request (lazy initialization)
@@ -70,15 +108,78 @@ public class JudoscaleFilter implements Filter {
         utilizationTracker.incr();
 
         // Measure application time
-        long startNanos = System.nanoTime();
+        long startNanos = clock.nanoTime();
 
+        boolean asyncStarted = false;
         try {
-            chain.doFilter(request, response);
+            chain.doFilter(measuredRequest, response);
+            asyncStarted = httpRequest.isAsyncStarted();
         } finally {
-            long appTimeMs = (System.nanoTime() - startNanos) / 1_000_000;
-            metricsStore.push("at", appTimeMs, now);
-            utilizationTracker.decr();
+            if (!asyncStarted || !completeOnAsyncCompletion(measuredRequest, now, startNanos, queueTimeMs)) {
+                recordCompletion(measuredRequest, now, startNanos, queueTimeMs);
+            }
+        }
+    }
+
+    /**
+     * Defers the end of the measurement until the async request completes.
+     *
+     * @return false if the listener could not be registered, in which case the caller should
+     * record the completion now
+     */
+    private boolean completeOnAsyncCompletion(HttpServletRequest request, long now, long startNanos,
+                                              long queueTimeMs) {
+        try {
+            request.getAsyncContext().addListener(new AsyncCompletionListener(request, now, startNanos, queueTimeMs));
+            return true;
+        } catch (IllegalStateException e) {
+            logger.debug("Could not listen for async request completion, recording app time at handoff", e);
+            return false;
+        }
+    }
+
+    private void recordCompletion(HttpServletRequest request, long now, long startNanos, long queueTimeMs) {
+        long appTimeMs = (clock.nanoTime() - startNanos) / 1_000_000;
+        metricsStore.push("at", appTimeMs, now);
+        if (request instanceof NetworkTimedRequest timedRequest) {
+            queueTimeMs = recordNetworkTime(timedRequest, now, queueTimeMs);
+        }
+        if (metricsStore.isTrackingRoutes()) {
+            metricsStore.recordRoute(route(request), queueTimeMs, appTimeMs);
+        }
+        utilizationTracker.decr();
+    }
+
+    /**
+     * Records the time spent reading the body and, for a large request whose queue time was held
+     * back, the queue time less that network time. If the body wasn't read through the request, as
+     * for multipart and form posts the container parses itself, the queue time is dropped as it is
+     * without subtraction.
+     *
+     * @return the request's queue time, or -1 if it has none
+     */
+    private long recordNetworkTime(NetworkTimedRequest request, long now, long queueTimeMs) {
+        long networkTimeMs = request.getNetworkTimeMs();
+        if (networkTimeMs >= 0 && config.isTrackNetworkTime()) {
+            metricsStore.push("nt", networkTimeMs, now);
+        }
+        if (queueTimeMs >= 0 && !shouldTrackQueueTime(request.getContentLength())) {
+            if (networkTimeMs < 0) {
+                return -1;
+            }
+            queueTimeMs = Math.max(0, queueTimeMs - networkTimeMs);
+            metricsStore.push("qt", queueTimeMs, now);
         }
+        return queueTimeMs;
+    }
+
+    /**
+     * Returns the HTTP method and the path pattern of the handler that matched the request,
+     * or null if no Spring MVC handler did (static resources, 404s, other servlets).
+     */
+    private static String route(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern == null ? null : request.getMethod() + " " + pattern;
     }
 
     /**
@@ -91,4 +192,51 @@ public class JudoscaleFilter implements Filter {
         }
         return contentLength < 0 || contentLength <= config.getMaxRequestSizeBytes();
     }
+
+    /**
+     * Records the app time and ends utilization tracking once an async request is done.
+     * A timeout or error is usually followed by completion, so only the first event counts.
+     */
+    private final class AsyncCompletionListener implements AsyncListener {
+
+        private final HttpServletRequest request;
+        private final long now;
+        private final long startNanos;
+        private final long queueTimeMs;
+        private final AtomicBoolean completed = new AtomicBoolean(false);
+
+        AsyncCompletionListener(HttpServletRequest request, long now, long startNanos, long queueTimeMs) {
+            this.request = request;
+            this.now = now;
+            this.startNanos = startNanos;
+            this.queueTimeMs = queueTimeMs;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            complete();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            complete();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            complete();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Listeners are cleared when async processing restarts, so register again
+            event.getAsyncContext().addListener(this);
+        }
+
+        private void complete() {
+            if (completed.compareAndSet(false, true)) {
+                recordCompletion(request, now, startNanos, queueTimeMs);
+            }
+        }
+    }
 }
@@ -1,6 +1,7 @@
 package com.judoscale.spring;
 
 import com.judoscale.core.ApiClient;
+import com.judoscale.core.Clock;
 import com.judoscale.core.MetricsStore;
 import com.judoscale.core.Reporter;
 import com.judoscale.core.UtilizationTracker;
@@ -15,4 +16,9 @@ public class JudoscaleReporter extends Reporter {
                              UtilizationTracker utilizationTracker) {
         super(metricsStore, apiClient, config, utilizationTracker);
     }
+
+    public JudoscaleReporter(MetricsStore metricsStore, ApiClient apiClient, JudoscaleConfig config,
+                             UtilizationTracker utilizationTracker, Clock clock) {
+        super(metricsStore, apiClient, config, utilizationTracker, clock);
+    }
 }
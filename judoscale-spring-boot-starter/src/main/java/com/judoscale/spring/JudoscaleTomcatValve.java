@@ -0,0 +1,89 @@
+package com.judoscale.spring;
+
+import com.judoscale.core.Clock;
+import com.judoscale.core.HistogramMetricsStore;
+import com.judoscale.core.MetricsStore;
+import jakarta.servlet.ServletException;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.connector.Request;
+import org.apache.catalina.connector.Response;
+import org.apache.catalina.valves.ValveBase;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+
+/**
+ * Engine valve that reports how saturated embedded Tomcat's request executor is. Each interval this
+ * reports, when the connector uses a thread pool:
+ * <ul>
+ *   <li>"tc_busy": worker threads processing a request</li>
+ *   <li>"tc_max": the maximum number of worker threads</li>
+ *   <li>"tc_queue": connections waiting for a free worker thread</li>
+ * </ul>
+ *
+ * <p>Tomcat doesn't timestamp the hand-off from the poller to the executor, so the wait for a free
+ * worker thread only shows up in "tc_busy" and "tc_queue". When the {@link HistogramMetricsStore}
+ * aggregates it, each request also records "tc_qt": the milliseconds from when Tomcat started reading
+ * the request line to when the request reached this valve, which is mostly time spent reading and
+ * parsing the request line and headers. With other stores it isn't recorded, since a sample per request would double the
+ * samples kept for a signal that isn't queue time.</p>
+ */
+public class JudoscaleTomcatValve extends ValveBase {
+
+    private final MetricsStore metricsStore;
+    private final Clock clock;
+    private final boolean recordingParseTime;
+    private volatile Connector connector;
+
+    public JudoscaleTomcatValve(MetricsStore metricsStore, Clock clock) {
+        super(true);
+        this.metricsStore = metricsStore;
+        this.clock = clock;
+        this.recordingParseTime = metricsStore instanceof HistogramMetricsStore histograms
+            && histograms.getAggregatedIdentifiers().contains("tc_qt");
+    }
+
+    @Override
+    public void invoke(Request request, Response response) throws IOException, ServletException {
+        // Async dispatches run through the pipeline again, but the request was only parsed once
+        if (recordingParseTime && !request.isAsyncDispatching()) {
+            long startNanos = request.getCoyoteRequest().getStartTimeNanos();
+            if (startNanos > 0) {
+                long queueTimeMs = Math.max(0, clock.nanoTime() - startNanos) / 1_000_000;
+                metricsStore.push("tc_qt", queueTimeMs, clock.currentTimeMillis());
+            }
+        }
+        getNext().invoke(request, response);
+    }
+
+    /**
+     * Sets the connector whose executor is reported, as a connector customizer.
+     */
+    public void setConnector(Connector connector) {
+        this.connector = connector;
+    }
+
+    @Scheduled(fixedRateString = "${judoscale.report-interval-seconds:10}000", scheduler = "judoscaleTaskScheduler")
+    public void report() {
+        Connector current = connector;
+        if (current == null) {
+            return;
+        }
+
+        // Null until the connector starts, and a virtual thread executor has no pool to saturate
+        Executor executor = current.getProtocolHandler().getExecutor();
+        long now = clock.currentTimeMillis();
+        if (executor instanceof org.apache.tomcat.util.threads.ThreadPoolExecutor pool) {
+            push(pool.getActiveCount(), pool.getMaximumPoolSize(), pool.getQueue().size(), now);
+        } else if (executor instanceof java.util.concurrent.ThreadPoolExecutor pool) {
+            push(pool.getActiveCount(), pool.getMaximumPoolSize(), pool.getQueue().size(), now);
+        }
+    }
+
+    private void push(int busy, int max, int queued, long now) {
+        metricsStore.push("tc_busy", busy, now);
+        metricsStore.push("tc_max", max, now);
+        metricsStore.push("tc_queue", queued, now);
+    }
+}
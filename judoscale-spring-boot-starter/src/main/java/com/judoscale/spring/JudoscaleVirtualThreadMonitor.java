@@ -0,0 +1,138 @@
+package com.judoscale.spring;
+
+import com.judoscale.core.Clock;
+import com.judoscale.core.EventLoopLagProbe;
+import com.judoscale.core.MetricsStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures the virtual thread scheduler when the application runs requests on virtual threads
+ * ({@code spring.threads.virtual.enabled=true}).
+ *
+ * <p>Request concurrency is effectively unbounded on virtual threads, so the limit that matters is
+ * the carrier thread pool they are scheduled on. Each interval this reports:</p>
+ * <ul>
+ *   <li>"vt_lag_max" and "vt_lag_p99": how long a newly started virtual thread waits for a carrier,
+ *   in milliseconds, measured like event loop lag</li>
+ *   <li>"vt_sat": the average percentage of carriers running a virtual thread, when the JDK exposes it</li>
+ *   <li>"vt_par": the number of carriers (the scheduler's parallelism)</li>
+ *   <li>"vt_pinned": milliseconds virtual threads spent pinned to their carrier, from JFR
+ *   {@code jdk.VirtualThreadPinned} events longer than {@link #PINNED_THRESHOLD}</li>
+ * </ul>
+ */
+public class JudoscaleVirtualThreadMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(JudoscaleVirtualThreadMonitor.class);
+
+    /**
+     * Pins shorter than this aren't recorded, which keeps JFR overhead low (the JDK's default threshold).
+     */
+    static final Duration PINNED_THRESHOLD = Duration.ofMillis(20);
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private final MetricsStore metricsStore;
+    private final Clock clock;
+    private final CarrierPool carrierPool;
+    private final EventLoopLagProbe schedulingLag;
+    private final LongAdder pinnedNanos = new LongAdder();
+
+    // Carrier saturation samples since the last report, guarded by this
+    private long saturationSum = 0;
+    private int saturationSamples = 0;
+
+    private volatile RecordingStream pinnedEvents;
+
+    public JudoscaleVirtualThreadMonitor(MetricsStore metricsStore) {
+        this(metricsStore, Clock.system());
+    }
+
+    public JudoscaleVirtualThreadMonitor(MetricsStore metricsStore, Clock clock) {
+        this(metricsStore, clock, CarrierPool.detect());
+    }
+
+    JudoscaleVirtualThreadMonitor(MetricsStore metricsStore, Clock clock, CarrierPool carrierPool) {
+        this.metricsStore = metricsStore;
+        this.clock = clock;
+        this.carrierPool = carrierPool;
+        // Each probe starts a virtual thread; its start delay is the wait for a free carrier
+        this.schedulingLag = new EventLoopLagProbe(metricsStore, List.<Executor>of(Thread::startVirtualThread), "vt_lag",
+            clock);
+    }
+
+    /**
+     * Starts streaming pinned virtual thread events from JFR.
+     */
+    @PostConstruct
+    public void start() {
+        try {
+            RecordingStream stream = new RecordingStream();
+            stream.enable(PINNED_EVENT).withThreshold(PINNED_THRESHOLD);
+            stream.onEvent(PINNED_EVENT, event -> pinnedNanos.add(event.getDuration().toNanos()));
+            stream.startAsync();
+            pinnedEvents = stream;
+        } catch (RuntimeException | LinkageError e) {
+            logger.warn("Could not stream JFR events, not reporting pinned virtual thread time: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        RecordingStream stream = pinnedEvents;
+        pinnedEvents = null;
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    @Scheduled(fixedRateString = "${judoscale.event-loop-lag-probe-interval-millis:100}", scheduler = "judoscaleTaskScheduler")
+    public void probe() {
+        schedulingLag.probe();
+
+        int saturationPct = carrierPool.saturationPct();
+        if (saturationPct >= 0) {
+            synchronized (this) {
+                saturationSum += saturationPct;
+                saturationSamples++;
+            }
+        }
+    }
+
+    @Scheduled(fixedRateString = "${judoscale.report-interval-seconds:10}000", scheduler = "judoscaleTaskScheduler")
+    public void report() {
+        Instant now = Instant.ofEpochMilli(clock.currentTimeMillis());
+        schedulingLag.report();
+
+        metricsStore.push("vt_par", carrierPool.parallelism(), now);
+
+        long saturationPct = -1;
+        synchronized (this) {
+            if (saturationSamples > 0) {
+                saturationPct = Math.round((double) saturationSum / saturationSamples);
+                saturationSum = 0;
+                saturationSamples = 0;
+            }
+        }
+        if (saturationPct >= 0) {
+            metricsStore.push("vt_sat", saturationPct, now);
+        }
+
+        if (pinnedEvents != null) {
+            // Subtract what was read rather than resetting, which would lose pins added meanwhile
+            long pinned = pinnedNanos.sum();
+            pinnedNanos.add(-pinned);
+            metricsStore.push("vt_pinned", pinned / 1_000_000, now);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.judoscale.spring;
+
+import com.judoscale.core.Clock;
+import com.judoscale.core.MetricsStore;
+import com.judoscale.core.QueueTimeCalculator;
+import com.judoscale.core.UtilizationTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * WebFlux filter that measures request queue time and application time.
+ * The reactive counterpart of {@link JudoscaleFilter}.
+ *
+ * <p>Application time ends when the response completes, fails or is cancelled (for example
+ * when the client disconnects). Nothing here blocks: the utilization tracker is lock-free on the
+ * request path and metrics are pushed to a concurrent store.</p>
+ *
+ * <p>When the metrics store tracks routes, each request is also recorded under its HTTP method and
+ * the WebFlux path pattern that handled it.</p>
+ */
+public class JudoscaleWebFilter implements WebFilter, Ordered {
+
+    private static final Logger logger = LoggerFactory.getLogger(JudoscaleWebFilter.class);
+
+    private final MetricsStore metricsStore;
+    private final JudoscaleConfig config;
+    private final UtilizationTracker utilizationTracker;
+    private final Clock clock;
+
+    public JudoscaleWebFilter(MetricsStore metricsStore, JudoscaleConfig config, UtilizationTracker utilizationTracker) {
+        this(metricsStore, config, utilizationTracker, metricsStore.getClock());
+    }
+
+    /**
+     * Creates a filter that reads the time from the given clock.
+     */
+    public JudoscaleWebFilter(MetricsStore metricsStore, JudoscaleConfig config, UtilizationTracker utilizationTracker,
+                              Clock clock) {
+        this.metricsStore = metricsStore;
+        this.config = config;
+        this.utilizationTracker = utilizationTracker;
+        this.clock = clock;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        long now = clock.currentTimeMillis();
+        long queueTimeMs = trackQueueTime(exchange, now);
+
+        // Measure from subscription, so a chain that is never subscribed is never counted
+        return Mono.defer(() -> {
+            // Start utilization tracking on first request (lazy initialization)
+            utilizationTracker.start();
+            utilizationTracker.incr();
+            long startNanos = clock.nanoTime();
+
+            return chain.filter(exchange).doFinally(signal -> {
+                long appTimeMs = (clock.nanoTime() - startNanos) / 1_000_000;
+                metricsStore.push("at", appTimeMs, now);
+                if (metricsStore.isTrackingRoutes()) {
+                    metricsStore.recordRoute(route(exchange), queueTimeMs, appTimeMs);
+                }
+                utilizationTracker.decr();
+            });
+        });
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    /**
+     * Records the request's queue time if the header is present and the request isn't too large.
+     *
+     * @return the queue time, or -1 if it wasn't recorded
+     */
+    private long trackQueueTime(ServerWebExchange exchange, long now) {
+        HttpHeaders headers = exchange.getRequest().getHeaders();
+        String requestStartHeader = headers.getFirst("X-Request-Start");
+        long contentLength = headers.getContentLength();
+
+        if (requestStartHeader != null && shouldTrackQueueTime(contentLength)) {
+            long queueTimeMs = QueueTimeCalculator.calculateQueueTime(requestStartHeader, now);
+
+            if (queueTimeMs >= 0) {
+                metricsStore.push("qt", queueTimeMs, now);
+
+                // Expose queue time to the application via exchange attribute
+                exchange.getAttributes().put("judoscale.queue_time", queueTimeMs);
+
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Request queue_time={}ms request_id={} size={}",
+                        queueTimeMs, headers.getFirst("X-Request-Id"), contentLength);
+                }
+                return queueTimeMs;
+            }
+            logger.warn("Could not parse X-Request-Start header: {}", requestStartHeader);
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the HTTP method and the path pattern of the handler that matched the request,
+     * or null if no WebFlux handler did.
+     */
+    private static String route(ServerWebExchange exchange) {
+        Object pattern = exchange.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern == null ? null : exchange.getRequest().getMethod().name() + " " + pattern;
+    }
+
+    /**
+     * Determines if we should track queue time based on request size.
+     * Large requests can skew queue time due to network transfer time.
+     */
+    private boolean shouldTrackQueueTime(long contentLength) {
+        if (!config.isIgnoreLargeRequests()) {
+            return true;
+        }
+        return contentLength < 0 || contentLength <= config.getMaxRequestSizeBytes();
+    }
+}
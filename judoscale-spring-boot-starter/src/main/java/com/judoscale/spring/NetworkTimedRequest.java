@@ -0,0 +1,148 @@
+package com.judoscale.spring;
+
+import com.judoscale.core.Clock;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Request wrapper that measures the time the application spends reading the request body,
+ * which for large uploads is mostly spent waiting on the client's network.
+ * Only reads through {@link #getInputStream()} and {@link #getReader()} are measured: bodies the container
+ * reads itself, for {@code getParts()} or {@code getParameter()}, aren't.
+ */
+class NetworkTimedRequest extends HttpServletRequestWrapper {
+
+    private final Clock clock;
+    private ServletInputStream inputStream;
+    private BufferedReader reader;
+    private long readNanos;
+    private boolean read;
+
+    NetworkTimedRequest(HttpServletRequest request, Clock clock) {
+        super(request);
+        this.clock = clock;
+    }
+
+    @Override
+    public ServletInputStream getInputStream() throws IOException {
+        if (inputStream == null) {
+            inputStream = new TimedInputStream(super.getInputStream());
+        }
+        return inputStream;
+    }
+
+    @Override
+    public BufferedReader getReader() throws IOException {
+        if (reader == null) {
+            reader = new BufferedReader(new TimedReader(super.getReader()));
+        }
+        return reader;
+    }
+
+    /**
+     * Returns the time spent reading the body, or -1 if it wasn't read.
+     */
+    long getNetworkTimeMs() {
+        return read ? readNanos / 1_000_000 : -1;
+    }
+
+    private void recordRead(long startNanos) {
+        readNanos += clock.nanoTime() - startNanos;
+        read = true;
+    }
+
+    private final class TimedReader extends Reader {
+
+        private final Reader delegate;
+
+        TimedReader(Reader delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            long startNanos = clock.nanoTime();
+            try {
+                return delegate.read(cbuf, off, len);
+            } finally {
+                recordRead(startNanos);
+            }
+        }
+
+        @Override
+        public boolean ready() throws IOException {
+            return delegate.ready();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+
+    private final class TimedInputStream extends ServletInputStream {
+
+        private final ServletInputStream delegate;
+
+        TimedInputStream(ServletInputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int read() throws IOException {
+            long startNanos = clock.nanoTime();
+            try {
+                return delegate.read();
+            } finally {
+                recordRead(startNanos);
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            long startNanos = clock.nanoTime();
+            try {
+                return delegate.read(b, off, len);
+            } finally {
+                recordRead(startNanos);
+            }
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            return delegate.skip(n);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return delegate.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isFinished() {
+            return delegate.isFinished();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            delegate.setReadListener(readListener);
+        }
+
+    }
+}
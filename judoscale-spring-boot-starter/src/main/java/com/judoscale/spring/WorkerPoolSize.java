@@ -0,0 +1,48 @@
+package com.judoscale.spring;
+
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Works out how many requests the embedded web server can process concurrently, so average
+ * concurrency can be reported as a percentage of capacity.
+ */
+final class WorkerPoolSize {
+
+    // Default maximum worker threads for embedded Tomcat and Jetty
+    private static final int DEFAULT_MAX_THREADS = 200;
+
+    private WorkerPoolSize() {
+        // Utility class, no instantiation
+    }
+
+    /**
+     * Returns judoscale.worker-pool-size if set, otherwise the worker thread limit of the embedded
+     * server on the classpath (Tomcat, Jetty or Undertow), or 0 if there isn't one.
+     * Returns 0 when requests run on virtual threads, which the server doesn't limit.
+     */
+    static int detect(JudoscaleConfig config, Environment environment) {
+        if (config.getWorkerPoolSize() > 0) {
+            return config.getWorkerPoolSize();
+        }
+        if (Threading.VIRTUAL.isActive(environment)) {
+            return 0;
+        }
+
+        ClassLoader classLoader = WorkerPoolSize.class.getClassLoader();
+        if (ClassUtils.isPresent("org.apache.catalina.startup.Tomcat", classLoader)) {
+            return environment.getProperty("server.tomcat.threads.max", Integer.class, DEFAULT_MAX_THREADS);
+        }
+        if (ClassUtils.isPresent("org.eclipse.jetty.server.Server", classLoader)) {
+            return environment.getProperty("server.jetty.threads.max", Integer.class, DEFAULT_MAX_THREADS);
+        }
+        if (ClassUtils.isPresent("io.undertow.Undertow", classLoader)) {
+            // Undertow defaults to 8 worker threads per I/O thread, and one I/O thread per CPU (at least 2)
+            int ioThreads = environment.getProperty("server.undertow.threads.io", Integer.class,
+                Math.max(Runtime.getRuntime().availableProcessors(), 2));
+            return environment.getProperty("server.undertow.threads.worker", Integer.class, ioThreads * 8);
+        }
+        return 0;
+    }
+}
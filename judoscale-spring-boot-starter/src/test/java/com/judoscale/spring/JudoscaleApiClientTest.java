@@ -1,12 +1,34 @@
 package com.judoscale.spring;
 
+import com.judoscale.core.BinaryReportBuilder;
+import com.judoscale.core.CircuitBreaker;
 import com.judoscale.core.Metric;
+import com.judoscale.core.Report;
+import com.judoscale.core.ReportSpool;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
 
+import java.net.ConnectException;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 class JudoscaleApiClientTest {
 
@@ -28,4 +50,341 @@ class JudoscaleApiClientTest {
 
         assertThat(result).isFalse();
     }
+
+    @Test
+    void reportMetricsSendsUncompressedBodyByDefault() throws Exception {
+        HttpClient httpClient = mockHttpClient(204);
+        JudoscaleApiClient client = new JudoscaleApiClient(config, httpClient);
+
+        assertThat(client.reportMetrics(metrics(1000))).isTrue();
+
+        HttpRequest request = capturedRequest(httpClient);
+        assertThat(request.headers().firstValue("Content-Encoding")).isEmpty();
+        assertThat(client.getCompressionStats()).isNull();
+    }
+
+    @Test
+    void reportMetricsGzipsLargeBodiesWhenCompressionIsEnabled() throws Exception {
+        config.setCompressReports(true);
+        HttpClient httpClient = mockHttpClient(204);
+        JudoscaleApiClient client = new JudoscaleApiClient(config, httpClient);
+
+        assertThat(client.reportMetrics(metrics(1000))).isTrue();
+
+        HttpRequest request = capturedRequest(httpClient);
+        assertThat(request.headers().firstValue("Content-Encoding")).hasValue("gzip");
+        assertThat(client.getCompressionStats().compressedReports()).isEqualTo(1);
+        assertThat(client.getCompressionStats().compressionRatio()).isGreaterThan(1.0);
+    }
+
+    @Test
+    void reportMetricsSkipsCompressionBelowTheMinimumSize() throws Exception {
+        config.setCompressReports(true);
+        HttpClient httpClient = mockHttpClient(204);
+        JudoscaleApiClient client = new JudoscaleApiClient(config, httpClient);
+
+        assertThat(client.reportMetrics(metrics(1))).isTrue();
+
+        HttpRequest request = capturedRequest(httpClient);
+        assertThat(request.headers().firstValue("Content-Encoding")).isEmpty();
+        assertThat(client.getCompressionStats().compressedReports()).isZero();
+    }
+
+    @Test
+    void reportMetricsSendsTheBinaryFormatWhenConfigured() throws Exception {
+        config.setReportFormat("binary");
+        HttpClient httpClient = mockHttpClient(204);
+        JudoscaleApiClient client = new JudoscaleApiClient(config, httpClient);
+
+        assertThat(client.reportMetrics(metrics(1000))).isTrue();
+
+        HttpRequest request = capturedRequest(httpClient);
+        assertThat(request.headers().firstValue("Content-Type")).hasValue(BinaryReportBuilder.CONTENT_TYPE);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reportMetricsFallsBackToJsonWhenBinaryIsRejected() throws Exception {
+        config.setReportFormat("binary");
+        HttpClient httpClient = mock(HttpClient.class);
+        HttpResponse<String> unsupported = mock(HttpResponse.class);
+        when(unsupported.statusCode()).thenReturn(415);
+        HttpResponse<String> accepted = mock(HttpResponse.class);
+        when(accepted.statusCode()).thenReturn(204);
+        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+            .thenReturn(unsupported, accepted, accepted);
+        JudoscaleApiClient client = new JudoscaleApiClient(config, httpClient);
+
+        assertThat(client.reportMetrics(metrics(10))).isTrue();
+        assertThat(client.reportMetrics(metrics(10))).isTrue();
+
+        ArgumentCaptor<HttpRequest> captor = ArgumentCaptor.forClass(HttpRequest.class);
+        verify(httpClient, times(3)).send(captor.capture(), any(HttpResponse.BodyHandler.class));
+        assertThat(captor.getAllValues())
+            .extracting(request -> request.headers().firstValue("Content-Type").orElse(null))
+            .containsExactly(BinaryReportBuilder.CONTENT_TYPE, "application/json", "application/json");
+    }
+
+    @Test
+    void reportMetricsAsyncReturnsFalseWhenNotConfigured() {
+        config.setApiBaseUrl(null);
+
+        assertThat(apiClient.reportMetricsAsync(new Report(metrics(1))).join()).isFalse();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reportMetricsAsyncSendsWithoutBlocking() throws Exception {
+        HttpClient httpClient = mock(HttpClient.class);
+        HttpResponse<String> response = mock(HttpResponse.class);
+        when(response.statusCode()).thenReturn(204);
+        CompletableFuture<HttpResponse<String>> pending = new CompletableFuture<>();
+        when(httpClient.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class))).thenReturn(pending);
+        JudoscaleApiClient client = new JudoscaleApiClient(config, httpClient);
+
+        CompletableFuture<Boolean> result = client.reportMetricsAsync(new Report(metrics(10)));
+
+        assertThat(result).isNotDone();
+        pending.complete(response);
+        assertThat(result.join()).isTrue();
+        verify(httpClient, never()).send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reportMetricsAsyncRetriesConnectionErrors() throws Exception {
+        HttpClient httpClient = mock(HttpClient.class);
+        HttpResponse<String> response = mock(HttpResponse.class);
+        when(response.statusCode()).thenReturn(204);
+        when(httpClient.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+            .thenReturn(CompletableFuture.failedFuture(new ConnectException("refused")),
+                CompletableFuture.completedFuture(response));
+        JudoscaleApiClient client = new JudoscaleApiClient(config, httpClient);
+
+        assertThat(client.reportMetricsAsync(new Report(metrics(10))).get(5, TimeUnit.SECONDS)).isTrue();
+
+        verify(httpClient, times(2)).sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reportMetricsAsyncGivesUpAfterMaxRetries() throws Exception {
+        HttpClient httpClient = mock(HttpClient.class);
+        when(httpClient.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+            .thenReturn(CompletableFuture.failedFuture(new ConnectException("refused")));
+        JudoscaleApiClient client = new JudoscaleApiClient(config, httpClient);
+
+        assertThat(client.reportMetricsAsync(new Report(metrics(10))).get(5, TimeUnit.SECONDS)).isFalse();
+
+        verify(httpClient, times(3)).sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reportMetricsRetriesRetryableStatuses() throws Exception {
+        HttpClient httpClient = mock(HttpClient.class);
+        HttpResponse<String> unavailable = mock(HttpResponse.class);
+        when(unavailable.statusCode()).thenReturn(503);
+        when(unavailable.headers()).thenReturn(noHeaders());
+        HttpResponse<String> accepted = mock(HttpResponse.class);
+        when(accepted.statusCode()).thenReturn(204);
+        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+            .thenReturn(unavailable, accepted);
+        config.setRetryBaseDelayMillis(1);
+        JudoscaleApiClient client = new JudoscaleApiClient(config, httpClient);
+
+        assertThat(client.reportMetrics(metrics(10))).isTrue();
+
+        verify(httpClient, times(2)).send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
+    }
+
+    @Test
+    void reportMetricsDoesNotRetryClientErrors() throws Exception {
+        HttpClient httpClient = mockHttpClient(400);
+        JudoscaleApiClient client = new JudoscaleApiClient(config, httpClient);
+
+        assertThat(client.reportMetrics(metrics(10))).isFalse();
+
+        verify(httpClient, times(1)).send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
+        assertThat(client.getCircuitBreakerState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reportMetricsWaitsForRetryAfter() throws Exception {
+        HttpClient httpClient = mock(HttpClient.class);
+        HttpResponse<String> throttled = mock(HttpResponse.class);
+        when(throttled.statusCode()).thenReturn(429);
+        when(throttled.headers()).thenReturn(retryAfter("1"));
+        HttpResponse<String> accepted = mock(HttpResponse.class);
+        when(accepted.statusCode()).thenReturn(204);
+        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+            .thenReturn(throttled, accepted);
+        config.setRetryBaseDelayMillis(1);
+        JudoscaleApiClient client = new JudoscaleApiClient(config, httpClient);
+
+        long start = System.nanoTime();
+        assertThat(client.reportMetrics(metrics(10))).isTrue();
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(1000);
+        verify(httpClient, times(2)).send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reportMetricsPausesForALongRetryAfterInsteadOfRetrying() throws Exception {
+        HttpClient httpClient = mock(HttpClient.class);
+        HttpResponse<String> throttled = mock(HttpResponse.class);
+        when(throttled.statusCode()).thenReturn(429);
+        when(throttled.headers()).thenReturn(retryAfter("120"));
+        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class))).thenReturn(throttled);
+        JudoscaleApiClient client = new JudoscaleApiClient(config, httpClient);
+
+        assertThat(client.reportMetrics(metrics(10))).isFalse();
+        assertThat(client.getCircuitBreakerState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(client.reportMetrics(metrics(10))).isFalse();
+
+        verify(httpClient, times(1)).send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void circuitBreakerStopsSendingAfterRepeatedFailures(@TempDir Path spoolDirectory) throws Exception {
+        HttpClient httpClient = mock(HttpClient.class);
+        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+            .thenThrow(new ConnectException("refused"));
+        config.setRetryMaxAttempts(1);
+        config.setCircuitBreakerFailureThreshold(2);
+        JudoscaleApiClient client = new JudoscaleApiClient(config, httpClient);
+        try (ReportSpool spool = new ReportSpool(spoolDirectory, 1024 * 1024, 60_000)) {
+            client.setSpool(spool);
+
+            client.reportMetrics(metrics(10));
+            assertThat(client.getCircuitBreakerState()).isEqualTo(CircuitBreaker.State.CLOSED);
+            client.reportMetrics(metrics(10));
+            assertThat(client.getCircuitBreakerState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+            assertThat(client.reportMetrics(metrics(10))).isFalse();
+            assertThat(spool.getSpooledReportCount()).isEqualTo(3);
+        }
+
+        verify(httpClient, times(2)).send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reportMetricsAsyncRetriesRetryableStatuses() throws Exception {
+        HttpClient httpClient = mock(HttpClient.class);
+        HttpResponse<String> unavailable = mock(HttpResponse.class);
+        when(unavailable.statusCode()).thenReturn(503);
+        when(unavailable.headers()).thenReturn(noHeaders());
+        HttpResponse<String> accepted = mock(HttpResponse.class);
+        when(accepted.statusCode()).thenReturn(204);
+        when(httpClient.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+            .thenReturn(CompletableFuture.completedFuture(unavailable), CompletableFuture.completedFuture(accepted));
+        config.setRetryBaseDelayMillis(1);
+        JudoscaleApiClient client = new JudoscaleApiClient(config, httpClient);
+
+        assertThat(client.reportMetricsAsync(new Report(metrics(10))).get(5, TimeUnit.SECONDS)).isTrue();
+
+        verify(httpClient, times(2)).sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void prewarmSendsAHeadRequestInTheBackground() throws Exception {
+        HttpClient httpClient = mock(HttpClient.class);
+        when(httpClient.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+            .thenReturn(new CompletableFuture<>());
+        JudoscaleApiClient client = new JudoscaleApiClient(config, httpClient);
+
+        client.prewarm();
+
+        ArgumentCaptor<HttpRequest> captor = ArgumentCaptor.forClass(HttpRequest.class);
+        verify(httpClient).sendAsync(captor.capture(), any(HttpResponse.BodyHandler.class));
+        assertThat(captor.getValue().method()).isEqualTo("HEAD");
+        assertThat(captor.getValue().uri().toString()).isEqualTo("http://example.com/api/test-token/v3/reports");
+    }
+
+    @Test
+    void connectionStatsAreOnlyKnownForHttps() {
+        assertThat(apiClient.getConnectionStats()).isNull();
+
+        config.setApiBaseUrl("https://example.com/api/test-token");
+
+        assertThat(apiClient.getConnectionStats().requests()).isZero();
+        assertThat(apiClient.getConnectionStats().connectionsOpened()).isZero();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void spoolsReportsThatFailWithARetryableStatusAndReplaysThemOnceReportsAreSent(@TempDir Path spoolDirectory) throws Exception {
+        HttpClient httpClient = mock(HttpClient.class);
+        HttpResponse<String> unavailable = mock(HttpResponse.class);
+        when(unavailable.statusCode()).thenReturn(503);
+        when(unavailable.headers()).thenReturn(noHeaders());
+        HttpResponse<String> accepted = mock(HttpResponse.class);
+        when(accepted.statusCode()).thenReturn(204);
+        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+            .thenReturn(unavailable, unavailable, unavailable, accepted, accepted);
+        config.setRetryBaseDelayMillis(1);
+        JudoscaleApiClient client = new JudoscaleApiClient(config, httpClient);
+        try (ReportSpool spool = new ReportSpool(spoolDirectory, 1024 * 1024, 60_000)) {
+            client.setSpool(spool);
+
+            assertThat(client.reportMetrics(metrics(10))).isFalse();
+            assertThat(spool.getSpooledReportCount()).isEqualTo(1);
+            assertThat(client.replaySpooledReports(10)).isZero();
+
+            assertThat(client.reportMetrics(metrics(10))).isTrue();
+            assertThat(client.replaySpooledReports(10)).isEqualTo(1);
+            assertThat(spool.getSpooledReportCount()).isZero();
+        }
+
+        verify(httpClient, times(5)).send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
+    }
+
+    @Test
+    void doesNotSpoolReportsTheApiRejects(@TempDir Path spoolDirectory) throws Exception {
+        HttpClient httpClient = mockHttpClient(400);
+        JudoscaleApiClient client = new JudoscaleApiClient(config, httpClient);
+        try (ReportSpool spool = new ReportSpool(spoolDirectory, 1024 * 1024, 60_000)) {
+            client.setSpool(spool);
+
+            assertThat(client.reportMetrics(metrics(10))).isFalse();
+            assertThat(spool.getSpooledReportCount()).isZero();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static HttpClient mockHttpClient(int statusCode) throws Exception {
+        HttpClient httpClient = mock(HttpClient.class);
+        HttpResponse<String> response = mock(HttpResponse.class);
+        when(response.statusCode()).thenReturn(statusCode);
+        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class))).thenReturn(response);
+        return httpClient;
+    }
+
+    private static HttpHeaders noHeaders() {
+        return HttpHeaders.of(Map.of(), (name, value) -> true);
+    }
+
+    private static HttpHeaders retryAfter(String value) {
+        return HttpHeaders.of(Map.of("Retry-After", List.of(value)), (name, v) -> true);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static HttpRequest capturedRequest(HttpClient httpClient) throws Exception {
+        ArgumentCaptor<HttpRequest> captor = ArgumentCaptor.forClass(HttpRequest.class);
+        verify(httpClient).send(captor.capture(), any(HttpResponse.BodyHandler.class));
+        return captor.getValue();
+    }
+
+    private static List<Metric> metrics(int count) {
+        List<Metric> metrics = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            metrics.add(new Metric("at", i % 50));
+        }
+        return metrics;
+    }
 }
@@ -2,7 +2,12 @@ package com.judoscale.spring;
 
 import com.judoscale.core.Metric;
 import com.judoscale.core.MetricsStore;
+import com.judoscale.core.RouteSummary;
+import com.judoscale.core.RouteTracker;
 import com.judoscale.core.UtilizationTracker;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import org.junit.jupiter.api.BeforeEach;
@@ -10,8 +15,10 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockAsyncContext;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
 
 import java.io.IOException;
 import java.time.Instant;
@@ -137,6 +144,76 @@ class JudoscaleFilterTest {
         assertThat(metrics.get(0).identifier()).isEqualTo("qt");
     }
 
+    @Test
+    void reportsNetworkTimeWhenTheBodyIsRead() throws Exception {
+        config.setTrackNetworkTime(true);
+        request.setContent(new byte[1000]);
+
+        filter.doFilter(request, response, (req, res) -> req.getInputStream().readAllBytes());
+
+        List<Metric> metrics = metricsStore.flush();
+        assertThat(metrics).extracting(Metric::identifier).containsExactly("at", "nt");
+        assertThat(metrics.get(1).value()).isGreaterThanOrEqualTo(0);
+    }
+
+    @Test
+    void doesNotReportNetworkTimeWhenTheBodyIsNotRead() throws Exception {
+        config.setTrackNetworkTime(true);
+        request.setContent(new byte[1000]);
+
+        filter.doFilter(request, response, filterChain);
+
+        assertThat(metricsStore.flush()).extracting(Metric::identifier).containsExactly("at");
+    }
+
+    @Test
+    void subtractsNetworkTimeFromTheQueueTimeOfLargeRequestsWhenConfigured() throws Exception {
+        config.setSubtractNetworkTime(true);
+        config.setMaxRequestSizeBytes(100_000);
+
+        request.addHeader("X-Request-Start", String.valueOf(Instant.now().toEpochMilli() - 5000));
+        request.setContent(new byte[110_000]);
+
+        filter.doFilter(request, response, (req, res) -> req.getInputStream().readAllBytes());
+
+        List<Metric> metrics = metricsStore.flush();
+        // Queue time is held back until the body has been read, and network time isn't reported
+        assertThat(metrics).extracting(Metric::identifier).containsExactly("at", "qt");
+        assertThat(metrics.get(1).value()).isBetween(0L, 5100L);
+    }
+
+    @Test
+    void subtractsNetworkTimeOfBodiesReadThroughTheReader() throws Exception {
+        config.setSubtractNetworkTime(true);
+        config.setMaxRequestSizeBytes(100_000);
+
+        request.addHeader("X-Request-Start", String.valueOf(Instant.now().toEpochMilli() - 5000));
+        request.setContent(new byte[110_000]);
+
+        filter.doFilter(request, response, (req, res) -> {
+            while (req.getReader().read() != -1) {
+            }
+        });
+
+        List<Metric> metrics = metricsStore.flush();
+        assertThat(metrics).extracting(Metric::identifier).containsExactly("at", "qt");
+        assertThat(metrics.get(1).value()).isBetween(0L, 5100L);
+    }
+
+    @Test
+    void dropsTheQueueTimeOfLargeRequestsWhoseBodyIsNotRead() throws Exception {
+        config.setSubtractNetworkTime(true);
+        config.setMaxRequestSizeBytes(100_000);
+
+        request.addHeader("X-Request-Start", String.valueOf(Instant.now().toEpochMilli() - 5000));
+        request.setContent(new byte[110_000]);
+
+        // Multipart and form bodies are parsed by the container, not read through the request
+        filter.doFilter(request, response, filterChain);
+
+        assertThat(metricsStore.flush()).extracting(Metric::identifier).containsExactly("at");
+    }
+
     @Test
     void handlesNginxFormatWithTPrefix() throws Exception {
         // NGINX format: "t=1234567890.123" (Unix timestamp in seconds with fractional part)
@@ -262,4 +339,91 @@ class JudoscaleFilterTest {
         // Counter should still be decremented
         assertThat(utilizationTracker.getActiveRequestCount()).isEqualTo(0);
     }
+
+    @Test
+    void collectsAppTimeWhenAsyncRequestCompletes() throws Exception {
+        request.setAsyncSupported(true);
+
+        filter.doFilter(request, response, (req, res) -> req.startAsync());
+
+        // Still in flight after the handoff
+        assertThat(metricsStore.flush()).isEmpty();
+        assertThat(utilizationTracker.getActiveRequestCount()).isEqualTo(1);
+
+        request.getAsyncContext().complete();
+
+        List<Metric> metrics = metricsStore.flush();
+        assertThat(metrics).hasSize(1);
+        assertThat(metrics.get(0).identifier()).isEqualTo("at");
+        assertThat(utilizationTracker.getActiveRequestCount()).isEqualTo(0);
+    }
+
+    @Test
+    void collectsAppTimeOnceWhenAsyncRequestTimesOutAndCompletes() throws Exception {
+        request.setAsyncSupported(true);
+
+        filter.doFilter(request, response, (req, res) -> req.startAsync());
+
+        MockAsyncContext asyncContext = (MockAsyncContext) request.getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(new AsyncEvent(asyncContext));
+        }
+        asyncContext.complete();
+
+        assertThat(metricsStore.flush()).hasSize(1);
+        assertThat(utilizationTracker.getActiveRequestCount()).isEqualTo(0);
+    }
+
+    @Test
+    void passesAsyncDispatchesThroughWithoutMeasuring() throws Exception {
+        request.setDispatcherType(DispatcherType.ASYNC);
+
+        filter.doFilter(request, response, filterChain);
+
+        verify(filterChain).doFilter(request, response);
+        assertThat(metricsStore.flush()).isEmpty();
+        assertThat(utilizationTracker.isStarted()).isFalse();
+    }
+
+    @Test
+    void recordsTheMatchedRouteWhenTrackingRoutes() throws Exception {
+        metricsStore.setRouteTracker(new RouteTracker(10));
+        request.addHeader("X-Request-Start", String.valueOf(Instant.now().toEpochMilli() - 5000));
+
+        filter.doFilter(request, response, (req, res) ->
+            req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/foo/{id}"));
+        filter.doFilter(new MockHttpServletRequest("GET", "/missing"), response, filterChain);
+
+        List<RouteSummary> routes = metricsStore.flushRoutes();
+        assertThat(routes).extracting(RouteSummary::route).containsExactly("POST /foo/{id}", RouteSummary.OTHER);
+        assertThat(routes.get(0).count()).isEqualTo(1);
+        assertThat(routes.get(0).queueTimeCount()).isEqualTo(1);
+        assertThat(routes.get(0).queueTimeSum()).isBetween(4900L, 5100L);
+        assertThat(routes.get(1).queueTimeCount()).isZero();
+    }
+
+    @Test
+    void recordsTheRouteOfAnAsyncRequestWhenItCompletes() throws Exception {
+        metricsStore.setRouteTracker(new RouteTracker(10));
+        request.setAsyncSupported(true);
+
+        filter.doFilter(request, response, (req, res) -> {
+            req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/foo");
+            req.startAsync();
+        });
+        assertThat(metricsStore.flushRoutes()).isEmpty();
+
+        request.getAsyncContext().complete();
+
+        assertThat(metricsStore.flushRoutes()).extracting(RouteSummary::route).containsExactly("POST /foo");
+    }
+
+    @Test
+    void doesNotRecordRoutesByDefault() throws Exception {
+        filter.doFilter(request, response, (req, res) ->
+            req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/foo"));
+
+        assertThat(metricsStore.isTrackingRoutes()).isFalse();
+        assertThat(metricsStore.flushRoutes()).isEmpty();
+    }
 }
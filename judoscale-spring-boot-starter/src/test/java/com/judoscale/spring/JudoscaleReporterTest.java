@@ -1,11 +1,15 @@
 package com.judoscale.spring;
 
 import com.judoscale.core.ApiClient;
+import com.judoscale.core.HistogramMetricsStore;
+import com.judoscale.core.Metric;
 import com.judoscale.core.MetricsStore;
+import com.judoscale.core.Report;
 import com.judoscale.core.UtilizationTracker;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
@@ -77,7 +81,8 @@ class JudoscaleReporterTest {
 
         reporter.reportMetrics();
 
-        verify(apiClient, never()).reportMetrics(any());
+        verify(apiClient, never()).reportMetrics(anyList());
+        verify(apiClient, never()).reportMetrics(any(Report.class));
     }
 
     @Test
@@ -88,7 +93,8 @@ class JudoscaleReporterTest {
 
         reporter.reportMetrics();
 
-        verify(apiClient, never()).reportMetrics(any());
+        verify(apiClient, never()).reportMetrics(anyList());
+        verify(apiClient, never()).reportMetrics(any(Report.class));
     }
 
     @Test
@@ -99,7 +105,7 @@ class JudoscaleReporterTest {
 
         reporter.reportMetrics();
 
-        verify(apiClient).reportMetrics(argThat(metrics ->
+        verify(apiClient).reportMetrics(ArgumentMatchers.<List<Metric>>argThat(metrics ->
             metrics.size() == 2 &&
             metrics.get(0).identifier().equals("qt") &&
             metrics.get(1).identifier().equals("at")
@@ -112,7 +118,8 @@ class JudoscaleReporterTest {
 
         reporter.reportMetrics();
 
-        verify(apiClient, never()).reportMetrics(any());
+        verify(apiClient, never()).reportMetrics(anyList());
+        verify(apiClient, never()).reportMetrics(any(Report.class));
     }
 
     @Test
@@ -129,7 +136,7 @@ class JudoscaleReporterTest {
     void reportMetricsContinuesEvenWhenApiClientThrowsException() {
         reporter.start();
         metricsStore.push("qt", 100, Instant.now());
-        doThrow(new RuntimeException("boom")).when(apiClient).reportMetrics(any());
+        doThrow(new RuntimeException("boom")).when(apiClient).reportMetrics(anyList());
 
         // Should not throw
         reporter.reportMetrics();
@@ -156,7 +163,8 @@ class JudoscaleReporterTest {
 
         reporter.reportMetrics();
 
-        verify(apiClient, never()).reportMetrics(any());
+        verify(apiClient, never()).reportMetrics(anyList());
+        verify(apiClient, never()).reportMetrics(any(Report.class));
     }
 
     @Test
@@ -166,10 +174,11 @@ class JudoscaleReporterTest {
 
         reporter.reportMetrics();
 
-        // Should have sent the utilization metric
-        verify(apiClient).reportMetrics(argThat(metrics ->
-            metrics.size() == 1 &&
-            metrics.get(0).identifier().equals("up")
+        // Should have sent the utilization and average concurrency metrics
+        verify(apiClient).reportMetrics(ArgumentMatchers.<List<Metric>>argThat(metrics ->
+            metrics.size() == 2 &&
+            metrics.get(0).identifier().equals("up") &&
+            metrics.get(1).identifier().equals("ac")
         ));
     }
 
@@ -181,7 +190,8 @@ class JudoscaleReporterTest {
         reporter.reportMetrics();
 
         // No metrics should be sent (tracker not started, no other metrics)
-        verify(apiClient, never()).reportMetrics(any());
+        verify(apiClient, never()).reportMetrics(anyList());
+        verify(apiClient, never()).reportMetrics(any(Report.class));
     }
 
     @Test
@@ -193,12 +203,42 @@ class JudoscaleReporterTest {
 
         reporter.reportMetrics();
 
-        // Should have utilization + queue time + app time
-        verify(apiClient).reportMetrics(argThat(metrics ->
-            metrics.size() == 3 &&
+        // Should have utilization + average concurrency + queue time + app time
+        verify(apiClient).reportMetrics(ArgumentMatchers.<List<Metric>>argThat(metrics ->
+            metrics.size() == 4 &&
             metrics.stream().anyMatch(m -> m.identifier().equals("up")) &&
+            metrics.stream().anyMatch(m -> m.identifier().equals("ac")) &&
             metrics.stream().anyMatch(m -> m.identifier().equals("qt")) &&
             metrics.stream().anyMatch(m -> m.identifier().equals("at"))
         ));
     }
+
+    @Test
+    void reportMetricsSendsTheFullReportWhenItHasHistograms() {
+        metricsStore = new HistogramMetricsStore();
+        reporter = new JudoscaleReporter(metricsStore, apiClient, config, utilizationTracker);
+        reporter.start();
+        metricsStore.push("qt", 100, Instant.now());
+        metricsStore.push("qt", 200, Instant.now());
+
+        reporter.reportMetrics();
+
+        verify(apiClient).reportMetrics(argThat((Report report) ->
+            report.metrics().isEmpty() &&
+            report.histograms().size() == 1 &&
+            report.histograms().get(0).identifier().equals("qt")
+        ));
+        verify(apiClient, never()).reportMetrics(anyList());
+    }
+
+    @Test
+    void reportMetricsSendsOnlyTheMetricsListWithoutHistograms() {
+        reporter.start();
+        metricsStore.push("qt", 100, Instant.now());
+
+        reporter.reportMetrics();
+
+        verify(apiClient).reportMetrics(anyList());
+        verify(apiClient, never()).reportMetrics(any(Report.class));
+    }
 }
@@ -0,0 +1,120 @@
+package com.judoscale.spring;
+
+import com.judoscale.core.Clock;
+import com.judoscale.core.HistogramMetricsStore;
+import com.judoscale.core.HistogramSnapshot;
+import com.judoscale.core.Metric;
+import com.judoscale.core.MetricsStore;
+import org.apache.catalina.Valve;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.connector.Request;
+import org.apache.catalina.connector.Response;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class JudoscaleTomcatValveTest {
+
+    private MetricsStore metricsStore;
+    private JudoscaleTomcatValve valve;
+    private Valve next;
+
+    @BeforeEach
+    void setUp() {
+        metricsStore = new MetricsStore();
+        valve = new JudoscaleTomcatValve(metricsStore, Clock.system());
+        next = mock(Valve.class);
+        valve.setNext(next);
+    }
+
+    @Test
+    void aggregatesTimeSinceTomcatStartedReadingTheRequestWithTheHistogramStore() throws Exception {
+        HistogramMetricsStore histogramStore = new HistogramMetricsStore();
+        valve = new JudoscaleTomcatValve(histogramStore, Clock.system());
+        valve.setNext(next);
+        Request request = new Request(new Connector());
+        request.setCoyoteRequest(new org.apache.coyote.Request());
+        request.getCoyoteRequest().setStartTimeNanos(System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(250));
+        Response response = new Response();
+
+        valve.invoke(request, response);
+
+        verify(next).invoke(request, response);
+        List<HistogramSnapshot> histograms = histogramStore.flushReport().histograms();
+        assertThat(histograms).hasSize(1);
+        assertThat(histograms.get(0).identifier()).isEqualTo("tc_qt");
+        assertThat(histograms.get(0).max()).isBetween(250L, 5000L);
+    }
+
+    @Test
+    void recordsNothingPerRequestWithOtherStores() throws Exception {
+        Request request = new Request(new Connector());
+        request.setCoyoteRequest(new org.apache.coyote.Request());
+        request.getCoyoteRequest().setStartTimeNanos(System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(250));
+        Response response = new Response();
+
+        valve.invoke(request, response);
+
+        verify(next).invoke(request, response);
+        assertThat(metricsStore.flush()).isEmpty();
+    }
+
+    @Test
+    void skipsRequestsWithoutAStartTime() throws Exception {
+        HistogramMetricsStore histogramStore = new HistogramMetricsStore();
+        valve = new JudoscaleTomcatValve(histogramStore, Clock.system());
+        valve.setNext(next);
+        Request request = new Request(new Connector());
+        request.setCoyoteRequest(new org.apache.coyote.Request());
+        Response response = new Response();
+
+        valve.invoke(request, response);
+
+        verify(next).invoke(request, response);
+        assertThat(histogramStore.flushReport().histograms()).isEmpty();
+    }
+
+    @Test
+    void reportsExecutorSaturation() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(2, 8, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        try {
+            Connector connector = new Connector();
+            connector.getProtocolHandler().setExecutor(executor);
+            valve.setConnector(connector);
+
+            valve.report();
+
+            List<Metric> metrics = metricsStore.flush();
+            assertThat(find(metrics, "tc_busy")).hasValue(0L);
+            assertThat(find(metrics, "tc_max")).hasValue(8L);
+            assertThat(find(metrics, "tc_queue")).hasValue(0L);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void reportsNothingWithoutAThreadPool() {
+        valve.report();
+        valve.setConnector(new Connector());
+        valve.report();
+
+        assertThat(metricsStore.flush()).isEmpty();
+    }
+
+    private static Optional<Long> find(List<Metric> metrics, String identifier) {
+        return metrics.stream()
+            .filter(metric -> metric.identifier().equals(identifier))
+            .map(Metric::value)
+            .findFirst();
+    }
+}
@@ -0,0 +1,103 @@
+package com.judoscale.spring;
+
+import com.judoscale.core.Clock;
+import com.judoscale.core.Metric;
+import com.judoscale.core.MetricsStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JudoscaleVirtualThreadMonitorTest {
+
+    private MetricsStore metricsStore;
+    private AtomicInteger busyCarriers;
+    private JudoscaleVirtualThreadMonitor monitor;
+
+    @BeforeEach
+    void setUp() {
+        metricsStore = new MetricsStore();
+        busyCarriers = new AtomicInteger();
+        monitor = new JudoscaleVirtualThreadMonitor(metricsStore, Clock.system(), new CarrierPool(() -> 4, busyCarriers::get));
+    }
+
+    @Test
+    void reportsParallelismAndAverageSaturation() {
+        busyCarriers.set(1);
+        monitor.probe();
+        busyCarriers.set(3);
+        monitor.probe();
+
+        monitor.report();
+
+        List<Metric> metrics = metricsStore.flush();
+        assertThat(find(metrics, "vt_par")).hasValue(4L);
+        assertThat(find(metrics, "vt_sat")).hasValue(50L);
+    }
+
+    @Test
+    void capsSaturationAtOneHundredPercent() {
+        busyCarriers.set(6);
+        monitor.probe();
+
+        monitor.report();
+
+        assertThat(find(metricsStore.flush(), "vt_sat")).hasValue(100L);
+    }
+
+    @Test
+    void resetsSaturationAfterEachReport() {
+        busyCarriers.set(4);
+        monitor.probe();
+        monitor.report();
+        metricsStore.flush();
+
+        monitor.report();
+
+        List<Metric> metrics = metricsStore.flush();
+        assertThat(find(metrics, "vt_par")).hasValue(4L);
+        assertThat(find(metrics, "vt_sat")).isEmpty();
+    }
+
+    @Test
+    void omitsSaturationWhenCarrierLoadIsUnknown() {
+        monitor = new JudoscaleVirtualThreadMonitor(metricsStore, Clock.system(), new CarrierPool(() -> 4, null));
+        monitor.probe();
+
+        monitor.report();
+
+        List<Metric> metrics = metricsStore.flush();
+        assertThat(find(metrics, "vt_par")).hasValue(4L);
+        assertThat(find(metrics, "vt_sat")).isEmpty();
+    }
+
+    @Test
+    void omitsPinnedTimeUntilStarted() {
+        monitor.report();
+
+        assertThat(find(metricsStore.flush(), "vt_pinned")).isEmpty();
+    }
+
+    @Test
+    void reportsPinnedTimeOnceStarted() {
+        monitor.start();
+        try {
+            monitor.report();
+        } finally {
+            monitor.stop();
+        }
+
+        assertThat(find(metricsStore.flush(), "vt_pinned")).isPresent();
+    }
+
+    private static Optional<Long> find(List<Metric> metrics, String identifier) {
+        return metrics.stream()
+            .filter(metric -> metric.identifier().equals(identifier))
+            .map(Metric::value)
+            .findFirst();
+    }
+}
@@ -0,0 +1,151 @@
+package com.judoscale.spring;
+
+import com.judoscale.core.Metric;
+import com.judoscale.core.MetricsStore;
+import com.judoscale.core.RouteSummary;
+import com.judoscale.core.RouteTracker;
+import com.judoscale.core.UtilizationTracker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JudoscaleWebFilterTest {
+
+    private MetricsStore metricsStore;
+    private JudoscaleConfig config;
+    private UtilizationTracker utilizationTracker;
+    private JudoscaleWebFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        metricsStore = new MetricsStore();
+        config = new JudoscaleConfig();
+        config.setApiBaseUrl("http://example.com/api/test-token");
+        utilizationTracker = new UtilizationTracker();
+        filter = new JudoscaleWebFilter(metricsStore, config, utilizationTracker);
+    }
+
+    @Test
+    void collectsApplicationTimeWhenTheResponseCompletes() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/foo"));
+
+        filter.filter(exchange, e -> Mono.empty()).block();
+
+        List<Metric> metrics = metricsStore.flush();
+        assertThat(metrics).hasSize(1);
+        assertThat(metrics.get(0).identifier()).isEqualTo("at");
+        assertThat(metrics.get(0).value()).isGreaterThanOrEqualTo(0);
+    }
+
+    @Test
+    void collectsQueueTimeAndExposesItAsExchangeAttribute() {
+        long fiveSecondsAgo = Instant.now().toEpochMilli() - 5000;
+        MockServerWebExchange exchange = MockServerWebExchange.from(
+            MockServerHttpRequest.get("/foo").header("X-Request-Start", String.valueOf(fiveSecondsAgo)));
+
+        filter.filter(exchange, e -> Mono.empty()).block();
+
+        List<Metric> metrics = metricsStore.flush();
+        assertThat(metrics).hasSize(2);
+        assertThat(metrics.get(0).identifier()).isEqualTo("qt");
+        // Allow 100ms tolerance for test execution time
+        assertThat(metrics.get(0).value()).isBetween(4900L, 5100L);
+        assertThat((Long) exchange.getAttribute("judoscale.queue_time")).isBetween(4900L, 5100L);
+    }
+
+    @Test
+    void ignoresLargeRequestsWhenConfigured() {
+        config.setMaxRequestSizeBytes(1000);
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/foo")
+            .header("X-Request-Start", String.valueOf(Instant.now().toEpochMilli()))
+            .contentLength(2000));
+
+        filter.filter(exchange, e -> Mono.empty()).block();
+
+        List<Metric> metrics = metricsStore.flush();
+        assertThat(metrics).hasSize(1);
+        assertThat(metrics.get(0).identifier()).isEqualTo("at");
+    }
+
+    @Test
+    void tracksRequestAsActiveUntilTheResponseCompletes() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/foo"));
+        Sinks.Empty<Void> response = Sinks.empty();
+        WebFilterChain chain = e -> response.asMono();
+
+        filter.filter(exchange, chain).subscribe();
+
+        assertThat(utilizationTracker.isStarted()).isTrue();
+        assertThat(utilizationTracker.getActiveRequestCount()).isEqualTo(1);
+        assertThat(metricsStore.flush()).isEmpty();
+
+        response.tryEmitEmpty();
+
+        assertThat(utilizationTracker.getActiveRequestCount()).isEqualTo(0);
+        assertThat(metricsStore.flush()).hasSize(1);
+    }
+
+    @Test
+    void collectsAppTimeWhenTheRequestIsCancelled() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/foo"));
+
+        Disposable subscription = filter.filter(exchange, e -> Mono.never()).subscribe();
+        subscription.dispose();
+
+        List<Metric> metrics = metricsStore.flush();
+        assertThat(metrics).hasSize(1);
+        assertThat(metrics.get(0).identifier()).isEqualTo("at");
+        assertThat(utilizationTracker.getActiveRequestCount()).isEqualTo(0);
+    }
+
+    @Test
+    void collectsAppTimeWhenTheChainFails() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/foo"));
+
+        filter.filter(exchange, e -> Mono.error(new IllegalStateException("boom")))
+            .onErrorResume(e -> Mono.empty())
+            .block();
+
+        assertThat(metricsStore.flush()).hasSize(1);
+        assertThat(utilizationTracker.getActiveRequestCount()).isEqualTo(0);
+    }
+
+    @Test
+    void doesNotTrackUtilizationUntilSubscribed() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/foo"));
+
+        filter.filter(exchange, e -> Mono.empty());
+
+        assertThat(utilizationTracker.isStarted()).isFalse();
+        assertThat(utilizationTracker.getActiveRequestCount()).isEqualTo(0);
+    }
+
+    @Test
+    void recordsTheMatchedRouteWhenTrackingRoutes() {
+        metricsStore.setRouteTracker(new RouteTracker(10));
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/users/42"));
+
+        filter.filter(exchange, e -> {
+            e.getAttributes().put(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE,
+                PathPatternParser.defaultInstance.parse("/users/{id}"));
+            return Mono.empty();
+        }).block();
+
+        List<RouteSummary> routes = metricsStore.flushRoutes();
+        assertThat(routes).extracting(RouteSummary::route).containsExactly("GET /users/{id}");
+        assertThat(routes.get(0).count()).isEqualTo(1);
+        assertThat(routes.get(0).queueTimeCount()).isZero();
+    }
+}
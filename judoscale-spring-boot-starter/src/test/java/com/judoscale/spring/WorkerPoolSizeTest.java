@@ -0,0 +1,39 @@
+package com.judoscale.spring;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WorkerPoolSizeTest {
+
+    @Test
+    void usesConfiguredWorkerPoolSize() {
+        JudoscaleConfig config = new JudoscaleConfig();
+        config.setWorkerPoolSize(32);
+        MockEnvironment environment = new MockEnvironment().withProperty("server.tomcat.threads.max", "50");
+
+        assertThat(WorkerPoolSize.detect(config, environment)).isEqualTo(32);
+    }
+
+    @Test
+    void detectsTomcatMaxThreads() {
+        MockEnvironment environment = new MockEnvironment().withProperty("server.tomcat.threads.max", "50");
+
+        assertThat(WorkerPoolSize.detect(new JudoscaleConfig(), environment)).isEqualTo(50);
+    }
+
+    @Test
+    void defaultsToTomcatDefaultMaxThreads() {
+        assertThat(WorkerPoolSize.detect(new JudoscaleConfig(), new MockEnvironment())).isEqualTo(200);
+    }
+
+    @Test
+    void isUnknownWhenRequestsRunOnVirtualThreads() {
+        MockEnvironment environment = new MockEnvironment()
+            .withProperty("spring.threads.virtual.enabled", "true")
+            .withProperty("server.tomcat.threads.max", "50");
+
+        assertThat(WorkerPoolSize.detect(new JudoscaleConfig(), environment)).isEqualTo(0);
+    }
+}
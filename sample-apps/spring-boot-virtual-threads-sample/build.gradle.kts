@@ -0,0 +1,32 @@
+plugins {
+    java
+    id("org.springframework.boot") version "3.2.2"
+    id("io.spring.dependency-management") version "1.1.4"
+}
+
+group = "com.judoscale"
+version = "0.0.1-SNAPSHOT"
+
+description = "Sample virtual threads app for testing judoscale-spring-boot-starter"
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_21
+    targetCompatibility = JavaVersion.VERSION_21
+}
+
+dependencies {
+    implementation("org.springframework.boot:spring-boot-starter-web")
+    implementation("org.springframework.boot:spring-boot-starter-thymeleaf")
+
+    // Judoscale Spring Boot Starter
+    implementation(project(":judoscale-spring-boot-starter"))
+
+    // Development tools (auto-restart on file changes)
+    developmentOnly("org.springframework.boot:spring-boot-devtools")
+
+    testImplementation("org.springframework.boot:spring-boot-starter-test")
+}
+
+tasks.withType<Test> {
+    useJUnitPlatform()
+}
@@ -0,0 +1,57 @@
+package com.judoscale.sample;
+
+import com.judoscale.spring.JudoscaleConfig;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+@Controller
+public class HomeController {
+
+    // Sleeping while holding this monitor pins the virtual thread to its carrier (JDK 21-23)
+    private static final Object PIN_LOCK = new Object();
+
+    private final JudoscaleConfig judoscaleConfig;
+
+    public HomeController(JudoscaleConfig judoscaleConfig) {
+        this.judoscaleConfig = judoscaleConfig;
+    }
+
+    @GetMapping("/")
+    public String home(
+            @RequestParam(name = "sleep", required = false) Double sleepSeconds,
+            @RequestParam(name = "pin", defaultValue = "false") boolean pin,
+            Model model) throws InterruptedException {
+        
+        long startTime = System.currentTimeMillis();
+        
+        if (sleepSeconds != null && sleepSeconds > 0) {
+            long sleepMillis = (long) (sleepSeconds * 1000);
+            if (pin) {
+                synchronized (PIN_LOCK) {
+                    Thread.sleep(sleepMillis);
+                }
+            } else {
+                Thread.sleep(sleepMillis);
+            }
+        }
+        
+        long duration = System.currentTimeMillis() - startTime;
+        
+        model.addAttribute("apiBaseUrl", judoscaleConfig.getApiBaseUrl());
+        model.addAttribute("sleepSeconds", sleepSeconds);
+        model.addAttribute("pin", pin);
+        model.addAttribute("thread", Thread.currentThread().toString());
+        model.addAttribute("requestDuration", duration);
+        
+        return "home";
+    }
+
+    @GetMapping("/health")
+    @ResponseBody
+    public String health() {
+        return "OK";
+    }
+}
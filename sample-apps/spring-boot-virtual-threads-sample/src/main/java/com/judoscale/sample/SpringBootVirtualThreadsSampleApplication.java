@@ -0,0 +1,13 @@
+package com.judoscale.sample;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication
+public class SpringBootVirtualThreadsSampleApplication {
+
+	public static void main(String[] args) {
+		SpringApplication.run(SpringBootVirtualThreadsSampleApplication.class, args);
+	}
+
+}
@@ -0,0 +1,13 @@
+package com.judoscale.sample;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest
+class SpringBootVirtualThreadsSampleApplicationTests {
+
+	@Test
+	void contextLoads() {
+	}
+
+}
@@ -0,0 +1,51 @@
+package com.judoscale.sample;
+
+import com.judoscale.spring.JudoscaleConfig;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+@Controller
+public class HomeController {
+
+    private final JudoscaleConfig judoscaleConfig;
+
+    public HomeController(JudoscaleConfig judoscaleConfig) {
+        this.judoscaleConfig = judoscaleConfig;
+    }
+
+    @GetMapping("/")
+    public Mono<String> home(
+            @RequestParam(name = "sleep", required = false) Double sleepSeconds,
+            Model model) {
+
+        long startTime = System.currentTimeMillis();
+
+        // Delay without blocking the event loop, so the request stays in flight
+        Mono<Long> delay = Mono.just(0L);
+        if (sleepSeconds != null && sleepSeconds > 0) {
+            delay = Mono.delay(Duration.ofMillis((long) (sleepSeconds * 1000)));
+        }
+
+        return delay.map(ignored -> {
+            long duration = System.currentTimeMillis() - startTime;
+
+            model.addAttribute("apiBaseUrl", judoscaleConfig.getApiBaseUrl());
+            model.addAttribute("sleepSeconds", sleepSeconds);
+            model.addAttribute("requestDuration", duration);
+
+            return "home";
+        });
+    }
+
+    @GetMapping("/health")
+    @ResponseBody
+    public Mono<String> health() {
+        return Mono.just("OK");
+    }
+}
@@ -3,5 +3,8 @@ rootProject.name = "judoscale-java"
 include("judoscale-core")
 include("judoscale-spring-boot-starter")
 include("judoscale-spring-boot-2-starter")
+include("judoscale-benchmarks")
 include("sample-apps:spring-boot-sample")
 include("sample-apps:spring-boot-2-sample")
+include("sample-apps:spring-boot-webflux-sample")
+include("sample-apps:spring-boot-virtual-threads-sample")